@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * BenchmarkReport holds the metrics of the cases of a benchmark, such as rows
+ * per second or bytes allocated per row.
+ *
+ * A report is written as tab separated text, with a header line naming the
+ * metrics and a line for each case, so it can be kept and compared with the
+ * report of a later run to find regressions.
+ */
+public class BenchmarkReport {
+
+  // the metrics, and whether a higher value is better
+  private final LinkedHashMap<String, Boolean> metrics =
+      new LinkedHashMap<String, Boolean>();
+  private final TreeMap<String, Map<String, Double>> values =
+      new TreeMap<String, Map<String, Double>>();
+
+  /**
+   * Add a metric to the report.
+   *
+   * @param name
+   *          the name of the metric, without tabs or spaces
+   * @param higherIsBetter
+   *          whether a higher value is an improvement, as for throughput, or
+   *          a regression, as for allocations
+   */
+  public BenchmarkReport addMetric(String name, boolean higherIsBetter) {
+    metrics.put(name, Boolean.valueOf(higherIsBetter));
+    return this;
+  }
+
+  public List<String> getMetrics() {
+    return new ArrayList<String>(metrics.keySet());
+  }
+
+  public List<String> getCases() {
+    return new ArrayList<String>(values.keySet());
+  }
+
+  public void set(String caseName, String metric, double value) {
+    if (!metrics.containsKey(metric)) {
+      throw new IllegalArgumentException("Unknown metric " + metric);
+    }
+    Map<String, Double> caseValues = values.get(caseName);
+    if (caseValues == null) {
+      caseValues = new HashMap<String, Double>();
+      values.put(caseName, caseValues);
+    }
+    caseValues.put(metric, Double.valueOf(value));
+  }
+
+  /**
+   * Returns the value of a metric of a case, or null if it was not measured.
+   */
+  public Double get(String caseName, String metric) {
+    Map<String, Double> caseValues = values.get(caseName);
+    return caseValues == null ? null : caseValues.get(metric);
+  }
+
+  /**
+   * Write the report as tab separated text.
+   */
+  public void write(Writer writer) {
+    PrintWriter out = new PrintWriter(writer);
+    out.print("case");
+    for (String metric : metrics.keySet()) {
+      out.print("\t" + metric);
+    }
+    out.println();
+    for (String caseName : values.keySet()) {
+      out.print(caseName);
+      for (String metric : metrics.keySet()) {
+        Double value = get(caseName, metric);
+        out.print("\t" + (value == null
+            ? "-" : String.format(Locale.ROOT, "%.2f", value)));
+      }
+      out.println();
+    }
+    out.flush();
+  }
+
+  /**
+   * Read a report written by {@link #write(Writer)}. Only the values of the
+   * metrics of this report are read.
+   */
+  public BenchmarkReport read(Reader reader) throws IOException {
+    BenchmarkReport report = new BenchmarkReport();
+    report.metrics.putAll(metrics);
+    BufferedReader in = new BufferedReader(reader);
+    String line = in.readLine();
+    if (line == null) {
+      return report;
+    }
+    String[] header = line.split("\t");
+    while ((line = in.readLine()) != null) {
+      String[] fields = line.split("\t");
+      for (int i = 1; i < fields.length && i < header.length; i++) {
+        if (metrics.containsKey(header[i]) && !fields[i].equals("-")) {
+          report.set(fields[0], header[i], Double.parseDouble(fields[i]));
+        }
+      }
+    }
+    return report;
+  }
+
+  /**
+   * Print how each metric changed from a baseline report, and mark the
+   * regressions, the changes for the worse that are larger than the
+   * threshold.
+   *
+   * @param baseline
+   *          the report to compare with
+   * @param threshold
+   *          the relative change that is a regression, like 0.1 for 10%
+   * @param out
+   *          the stream to print the comparison to
+   * @return the number of regressions
+   */
+  public int compare(BenchmarkReport baseline, double threshold,
+      PrintStream out) {
+    int regressions = 0;
+    out.println(String.format("%-32s %-32s %14s %14s %8s", "case", "metric",
+        "baseline", "current", "change"));
+    for (String caseName : values.keySet()) {
+      for (Map.Entry<String, Boolean> metric : metrics.entrySet()) {
+        Double current = get(caseName, metric.getKey());
+        Double base = baseline.get(caseName, metric.getKey());
+        if (current == null || base == null) {
+          continue;
+        }
+        // at least 1, so that a value close to 0 does not make a huge change
+        double change = (current - base) / Math.max(Math.abs(base), 1.0);
+        boolean worse = metric.getValue() ? change < -threshold
+            : change > threshold;
+        if (worse) {
+          regressions++;
+        }
+        out.println(String.format("%-32s %-32s %14.2f %14.2f %+7.1f%%%s",
+            caseName, metric.getKey(), base, current, change * 100,
+            worse ? " REGRESSION" : ""));
+      }
+    }
+    return regressions;
+  }
+}
@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner runs a JMH benchmark with the GC profiler, turns the
+ * results into a {@link BenchmarkReport}, writes the report and compares it
+ * with a baseline report.
+ *
+ * The options are:
+ * <ul>
+ * <li>-c case,case,... the values of the case parameter to run, all by
+ * default</li>
+ * <li>-o file: write the report to the file, instead of stdout</li>
+ * <li>-b file: compare with the baseline report in the file</li>
+ * <li>-t threshold: the relative change that is a regression, 0.1 by default
+ * </li>
+ * <li>-p name=value: set a parameter of the benchmark, which can be given
+ * for several parameters</li>
+ * <li>-f forks, -w warmup iterations, -m measurement iterations: override
+ * the settings of the benchmark</li>
+ * </ul>
+ * The exit code is 1 if the comparison found regressions.
+ */
+public abstract class BenchmarkRunner {
+
+  protected List<String> cases;
+  protected Map<String, String> params = new LinkedHashMap<String, String>();
+  protected String output;
+  protected String baseline;
+  protected double threshold = 0.1;
+  protected int forks = -1;
+  protected int warmupIterations = -1;
+  protected int measurementIterations = -1;
+
+  /**
+   * Returns the name of the parameter of the benchmark that selects the case.
+   */
+  protected abstract String getCaseParameter();
+
+  /**
+   * Returns the name of the case of a result in the report, the value of the
+   * case parameter by default.
+   */
+  protected String getCaseName(RunResult result) {
+    return result.getParams().getParam(getCaseParameter());
+  }
+
+  /**
+   * Create the report, adding the metrics that it has.
+   */
+  protected abstract BenchmarkReport createReport();
+
+  /**
+   * Add the results of a JMH run to the report.
+   */
+  protected abstract void addResults(BenchmarkReport report,
+      Collection<RunResult> results) throws Exception;
+
+  /**
+   * Returns the regular expression of the benchmarks to run.
+   */
+  protected abstract String getInclude();
+
+  protected void parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("Missing the value of " + args[i]);
+      }
+      String value = args[++i];
+      if (args[i - 1].equals("-c")) {
+        cases = Arrays.asList(value.split(","));
+      } else if (args[i - 1].equals("-o")) {
+        output = value;
+      } else if (args[i - 1].equals("-b")) {
+        baseline = value;
+      } else if (args[i - 1].equals("-p")) {
+        int equals = value.indexOf('=');
+        if (equals < 0) {
+          throw new IllegalArgumentException("Not name=value: " + value);
+        }
+        params.put(value.substring(0, equals), value.substring(equals + 1));
+      } else if (args[i - 1].equals("-t")) {
+        threshold = Double.parseDouble(value);
+      } else if (args[i - 1].equals("-f")) {
+        forks = Integer.parseInt(value);
+      } else if (args[i - 1].equals("-w")) {
+        warmupIterations = Integer.parseInt(value);
+      } else if (args[i - 1].equals("-m")) {
+        measurementIterations = Integer.parseInt(value);
+      } else {
+        throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+      }
+    }
+  }
+
+  /**
+   * Run the benchmark with the GC profiler.
+   */
+  protected Collection<RunResult> runBenchmark() throws RunnerException {
+    ChainedOptionsBuilder options = new OptionsBuilder().include(getInclude())
+        .addProfiler(GCProfiler.class);
+    if (cases != null) {
+      options.param(getCaseParameter(), cases.toArray(new String[0]));
+    }
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      options.param(param.getKey(), param.getValue());
+    }
+    if (forks >= 0) {
+      options.forks(forks);
+    }
+    if (warmupIterations >= 0) {
+      options.warmupIterations(warmupIterations);
+    }
+    if (measurementIterations >= 0) {
+      options.measurementIterations(measurementIterations);
+    }
+    return new Runner(options.build()).run();
+  }
+
+  /**
+   * Returns the bytes allocated for each operation, as measured by the GC
+   * profiler. If the JVM does not let the profiler count the allocated bytes,
+   * the bytes collected from the young generation for each operation are
+   * returned instead, which is close for short lived garbage, and 0 if
+   * there was no collection at all. Returns null if neither was measured.
+   */
+  protected static Double getAllocatedBytesPerOperation(RunResult result) {
+    Double churn = null;
+    Double collections = null;
+    for (Result<?> r : result.getSecondaryResults().values()) {
+      double score = r.getScore();
+      if (Double.isNaN(score)) {
+        continue;
+      }
+      if (r.getLabel().endsWith("gc.alloc.rate.norm")) {
+        return Double.valueOf(score);
+      }
+      if (r.getLabel().matches(".*gc\\.churn\\..*Eden.*\\.norm")) {
+        churn = Double.valueOf(score);
+      } else if (r.getLabel().endsWith("gc.count")) {
+        collections = Double.valueOf(score);
+      }
+    }
+    if (churn == null && collections != null
+        && collections.doubleValue() == 0) {
+      return Double.valueOf(0);
+    }
+    return churn;
+  }
+
+  /**
+   * Returns the name of the benchmark method of a result.
+   */
+  protected static String getMethod(RunResult result) {
+    String benchmark = result.getParams().getBenchmark();
+    return benchmark.substring(benchmark.lastIndexOf('.') + 1);
+  }
+
+  /**
+   * Run the benchmark, write the report and compare it with the baseline.
+   *
+   * @return the exit code
+   */
+  public int run(String[] args) throws Exception {
+    parseArgs(args);
+    BenchmarkReport report = createReport();
+    addResults(report, runBenchmark());
+
+    Writer out = output == null ? new OutputStreamWriter(System.out)
+        : new FileWriter(output);
+    try {
+      report.write(out);
+    } finally {
+      if (output != null) {
+        out.close();
+      }
+    }
+
+    if (baseline == null) {
+      return 0;
+    }
+    Reader in = new FileReader(new File(baseline));
+    BenchmarkReport baselineReport;
+    try {
+      baselineReport = report.read(in);
+    } finally {
+      in.close();
+    }
+    int regressions = report.compare(baselineReport, threshold, System.out);
+    System.out.println(regressions + " regressions against " + baseline);
+    return regressions == 0 ? 0 : 1;
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.micro;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.udf.UDFDateAdd;
+import org.apache.hadoop.hive.ql.udf.UDFUnixTimeStamp;
+import org.apache.hadoop.hive.ql.udf.UDFYear;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FastDateParserBenchmark compares year, date_add and unix_timestamp, which
+ * parse with FastDateParser, with the SimpleDateFormat and Calendar code
+ * they replaced. An operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastDateParserBenchmark {
+
+  Text date;
+  Text dateTime;
+  IntWritable days;
+  SimpleDateFormat dateFormat;
+  SimpleDateFormat dateTimeFormat;
+  Calendar calendar;
+  Text result;
+  UDFYear year;
+  UDFDateAdd dateAdd;
+  UDFUnixTimeStamp unixTimeStamp;
+
+  @Setup
+  public void setup() {
+    date = new Text("2010-11-08");
+    dateTime = new Text("2010-11-08 12:34:56");
+    days = new IntWritable(7);
+    dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    calendar = Calendar.getInstance();
+    result = new Text();
+    year = new UDFYear();
+    dateAdd = new UDFDateAdd();
+    unixTimeStamp = new UDFUnixTimeStamp();
+  }
+
+  @Benchmark
+  public int yearSimpleDateFormat() throws Exception {
+    calendar.setTime(dateFormat.parse(date.toString()));
+    return calendar.get(Calendar.YEAR);
+  }
+
+  @Benchmark
+  public Object yearFastDateParser() {
+    return year.evaluate(date);
+  }
+
+  @Benchmark
+  public Text dateAddSimpleDateFormat() throws Exception {
+    calendar.setTime(dateFormat.parse(date.toString()));
+    calendar.add(Calendar.DAY_OF_MONTH, days.get());
+    result.set(dateFormat.format(calendar.getTime()));
+    return result;
+  }
+
+  @Benchmark
+  public Object dateAddFastDateParser() {
+    return dateAdd.evaluate(date, days);
+  }
+
+  @Benchmark
+  public long unixTimeStampSimpleDateFormat() throws Exception {
+    return dateTimeFormat.parse(dateTime.toString()).getTime() / 1000;
+  }
+
+  @Benchmark
+  public Object unixTimeStampFastDateParser() {
+    return unixTimeStamp.evaluate(dateTime);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * InternCacheBenchmark parses type strings and builds their
+ * ObjectInspectors, the way query compilation does. After the warmup every
+ * type is in the caches of TypeInfoFactory and ObjectInspectorFactory, so
+ * this measures the cache lookups. An operation is one type.
+ *
+ * The lookups do not block, so the throughput should grow with the number
+ * of threads up to the number of cores. Compare the runs with -t 1 and
+ * -t max.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InternCacheBenchmark {
+
+  private static final int NUM_TYPES = 200;
+
+  String[] typeStrings;
+
+  @Setup
+  public void setup() {
+    typeStrings = new String[NUM_TYPES];
+    for (int i = 0; i < NUM_TYPES; i++) {
+      typeStrings[i] = "struct<a" + i + ":int,b" + i + ":array<string>,c" + i
+          + ":map<string,struct<d:bigint,e:double>>>";
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_TYPES)
+  public void compileTypes(Blackhole blackhole) {
+    for (String typeString : typeStrings) {
+      TypeInfo typeInfo = TypeInfoUtils.getTypeInfoFromTypeString(typeString);
+      ObjectInspector oi = TypeInfoUtils
+          .getStandardWritableObjectInspectorFromTypeInfo(typeInfo);
+      blackhole.consume(oi);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.udf.UDFSubstr;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBridge;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MethodInvokerBenchmark calls the classic UDF substr through
+ * GenericUDFBridge, with reflection and with a generated invoker. An
+ * operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodInvokerBenchmark {
+
+  private static class Argument implements DeferredObject {
+    private final Object value;
+
+    Argument(Object value) {
+      this.value = value;
+    }
+
+    public Object get() {
+      return value;
+    }
+  }
+
+  @Param({"false", "true"})
+  public boolean generatedInvoker;
+
+  GenericUDFBridge bridge;
+  DeferredObject[] arguments;
+
+  @Setup
+  public void setup() throws Exception {
+    bridge = new GenericUDFBridge("substr", false, UDFSubstr.class);
+    bridge.setGeneratedInvoker(generatedInvoker);
+    bridge.initialize(new ObjectInspector[] {
+        PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+        PrimitiveObjectInspectorFactory.writableIntObjectInspector,
+        PrimitiveObjectInspectorFactory.writableIntObjectInspector});
+    arguments = new DeferredObject[] {new Argument(new Text("generated invoker")),
+        new Argument(new IntWritable(3)), new Argument(new IntWritable(5))};
+  }
+
+  @Benchmark
+  public Object substr() throws Exception {
+    return bridge.evaluate(arguments);
+  }
+}
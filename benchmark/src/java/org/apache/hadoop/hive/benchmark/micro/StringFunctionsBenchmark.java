@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.hive.ql.udf.UDFSubstr;
+import org.apache.hadoop.hive.ql.udf.UDFTrim;
+import org.apache.hadoop.hive.ql.udf.UDFUpper;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StringFunctionsBenchmark compares upper, trim and substr, which work on
+ * the bytes of the Text, with the String based versions they replaced. The
+ * row is either ASCII or has non ASCII characters. An operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringFunctionsBenchmark {
+
+  @Param({"ASCII", "NON_ASCII"})
+  public String row;
+
+  Text text;
+  Text result;
+  UDFUpper udfUpper;
+  UDFTrim udfTrim;
+  UDFSubstr udfSubstr;
+  IntWritable pos;
+  IntWritable len;
+
+  @Setup
+  public void setup() {
+    text = new Text(row.equals("ASCII")
+        ? "  GET /images/logo.png HTTP/1.1 200 4523 Mozilla/5.0  "
+        : "  GET /caf\u00e9/cr\u00e8me.html HTTP/1.1 200 \u4e2d\u6587  ");
+    result = new Text();
+    udfUpper = new UDFUpper();
+    udfTrim = new UDFTrim();
+    udfSubstr = new UDFSubstr();
+    pos = new IntWritable(5);
+    len = new IntWritable(10);
+  }
+
+  @Benchmark
+  public Text upperString() {
+    result.set(text.toString().toUpperCase());
+    return result;
+  }
+
+  @Benchmark
+  public Text upperBytes() {
+    return udfUpper.evaluate(text);
+  }
+
+  @Benchmark
+  public Text trimString() {
+    result.set(StringUtils.strip(text.toString(), " "));
+    return result;
+  }
+
+  @Benchmark
+  public Text trimBytes() {
+    return udfTrim.evaluate(text);
+  }
+
+  @Benchmark
+  public Text substrString() {
+    String s = text.toString();
+    int start = pos.get() - 1;
+    int end = Math.min(s.length(), start + len.get());
+    result.set(s.substring(start, end));
+    return result;
+  }
+
+  @Benchmark
+  public Text substrBytes() {
+    return udfSubstr.evaluate(text, pos, len);
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.udf.UDFJson;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * UDFJsonBenchmark compares get_json_object with the JsonPathScanner, as
+ * queries call it, with the org.json parse it falls back to. The path is
+ * either the first or the last member of the json string. An operation is
+ * one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UDFJsonBenchmark {
+
+  @Param({"$.id", "$.last"})
+  public String path;
+
+  // more documents than the parser caches objects for
+  String[] documents;
+  Text[] documentTexts;
+  Text pathText;
+  UDFJson udf;
+  int row;
+
+  @Setup
+  public void setup() {
+    documents = new String[32];
+    documentTexts = new Text[documents.length];
+    for (int d = 0; d < documents.length; d++) {
+      StringBuilder json = new StringBuilder("{\"id\":" + d + ",");
+      for (int i = 0; i < 20; i++) {
+        json.append("\"field" + i + "\":{\"name\":\"value " + i
+            + "\",\"list\":[1,2,3,4,5],\"flag\":true},");
+      }
+      json.append("\"last\":\"the end\"}");
+      documents[d] = json.toString();
+      documentTexts[d] = new Text(documents[d]);
+    }
+    pathText = new Text(path);
+    udf = new UDFJson();
+  }
+
+  @Benchmark
+  public Text parsed() {
+    row = (row + 1) % documents.length;
+    return udf.evaluate(documents[row], path);
+  }
+
+  @Benchmark
+  public Text scanned() {
+    row = (row + 1) % documentTexts.length;
+    return udf.evaluate(documentTexts[row], pathText);
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
+import org.apache.hadoop.hive.ql.parse.ASTNode;
+import org.apache.hadoop.hive.ql.parse.HiveParser;
+import org.apache.hadoop.hive.ql.parse.ParseDriver;
+import org.apache.hadoop.hive.ql.parse.ParseException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.parse.TypeCheckCtx;
+import org.apache.hadoop.hive.ql.parse.TypeCheckProcFactory;
+import org.apache.hadoop.hive.ql.plan.AggregationDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+
+/**
+ * ExpressionParser turns HiveQL expressions over the columns of a
+ * {@link TableSchema} into the expression descriptors of the operators, the
+ * same way the semantic analyzer does, so any UDF, UDAF or operator of the
+ * language can be benchmarked.
+ */
+public final class ExpressionParser {
+
+  private ExpressionParser() {
+    // prevent instantiation
+  }
+
+  /**
+   * Parse a comma separated list of expressions, as in a select list.
+   */
+  public static ArrayList<ExprNodeDesc> parseExpressions(String expressions,
+      TableSchema schema) throws ParseException, SemanticException {
+    TypeCheckCtx ctx = new TypeCheckCtx(schema.getRowResolver());
+    ArrayList<ExprNodeDesc> result = new ArrayList<ExprNodeDesc>();
+    for (ASTNode expr : parseSelectList(expressions)) {
+      result.add(genExprNodeDesc(expr, ctx));
+    }
+    return result;
+  }
+
+  /**
+   * Parse a boolean expression.
+   */
+  public static ExprNodeDesc parsePredicate(String predicate,
+      TableSchema schema) throws ParseException, SemanticException {
+    List<ExprNodeDesc> exprs = parseExpressions(predicate, schema);
+    if (exprs.size() != 1 || !exprs.get(0).getTypeInfo().equals(
+        TypeInfoFactory.booleanTypeInfo)) {
+      throw new SemanticException("Not a boolean expression: " + predicate);
+    }
+    return exprs.get(0);
+  }
+
+  /**
+   * Parse a comma separated list of aggregations, like
+   * "count(1), sum(c_bigint), count(DISTINCT c_int)".
+   *
+   * @param mode
+   *          the mode of the aggregation evaluators
+   */
+  public static ArrayList<AggregationDesc> parseAggregations(
+      String aggregations, TableSchema schema, GenericUDAFEvaluator.Mode mode)
+      throws ParseException, SemanticException {
+    TypeCheckCtx ctx = new TypeCheckCtx(schema.getRowResolver());
+    ArrayList<AggregationDesc> result = new ArrayList<AggregationDesc>();
+    for (ASTNode expr : parseSelectList(aggregations)) {
+      int type = expr.getType();
+      if (type != HiveParser.TOK_FUNCTION && type != HiveParser.TOK_FUNCTIONDI
+          && type != HiveParser.TOK_FUNCTIONSTAR) {
+        throw new SemanticException("Not an aggregation: "
+            + expr.toStringTree());
+      }
+      String name = expr.getChild(0).getText().toLowerCase();
+      boolean isDistinct = type == HiveParser.TOK_FUNCTIONDI;
+      boolean isAllColumns = type == HiveParser.TOK_FUNCTIONSTAR;
+
+      ArrayList<ExprNodeDesc> parameters = new ArrayList<ExprNodeDesc>();
+      ArrayList<TypeInfo> parameterTypeInfos = new ArrayList<TypeInfo>();
+      // 0 is the function name
+      for (int i = 1; i < expr.getChildCount(); i++) {
+        ExprNodeDesc parameter = genExprNodeDesc((ASTNode) expr.getChild(i),
+            ctx);
+        parameters.add(parameter);
+        parameterTypeInfos.add(parameter.getTypeInfo());
+      }
+      GenericUDAFEvaluator evaluator = FunctionRegistry
+          .getGenericUDAFEvaluator(name, parameterTypeInfos, isDistinct,
+          isAllColumns);
+      if (evaluator == null) {
+        throw new SemanticException("No aggregation " + name + " for "
+            + parameterTypeInfos);
+      }
+      result.add(new AggregationDesc(name, evaluator, parameters, isDistinct,
+          mode));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the expressions of "SELECT expressions FROM t".
+   */
+  private static List<ASTNode> parseSelectList(String expressions)
+      throws ParseException, SemanticException {
+    ASTNode tree = new ParseDriver().parse("SELECT " + expressions + " FROM "
+        + TableSchema.TABLE_ALIAS);
+    ASTNode select = findSelect(tree);
+    if (select == null) {
+      throw new SemanticException("Cannot parse: " + expressions);
+    }
+    List<ASTNode> result = new ArrayList<ASTNode>();
+    for (int i = 0; i < select.getChildCount(); i++) {
+      // TOK_SELEXPR, whose first child is the expression and the second one
+      // the alias if there is one
+      result.add((ASTNode) select.getChild(i).getChild(0));
+    }
+    return result;
+  }
+
+  private static ASTNode findSelect(ASTNode node) {
+    if (node.getType() == HiveParser.TOK_SELECT) {
+      return node;
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      ASTNode select = findSelect((ASTNode) node.getChild(i));
+      if (select != null) {
+        return select;
+      }
+    }
+    return null;
+  }
+
+  private static ExprNodeDesc genExprNodeDesc(ASTNode expr, TypeCheckCtx ctx)
+      throws SemanticException {
+    ExprNodeDesc desc = (ExprNodeDesc) TypeCheckProcFactory.genExprNode(expr,
+        ctx).get(expr);
+    if (desc == null) {
+      throw new SemanticException(ctx.getError());
+    }
+    return desc;
+  }
+}
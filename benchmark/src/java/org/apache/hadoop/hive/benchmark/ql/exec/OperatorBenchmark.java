@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OperatorBenchmark measures how many input rows per second the DAG of each
+ * {@link OperatorCase} processes. An operation is one input row, so the
+ * allocation rate normalized by the GC profiler is in bytes per row.
+ *
+ * The schema, the number of distinct keys, and the expressions evaluated by
+ * the operators are parameters, so they can be changed with -p.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorBenchmark {
+
+  /**
+   * The number of rows that are generated, and processed by each invocation.
+   */
+  public static final int ROWS = 1024;
+
+  /**
+   * The seed of the generated rows.
+   */
+  public static final long SEED = 20110301L;
+
+  @Param({"FILTER", "SELECT", "GROUP_BY_HASH", "GROUP_BY_SORTED",
+      "REDUCE_SINK", "JOIN", "MAP_JOIN"})
+  public String operatorCase;
+
+  @Param({"NARROW", "WIDE"})
+  public String schema;
+
+  @Param({"100", "100000"})
+  public int keyCardinality;
+
+  @Param({OperatorHarness.DEFAULT_PREDICATE})
+  public String predicate;
+
+  @Param({OperatorHarness.DEFAULT_PROJECTION})
+  public String projection;
+
+  @Param({OperatorHarness.DEFAULT_AGGREGATIONS})
+  public String aggregations;
+
+  private OperatorHarness harness;
+
+  @Setup
+  public void setUp() throws Exception {
+    harness = new OperatorHarness(OperatorCase.valueOf(operatorCase),
+        TableSchema.valueOf(schema), keyCardinality).setPredicate(predicate)
+        .setProjection(projection).setAggregations(aggregations);
+    harness.initialize(ROWS, SEED);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    harness.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public long process() throws Exception {
+    harness.process();
+    return harness.getSink().getRows();
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+import java.util.Collection;
+
+import org.apache.hadoop.hive.benchmark.BenchmarkReport;
+import org.apache.hadoop.hive.benchmark.BenchmarkRunner;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+
+/**
+ * OperatorBenchmarkRunner runs {@link OperatorBenchmark} and reports, for each
+ * {@link OperatorCase}, schema and key cardinality, the input rows per second,
+ * the nanoseconds per row and the bytes allocated per row.
+ *
+ * See {@link BenchmarkRunner} for the options. The cases of the report are
+ * named operatorCase/schema/keyCardinality.
+ */
+public class OperatorBenchmarkRunner extends BenchmarkRunner {
+
+  public static final String ROWS_PER_SEC = "rows_per_sec";
+  public static final String NS_PER_ROW = "ns_per_row";
+  public static final String ALLOC_PER_ROW = "alloc_bytes_per_row";
+
+  @Override
+  protected String getCaseParameter() {
+    return "operatorCase";
+  }
+
+  @Override
+  protected String getInclude() {
+    return OperatorBenchmark.class.getName() + "\\.";
+  }
+
+  @Override
+  protected BenchmarkReport createReport() {
+    return new BenchmarkReport().addMetric(ROWS_PER_SEC, true).addMetric(
+        NS_PER_ROW, false).addMetric(ALLOC_PER_ROW, false);
+  }
+
+  @Override
+  protected String getCaseName(RunResult result) {
+    BenchmarkParams params = result.getParams();
+    return params.getParam("operatorCase") + "/" + params.getParam("schema")
+        + "/" + params.getParam("keyCardinality");
+  }
+
+  @Override
+  protected void addResults(BenchmarkReport report,
+      Collection<RunResult> results) throws Exception {
+    for (RunResult result : results) {
+      String caseName = getCaseName(result);
+      double rowsPerSec = result.getPrimaryResult().getScore();
+      report.set(caseName, ROWS_PER_SEC, rowsPerSec);
+      report.set(caseName, NS_PER_ROW, 1e9 / rowsPerSec);
+      Double allocated = getAllocatedBytesPerOperation(result);
+      if (allocated != null) {
+        report.set(caseName, ALLOC_PER_ROW, allocated.doubleValue());
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(new OperatorBenchmarkRunner().run(args));
+  }
+}
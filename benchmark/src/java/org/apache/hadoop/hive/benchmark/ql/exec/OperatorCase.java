@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+/**
+ * OperatorCase is an operator DAG that is benchmarked. Every DAG ends in a
+ * {@link SinkOperator}; see {@link OperatorHarness} for how it is built and
+ * driven.
+ */
+public enum OperatorCase {
+
+  /**
+   * A FilterOperator evaluating the predicate.
+   */
+  FILTER,
+
+  /**
+   * A SelectOperator evaluating the projection.
+   */
+  SELECT,
+
+  /**
+   * A map side GroupByOperator in hash mode, grouping on the key and
+   * computing the aggregations. It turns hash aggregation off when it does not
+   * reduce the rows enough, as it does in a mapper.
+   */
+  GROUP_BY_HASH,
+
+  /**
+   * A reduce side GroupByOperator in complete mode, grouping the rows sorted
+   * on the key and computing the aggregations.
+   */
+  GROUP_BY_SORTED,
+
+  /**
+   * A ReduceSinkOperator with the key as the sort and partition key and the
+   * other columns as the value.
+   */
+  REDUCE_SINK,
+
+  /**
+   * A reduce side JoinOperator joining the rows, sorted on the key, with one
+   * row for each key of a second table.
+   */
+  JOIN,
+
+  /**
+   * A MapJoinOperator joining the rows with one row for each key of a second
+   * table, which a HashTableSinkOperator has loaded into the hash table as
+   * the local task does.
+   */
+  MAP_JOIN;
+
+  /**
+   * Returns whether the rows are joined with a second table.
+   */
+  public boolean isJoin() {
+    return this == JOIN || this == MAP_JOIN;
+  }
+}
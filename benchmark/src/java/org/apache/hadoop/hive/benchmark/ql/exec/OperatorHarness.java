@@ -0,0 +1,435 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.exec.ExecMapperContext;
+import org.apache.hadoop.hive.ql.exec.Operator;
+import org.apache.hadoop.hive.ql.exec.OperatorFactory;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.plan.AggregationDesc;
+import org.apache.hadoop.hive.ql.plan.CollectDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.FilterDesc;
+import org.apache.hadoop.hive.ql.plan.GroupByDesc;
+import org.apache.hadoop.hive.ql.plan.HashTableSinkDesc;
+import org.apache.hadoop.hive.ql.plan.JoinCondDesc;
+import org.apache.hadoop.hive.ql.plan.JoinDesc;
+import org.apache.hadoop.hive.ql.plan.MapJoinDesc;
+import org.apache.hadoop.hive.ql.plan.MapredLocalWork;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.plan.SelectDesc;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * OperatorHarness builds the operator DAG of an {@link OperatorCase} with
+ * OperatorFactory, generates its input rows with a {@link TableSchema}, and
+ * pushes the rows through the DAG as ExecMapper and ExecReducer do, without a
+ * cluster. The DAG ends in a {@link SinkOperator}.
+ *
+ * The rows are processed in batches, one batch for each call of
+ * {@link #process()}, cycling through enough batches for the operators to see
+ * most of the keys, up to {@link #MAX_POOL_ROWS} rows. The joins join the rows
+ * with a second table that has one row for each key, so that every row has
+ * exactly one match.
+ */
+public class OperatorHarness {
+
+  public static final String DEFAULT_PREDICATE =
+      "c_int < 5000 AND c_string LIKE '%a%'";
+  public static final String DEFAULT_PROJECTION = "key, c_bigint + c_int * 2,"
+      + " upper(c_string), concat(c_string, '-', cast(key AS STRING)),"
+      + " c_double / 3.0";
+  public static final String DEFAULT_AGGREGATIONS =
+      "count(1), sum(c_bigint), avg(c_double), max(c_string)";
+
+  /**
+   * The maximum number of rows generated, over all the batches.
+   */
+  public static final int MAX_POOL_ROWS = 64 * 1024;
+
+  private final OperatorCase operatorCase;
+  private final TableSchema schema;
+  private final int keyCardinality;
+  private String predicate = DEFAULT_PREDICATE;
+  private String projection = DEFAULT_PROJECTION;
+  private String aggregations = DEFAULT_AGGREGATIONS;
+
+  private HiveConf conf;
+  private Operator<? extends Serializable> root;
+  private SinkOperator sink;
+  private ExecMapperContext execContext;
+  private File tmpDir;
+
+  // the batches of input rows, and for JOIN the rows of each key of every
+  // batch, the row of the second table first
+  private Object[][] batches;
+  private Object[][][] groups;
+  private int batch;
+
+  public OperatorHarness(OperatorCase operatorCase, TableSchema schema,
+      int keyCardinality) {
+    this.operatorCase = operatorCase;
+    this.schema = schema;
+    this.keyCardinality = keyCardinality;
+  }
+
+  /**
+   * Set the boolean expression of FILTER.
+   */
+  public OperatorHarness setPredicate(String predicate) {
+    this.predicate = predicate;
+    return this;
+  }
+
+  /**
+   * Set the comma separated expressions of SELECT.
+   */
+  public OperatorHarness setProjection(String projection) {
+    this.projection = projection;
+    return this;
+  }
+
+  /**
+   * Set the comma separated aggregations of GROUP_BY_HASH and
+   * GROUP_BY_SORTED.
+   */
+  public OperatorHarness setAggregations(String aggregations) {
+    this.aggregations = aggregations;
+    return this;
+  }
+
+  /**
+   * Build and initialize the DAG, and generate the input rows.
+   *
+   * @param rowCount
+   *          the number of rows in a batch
+   * @param seed
+   *          the seed of the generated rows
+   */
+  public void initialize(int rowCount, long seed) throws Exception {
+    conf = new HiveConf(OperatorHarness.class);
+    sink = new SinkOperator();
+    sink.setConf(new CollectDesc(Integer.valueOf(0)));
+    ObjectInspector rowOI = schema.getRowObjectInspector();
+
+    int poolRows = Math.max(rowCount, Math.min(keyCardinality,
+        MAX_POOL_ROWS));
+    batches = new Object[(poolRows + rowCount - 1) / rowCount][];
+    List<Object> generated = schema.generateRows(batches.length * rowCount,
+        keyCardinality, seed);
+    if (operatorCase == OperatorCase.GROUP_BY_SORTED
+        || operatorCase == OperatorCase.JOIN) {
+      // each batch is sorted, and the batches follow each other
+      generated = TableSchema.sortByKey(generated);
+    }
+    for (int i = 0; i < batches.length; i++) {
+      batches[i] = generated.subList(i * rowCount, (i + 1) * rowCount)
+          .toArray();
+    }
+
+    switch (operatorCase) {
+    case FILTER:
+      root = createOperator(new FilterDesc(ExpressionParser.parsePredicate(
+          predicate, schema), false), true);
+      break;
+    case SELECT:
+      ArrayList<ExprNodeDesc> exprs = ExpressionParser.parseExpressions(
+          projection, schema);
+      root = createOperator(new SelectDesc(exprs,
+          getColumnNames(exprs.size())), true);
+      break;
+    case GROUP_BY_HASH:
+      root = createOperator(createGroupByDesc(GroupByDesc.Mode.HASH,
+          GenericUDAFEvaluator.Mode.PARTIAL1), true);
+      break;
+    case GROUP_BY_SORTED:
+      root = createOperator(createGroupByDesc(GroupByDesc.Mode.COMPLETE,
+          GenericUDAFEvaluator.Mode.COMPLETE), true);
+      break;
+    case REDUCE_SINK:
+      ArrayList<ExprNodeDesc> keys = new ArrayList<ExprNodeDesc>();
+      keys.add(getKeyColumn());
+      ArrayList<ExprNodeDesc> values = getValueColumns("");
+      root = createOperator(PlanUtils.getReduceSinkDesc(keys, values,
+          getColumnNames(values.size()), false, -1, 1, -1), false);
+      break;
+    case JOIN:
+      initializeJoin(seed);
+      return;
+    case MAP_JOIN:
+      initializeMapJoin(seed);
+      return;
+    default:
+      throw new IllegalArgumentException(operatorCase.toString());
+    }
+
+    root.initialize(conf, new ObjectInspector[] {rowOI});
+    // initialize() resets the output collector
+    root.setOutputCollector(sink);
+  }
+
+  /**
+   * Returns the operator of conf, feeding the sink if toSink is set.
+   * OperatorFactory.get takes the children as generic varargs, which are
+   * unchecked.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Serializable> Operator<T> createOperator(T conf,
+      boolean toSink) {
+    return toSink ? OperatorFactory.get(conf, sink) : OperatorFactory.get(conf);
+  }
+
+  private GroupByDesc createGroupByDesc(GroupByDesc.Mode mode,
+      GenericUDAFEvaluator.Mode udafMode) throws Exception {
+    ArrayList<ExprNodeDesc> keys = new ArrayList<ExprNodeDesc>();
+    keys.add(getKeyColumn());
+    ArrayList<AggregationDesc> aggs = ExpressionParser.parseAggregations(
+        aggregations, schema, udafMode);
+    return new GroupByDesc(mode, getColumnNames(keys.size() + aggs.size()),
+        keys, aggs, false, HiveConf.getFloatVar(conf,
+        HiveConf.ConfVars.HIVEMAPAGGRHASHMEMORY), HiveConf.getFloatVar(conf,
+        HiveConf.ConfVars.HIVEMAPAGGRMEMORYTHRESHOLD));
+  }
+
+  /**
+   * Build a JoinOperator, which gets the rows of both tables as a struct of
+   * the key and the value, as the reducers do.
+   */
+  private void initializeJoin(long seed) throws Exception {
+    ArrayList<ExprNodeDesc> values = getValueColumns(
+        Utilities.ReduceField.VALUE + ".");
+    List<String> valueNames = getColumnNames(values.size());
+    List<ObjectInspector> valueOIs = new ArrayList<ObjectInspector>();
+    for (ExprNodeDesc value : values) {
+      valueOIs.add(TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(
+          value.getTypeInfo()));
+    }
+    StructObjectInspector keyOI = ObjectInspectorFactory
+        .getStandardStructObjectInspector(Arrays.asList("reducesinkkey0"),
+        Arrays.asList((ObjectInspector) PrimitiveObjectInspectorFactory
+        .javaIntObjectInspector));
+    StructObjectInspector valueOI = ObjectInspectorFactory
+        .getStandardStructObjectInspector(valueNames, valueOIs);
+    StructObjectInspector rowOI = ObjectInspectorFactory
+        .getStandardStructObjectInspector(Arrays.asList(
+        Utilities.ReduceField.KEY.toString(), Utilities.ReduceField.VALUE
+        .toString()), Arrays.asList((ObjectInspector) keyOI, valueOI));
+
+    JoinDesc desc = new JoinDesc(getJoinExprs(values), getColumnNames(
+        2 * values.size()), true, getJoinConds(), getJoinExprs(
+        new ArrayList<ExprNodeDesc>()));
+    root = createOperator(desc, true);
+    root.initialize(conf, new ObjectInspector[] {rowOI, rowOI});
+
+    List<Object> keyRows = schema.generateKeyRows(keyCardinality, seed + 1);
+    groups = new Object[batches.length][][];
+    for (int i = 0; i < batches.length; i++) {
+      List<Object[]> keyGroups = new ArrayList<Object[]>();
+      List<Object> group = new ArrayList<Object>();
+      int key = -1;
+      for (Object row : batches[i]) {
+        if (TableSchema.getKey(row) != key) {
+          if (!group.isEmpty()) {
+            keyGroups.add(group.toArray());
+            group.clear();
+          }
+          key = TableSchema.getKey(row);
+          group.add(toKeyValue(keyRows.get(key)));
+        }
+        group.add(toKeyValue(row));
+      }
+      keyGroups.add(group.toArray());
+      groups[i] = keyGroups.toArray(new Object[keyGroups.size()][]);
+    }
+  }
+
+  /**
+   * Returns the key and the value of a row, as a ReduceSinkOperator would
+   * send it to the reducers.
+   */
+  private static Object toKeyValue(Object row) {
+    List<?> columns = (List<?>) row;
+    return Arrays.asList(Arrays.asList(columns.get(0)), columns.subList(1,
+        columns.size()));
+  }
+
+  /**
+   * Build a MapJoinOperator with the rows of the second table in its hash
+   * table, which a HashTableSinkOperator writes to a temporary directory as
+   * the local task does.
+   */
+  private void initializeMapJoin(long seed) throws Exception {
+    ObjectInspector rowOI = schema.getRowObjectInspector();
+    ArrayList<ExprNodeDesc> keys = new ArrayList<ExprNodeDesc>();
+    keys.add(getKeyColumn());
+    ArrayList<ExprNodeDesc> values = getValueColumns("");
+    TableDesc keyTableDesc = PlanUtils.getMapJoinKeyTableDesc(PlanUtils
+        .getFieldSchemasFromColumnList(keys, "mapjoinkey"));
+    TableDesc valueTableDesc = PlanUtils.getMapJoinValueTableDesc(PlanUtils
+        .getFieldSchemasFromColumnList(values, "mapjoinvalue"));
+    List<TableDesc> valueTableDescs = Arrays.asList(valueTableDesc,
+        valueTableDesc);
+    MapJoinDesc desc = new MapJoinDesc(getJoinExprs(keys), keyTableDesc,
+        getJoinExprs(values), valueTableDescs, valueTableDescs,
+        getColumnNames(2 * values.size()), 0, getJoinConds(),
+        getJoinExprs(new ArrayList<ExprNodeDesc>()), true);
+
+    tmpDir = File.createTempFile("hive-benchmark-", "");
+    if (!tmpDir.delete() || !tmpDir.mkdir()) {
+      throw new IOException("Cannot create " + tmpDir);
+    }
+    MapredLocalWork localWork = new MapredLocalWork();
+    localWork.setTmpFileURI(tmpDir.getPath());
+    localWork.setInputFileChangeSensitive(false);
+    execContext = new ExecMapperContext();
+    execContext.setLocalWork(localWork);
+
+    HashTableSinkDesc sinkDesc = new HashTableSinkDesc(desc);
+    sinkDesc.setHashtableMemoryUsage(HiveConf.getFloatVar(conf,
+        HiveConf.ConfVars.HIVEHASHTABLEMAXMEMORYUSAGE));
+    Operator<HashTableSinkDesc> hashTableSink = createOperator(sinkDesc,
+        false);
+    hashTableSink.setExecContext(execContext);
+    hashTableSink.initialize(conf, new ObjectInspector[] {rowOI, rowOI});
+    for (Object row : schema.generateKeyRows(keyCardinality, seed + 1)) {
+      hashTableSink.process(row, 1);
+    }
+    hashTableSink.close(false);
+
+    root = createOperator(desc, true);
+    root.setExecContext(execContext);
+    root.initialize(conf, new ObjectInspector[] {rowOI, rowOI});
+    // all the rows come from one input file, so the hash table is loaded once
+    execContext.getIoCxt().setInputFile(tmpDir.getPath());
+  }
+
+  private static Map<Byte, List<ExprNodeDesc>> getJoinExprs(
+      List<ExprNodeDesc> exprs) {
+    Map<Byte, List<ExprNodeDesc>> joinExprs =
+        new HashMap<Byte, List<ExprNodeDesc>>();
+    joinExprs.put(Byte.valueOf((byte) 0), exprs);
+    joinExprs.put(Byte.valueOf((byte) 1), exprs);
+    return joinExprs;
+  }
+
+  private static JoinCondDesc[] getJoinConds() {
+    return new JoinCondDesc[] {new JoinCondDesc(0, 1, JoinDesc.INNER_JOIN)};
+  }
+
+  private ExprNodeColumnDesc getKeyColumn() {
+    return new ExprNodeColumnDesc(TypeInfoFactory.intTypeInfo,
+        TableSchema.KEY_COLUMN, TableSchema.TABLE_ALIAS, false);
+  }
+
+  /**
+   * Returns the columns other than the key. With a prefix, the columns are
+   * named prefix_col0, prefix_col1, ... instead.
+   */
+  private ArrayList<ExprNodeDesc> getValueColumns(String prefix) {
+    List<String> names = schema.getColumnNames();
+    List<TypeInfo> types = schema.getColumnTypeInfos();
+    ArrayList<ExprNodeDesc> columns = new ArrayList<ExprNodeDesc>();
+    for (int i = 1; i < names.size(); i++) {
+      String name = prefix.length() == 0 ? names.get(i) : prefix
+          + HiveConf.getColumnInternalName(i - 1);
+      columns.add(new ExprNodeColumnDesc(types.get(i), name,
+          TableSchema.TABLE_ALIAS, false));
+    }
+    return columns;
+  }
+
+  private static ArrayList<String> getColumnNames(int count) {
+    ArrayList<String> names = new ArrayList<String>();
+    for (int i = 0; i < count; i++) {
+      names.add(HiveConf.getColumnInternalName(i));
+    }
+    return names;
+  }
+
+  /**
+   * Process the next batch of input rows.
+   */
+  public void process() throws Exception {
+    Object[] rows = batches[batch];
+    switch (operatorCase) {
+    case JOIN:
+      for (Object[] group : groups[batch]) {
+        root.startGroup();
+        root.process(group[0], 0);
+        for (int i = 1; i < group.length; i++) {
+          root.process(group[i], 1);
+        }
+        root.endGroup();
+      }
+      break;
+    case MAP_JOIN:
+      for (Object row : rows) {
+        execContext.resetRow();
+        root.process(row, 0);
+      }
+      break;
+    default:
+      for (Object row : rows) {
+        root.process(row, 0);
+      }
+    }
+    batch = (batch + 1) % batches.length;
+  }
+
+  /**
+   * Close the DAG, which flushes the rows that it holds, and delete the
+   * temporary files.
+   */
+  public void close() throws Exception {
+    try {
+      root.close(false);
+    } finally {
+      if (tmpDir != null) {
+        FileUtil.fullyDelete(tmpDir);
+      }
+    }
+  }
+
+  /**
+   * Returns the sink at the end of the DAG.
+   */
+  public SinkOperator getSink() {
+    return sink;
+  }
+}
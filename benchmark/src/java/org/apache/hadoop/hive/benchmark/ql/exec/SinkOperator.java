@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+import java.io.Serializable;
+
+import org.apache.hadoop.hive.ql.exec.Operator;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.plan.CollectDesc;
+import org.apache.hadoop.hive.ql.plan.api.OperatorType;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * SinkOperator is the last operator of a benchmarked DAG. It collects the rows
+ * that reach it, and the key/value pairs of a ReduceSinkOperator as its
+ * OutputCollector, without copying them, so it costs next to nothing.
+ */
+public class SinkOperator extends Operator<CollectDesc> implements
+    OutputCollector<Object, Object>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private transient long rows;
+  private transient Object lastRow;
+
+  @Override
+  public void processOp(Object row, int tag) throws HiveException {
+    rows++;
+    lastRow = row;
+  }
+
+  @Override
+  public void collect(Object key, Object value) {
+    rows++;
+    lastRow = value;
+  }
+
+  /**
+   * Returns the number of rows collected.
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the last row collected.
+   */
+  public Object getLastRow() {
+    return lastRow;
+  }
+
+  /**
+   * The sink stands for the FileSinkOperator that ends the plans of Hive.
+   */
+  @Override
+  public OperatorType getType() {
+    return OperatorType.FILESINK;
+  }
+}
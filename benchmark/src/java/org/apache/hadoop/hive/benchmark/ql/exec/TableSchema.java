@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.ql.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hive.benchmark.serde.RowGenerator;
+import org.apache.hadoop.hive.ql.exec.ColumnInfo;
+import org.apache.hadoop.hive.ql.parse.RowResolver;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * TableSchema is the schema of the rows that are pushed through the operators.
+ * The first column of every schema is the int column "key", which is what the
+ * operators group and join on; the generated keys are uniformly distributed
+ * over a given number of distinct values.
+ *
+ * The columns c_int, c_bigint, c_double and c_string are in every schema, so
+ * the expressions of a benchmark work on all of them.
+ */
+public enum TableSchema {
+
+  NARROW("key,c_int,c_bigint,c_double,c_string",
+      "int,int,bigint,double,string"),
+  WIDE(NARROW.columns + getColumns(4), NARROW.columnTypes + getColumnTypes(4));
+
+  /**
+   * The name of the table in the expressions.
+   */
+  public static final String TABLE_ALIAS = "t";
+
+  public static final String KEY_COLUMN = "key";
+
+  private final String columns;
+  private final String columnTypes;
+
+  private TableSchema(String columns, String columnTypes) {
+    this.columns = columns;
+    this.columnTypes = columnTypes;
+  }
+
+  private static String getColumns(int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 1; i <= count; i++) {
+      sb.append(",c_int_").append(i).append(",c_bigint_").append(i).append(
+          ",c_double_").append(i).append(",c_string_").append(i);
+    }
+    return sb.append(",c_boolean").toString();
+  }
+
+  private static String getColumnTypes(int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 1; i <= count; i++) {
+      sb.append(",int,bigint,double,string");
+    }
+    return sb.append(",boolean").toString();
+  }
+
+  public List<String> getColumnNames() {
+    return Arrays.asList(columns.split(","));
+  }
+
+  public List<TypeInfo> getColumnTypeInfos() {
+    return TypeInfoUtils.getTypeInfosFromTypeString(columnTypes);
+  }
+
+  /**
+   * Returns the TypeInfo of a row.
+   */
+  public TypeInfo getRowTypeInfo() {
+    return TypeInfoFactory.getStructTypeInfo(getColumnNames(),
+        getColumnTypeInfos());
+  }
+
+  /**
+   * Returns the standard Java ObjectInspector of the rows.
+   */
+  public ObjectInspector getRowObjectInspector() {
+    return TypeInfoUtils
+        .getStandardJavaObjectInspectorFromTypeInfo(getRowTypeInfo());
+  }
+
+  /**
+   * Returns the RowResolver of the table, which resolves the columns of the
+   * expressions to the fields of the rows.
+   */
+  public RowResolver getRowResolver() {
+    RowResolver rr = new RowResolver();
+    List<String> names = getColumnNames();
+    List<TypeInfo> typeInfos = getColumnTypeInfos();
+    for (int i = 0; i < names.size(); i++) {
+      rr.put(TABLE_ALIAS, names.get(i), new ColumnInfo(names.get(i),
+          typeInfos.get(i), TABLE_ALIAS, false));
+    }
+    return rr;
+  }
+
+  /**
+   * Generate rows as standard Java objects, with 5% of NULLs in the columns
+   * other than the key.
+   *
+   * @param count
+   *          the number of rows
+   * @param keyCardinality
+   *          the number of distinct keys, which are 0 to keyCardinality - 1
+   * @param seed
+   *          the seed of the random numbers
+   */
+  public List<Object> generateRows(int count, int keyCardinality, long seed) {
+    RowGenerator generator = new RowGenerator(getRowTypeInfo(), seed)
+        .setNullFraction(0.05);
+    Random random = new Random(seed);
+    List<Object> rows = generator.next(count);
+    for (Object row : rows) {
+      ((List<Object>) row).set(0, Integer.valueOf(random
+          .nextInt(keyCardinality)));
+    }
+    return rows;
+  }
+
+  /**
+   * Generate one row for each key from 0 to keyCardinality - 1, as in a
+   * dimension table.
+   */
+  public List<Object> generateKeyRows(int keyCardinality, long seed) {
+    List<Object> rows = new RowGenerator(getRowTypeInfo(), seed)
+        .setNullFraction(0.05).next(keyCardinality);
+    for (int i = 0; i < rows.size(); i++) {
+      ((List<Object>) rows.get(i)).set(0, Integer.valueOf(i));
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the key of a row generated by this schema.
+   */
+  public static int getKey(Object row) {
+    return ((Integer) ((List<Object>) row).get(0)).intValue();
+  }
+
+  /**
+   * Sort rows by their key, as the reducers get them.
+   */
+  public static List<Object> sortByKey(List<Object> rows) {
+    List<Object> sorted = new ArrayList<Object>(rows);
+    Collections.sort(sorted, new Comparator<Object>() {
+      @Override
+      public int compare(Object o1, Object o2) {
+        int k1 = getKey(o1);
+        int k2 = getKey(o2);
+        return k1 < k2 ? -1 : (k1 == k2 ? 0 : 1);
+      }
+    });
+    return sorted;
+  }
+}
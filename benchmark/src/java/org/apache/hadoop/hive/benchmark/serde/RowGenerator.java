@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.serde;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.MapTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * RowGenerator generates random rows of a type as standard Java objects, the
+ * ones read by the standard Java ObjectInspector of the type.
+ *
+ * The rows only depend on the type, the seed and the settings, so every run
+ * of a benchmark works on the same data.
+ */
+public class RowGenerator {
+
+  private static final char[] ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 -_"
+      .toCharArray();
+
+  private final TypeInfo rowTypeInfo;
+  private final Random random;
+  private double nullFraction = 0.0;
+  private int maxStringLength = 20;
+  private int maxCollectionSize = 5;
+
+  public RowGenerator(TypeInfo rowTypeInfo, long seed) {
+    this.rowTypeInfo = rowTypeInfo;
+    random = new Random(seed);
+  }
+
+  /**
+   * Set the fraction of the values below the row that are NULL.
+   */
+  public RowGenerator setNullFraction(double nullFraction) {
+    this.nullFraction = nullFraction;
+    return this;
+  }
+
+  /**
+   * Set the maximum length of the strings, which is at least 1.
+   */
+  public RowGenerator setMaxStringLength(int maxStringLength) {
+    this.maxStringLength = maxStringLength;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of elements of the lists and maps.
+   */
+  public RowGenerator setMaxCollectionSize(int maxCollectionSize) {
+    this.maxCollectionSize = maxCollectionSize;
+    return this;
+  }
+
+  /**
+   * Returns the standard Java ObjectInspector of the rows.
+   */
+  public ObjectInspector getObjectInspector() {
+    return TypeInfoUtils
+        .getStandardJavaObjectInspectorFromTypeInfo(rowTypeInfo);
+  }
+
+  /**
+   * Generate the next row.
+   */
+  public Object next() {
+    return generate(rowTypeInfo, false);
+  }
+
+  /**
+   * Generate the given number of rows.
+   */
+  public List<Object> next(int count) {
+    List<Object> rows = new ArrayList<Object>(count);
+    for (int i = 0; i < count; i++) {
+      rows.add(next());
+    }
+    return rows;
+  }
+
+  private Object generate(TypeInfo typeInfo, boolean nullable) {
+    if (nullable && random.nextDouble() < nullFraction) {
+      return null;
+    }
+    switch (typeInfo.getCategory()) {
+    case PRIMITIVE:
+      return generatePrimitive((PrimitiveTypeInfo) typeInfo);
+    case LIST: {
+      TypeInfo elementTypeInfo = ((ListTypeInfo) typeInfo)
+          .getListElementTypeInfo();
+      int size = random.nextInt(maxCollectionSize + 1);
+      List<Object> list = new ArrayList<Object>(size);
+      for (int i = 0; i < size; i++) {
+        list.add(generate(elementTypeInfo, true));
+      }
+      return list;
+    }
+    case MAP: {
+      MapTypeInfo mapTypeInfo = (MapTypeInfo) typeInfo;
+      int size = random.nextInt(maxCollectionSize + 1);
+      Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+      for (int i = 0; i < size; i++) {
+        map.put(generate(mapTypeInfo.getMapKeyTypeInfo(), false), generate(
+            mapTypeInfo.getMapValueTypeInfo(), true));
+      }
+      return map;
+    }
+    case STRUCT: {
+      List<TypeInfo> fieldTypeInfos = ((StructTypeInfo) typeInfo)
+          .getAllStructFieldTypeInfos();
+      List<Object> struct = new ArrayList<Object>(fieldTypeInfos.size());
+      for (TypeInfo fieldTypeInfo : fieldTypeInfos) {
+        struct.add(generate(fieldTypeInfo, true));
+      }
+      return struct;
+    }
+    default:
+      throw new RuntimeException("Unsupported type: " + typeInfo);
+    }
+  }
+
+  private Object generatePrimitive(PrimitiveTypeInfo typeInfo) {
+    switch (typeInfo.getPrimitiveCategory()) {
+    case BOOLEAN:
+      return Boolean.valueOf(random.nextBoolean());
+    case BYTE:
+      return Byte.valueOf((byte) random.nextInt());
+    case SHORT:
+      return Short.valueOf((short) random.nextInt());
+    case INT:
+      // mostly small numbers, as ids and counts are
+      return Integer.valueOf(random.nextBoolean() ? random.nextInt(10000)
+          : random.nextInt());
+    case LONG:
+      return Long.valueOf(random.nextBoolean() ? random.nextInt(1000000)
+          : random.nextLong());
+    case FLOAT:
+      return Float.valueOf(random.nextInt(100000) / 100f);
+    case DOUBLE:
+      return Double.valueOf(random.nextBoolean() ? random.nextInt(1000000)
+          / 100.0 : random.nextDouble() * 1e6);
+    case STRING: {
+      int length = 1 + random.nextInt(maxStringLength);
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+      }
+      return new String(chars);
+    }
+    default:
+      throw new RuntimeException("Unsupported type: " + typeInfo);
+    }
+  }
+}
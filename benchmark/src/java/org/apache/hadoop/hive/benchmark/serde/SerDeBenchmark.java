@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.serde;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde2.SerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.Writable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * SerDeBenchmark measures how many rows per second each {@link SerDeCase}
+ * serializes and deserializes. An operation is one row, so the allocation
+ * rate normalized by the GC profiler is in bytes per row.
+ *
+ * Deserializing reads every field of the row, since the lazy SerDes do not
+ * do any work for the fields that are not read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerDeBenchmark {
+
+  /**
+   * The number of rows that are generated, and processed by each invocation.
+   */
+  public static final int ROWS = 1024;
+
+  /**
+   * The seed of the RowGenerator.
+   */
+  public static final long SEED = 20110301L;
+
+  @Param({"LAZY_SIMPLE_FLAT", "LAZY_SIMPLE_NESTED", "LAZY_SIMPLE_STRINGS",
+      "LAZY_BINARY_FLAT", "LAZY_BINARY_NESTED", "COLUMNAR_FLAT",
+      "COLUMNAR_NESTED", "LAZY_BINARY_COLUMNAR_FLAT",
+      "LAZY_BINARY_COLUMNAR_NESTED", "BINARY_SORTABLE_FLAT",
+      "BINARY_SORTABLE_NESTED", "LAZY_JSON_FLAT", "LAZY_JSON_NESTED",
+      "REGEX_STRINGS", "DYNAMIC_BINARY_FLAT", "DYNAMIC_CTL_FLAT"})
+  public String serDeCase;
+
+  SerDe serDe;
+  List<Object> rows;
+  ObjectInspector rowOI;
+  Writable[] serialized;
+  ObjectInspector serDeOI;
+
+  @Setup
+  public void setup() throws Exception {
+    SerDeCase c = SerDeCase.valueOf(serDeCase);
+    serDe = c.createSerDe(new Configuration());
+    serDeOI = serDe.getObjectInspector();
+    RowGenerator generator = createGenerator(c.getSchema());
+    rows = generator.next(ROWS);
+    rowOI = generator.getObjectInspector();
+    serialized = new Writable[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      serialized[i] = SerDeCase.copy(serDe.serialize(rows.get(i), rowOI));
+    }
+  }
+
+  /**
+   * Create the RowGenerator of the rows of a schema.
+   */
+  public static RowGenerator createGenerator(SerDeCase.Schema schema) {
+    return new RowGenerator(schema.getRowTypeInfo(), SEED)
+        .setNullFraction(0.05);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void serialize(Blackhole blackhole) throws Exception {
+    for (int i = 0; i < ROWS; i++) {
+      blackhole.consume(serDe.serialize(rows.get(i), rowOI));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int deserialize() throws Exception {
+    int hash = 0;
+    for (int i = 0; i < ROWS; i++) {
+      hash = 31 * hash + readAll(serDe.deserialize(serialized[i]), serDeOI);
+    }
+    return hash;
+  }
+
+  /**
+   * Read every value in the object, and return a hash code of them.
+   */
+  static int readAll(Object o, ObjectInspector oi) {
+    if (o == null) {
+      return 0;
+    }
+    int hash = 0;
+    switch (oi.getCategory()) {
+    case PRIMITIVE:
+      return ObjectInspectorUtils.hashCode(o, oi);
+    case LIST: {
+      ListObjectInspector loi = (ListObjectInspector) oi;
+      ObjectInspector eoi = loi.getListElementObjectInspector();
+      int length = loi.getListLength(o);
+      for (int i = 0; i < length; i++) {
+        hash = 31 * hash + readAll(loi.getListElement(o, i), eoi);
+      }
+      return hash;
+    }
+    case MAP: {
+      MapObjectInspector moi = (MapObjectInspector) oi;
+      for (Map.Entry<?, ?> entry : moi.getMap(o).entrySet()) {
+        hash += readAll(entry.getKey(), moi.getMapKeyObjectInspector())
+            ^ readAll(entry.getValue(), moi.getMapValueObjectInspector());
+      }
+      return hash;
+    }
+    case STRUCT: {
+      StructObjectInspector soi = (StructObjectInspector) oi;
+      for (StructField field : soi.getAllStructFieldRefs()) {
+        hash = 31 * hash + readAll(soi.getStructFieldData(o, field), field
+            .getFieldObjectInspector());
+      }
+      return hash;
+    }
+    default:
+      throw new RuntimeException("Unsupported type: " + oi.getTypeName());
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.serde;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.benchmark.BenchmarkReport;
+import org.apache.hadoop.hive.benchmark.BenchmarkRunner;
+import org.apache.hadoop.hive.serde2.SerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.openjdk.jmh.results.RunResult;
+
+/**
+ * SerDeBenchmarkRunner runs {@link SerDeBenchmark} and reports, for each
+ * {@link SerDeCase}, the rows per second and the bytes allocated per row of
+ * serialize and deserialize, and the bytes per serialized row.
+ *
+ * See {@link BenchmarkRunner} for the options.
+ */
+public class SerDeBenchmarkRunner extends BenchmarkRunner {
+
+  public static final String SERIALIZE_ROWS_PER_SEC = "serialize_rows_per_sec";
+  public static final String DESERIALIZE_ROWS_PER_SEC =
+      "deserialize_rows_per_sec";
+  public static final String BYTES_PER_ROW = "bytes_per_row";
+  public static final String SERIALIZE_ALLOC_PER_ROW =
+      "serialize_alloc_bytes_per_row";
+  public static final String DESERIALIZE_ALLOC_PER_ROW =
+      "deserialize_alloc_bytes_per_row";
+
+  @Override
+  protected String getCaseParameter() {
+    return "serDeCase";
+  }
+
+  @Override
+  protected String getInclude() {
+    return SerDeBenchmark.class.getName() + "\\.";
+  }
+
+  @Override
+  protected BenchmarkReport createReport() {
+    return new BenchmarkReport().addMetric(SERIALIZE_ROWS_PER_SEC, true)
+        .addMetric(DESERIALIZE_ROWS_PER_SEC, true).addMetric(BYTES_PER_ROW,
+        false).addMetric(SERIALIZE_ALLOC_PER_ROW, false).addMetric(
+        DESERIALIZE_ALLOC_PER_ROW, false);
+  }
+
+  @Override
+  protected void addResults(BenchmarkReport report,
+      Collection<RunResult> results) throws Exception {
+    for (RunResult result : results) {
+      String caseName = getCaseName(result);
+      boolean serialize = getMethod(result).equals("serialize");
+      report.set(caseName, serialize ? SERIALIZE_ROWS_PER_SEC
+          : DESERIALIZE_ROWS_PER_SEC, result.getPrimaryResult().getScore());
+      Double allocated = getAllocatedBytesPerOperation(result);
+      if (allocated != null) {
+        report.set(caseName, serialize ? SERIALIZE_ALLOC_PER_ROW
+            : DESERIALIZE_ALLOC_PER_ROW, allocated.doubleValue());
+      }
+      if (report.get(caseName, BYTES_PER_ROW) == null) {
+        report.set(caseName, BYTES_PER_ROW, getBytesPerRow(SerDeCase
+            .valueOf(caseName)));
+      }
+    }
+  }
+
+  /**
+   * Returns the average size of the rows of the benchmark when serialized.
+   */
+  public static double getBytesPerRow(SerDeCase c) throws Exception {
+    SerDe serDe = c.createSerDe(new Configuration());
+    RowGenerator generator = SerDeBenchmark.createGenerator(c.getSchema());
+    List<Object> rows = generator.next(SerDeBenchmark.ROWS);
+    ObjectInspector rowOI = generator.getObjectInspector();
+    long bytes = 0;
+    for (Object row : rows) {
+      bytes += SerDeCase.getSize(serDe.serialize(row, rowOI));
+    }
+    return (double) bytes / rows.size();
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(new SerDeBenchmarkRunner().run(args));
+  }
+}
@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.benchmark.serde;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.contrib.serde2.RegexSerDe;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.SerDe;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableSerDe;
+import org.apache.hadoop.hive.serde2.columnar.BytesRefArrayWritable;
+import org.apache.hadoop.hive.serde2.columnar.BytesRefWritable;
+import org.apache.hadoop.hive.serde2.columnar.ColumnarSerDe;
+import org.apache.hadoop.hive.serde2.columnar.LazyBinaryColumnarSerDe;
+import org.apache.hadoop.hive.serde2.dynamic_type.DynamicSerDe;
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinarySerDe;
+import org.apache.hadoop.hive.serde2.lazyjson.LazyJsonSerDe;
+import org.apache.hadoop.hive.serde2.thrift.TCTLSeparatedProtocol;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.thrift.protocol.TBinaryProtocol;
+
+/**
+ * SerDeCase is a SerDe together with the schema of the table that it is
+ * benchmarked on.
+ */
+public enum SerDeCase {
+
+  LAZY_SIMPLE_FLAT(LazySimpleSerDe.class, Schema.FLAT),
+  LAZY_SIMPLE_NESTED(LazySimpleSerDe.class, Schema.NESTED),
+  LAZY_SIMPLE_STRINGS(LazySimpleSerDe.class, Schema.STRINGS),
+  LAZY_BINARY_FLAT(LazyBinarySerDe.class, Schema.FLAT),
+  LAZY_BINARY_NESTED(LazyBinarySerDe.class, Schema.NESTED),
+  COLUMNAR_FLAT(ColumnarSerDe.class, Schema.FLAT),
+  COLUMNAR_NESTED(ColumnarSerDe.class, Schema.NESTED),
+  LAZY_BINARY_COLUMNAR_FLAT(LazyBinaryColumnarSerDe.class, Schema.FLAT),
+  LAZY_BINARY_COLUMNAR_NESTED(LazyBinaryColumnarSerDe.class, Schema.NESTED),
+  BINARY_SORTABLE_FLAT(BinarySortableSerDe.class, Schema.FLAT),
+  BINARY_SORTABLE_NESTED(BinarySortableSerDe.class, Schema.NESTED),
+  LAZY_JSON_FLAT(LazyJsonSerDe.class, Schema.FLAT),
+  LAZY_JSON_NESTED(LazyJsonSerDe.class, Schema.NESTED),
+  REGEX_STRINGS(RegexSerDe.class, Schema.STRINGS),
+  DYNAMIC_BINARY_FLAT(DynamicSerDe.class, Schema.FLAT),
+  DYNAMIC_CTL_FLAT(DynamicSerDe.class, Schema.FLAT);
+
+  /**
+   * The schemas of the tables.
+   */
+  public static enum Schema {
+    FLAT("id,amount,price,name,flag,comment",
+        "int,bigint,double,string,boolean,string"),
+    NESTED("id,tags,attrs,point", "int,array<string>,map<string,int>,"
+        + "struct<x:double,y:double,label:string>"),
+    STRINGS("id,amount,price,name,flag,comment",
+        "string,string,string,string,string,string");
+
+    private final String columns;
+    private final String columnTypes;
+
+    private Schema(String columns, String columnTypes) {
+      this.columns = columns;
+      this.columnTypes = columnTypes;
+    }
+
+    public String getColumns() {
+      return columns;
+    }
+
+    public String getColumnTypes() {
+      return columnTypes;
+    }
+
+    /**
+     * Returns the TypeInfo of a row.
+     */
+    public TypeInfo getRowTypeInfo() {
+      return TypeInfoFactory.getStructTypeInfo(Arrays.asList(columns
+          .split(",")), TypeInfoUtils.getTypeInfosFromTypeString(columnTypes));
+    }
+  }
+
+  private final Class<? extends SerDe> serDeClass;
+  private final Schema schema;
+
+  private SerDeCase(Class<? extends SerDe> serDeClass, Schema schema) {
+    this.serDeClass = serDeClass;
+    this.schema = schema;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns the properties of the table.
+   */
+  public Properties getTableProperties() {
+    Properties tbl = new Properties();
+    tbl.setProperty(Constants.SERIALIZATION_LIB, serDeClass.getName());
+    tbl.setProperty(Constants.LIST_COLUMNS, schema.getColumns());
+    tbl.setProperty(Constants.LIST_COLUMN_TYPES, schema.getColumnTypes());
+    switch (this) {
+    case REGEX_STRINGS: {
+      // tab separated, as in a log file
+      int count = schema.getColumns().split(",").length;
+      StringBuilder regex = new StringBuilder();
+      StringBuilder format = new StringBuilder();
+      for (int i = 1; i <= count; i++) {
+        regex.append(i == 1 ? "" : "\t").append("([^\t]*)");
+        format.append(i == 1 ? "" : "\t").append("%").append(i).append("$s");
+      }
+      tbl.setProperty("input.regex", regex.toString());
+      tbl.setProperty("output.format.string", format.toString());
+      break;
+    }
+    case DYNAMIC_BINARY_FLAT:
+    case DYNAMIC_CTL_FLAT:
+      tbl.setProperty(Constants.SERIALIZATION_FORMAT,
+          this == DYNAMIC_BINARY_FLAT ? TBinaryProtocol.class.getName()
+          : TCTLSeparatedProtocol.class.getName());
+      tbl.setProperty(
+          org.apache.hadoop.hive.metastore.api.Constants.META_TABLE_NAME,
+          "benchmark");
+      tbl.setProperty(Constants.SERIALIZATION_DDL, getThriftDDL());
+      break;
+    default:
+      break;
+    }
+    return tbl;
+  }
+
+  /**
+   * Returns the DDL of DynamicSerDe for the schema.
+   */
+  private String getThriftDDL() {
+    String[] columns = schema.getColumns().split(",");
+    List<TypeInfo> types = TypeInfoUtils.getTypeInfosFromTypeString(schema
+        .getColumnTypes());
+    StringBuilder ddl = new StringBuilder("struct benchmark { ");
+    for (int i = 0; i < columns.length; i++) {
+      String type = types.get(i).getTypeName();
+      if (type.equals(Constants.INT_TYPE_NAME)) {
+        type = "i32";
+      } else if (type.equals(Constants.BIGINT_TYPE_NAME)) {
+        type = "i64";
+      } else if (type.equals(Constants.BOOLEAN_TYPE_NAME)) {
+        type = "bool";
+      }
+      ddl.append(i == 0 ? "" : ", ").append(type).append(" ").append(
+          columns[i]);
+    }
+    return ddl.append("}").toString();
+  }
+
+  /**
+   * Create and initialize the SerDe.
+   */
+  public SerDe createSerDe(Configuration conf) throws SerDeException {
+    SerDe serDe = ReflectionUtils.newInstance(serDeClass, conf);
+    serDe.initialize(conf, getTableProperties());
+    return serDe;
+  }
+
+  /**
+   * Returns a copy of a serialized row. SerDes reuse the Writable that they
+   * serialize to.
+   */
+  public static Writable copy(Writable serialized) {
+    if (serialized instanceof Text) {
+      return new Text((Text) serialized);
+    }
+    if (serialized instanceof BytesWritable) {
+      BytesWritable b = (BytesWritable) serialized;
+      BytesWritable copy = new BytesWritable();
+      copy.set(b.get(), 0, b.getSize());
+      return copy;
+    }
+    if (serialized instanceof BytesRefArrayWritable) {
+      BytesRefArrayWritable b = (BytesRefArrayWritable) serialized;
+      BytesRefArrayWritable copy = new BytesRefArrayWritable(b.size());
+      try {
+        for (int i = 0; i < b.size(); i++) {
+          copy.set(i, new BytesRefWritable(b.get(i).getBytesCopy()));
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return copy;
+    }
+    throw new RuntimeException("Can not copy "
+        + serialized.getClass().getName());
+  }
+
+  /**
+   * Returns the number of bytes of a serialized row.
+   */
+  public static int getSize(Writable serialized) {
+    if (serialized instanceof Text) {
+      return ((Text) serialized).getLength();
+    }
+    if (serialized instanceof BytesWritable) {
+      return ((BytesWritable) serialized).getSize();
+    }
+    if (serialized instanceof BytesRefArrayWritable) {
+      BytesRefArrayWritable b = (BytesRefArrayWritable) serialized;
+      int size = 0;
+      for (int i = 0; i < b.size(); i++) {
+        size += b.get(i).getLength();
+      }
+      return size;
+    }
+    throw new RuntimeException("Can not size "
+        + serialized.getClass().getName());
+  }
+}
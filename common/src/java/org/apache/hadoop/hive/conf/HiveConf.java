@@ -105,6 +105,7 @@ public class HiveConf extends Configuration {
     DYNAMICPARTITIONINGMODE("hive.exec.dynamic.partition.mode", "strict"),
     DYNAMICPARTITIONMAXPARTS("hive.exec.max.dynamic.partitions", 1000),
     DYNAMICPARTITIONMAXPARTSPERNODE("hive.exec.max.dynamic.partitions.pernode", 100),
+    DYNAMICPARTITIONMAXOPENWRITERS("hive.exec.max.dynamic.partitions.open.writers", 0),
     MAXCREATEDFILES("hive.exec.max.created.files", 100000L),
     DOWNLOADED_RESOURCES_DIR("hive.downloaded.resources.dir", "/tmp/"+System.getProperty("user.name")+"/hive_resources"),
     DEFAULTPARTITIONNAME("hive.exec.default.partition.name", "__HIVE_DEFAULT_PARTITION__"),
@@ -120,6 +121,8 @@ public class HiveConf extends Configuration {
     // run in local mode only if number of tasks (for map and reduce each) is
     // less than this
     LOCALMODEMAXTASKS("hive.exec.mode.local.auto.tasks.max", 4),
+    // number of threads used to compute the size of the input paths of a job
+    HIVE_EXEC_INPUT_LISTING_MAX_THREADS("hive.exec.input.listing.max.threads", 16),
     // if true, DROP TABLE/VIEW does not fail if table/view doesn't exist and IF EXISTS is
     // not specified
     DROPIGNORESNONEXISTENT("hive.exec.drop.ignorenonexistent", true),
@@ -218,6 +221,10 @@ public class HiveConf extends Configuration {
     HIVEPARTITIONNAME("hive.partition.name", ""),
     HIVESCRIPTAUTOPROGRESS("hive.script.auto.progress", false),
     HIVESCRIPTIDENVVAR("hive.script.operator.id.env.var", "HIVE_SCRIPT_OPERATOR_ID"),
+    HIVESCRIPTBUFFERSIZE("hive.script.buffer.size", 8192),
+    HIVESCRIPTBATCHROWS("hive.script.batch.rows", 1000),
+    HIVESCRIPTBATCHBYTES("hive.script.batch.bytes", 1048576),
+    HIVESCRIPTREPORTERPREFIX("hive.script.stderr.reporter.prefix", "reporter:"),
     HIVEMAPREDMODE("hive.mapred.mode", "nonstrict"),
     HIVEALIAS("hive.alias", ""),
     HIVEMAPSIDEAGGREGATE("hive.map.aggr", "true"),
@@ -225,6 +232,7 @@ public class HiveConf extends Configuration {
     HIVEJOINEMITINTERVAL("hive.join.emit.interval", 1000),
     HIVEJOINCACHESIZE("hive.join.cache.size", 25000),
     HIVEMAPJOINBUCKETCACHESIZE("hive.mapjoin.bucket.cache.size", 100),
+    HIVEMAPJOINSMBBUCKETCACHEROWS("hive.mapjoin.smb.bucket.cache.rows", 100000),
     HIVEMAPJOINROWSIZE("hive.mapjoin.size.key", 10000),
     HIVEMAPJOINCACHEROWS("hive.mapjoin.cache.numrows", 25000),
     HIVEGROUPBYMAPINTERVAL("hive.groupby.mapaggr.checkinterval", 100000),
@@ -262,6 +270,8 @@ public class HiveConf extends Configuration {
 
     //small table file size
     HIVESMALLTABLESFILESIZE("hive.smalltable.filesize",25000000L), //25M
+    // estimated in-memory hash table size of the small tables, from metastore statistics
+    HIVESMALLTABLESESTIMATEDSIZE("hive.smalltable.estimated.size", 100000000L), //100M
     // test mode in hive mode
     HIVETESTMODE("hive.test.mode", false),
     HIVETESTMODEPREFIX("hive.test.mode.prefix", "test_"),
@@ -275,9 +285,23 @@ public class HiveConf extends Configuration {
 
     HIVESKEWJOIN("hive.optimize.skewjoin", false),
     HIVECONVERTJOIN("hive.auto.convert.join", false),
+    HIVECONVERTJOINUSESTATS("hive.auto.convert.join.use.stats", true),
     HIVESKEWJOINKEY("hive.skewjoin.key", 1000000),
     HIVESKEWJOINMAPJOINNUMMAPTASK("hive.skewjoin.mapjoin.map.tasks", 10000),
     HIVESKEWJOINMAPJOINMINSPLIT("hive.skewjoin.mapjoin.min.split", 33554432L), //32M
+    // in-job skew join: hot keys are found by sampling before the job is
+    // submitted and spread over several reducers, no follow-up job is needed
+    HIVESKEWJOININJOB("hive.optimize.skewjoin.injob", false),
+    HIVESKEWJOININJOBSAMPLEROWS("hive.skewjoin.injob.sample.rows", 100000),
+    HIVESKEWJOININJOBHOTKEYFRACTION("hive.skewjoin.injob.hotkey.fraction", (float) 0.01),
+    HIVESKEWJOININJOBMAXHOTKEYS("hive.skewjoin.injob.hotkey.max", 100),
+    HIVESKEWJOININJOBSPLITFACTOR("hive.skewjoin.injob.split.factor", 10),
+    // bloom filter over the join keys of a filtered small input, built before
+    // the job is submitted and applied by the reduce sinks of the other inputs
+    HIVEBLOOMFILTERJOIN("hive.optimize.bloomfilter.join", false),
+    HIVEBLOOMFILTERJOINSMALLTABLESIZE("hive.bloomfilter.join.smalltable.filesize", 100000000L), //100M
+    HIVEBLOOMFILTERJOINMAXENTRIES("hive.bloomfilter.join.max.entries", 1000000),
+    HIVEBLOOMFILTERJOINFPP("hive.bloomfilter.join.fpp", (float) 0.03),
     MAPREDMINSPLITSIZE("mapred.min.split.size", 1L),
     HIVEMERGEMAPONLY("hive.mergejob.maponly", true),
 
@@ -303,6 +327,9 @@ public class HiveConf extends Configuration {
 
     HIVE_COMBINE_INPUT_FORMAT_SUPPORTS_SPLITTABLE("hive.hadoop.supports.splittable.combineinputformat", false),
 
+    // call the methods of classic UDFs and UDAFs through generated code instead of reflection
+    HIVEUDFBRIDGEGENERATEDINVOKER("hive.udf.bridge.generated.invoker", false),
+
     // Optimizer
     HIVEOPTCP("hive.optimize.cp", true), // column pruner
     HIVEOPTPPD("hive.optimize.ppd", true), // predicate pushdown
@@ -312,6 +339,19 @@ public class HiveConf extends Configuration {
     HIVEOPTBUCKETMAPJOIN("hive.optimize.bucketmapjoin", false), // optimize bucket map join
     HIVEOPTSORTMERGEBUCKETMAPJOIN("hive.optimize.bucketmapjoin.sortedmerge", false), // try to use sorted merge bucket map join
     HIVEOPTREDUCEDEDUPLICATION("hive.optimize.reducededuplication", true),
+    HIVEOPTSORTDYNAMICPARTITION("hive.optimize.sort.dynamic.partition", false),
+    // order inner joins by the statistics in the metastore
+    HIVEOPTJOINREORDERCOSTBASED("hive.optimize.joinreorder.costbased", false),
+    // keep only the first rows of ORDER BY ... LIMIT in the map side reduce sink
+    HIVEOPTTOPN("hive.optimize.topn", false),
+    HIVEOPTTOPNMAXROWS("hive.optimize.topn.max.rows", 10000),
+    // range partition ORDER BY over several reducers
+    HIVEOPTTOTALORDER("hive.optimize.totalorder", false),
+    HIVEOPTTOTALORDERSAMPLEFILES("hive.optimize.totalorder.sample.files", 10),
+    HIVEOPTTOTALORDERSAMPLEROWS("hive.optimize.totalorder.sample.rows", 1000),
+    // run map only LIMIT queries over a growing part of their input
+    HIVELIMITOPTENABLE("hive.limit.optimize.enable", false),
+    HIVELIMITROWMAXSIZE("hive.limit.row.max.size", 100000L),
 
     // Statistics
     HIVESTATSAUTOGATHER("hive.stats.autogather", true),
@@ -325,6 +365,7 @@ public class HiveConf extends Configuration {
         ""), // default stats publisher if none of JDBC/HBase is specified
     HIVE_STATS_DEFAULT_AGGREGATOR("hive.stats.default.aggregator",
         ""), // default stats aggregator if none of JDBC/HBase is specified
+    HIVE_STATS_NDV_PRECISION("hive.stats.ndv.precision", 12), // log2 of the NDV sketch registers
 
 
     // Concurrency
@@ -341,6 +382,11 @@ public class HiveConf extends Configuration {
 
     // For HBase storage handler
     HIVE_HBASE_WAL_ENABLED("hive.hbase.wal.enabled", true),
+    HIVE_HBASE_SCAN_CACHE("hive.hbase.scan.cache", 100),
+    HIVE_HBASE_SCAN_BATCH("hive.hbase.scan.batch", -1),
+    HIVE_HBASE_SCAN_CACHEBLOCKS("hive.hbase.scan.cacheblock", false),
+    HIVE_HBASE_WRITE_BUFFER_SIZE("hive.hbase.write.buffer.size", 8388608L),
+    HIVE_HBASE_PUT_BATCH_SIZE("hive.hbase.put.batch.size", 1000),
 
     // For har files
     HIVEARCHIVEENABLED("hive.archive.enabled", false),
@@ -0,0 +1,130 @@
+#!/usr/bin/env python
+#
+# Licensed to the Apache Software Foundation (ASF) under one
+# or more contributor license agreements.  See the NOTICE file
+# distributed with this work for additional information
+# regarding copyright ownership.  The ASF licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Script side of TypedBytesBatchRecordWriter and TypedBytesBatchRecordReader.
+
+Every batch is a 4 byte big endian row count, a 4 byte big endian byte
+length and then that many bytes of typed bytes rows, each row ending with
+the ENDOFRECORD code 177. Run as a TRANSFORM script, this decodes the rows
+of every batch it reads and sends them back in the same batches:
+
+  SELECT TRANSFORM(key, value)
+    ROW FORMAT SERDE 'org.apache.hadoop.hive.contrib.serde2.TypedBytesSerDe'
+    RECORDWRITER
+      'org.apache.hadoop.hive.contrib.util.typedbytes.TypedBytesBatchRecordWriter'
+    USING 'python typedbytes_batch.py'
+    AS (key, value)
+    ROW FORMAT SERDE 'org.apache.hadoop.hive.contrib.serde2.TypedBytesSerDe'
+    RECORDREADER
+      'org.apache.hadoop.hive.contrib.util.typedbytes.TypedBytesBatchRecordReader'
+  FROM src;
+"""
+
+import struct
+import sys
+
+END_OF_RECORD = 177
+MARKER = 255
+
+# type code: (struct format, size) of the fixed size values
+FIXED = {1: ('>b', 1), 2: ('>?', 1), 3: ('>i', 4), 4: ('>q', 8),
+         5: ('>f', 4), 6: ('>d', 8), 11: ('>h', 2)}
+
+
+def read_batches(stream):
+  """Yields (row count, bytes) for every batch of the stream."""
+  while True:
+    header = stream.read(8)
+    if not header:
+      return
+    if len(header) < 8:
+      raise IOError('truncated batch header')
+    rows, length = struct.unpack('>ii', header)
+    data = stream.read(length)
+    if len(data) < length:
+      raise IOError('truncated batch')
+    yield rows, data
+
+
+def write_batch(stream, rows):
+  """Writes the encoded rows as one batch."""
+  data = b''.join(rows)
+  stream.write(struct.pack('>ii', len(rows), len(data)))
+  stream.write(data)
+
+
+def decode(data, pos):
+  """Decodes the value at pos, returns it with the position after it."""
+  code = bytearray(data[pos:pos + 1])[0]
+  pos += 1
+  if code in FIXED:
+    fmt, size = FIXED[code]
+    return struct.unpack(fmt, data[pos:pos + size])[0], pos + size
+  if code == 0 or code == 7:
+    length = struct.unpack('>i', data[pos:pos + 4])[0]
+    value = data[pos + 4:pos + 4 + length]
+    if code == 7:
+      value = value.decode('utf-8')
+    return value, pos + 4 + length
+  if code == 8 or code == 10:
+    count = struct.unpack('>i', data[pos:pos + 4])[0]
+    pos += 4
+    values = []
+    for i in range(count * (2 if code == 10 else 1)):
+      value, pos = decode(data, pos)
+      values.append(value)
+    if code == 10:
+      return dict(zip(values[0::2], values[1::2])), pos
+    return values, pos
+  if code == 9:
+    values = []
+    while bytearray(data[pos:pos + 1])[0] != MARKER:
+      value, pos = decode(data, pos)
+      values.append(value)
+    return values, pos + 1
+  if code == 12:
+    return None, pos
+  raise IOError('unknown typed bytes code %d' % code)
+
+
+def split_rows(data):
+  """Yields (columns, encoded row) for every row of a batch."""
+  pos = 0
+  while pos < len(data):
+    start = pos
+    columns = []
+    while bytearray(data[pos:pos + 1])[0] != END_OF_RECORD:
+      value, pos = decode(data, pos)
+      columns.append(value)
+    pos += 1
+    yield columns, data[start:pos]
+
+
+def main():
+  stdin = getattr(sys.stdin, 'buffer', sys.stdin)
+  stdout = getattr(sys.stdout, 'buffer', sys.stdout)
+  for count, data in read_batches(stdin):
+    rows = [row for columns, row in split_rows(data)]
+    if len(rows) != count:
+      raise IOError('expected %d rows, found %d' % (count, len(rows)))
+    write_batch(stdout, rows)
+  stdout.flush()
+
+
+if __name__ == '__main__':
+  main()
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.contrib.util.typedbytes;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * TypedBytesBatchRecordReader.
+ *
+ * Reads the typed bytes rows written by the script in the batches described
+ * in TypedBytesBatchRecordWriter. Every batch is read with a single call and
+ * the rows are parsed from memory.
+ */
+public class TypedBytesBatchRecordReader extends TypedBytesRecordReader {
+
+  @Override
+  public void initialize(InputStream in, Configuration conf, Properties tbl) throws IOException {
+    super.initialize(new BatchInputStream(in), conf, tbl);
+  }
+
+  /**
+   * Strips the batch framing from the stream.
+   */
+  static class BatchInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private byte[] buffer = new byte[0];
+    private int pos;
+    private int end;
+
+    BatchInputStream(InputStream in) {
+      this.in = new DataInputStream(in);
+    }
+
+    private boolean nextBatch() throws IOException {
+      while (pos >= end) {
+        try {
+          in.readInt(); // number of rows, only needed by the script
+        } catch (EOFException e) {
+          return false;
+        }
+        int length = in.readInt();
+        if (length < 0) {
+          throw new IOException("Invalid typed bytes batch length: " + length);
+        }
+        if (buffer.length < length) {
+          buffer = new byte[length];
+        }
+        in.readFully(buffer, 0, length);
+        pos = 0;
+        end = length;
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (pos >= end && !nextBatch()) {
+        return -1;
+      }
+      return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (pos >= end && !nextBatch()) {
+        return -1;
+      }
+      int n = Math.min(len, end - pos);
+      System.arraycopy(buffer, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return end - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.contrib.util.typedbytes;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.exec.RecordWriter;
+import org.apache.hadoop.hive.ql.io.NonSyncDataOutputBuffer;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * TypedBytesBatchRecordWriter.
+ *
+ * Sends the typed bytes rows to the script in batches. A batch is:
+ *
+ * <pre>
+ *   int32   number of rows in the batch, big endian
+ *   int32   number of bytes that follow, big endian
+ *   bytes   the rows, each one a sequence of typed bytes values ended by
+ *           the ENDOFRECORD code (177), as TypedBytesRecordWriter writes them
+ * </pre>
+ *
+ * A script can read a whole batch with two reads instead of parsing the
+ * stream byte by byte. The batch size is bounded by hive.script.batch.rows
+ * and hive.script.batch.bytes; the last batch is sent on close, and the
+ * stream ends after a complete batch. TypedBytesBatchRecordReader expects
+ * the same framing back from the script, where the row count may be any
+ * value. contrib/data/scripts/typedbytes_batch.py is a script side reader
+ * and writer of this format.
+ */
+public class TypedBytesBatchRecordWriter implements RecordWriter {
+
+  private DataOutputStream out;
+  private final NonSyncDataOutputBuffer batch = new NonSyncDataOutputBuffer();
+  private int batchRows;
+  private int maxBatchRows;
+  private int maxBatchBytes;
+
+  public void initialize(OutputStream out, Configuration conf)
+      throws IOException {
+    this.out = new DataOutputStream(out);
+    maxBatchRows = Math.max(1, HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVESCRIPTBATCHROWS));
+    maxBatchBytes = HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVESCRIPTBATCHBYTES);
+    batchRows = 0;
+  }
+
+  public void write(Writable row) throws IOException {
+    BytesWritable brow = (BytesWritable) row;
+    batch.write(brow.get(), 0, brow.getSize());
+    batchRows++;
+    if (batchRows >= maxBatchRows || batch.getLength() >= maxBatchBytes) {
+      writeBatch();
+    }
+  }
+
+  private void writeBatch() throws IOException {
+    if (batchRows == 0) {
+      return;
+    }
+    out.writeInt(batchRows);
+    out.writeInt(batch.getLength());
+    out.write(batch.getData(), 0, batch.getLength());
+    batch.reset();
+    batchRows = 0;
+  }
+
+  public void close() throws IOException {
+    writeBatch();
+    out.flush();
+    out.close();
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.contrib.util.typedbytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.io.NonSyncDataOutputBuffer;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * TestTypedBytesBatch.
+ *
+ */
+public class TestTypedBytesBatch extends TestCase {
+
+  private static byte[] row(int key, String value) throws Exception {
+    NonSyncDataOutputBuffer buffer = new NonSyncDataOutputBuffer();
+    TypedBytesWritableOutput out = new TypedBytesWritableOutput(buffer);
+    out.writeInt(new IntWritable(key));
+    out.writeText(new Text(value));
+    out.writeEndOfRecord();
+    return Arrays.copyOf(buffer.getData(), buffer.getLength());
+  }
+
+  public void testRoundTrip() throws Exception {
+    Configuration conf = new Configuration();
+    HiveConf.setIntVar(conf, HiveConf.ConfVars.HIVESCRIPTBATCHROWS, 2);
+
+    List<byte[]> rows = new ArrayList<byte[]>();
+    for (int i = 0; i < 5; i++) {
+      rows.add(row(i, "val_" + i));
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TypedBytesBatchRecordWriter writer = new TypedBytesBatchRecordWriter();
+    writer.initialize(bytes, conf);
+    for (byte[] r : rows) {
+      writer.write(new BytesWritable(r));
+    }
+    writer.close();
+
+    // 5 rows in batches of 2: 2, 2 and 1
+    DataInputStream framed = new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()));
+    int[] expectedRows = {2, 2, 1};
+    for (int i = 0; i < expectedRows.length; i++) {
+      assertEquals(expectedRows[i], framed.readInt());
+      int length = framed.readInt();
+      assertEquals(rows.get(0).length * expectedRows[i], length);
+      framed.skipBytes(length);
+    }
+    assertEquals(-1, framed.read());
+
+    Properties tbl = new Properties();
+    tbl.setProperty(Constants.LIST_COLUMN_TYPES, "int,string");
+    TypedBytesBatchRecordReader reader = new TypedBytesBatchRecordReader();
+    reader.initialize(new ByteArrayInputStream(bytes.toByteArray()), conf, tbl);
+    BytesWritable data = (BytesWritable) reader.createRow();
+    for (byte[] r : rows) {
+      assertEquals(r.length, reader.next(data));
+      assertTrue(Arrays.equals(r, Arrays.copyOf(data.get(), data.getSize())));
+    }
+    assertEquals(-1, reader.next(data));
+    reader.close();
+  }
+}
@@ -41,15 +41,18 @@ import org.apache.hadoop.hive.metastore.MetaStoreUtils;
 import org.apache.hadoop.hive.metastore.api.Constants;
 import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
 import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
 import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.metadata.DefaultStorageHandler;
 import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
 import org.apache.hadoop.hive.serde2.Deserializer;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.OutputFormat;
@@ -283,25 +286,64 @@ public class HBaseStorageHandler extends DefaultStorageHandler
     List<String> columnNames =
       Arrays.asList(columnNameProperty.split(","));
     HBaseSerDe hbaseSerde = (HBaseSerDe) deserializer;
+    int iKey = hbaseSerde.getKeyColumnOffset();
+    List<String> hbaseColumnFamilies = new ArrayList<String>();
+    List<String> hbaseColumnQualifiers = new ArrayList<String>();
+    try {
+      HBaseSerDe.parseColumnMapping(jobConf.get(HBaseSerDe.HBASE_COLUMNS_MAPPING),
+        hbaseColumnFamilies, null, hbaseColumnQualifiers, null);
+    } catch (SerDeException e) {
+      return null;
+    }
     IndexPredicateAnalyzer analyzer =
       HiveHBaseTableInputFormat.newIndexPredicateAnalyzer(
-        columnNames.get(hbaseSerde.getKeyColumnOffset()));
+        columnNames, iKey, hbaseColumnQualifiers);
     List<IndexSearchCondition> searchConditions =
       new ArrayList<IndexSearchCondition>();
     ExprNodeDesc residualPredicate =
       analyzer.analyzePredicate(predicate, searchConditions);
-    if (searchConditions.size() != 1) {
-      // Either there was nothing which could be pushed down (size = 0),
-      // or more than one predicate (size > 1); in the latter case,
-      // we bail out for now since multiple lookups on the key are
-      // either contradictory or redundant.  We'll need to handle
-      // this better later when we support more interesting predicates.
+
+    // More than one equality on the key is either contradictory or
+    // redundant, so those are left to Hive.
+    String keyColumnName = columnNames.get(iKey);
+    int keyEqualities = 0;
+    for (IndexSearchCondition sc : searchConditions) {
+      if (sc.getColumnDesc().getColumn().equals(keyColumnName)
+          && sc.getComparisonOp().equals(HiveHBaseTableInputFormat.EQUAL)) {
+        keyEqualities++;
+      }
+    }
+
+    List<IndexSearchCondition> pushedConditions =
+      new ArrayList<IndexSearchCondition>();
+    for (IndexSearchCondition sc : searchConditions) {
+      boolean isKey = sc.getColumnDesc().getColumn().equals(keyColumnName);
+      boolean pushable = HiveHBaseTableInputFormat.isPushable(sc, isKey);
+      if (pushable && isKey && keyEqualities > 1
+          && sc.getComparisonOp().equals(HiveHBaseTableInputFormat.EQUAL)) {
+        pushable = false;
+      }
+      if (pushable) {
+        pushedConditions.add(sc);
+      } else if (residualPredicate == null) {
+        residualPredicate = sc.getComparisonExpr();
+      } else {
+        List<ExprNodeDesc> children = new ArrayList<ExprNodeDesc>();
+        children.add(residualPredicate);
+        children.add(sc.getComparisonExpr());
+        residualPredicate = new ExprNodeGenericFuncDesc(
+          TypeInfoFactory.booleanTypeInfo,
+          FunctionRegistry.getGenericUDFForAnd(),
+          children);
+      }
+    }
+    if (pushedConditions.isEmpty()) {
       return null;
     }
 
     DecomposedPredicate decomposedPredicate = new DecomposedPredicate();
     decomposedPredicate.pushedPredicate = analyzer.translateSearchConditions(
-      searchConditions);
+      pushedConditions);
     decomposedPredicate.residualPredicate = residualPredicate;
     return decomposedPredicate;
   }
@@ -22,31 +22,44 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.BinaryComparator;
 import org.apache.hadoop.hbase.filter.CompareFilter;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.RowFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
 import org.apache.hadoop.hbase.filter.WhileMatchFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormatBase;
 import org.apache.hadoop.hbase.mapreduce.TableSplit;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Writables;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.exec.ExprNodeConstantEvaluator;
 import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
 import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
 import org.apache.hadoop.hive.serde.Constants;
 import org.apache.hadoop.hive.serde2.ByteStream;
 import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
@@ -54,6 +67,7 @@ import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.lazy.LazyUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.InputSplit;
@@ -76,6 +90,12 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
 
   static final Log LOG = LogFactory.getLog(HiveHBaseTableInputFormat.class);
 
+  static final String EQUAL = GenericUDFOPEqual.class.getName();
+  static final String LESS = GenericUDFOPLessThan.class.getName();
+  static final String LESS_OR_EQUAL = GenericUDFOPEqualOrLessThan.class.getName();
+  static final String GREATER = GenericUDFOPGreaterThan.class.getName();
+  static final String GREATER_OR_EQUAL = GenericUDFOPEqualOrGreaterThan.class.getName();
+
   @Override
   public RecordReader<ImmutableBytesWritable, Result> getRecordReader(
     InputSplit split,
@@ -150,10 +170,51 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
 
     // If Hive's optimizer gave us a filter to process, convert it to the
     // HBase scan form now.
-    tableSplit = convertFilter(jobConf, scan, tableSplit, iKey);
+    boolean hasValueFilters = convertFilter(jobConf, scan, iKey,
+        hbaseColumnFamiliesBytes, hbaseColumnQualifiersBytes);
+    tableSplit = restrictSplit(tableSplit, scan);
+    configureScan(jobConf, scan, hasValueFilters);
 
     setScan(scan);
 
+    if (tableSplit == null) {
+      // the pushed down key range does not overlap with this split
+      return new RecordReader<ImmutableBytesWritable, Result>() {
+
+        @Override
+        public void close() throws IOException {
+        }
+
+        @Override
+        public ImmutableBytesWritable createKey() {
+          return new ImmutableBytesWritable();
+        }
+
+        @Override
+        public Result createValue() {
+          return new Result();
+        }
+
+        @Override
+        public long getPos() throws IOException {
+          return 0;
+        }
+
+        @Override
+        public float getProgress() throws IOException {
+          return 1.0F;
+        }
+
+        @Override
+        public boolean next(ImmutableBytesWritable rowKey, Result value) throws IOException {
+          return false;
+        }
+      };
+    }
+    // With scan batching HBase may return the cells of a wide row in
+    // several Results, which have to be merged back into one Hive row.
+    final boolean mergeResults = scan.getBatch() > 0;
+
     Job job = new Job(jobConf);
     TaskAttemptContext tac =
       new TaskAttemptContext(job.getConfiguration(), new TaskAttemptID()) {
@@ -169,6 +230,9 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
 
     return new RecordReader<ImmutableBytesWritable, Result>() {
 
+      // the first part of the next row, read while merging the previous one
+      private Result pending;
+
       @Override
       public void close() throws IOException {
         recordReader.close();
@@ -208,12 +272,40 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
         boolean next = false;
 
         try {
-          next = recordReader.nextKeyValue();
+          if (!mergeResults) {
+            next = recordReader.nextKeyValue();
+
+            if (next) {
+              rowKey.set(recordReader.getCurrentValue().getRow());
+              Writables.copyWritable(recordReader.getCurrentValue(), value);
+            }
+            return next;
+          }
 
-          if (next) {
-            rowKey.set(recordReader.getCurrentValue().getRow());
-            Writables.copyWritable(recordReader.getCurrentValue(), value);
+          Result first = pending;
+          pending = null;
+          if (first == null) {
+            if (!recordReader.nextKeyValue()) {
+              return false;
+            }
+            first = recordReader.getCurrentValue();
+          }
+          byte [] row = first.getRow();
+          List<KeyValue> cells = null;
+          while (recordReader.nextKeyValue()) {
+            Result part = recordReader.getCurrentValue();
+            if (!Bytes.equals(row, part.getRow())) {
+              pending = part;
+              break;
+            }
+            if (cells == null) {
+              cells = new ArrayList<KeyValue>(first.list());
+            }
+            cells.addAll(part.list());
           }
+          rowKey.set(row);
+          Writables.copyWritable(cells == null ? first : new Result(cells), value);
+          next = true;
         } catch (InterruptedException e) {
           throw new IOException(e);
         }
@@ -223,33 +315,90 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
     };
   }
 
+  /**
+   * Applies the scanner caching, batching and block caching settings.
+   *
+   * @param jobConf configuration for the scan
+   *
+   * @param scan the HBase scan object to configure
+   *
+   * @param hasValueFilters whether the scan filters on column values, which
+   * needs all the cells of a row at once
+   */
+  private void configureScan(JobConf jobConf, Scan scan, boolean hasValueFilters) {
+    int caching = HiveConf.getIntVar(jobConf, HiveConf.ConfVars.HIVE_HBASE_SCAN_CACHE);
+    if (caching > 0) {
+      scan.setCaching(caching);
+    }
+    int batch = HiveConf.getIntVar(jobConf, HiveConf.ConfVars.HIVE_HBASE_SCAN_BATCH);
+    if (batch > 0) {
+      if (hasValueFilters) {
+        LOG.info("Not batching the scan since it filters on column values");
+      } else {
+        scan.setBatch(batch);
+      }
+    }
+    scan.setCacheBlocks(
+        HiveConf.getBoolVar(jobConf, HiveConf.ConfVars.HIVE_HBASE_SCAN_CACHEBLOCKS));
+  }
+
+  /**
+   * Restricts a table split to the row key range of the scan.
+   *
+   * @return the restricted split, or null if the split does not overlap
+   * with the scan
+   */
+  private TableSplit restrictSplit(TableSplit tableSplit, Scan scan) {
+    byte [] startRow = tableSplit.getStartRow();
+    byte [] stopRow = tableSplit.getEndRow();
+    if (Bytes.compareTo(scan.getStartRow(), startRow) > 0) {
+      startRow = scan.getStartRow();
+    }
+    if (scan.getStopRow().length > 0
+        && (stopRow.length == 0 || Bytes.compareTo(scan.getStopRow(), stopRow) < 0)) {
+      stopRow = scan.getStopRow();
+    }
+    if (stopRow.length > 0 && Bytes.compareTo(startRow, stopRow) >= 0) {
+      return null;
+    }
+    return new TableSplit(
+      tableSplit.getTableName(),
+      startRow,
+      stopRow,
+      tableSplit.getRegionLocation());
+  }
+
   /**
    * Converts a filter (which has been pushed down from Hive's optimizer)
    * into corresponding restrictions on the HBase scan.  The
    * filter should already be in a form which can be fully converted.
+   * Conditions on the row key become the start and stop rows of the scan,
+   * conditions on other columns become column value filters.
    *
    * @param jobConf configuration for the scan
    *
    * @param scan the HBase scan object to restrict
    *
-   * @param tableSplit the HBase table split to restrict, or null
-   * if calculating splits
-   *
    * @param iKey 0-based offset of key column within Hive table
    *
-   * @return converted table split if any
+   * @param hbaseColumnFamiliesBytes column families of the Hive columns
+   *
+   * @param hbaseColumnQualifiersBytes column qualifiers of the Hive columns
+   *
+   * @return whether column value filters were added to the scan
    */
-  private TableSplit convertFilter(
+  boolean convertFilter(
     JobConf jobConf,
     Scan scan,
-    TableSplit tableSplit,
-    int iKey)
+    int iKey,
+    List<byte []> hbaseColumnFamiliesBytes,
+    List<byte []> hbaseColumnQualifiersBytes)
     throws IOException {
 
     String filterExprSerialized =
       jobConf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
     if (filterExprSerialized == null) {
-      return tableSplit;
+      return false;
     }
     ExprNodeDesc filterExpr =
       Utilities.deserializeExpression(filterExprSerialized, jobConf);
@@ -259,7 +408,7 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
       Arrays.asList(columnNameProperty.split(","));
 
     IndexPredicateAnalyzer analyzer =
-      newIndexPredicateAnalyzer(columnNames.get(iKey));
+      newIndexPredicateAnalyzer(columnNames, iKey, hbaseColumnQualifiersBytes);
 
     List<IndexSearchCondition> searchConditions =
       new ArrayList<IndexSearchCondition>();
@@ -273,18 +422,90 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
         "Unexpected residual predicate " + residualPredicate.getExprString());
     }
 
-    // There should be exactly one predicate since we already
-    // negotiated that also.
-    if (searchConditions.size() != 1) {
-      throw new RuntimeException(
-        "Exactly one search condition expected in push down");
+    // Convert the search conditions into restrictions on the HBase scan
+    byte [] startRow = new byte[0];
+    byte [] stopRow = new byte[0];
+    byte [] equalRow = null;
+    boolean hasValueFilters = false;
+    FilterList valueFilters = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+    for (IndexSearchCondition sc : searchConditions) {
+      byte [] value = getConstantBytes(sc);
+      String op = getComparisonOp(sc);
+      int column = columnNames.indexOf(sc.getColumnDesc().getColumn());
+
+      if (column != iKey) {
+        byte [] family = hbaseColumnFamiliesBytes.get(column);
+        byte [] qualifier = hbaseColumnQualifiersBytes.get(column);
+        SingleColumnValueFilter filter = new SingleColumnValueFilter(
+          family, qualifier, getCompareOp(op), value);
+        // a missing cell is a NULL in Hive, which never satisfies a comparison
+        filter.setFilterIfMissing(true);
+        valueFilters.addFilter(filter);
+        hasValueFilters = true;
+        // the filter can only see the cells which are part of the scan
+        Map<byte [], NavigableSet<byte []>> familyMap = scan.getFamilyMap();
+        if (scan.hasFamilies()
+            && (!familyMap.containsKey(family) || familyMap.get(family) != null)) {
+          scan.addColumn(family, qualifier);
+        }
+        continue;
+      }
+
+      // stopRow is exclusive, so pad the value with a trailing 0 byte to
+      // make it compare as the very next value after it
+      byte [] nextRow = new byte[value.length + 1];
+      System.arraycopy(value, 0, nextRow, 0, value.length);
+
+      if (op.equals(EQUAL)) {
+        equalRow = value;
+        startRow = maxStartRow(startRow, value);
+        stopRow = minStopRow(stopRow, nextRow);
+      } else if (op.equals(GREATER)) {
+        startRow = maxStartRow(startRow, nextRow);
+      } else if (op.equals(GREATER_OR_EQUAL)) {
+        startRow = maxStartRow(startRow, value);
+      } else if (op.equals(LESS)) {
+        stopRow = minStopRow(stopRow, value);
+      } else if (op.equals(LESS_OR_EQUAL)) {
+        stopRow = minStopRow(stopRow, nextRow);
+      }
+    }
+
+    scan.setStartRow(startRow);
+    scan.setStopRow(stopRow);
+
+    if (equalRow != null) {
+      // Add a WhileMatchFilter to make the scan terminate as soon
+      // as we see a non-matching key.  This is probably redundant
+      // since the stopRow above should already take care of it for us.
+      valueFilters.addFilter(
+        new WhileMatchFilter(
+          new RowFilter(
+            CompareFilter.CompareOp.EQUAL,
+            new BinaryComparator(equalRow))));
     }
+    if (!valueFilters.getFilters().isEmpty()) {
+      scan.setFilter(valueFilters.getFilters().size() == 1 ?
+        valueFilters.getFilters().get(0) : valueFilters);
+    }
+    return hasValueFilters;
+  }
 
-    // Convert the search condition into a restriction on the HBase scan
-    IndexSearchCondition sc = searchConditions.get(0);
+  private static byte [] maxStartRow(byte [] startRow, byte [] row) {
+    return Bytes.compareTo(row, startRow) > 0 ? row : startRow;
+  }
+
+  private static byte [] minStopRow(byte [] stopRow, byte [] row) {
+    return (stopRow.length == 0 || Bytes.compareTo(row, stopRow) < 0) ? row : stopRow;
+  }
+
+  /**
+   * Serializes the constant of a search condition the way HBaseSerDe
+   * stores values.
+   */
+  private static byte [] getConstantBytes(IndexSearchCondition sc) throws IOException {
     ExprNodeConstantEvaluator eval =
       new ExprNodeConstantEvaluator(sc.getConstantDesc());
-    byte [] startRow;
     try {
       ObjectInspector objInspector = eval.initialize(null);
       Object writable = eval.evaluate(null);
@@ -296,38 +517,52 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
         false,
         (byte) 0,
         null);
-      startRow = new byte[serializeStream.getCount()];
+      byte [] bytes = new byte[serializeStream.getCount()];
       System.arraycopy(
         serializeStream.getData(), 0,
-        startRow, 0, serializeStream.getCount());
+        bytes, 0, serializeStream.getCount());
+      return bytes;
     } catch (HiveException ex) {
       throw new IOException(ex);
     }
+  }
 
-    // stopRow is exclusive, so pad it with a trailing 0 byte to
-    // make it compare as the very next value after startRow
-    byte [] stopRow = new byte[startRow.length + 1];
-    System.arraycopy(startRow, 0, stopRow, 0, startRow.length);
-
-    if (tableSplit != null) {
-      tableSplit = new TableSplit(
-        tableSplit.getTableName(),
-        startRow,
-        stopRow,
-        tableSplit.getRegionLocation());
+  /**
+   * Returns the comparison operator of a search condition, as if the
+   * column were on its left side.
+   */
+  static String getComparisonOp(IndexSearchCondition sc) {
+    String op = sc.getComparisonOp();
+    ExprNodeDesc expr = sc.getComparisonExpr();
+    if (!(expr instanceof ExprNodeGenericFuncDesc)
+        || !(((ExprNodeGenericFuncDesc) expr).getChildExprs().get(0)
+        instanceof ExprNodeConstantDesc)) {
+      return op;
     }
-    scan.setStartRow(startRow);
-    scan.setStopRow(stopRow);
+    // CONSTANT <op> COL
+    if (op.equals(LESS)) {
+      return GREATER;
+    } else if (op.equals(LESS_OR_EQUAL)) {
+      return GREATER_OR_EQUAL;
+    } else if (op.equals(GREATER)) {
+      return LESS;
+    } else if (op.equals(GREATER_OR_EQUAL)) {
+      return LESS_OR_EQUAL;
+    }
+    return op;
+  }
 
-    // Add a WhileMatchFilter to make the scan terminate as soon
-    // as we see a non-matching key.  This is probably redundant
-    // since the stopRow above should already take care of it for us.
-    scan.setFilter(
-      new WhileMatchFilter(
-        new RowFilter(
-          CompareFilter.CompareOp.EQUAL,
-          new BinaryComparator(startRow))));
-    return tableSplit;
+  private static CompareFilter.CompareOp getCompareOp(String op) {
+    if (op.equals(LESS)) {
+      return CompareFilter.CompareOp.LESS;
+    } else if (op.equals(LESS_OR_EQUAL)) {
+      return CompareFilter.CompareOp.LESS_OR_EQUAL;
+    } else if (op.equals(GREATER)) {
+      return CompareFilter.CompareOp.GREATER;
+    } else if (op.equals(GREATER_OR_EQUAL)) {
+      return CompareFilter.CompareOp.GREATER_OR_EQUAL;
+    }
+    return CompareFilter.CompareOp.EQUAL;
   }
 
   /**
@@ -335,26 +570,57 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
    * determining how to push a filter down into the HBase scan,
    * based on the rules for what kinds of pushdown we currently support.
    *
-   * @param keyColumnName name of the Hive column mapped to the HBase row key
+   * @param columnNames names of the Hive columns
+   *
+   * @param iKey 0-based offset of key column within Hive table
+   *
+   * @param hbaseColumnQualifiers column qualifiers of the Hive columns, null
+   * for columns mapped to a whole column family
    *
    * @return preconfigured predicate analyzer
    */
   static IndexPredicateAnalyzer newIndexPredicateAnalyzer(
-    String keyColumnName) {
+    List<String> columnNames,
+    int iKey,
+    List<?> hbaseColumnQualifiers) {
 
     IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
 
-    // for now, we only support equality comparisons
-    analyzer.addComparisonOp(
-      "org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual");
+    analyzer.addComparisonOp(EQUAL);
+    analyzer.addComparisonOp(LESS);
+    analyzer.addComparisonOp(LESS_OR_EQUAL);
+    analyzer.addComparisonOp(GREATER);
+    analyzer.addComparisonOp(GREATER_OR_EQUAL);
 
-    // and only on the key column
+    // on the key column and the columns mapped to a single cell
     analyzer.clearAllowedColumnNames();
-    analyzer.allowColumnName(keyColumnName);
+    for (int i = 0; i < columnNames.size() && i < hbaseColumnQualifiers.size(); i++) {
+      if (i == iKey || hbaseColumnQualifiers.get(i) != null) {
+        analyzer.allowColumnName(columnNames.get(i));
+      }
+    }
 
     return analyzer;
   }
-  
+
+  /**
+   * Checks whether HBase evaluates a search condition exactly like Hive.
+   * HBase compares the stored UTF-8 bytes, which orders values the same way
+   * as Hive only when both the column and the constant are strings. Equality
+   * on the row key is pushed for any type, as it always has been.
+   *
+   * @param sc the search condition
+   *
+   * @param isKey whether the condition is on the row key column
+   */
+  static boolean isPushable(IndexSearchCondition sc, boolean isKey) {
+    if (isKey && sc.getComparisonOp().equals(EQUAL)) {
+      return true;
+    }
+    return sc.getColumnDesc().getTypeInfo().equals(TypeInfoFactory.stringTypeInfo)
+      && sc.getConstantDesc().getTypeInfo().equals(TypeInfoFactory.stringTypeInfo);
+  }
+
   @Override
   public InputSplit[] getSplits(JobConf jobConf, int numSplits) throws IOException {
 
@@ -387,7 +653,12 @@ public class HiveHBaseTableInputFormat extends TableInputFormatBase
     // split per region, the implementation actually takes the scan
     // definition into account and excludes regions which don't satisfy
     // the start/stop row conditions (HBASE-1829).
-    convertFilter(jobConf, scan, null, iKey);
+    convertFilter(jobConf, scan, iKey, hbaseColumnFamiliesBytes, hbaseColumnQualifiersBytes);
+    if (scan.getStopRow().length > 0
+        && Bytes.compareTo(scan.getStartRow(), scan.getStopRow()) >= 0) {
+      // the pushed down conditions on the key contradict each other
+      return new InputSplit[0];
+    }
 
     // REVIEW:  are we supposed to be applying the getReadColumnIDs
     // same as in getRecordReader?
@@ -19,6 +19,8 @@
 package org.apache.hadoop.hive.hbase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.commons.logging.Log;
@@ -79,21 +81,42 @@ public class HiveHBaseTableOutputFormat extends
         jc, HiveConf.ConfVars.HIVE_HBASE_WAL_ENABLED);
     final HTable table = new HTable(new HBaseConfiguration(jc), hbaseTableName);
     table.setAutoFlush(false);
+    long writeBufferSize = HiveConf.getLongVar(
+        jc, HiveConf.ConfVars.HIVE_HBASE_WRITE_BUFFER_SIZE);
+    if (writeBufferSize > 0) {
+      table.setWriteBufferSize(writeBufferSize);
+    }
+    final int putBatchSize = Math.max(1, HiveConf.getIntVar(
+        jc, HiveConf.ConfVars.HIVE_HBASE_PUT_BATCH_SIZE));
 
     return new RecordWriter() {
 
+      // Puts handed to the table client together
+      private final List<Put> batch = new ArrayList<Put>(putBatchSize);
+
       @Override
       public void close(boolean abort) throws IOException {
         if (!abort) {
+          flushBatch();
           table.flushCommits();
         }
       }
 
+      private void flushBatch() throws IOException {
+        if (!batch.isEmpty()) {
+          table.put(batch);
+          batch.clear();
+        }
+      }
+
       @Override
       public void write(Writable w) throws IOException {
         Put put = (Put) w;
         put.setWriteToWAL(walEnabled);
-        table.put(put);
+        batch.add(put);
+        if (batch.size() >= putBatchSize) {
+          flushBatch();
+        }
       }
     };
   }
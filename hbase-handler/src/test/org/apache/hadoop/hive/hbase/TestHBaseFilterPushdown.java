@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.hbase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.filter.WhileMatchFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler.DecomposedPredicate;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * Tests which filters HBaseStorageHandler pushes down and how
+ * HiveHBaseTableInputFormat turns them into scan restrictions.
+ */
+public class TestHBaseFilterPushdown extends TestCase {
+
+  private JobConf jobConf;
+  private HBaseSerDe serDe;
+
+  @Override
+  protected void setUp() throws Exception {
+    Properties tbl = new Properties();
+    tbl.setProperty(Constants.LIST_COLUMNS, "key,a,b,m");
+    tbl.setProperty(Constants.LIST_COLUMN_TYPES, "string:string:int:map<string,string>");
+    tbl.setProperty(HBaseSerDe.HBASE_COLUMNS_MAPPING, ":key,cf:a,cf:b,cf2:");
+    jobConf = new JobConf(TestHBaseFilterPushdown.class);
+    for (String name : tbl.stringPropertyNames()) {
+      jobConf.set(name, tbl.getProperty(name));
+    }
+    serDe = new HBaseSerDe();
+    serDe.initialize(jobConf, tbl);
+  }
+
+  private static ExprNodeDesc column(String name, TypeInfo type) {
+    return new ExprNodeColumnDesc(type, name, "t", false);
+  }
+
+  private static ExprNodeDesc key() {
+    return column("key", TypeInfoFactory.stringTypeInfo);
+  }
+
+  private static ExprNodeDesc call(GenericUDF udf, ExprNodeDesc left, ExprNodeDesc right) {
+    List<ExprNodeDesc> children = new ArrayList<ExprNodeDesc>();
+    children.add(left);
+    children.add(right);
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, udf, children);
+  }
+
+  private static ExprNodeDesc and(ExprNodeDesc left, ExprNodeDesc right) {
+    return call(new GenericUDFOPAnd(), left, right);
+  }
+
+  private DecomposedPredicate decompose(ExprNodeDesc predicate) {
+    return new HBaseStorageHandler().decomposePredicate(jobConf, serDe, predicate);
+  }
+
+  /**
+   * Decomposes the predicate and runs the pushed part through
+   * HiveHBaseTableInputFormat.convertFilter.
+   */
+  private Scan pushdown(ExprNodeDesc predicate) throws Exception {
+    DecomposedPredicate decomposed = decompose(predicate);
+    assertNotNull(decomposed);
+    assertNull(decomposed.residualPredicate);
+    JobConf conf = new JobConf(jobConf);
+    conf.set(TableScanDesc.FILTER_EXPR_CONF_STR,
+        Utilities.serializeExpression(decomposed.pushedPredicate));
+    List<byte []> families = new ArrayList<byte []>();
+    List<byte []> qualifiers = new ArrayList<byte []>();
+    int iKey = HBaseSerDe.parseColumnMapping(conf.get(HBaseSerDe.HBASE_COLUMNS_MAPPING),
+        new ArrayList<String>(), families, new ArrayList<String>(), qualifiers);
+    Scan scan = new Scan();
+    new HiveHBaseTableInputFormat().convertFilter(conf, scan, iKey, families, qualifiers);
+    return scan;
+  }
+
+  private static void assertRows(String start, String stop, Scan scan) {
+    assertEquals(start, Bytes.toStringBinary(scan.getStartRow()));
+    assertEquals(stop, Bytes.toStringBinary(scan.getStopRow()));
+  }
+
+  public void testComparisonOps() throws Exception {
+    GenericUDF[] udfs = {
+      new GenericUDFOPEqual(),
+      new GenericUDFOPLessThan(),
+      new GenericUDFOPEqualOrLessThan(),
+      new GenericUDFOPGreaterThan(),
+      new GenericUDFOPEqualOrGreaterThan(),
+    };
+    String[] flipped = {
+      HiveHBaseTableInputFormat.EQUAL,
+      HiveHBaseTableInputFormat.GREATER,
+      HiveHBaseTableInputFormat.GREATER_OR_EQUAL,
+      HiveHBaseTableInputFormat.LESS,
+      HiveHBaseTableInputFormat.LESS_OR_EQUAL,
+    };
+    ExprNodeDesc constant = new ExprNodeConstantDesc("k");
+    for (int i = 0; i < udfs.length; i++) {
+      String op = udfs[i].getClass().getName();
+      ExprNodeDesc colFirst = call(udfs[i], key(), constant);
+      ExprNodeDesc constFirst = call(udfs[i], constant, key());
+
+      DecomposedPredicate decomposed = decompose(colFirst);
+      assertNotNull(op, decomposed);
+      assertSame(op, colFirst, decomposed.pushedPredicate);
+      assertNull(op, decomposed.residualPredicate);
+
+      assertEquals(op, HiveHBaseTableInputFormat.getComparisonOp(
+          new IndexSearchCondition((ExprNodeColumnDesc) key(), op,
+          (ExprNodeConstantDesc) constant, colFirst)));
+      assertEquals(op, flipped[i], HiveHBaseTableInputFormat.getComparisonOp(
+          new IndexSearchCondition((ExprNodeColumnDesc) key(), op,
+          (ExprNodeConstantDesc) constant, constFirst)));
+    }
+  }
+
+  public void testNonPushable() throws Exception {
+    // a range on a non-string column compares differently in HBase
+    ExprNodeDesc onInt = call(new GenericUDFOPGreaterThan(),
+        column("b", TypeInfoFactory.intTypeInfo), new ExprNodeConstantDesc(5));
+    assertNull(decompose(onInt));
+    assertFalse(HiveHBaseTableInputFormat.isPushable(
+        new IndexSearchCondition(
+        (ExprNodeColumnDesc) column("b", TypeInfoFactory.intTypeInfo),
+        HiveHBaseTableInputFormat.GREATER, new ExprNodeConstantDesc(5), onInt),
+        false));
+
+    // a column mapped to a whole column family has no single cell to filter
+    ExprNodeDesc onMap = call(new GenericUDFOPEqual(),
+        column("m", TypeInfoFactory.getMapTypeInfo(
+        TypeInfoFactory.stringTypeInfo, TypeInfoFactory.stringTypeInfo)),
+        new ExprNodeConstantDesc("x"));
+    assertNull(decompose(onMap));
+
+    // two equalities on the key are left to Hive
+    assertNull(decompose(and(
+        call(new GenericUDFOPEqual(), key(), new ExprNodeConstantDesc("x")),
+        call(new GenericUDFOPEqual(), key(), new ExprNodeConstantDesc("y")))));
+
+    // the pushable part is split off the rest
+    ExprNodeDesc range = call(new GenericUDFOPEqualOrGreaterThan(), key(),
+        new ExprNodeConstantDesc("k"));
+    DecomposedPredicate decomposed = decompose(and(range, onInt));
+    assertSame(range, decomposed.pushedPredicate);
+    assertSame(onInt, decomposed.residualPredicate);
+  }
+
+  public void testScanRows() throws Exception {
+    assertRows("b", "d", pushdown(and(
+        call(new GenericUDFOPEqualOrGreaterThan(), key(), new ExprNodeConstantDesc("b")),
+        call(new GenericUDFOPLessThan(), key(), new ExprNodeConstantDesc("d")))));
+    assertRows("b\\x00", "d\\x00", pushdown(and(
+        call(new GenericUDFOPGreaterThan(), key(), new ExprNodeConstantDesc("b")),
+        call(new GenericUDFOPEqualOrLessThan(), key(), new ExprNodeConstantDesc("d")))));
+    // CONSTANT <op> COL, and the tighter of two bounds wins
+    assertRows("c", "d", pushdown(and(
+        call(new GenericUDFOPGreaterThan(), new ExprNodeConstantDesc("d"), key()),
+        call(new GenericUDFOPEqualOrLessThan(), new ExprNodeConstantDesc("c"), key()))));
+    assertRows("", "e", pushdown(and(
+        call(new GenericUDFOPLessThan(), key(), new ExprNodeConstantDesc("e")),
+        call(new GenericUDFOPLessThan(), key(), new ExprNodeConstantDesc("f")))));
+
+    Scan scan = pushdown(
+        call(new GenericUDFOPEqual(), key(), new ExprNodeConstantDesc("c")));
+    assertRows("c", "c\\x00", scan);
+    assertTrue(scan.getFilter() instanceof WhileMatchFilter);
+
+    // contradicting bounds give an empty range, which yields no splits
+    scan = pushdown(and(
+        call(new GenericUDFOPGreaterThan(), key(), new ExprNodeConstantDesc("d")),
+        call(new GenericUDFOPLessThan(), key(), new ExprNodeConstantDesc("b"))));
+    assertTrue(Bytes.compareTo(scan.getStartRow(), scan.getStopRow()) >= 0);
+  }
+
+  public void testColumnValueFilter() throws Exception {
+    Scan scan = pushdown(call(new GenericUDFOPEqualOrLessThan(),
+        column("a", TypeInfoFactory.stringTypeInfo), new ExprNodeConstantDesc("v")));
+    assertRows("", "", scan);
+    SingleColumnValueFilter filter = (SingleColumnValueFilter) scan.getFilter();
+    assertEquals("cf", Bytes.toString(filter.getFamily()));
+    assertEquals("a", Bytes.toString(filter.getQualifier()));
+    assertEquals(CompareFilter.CompareOp.LESS_OR_EQUAL, filter.getOperator());
+    assertTrue(filter.getFilterIfMissing());
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.metastore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics of a single column of a table or partition, as computed by
+ * ANALYZE TABLE ... COMPUTE STATISTICS FOR COLUMNS. Like the basic statistics
+ * and the protect mode, they are kept in the parameters of the table or
+ * partition, one parameter per column.
+ */
+public class ColumnStatistics {
+  public static final String PARAMETER_PREFIX = "COLUMN_STATS.";
+
+  private static final String NUM_NULLS = "numNulls";
+  private static final String NUM_DISTINCTS = "numDistincts";
+  private static final String MIN = "min";
+  private static final String MAX = "max";
+  private static final String AVG_LENGTH = "avgLength";
+  private static final String MAX_LENGTH = "maxLength";
+
+  private long numNulls;
+  private long numDistincts;
+  // only set for numeric and boolean columns; a Long for integer columns, so
+  // that bigint values keep all their digits, and a Double otherwise
+  private Number min;
+  private Number max;
+  // only set for string columns
+  private double avgLength;
+  private long maxLength;
+
+  public ColumnStatistics() {
+  }
+
+  public long getNumNulls() {
+    return numNulls;
+  }
+
+  public void setNumNulls(long numNulls) {
+    this.numNulls = numNulls;
+  }
+
+  public long getNumDistincts() {
+    return numDistincts;
+  }
+
+  public void setNumDistincts(long numDistincts) {
+    this.numDistincts = numDistincts;
+  }
+
+  public Number getMin() {
+    return min;
+  }
+
+  public void setMin(Number min) {
+    this.min = min;
+  }
+
+  public Number getMax() {
+    return max;
+  }
+
+  public void setMax(Number max) {
+    this.max = max;
+  }
+
+  public double getAvgLength() {
+    return avgLength;
+  }
+
+  public void setAvgLength(double avgLength) {
+    this.avgLength = avgLength;
+  }
+
+  public long getMaxLength() {
+    return maxLength;
+  }
+
+  public void setMaxLength(long maxLength) {
+    this.maxLength = maxLength;
+  }
+
+  static public ColumnStatistics getColumnStatisticsFromString(String sourceString) {
+    ColumnStatistics stats = new ColumnStatistics();
+    for (String token : sourceString.split(",")) {
+      int eq = token.indexOf('=');
+      if (eq <= 0) {
+        continue;
+      }
+      String key = token.substring(0, eq);
+      String value = token.substring(eq + 1);
+      try {
+        if (key.equals(NUM_NULLS)) {
+          stats.numNulls = Long.parseLong(value);
+        } else if (key.equals(NUM_DISTINCTS)) {
+          stats.numDistincts = Long.parseLong(value);
+        } else if (key.equals(MIN)) {
+          stats.min = parseBound(value);
+        } else if (key.equals(MAX)) {
+          stats.max = parseBound(value);
+        } else if (key.equals(AVG_LENGTH)) {
+          stats.avgLength = Double.parseDouble(value);
+        } else if (key.equals(MAX_LENGTH)) {
+          stats.maxLength = Long.parseLong(value);
+        }
+      } catch (NumberFormatException e) {
+        // ignore a malformed entry, the others are still usable
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Parses a min or max value. toString() writes a Double with a decimal
+   * point or an exponent, so anything that parses as a long was one.
+   */
+  private static Number parseBound(String value) {
+    try {
+      return Long.valueOf(value);
+    } catch (NumberFormatException e) {
+      return Double.valueOf(value);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(NUM_NULLS).append('=').append(numNulls);
+    sb.append(',').append(NUM_DISTINCTS).append('=').append(numDistincts);
+    if (min != null) {
+      sb.append(',').append(MIN).append('=').append(min);
+    }
+    if (max != null) {
+      sb.append(',').append(MAX).append('=').append(max);
+    }
+    if (maxLength > 0) {
+      sb.append(',').append(AVG_LENGTH).append('=').append(avgLength);
+      sb.append(',').append(MAX_LENGTH).append('=').append(maxLength);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Extracts the column statistics kept in the parameters of a table or partition.
+   *
+   * @return a map from lower case column name to its statistics
+   */
+  public static Map<String, ColumnStatistics> getFromParameters(Map<String, String> params) {
+    Map<String, ColumnStatistics> result = new HashMap<String, ColumnStatistics>();
+    if (params == null) {
+      return result;
+    }
+    for (Map.Entry<String, String> e : params.entrySet()) {
+      if (e.getKey().startsWith(PARAMETER_PREFIX) && e.getValue() != null) {
+        result.put(e.getKey().substring(PARAMETER_PREFIX.length()),
+            getColumnStatisticsFromString(e.getValue()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replaces the column statistics kept in the parameters of a table or partition.
+   * Statistics of columns not in stats are left untouched.
+   */
+  public static void setInParameters(Map<String, String> params,
+      Map<String, ColumnStatistics> stats) {
+    for (Map.Entry<String, ColumnStatistics> e : stats.entrySet()) {
+      params.put(PARAMETER_PREFIX + e.getKey().toLowerCase(), e.getValue().toString());
+    }
+  }
+
+}
@@ -28,6 +28,7 @@ import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -745,6 +746,41 @@ public class HiveMetaStoreClient implements IMetaStoreClient {
     client.alter_partition(dbName, tblName, newPart);
   }
 
+  public Map<String, ColumnStatistics> getTableColumnStatistics(String dbName,
+      String tableName) throws NoSuchObjectException, MetaException, TException {
+    return ColumnStatistics.getFromParameters(
+        client.get_table(dbName, tableName).getParameters());
+  }
+
+  public Map<String, ColumnStatistics> getPartitionColumnStatistics(String dbName,
+      String tableName, String partName) throws NoSuchObjectException, MetaException,
+      TException {
+    return ColumnStatistics.getFromParameters(
+        client.get_partition_by_name(dbName, tableName, partName).getParameters());
+  }
+
+  public void updateTableColumnStatistics(String dbName, String tableName,
+      Map<String, ColumnStatistics> stats) throws NoSuchObjectException,
+      InvalidOperationException, MetaException, TException {
+    Table tbl = client.get_table(dbName, tableName);
+    if (tbl.getParameters() == null) {
+      tbl.setParameters(new HashMap<String, String>());
+    }
+    ColumnStatistics.setInParameters(tbl.getParameters(), stats);
+    client.alter_table(dbName, tableName, tbl);
+  }
+
+  public void updatePartitionColumnStatistics(String dbName, String tableName,
+      String partName, Map<String, ColumnStatistics> stats) throws NoSuchObjectException,
+      InvalidOperationException, MetaException, TException {
+    Partition part = client.get_partition_by_name(dbName, tableName, partName);
+    if (part.getParameters() == null) {
+      part.setParameters(new HashMap<String, String>());
+    }
+    ColumnStatistics.setInParameters(part.getParameters(), stats);
+    client.alter_partition(dbName, tableName, part);
+  }
+
   public void alterDatabase(String dbName, Database db)
       throws MetaException, NoSuchObjectException, TException {
     client.alter_database(dbName, db);
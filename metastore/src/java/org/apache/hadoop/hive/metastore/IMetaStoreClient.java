@@ -400,6 +400,63 @@ public interface IMetaStoreClient {
   public void alter_partition(String dbName, String tblName, Partition newPart)
       throws InvalidOperationException, MetaException, TException;
 
+  /**
+   * @param dbName
+   * @param tableName
+   * @return the column statistics of the table, keyed by lower case column name
+   * @throws NoSuchObjectException
+   * @throws MetaException
+   * @throws TException
+   * @see ColumnStatistics
+   */
+  public Map<String, ColumnStatistics> getTableColumnStatistics(String dbName,
+      String tableName) throws NoSuchObjectException, MetaException, TException;
+
+  /**
+   * @param dbName
+   * @param tableName
+   * @param partName - partition name i.e. 'ds=2010-02-03/ts=2010-02-03 18%3A16%3A01'
+   * @return the column statistics of the partition, keyed by lower case column name
+   * @throws NoSuchObjectException
+   * @throws MetaException
+   * @throws TException
+   * @see ColumnStatistics
+   */
+  public Map<String, ColumnStatistics> getPartitionColumnStatistics(String dbName,
+      String tableName, String partName) throws NoSuchObjectException, MetaException,
+      TException;
+
+  /**
+   * Stores the statistics of the given columns of a table, replacing any
+   * previous statistics of these columns.
+   *
+   * @param dbName
+   * @param tableName
+   * @param stats - column statistics keyed by column name
+   * @throws InvalidOperationException
+   * @throws MetaException
+   * @throws TException
+   */
+  public void updateTableColumnStatistics(String dbName, String tableName,
+      Map<String, ColumnStatistics> stats) throws NoSuchObjectException,
+      InvalidOperationException, MetaException, TException;
+
+  /**
+   * Stores the statistics of the given columns of a partition, replacing any
+   * previous statistics of these columns.
+   *
+   * @param dbName
+   * @param tableName
+   * @param partName - partition name
+   * @param stats - column statistics keyed by column name
+   * @throws InvalidOperationException
+   * @throws MetaException
+   * @throws TException
+   */
+  public void updatePartitionColumnStatistics(String dbName, String tableName,
+      String partName, Map<String, ColumnStatistics> stats) throws NoSuchObjectException,
+      InvalidOperationException, MetaException, TException;
+
   /**
    * @param db
    * @param tableName
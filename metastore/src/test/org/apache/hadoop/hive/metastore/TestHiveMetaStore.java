@@ -447,6 +447,98 @@ public abstract class TestHiveMetaStore extends TestCase {
     }
   }
 
+  public void testColumnStatistics() throws Exception {
+    String dbName = "colstatsdb";
+    String tblName = "colstatstbl";
+    List<String> vals = new ArrayList<String>(1);
+    vals.add("2008-07-01");
+
+    client.dropTable(dbName, tblName);
+    silentDropDatabase(dbName);
+    Database db = new Database();
+    db.setName(dbName);
+    client.createDatabase(db);
+
+    ArrayList<FieldSchema> cols = new ArrayList<FieldSchema>(2);
+    cols.add(new FieldSchema("name", Constants.STRING_TYPE_NAME, ""));
+    cols.add(new FieldSchema("income", Constants.BIGINT_TYPE_NAME, ""));
+
+    Table tbl = new Table();
+    tbl.setDbName(dbName);
+    tbl.setTableName(tblName);
+    StorageDescriptor sd = new StorageDescriptor();
+    tbl.setSd(sd);
+    sd.setCols(cols);
+    sd.setCompressed(false);
+    sd.setNumBuckets(1);
+    sd.setParameters(new HashMap<String, String>());
+    sd.setBucketCols(new ArrayList<String>());
+    sd.setSerdeInfo(new SerDeInfo());
+    sd.getSerdeInfo().setName(tbl.getTableName());
+    sd.getSerdeInfo().setParameters(new HashMap<String, String>());
+    sd.getSerdeInfo().getParameters()
+        .put(Constants.SERIALIZATION_FORMAT, "1");
+    sd.setSortCols(new ArrayList<Order>());
+
+    tbl.setPartitionKeys(new ArrayList<FieldSchema>(1));
+    tbl.getPartitionKeys().add(
+        new FieldSchema("ds", Constants.STRING_TYPE_NAME, ""));
+
+    client.createTable(tbl);
+    tbl = client.getTable(dbName, tblName);
+
+    Partition part = new Partition();
+    part.setDbName(dbName);
+    part.setTableName(tblName);
+    part.setValues(vals);
+    part.setParameters(new HashMap<String, String>());
+    part.setSd(tbl.getSd());
+    part.getSd().setLocation(tbl.getSd().getLocation() + "/part1");
+    client.add_partition(part);
+
+    assertTrue(client.getTableColumnStatistics(dbName, tblName).isEmpty());
+
+    ColumnStatistics nameStats = new ColumnStatistics();
+    nameStats.setNumNulls(3);
+    nameStats.setNumDistincts(40);
+    nameStats.setAvgLength(7.5);
+    nameStats.setMaxLength(12);
+    ColumnStatistics incomeStats = new ColumnStatistics();
+    incomeStats.setNumDistincts(25);
+    incomeStats.setMin(Long.valueOf(-1));
+    // an integer bound is kept exactly, which a double could not do
+    incomeStats.setMax(Long.valueOf((1L << 53) + 1));
+
+    Map<String, ColumnStatistics> stats = new HashMap<String, ColumnStatistics>();
+    stats.put("name", nameStats);
+    client.updateTableColumnStatistics(dbName, tblName, stats);
+    stats.clear();
+    stats.put("Income", incomeStats);
+    client.updateTableColumnStatistics(dbName, tblName, stats);
+
+    Map<String, ColumnStatistics> tblStats =
+        client.getTableColumnStatistics(dbName, tblName);
+    assertEquals(2, tblStats.size());
+    assertEquals(3, tblStats.get("name").getNumNulls());
+    assertEquals(40, tblStats.get("name").getNumDistincts());
+    assertEquals(7.5, tblStats.get("name").getAvgLength());
+    assertEquals(12, tblStats.get("name").getMaxLength());
+    assertNull(tblStats.get("name").getMin());
+    assertEquals(25, tblStats.get("income").getNumDistincts());
+    assertEquals(Long.valueOf(-1), tblStats.get("income").getMin());
+    assertEquals(Long.valueOf((1L << 53) + 1), tblStats.get("income").getMax());
+
+    String partName = "ds=2008-07-01";
+    client.updatePartitionColumnStatistics(dbName, tblName, partName, stats);
+    Map<String, ColumnStatistics> partStats =
+        client.getPartitionColumnStatistics(dbName, tblName, partName);
+    assertEquals(1, partStats.size());
+    assertEquals(25, partStats.get("income").getNumDistincts());
+
+    client.dropTable(dbName, tblName);
+    client.dropDatabase(dbName);
+  }
+
   public void testDatabase() throws Throwable {
     try {
       // clear up any existing databases
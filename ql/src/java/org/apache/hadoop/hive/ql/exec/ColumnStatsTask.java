@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
+import org.apache.hadoop.hive.ql.Context;
+import org.apache.hadoop.hive.ql.DriverContext;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.metadata.Partition;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.plan.ColumnStatsWork;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.api.StageType;
+import org.apache.hadoop.hive.serde2.objectinspector.InspectableObject;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * ColumnStatsTask implementation. Reads the rows of compute_stats() results
+ * produced for ANALYZE TABLE ... COMPUTE STATISTICS FOR COLUMNS, one row per
+ * table or partition, and stores them in the metastore.
+ **/
+public class ColumnStatsTask extends Task<ColumnStatsWork> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public ColumnStatsTask() {
+    super();
+  }
+
+  @Override
+  public int execute(DriverContext driverContext) {
+    FetchOperator ftOp = null;
+    try {
+      Table tbl = db.getTable(work.getTableName());
+      JobConf job = new JobConf(conf, ExecDriver.class);
+      ftOp = new FetchOperator(work.getFetchWork(), job);
+
+      List<String> colNames = work.getColNames();
+      List<String> partColNames = work.getPartColNames();
+      InspectableObject io;
+      while ((io = ftOp.getNextRow()) != null) {
+        StructObjectInspector soi = (StructObjectInspector) io.oi;
+        List<? extends StructField> fields = soi.getAllStructFieldRefs();
+
+        Map<String, ColumnStatistics> stats = new HashMap<String, ColumnStatistics>();
+        for (int i = 0; i < colNames.size(); i++) {
+          StructField f = fields.get(i);
+          stats.put(colNames.get(i), getColumnStatistics(soi.getStructFieldData(io.o, f),
+              (StructObjectInspector) f.getFieldObjectInspector()));
+        }
+
+        if (partColNames == null || partColNames.isEmpty()) {
+          db.updateColumnStatistics(tbl, stats);
+          console.printInfo("Table " + tbl.getTableName() + " column stats: " + stats);
+        } else {
+          Map<String, String> partSpec = new LinkedHashMap<String, String>();
+          for (int i = 0; i < partColNames.size(); i++) {
+            StructField f = fields.get(colNames.size() + i);
+            Object v = ((PrimitiveObjectInspector) f.getFieldObjectInspector())
+                .getPrimitiveJavaObject(soi.getStructFieldData(io.o, f));
+            partSpec.put(partColNames.get(i), String.valueOf(v));
+          }
+          Partition part = db.getPartition(tbl, partSpec, false);
+          if (part == null) {
+            LOG.warn("Partition " + partSpec + " of " + tbl.getTableName()
+                + " no longer exists, skipping its column stats");
+            continue;
+          }
+          db.updateColumnStatistics(part, stats);
+          console.printInfo("Partition " + tbl.getTableName() + partSpec
+              + " column stats: " + stats);
+        }
+      }
+    } catch (Exception e) {
+      console.printError("Failed with exception " + e.getMessage(),
+          "\n" + StringUtils.stringifyException(e));
+      return 1;
+    } finally {
+      if (ftOp != null) {
+        try {
+          ftOp.clearFetchContext();
+        } catch (HiveException e) {
+          LOG.warn("Failed to clear the fetch context", e);
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Converts the final result of compute_stats() into its metastore form.
+   */
+  static ColumnStatistics getColumnStatistics(Object o, StructObjectInspector soi) {
+    ColumnStatistics cs = new ColumnStatistics();
+    cs.setNumNulls(getLong(o, soi, "numnulls"));
+    cs.setNumDistincts(getLong(o, soi, "numdistincts"));
+    cs.setMin(getBound(o, soi, "min"));
+    cs.setMax(getBound(o, soi, "max"));
+    Double avgLength = getDouble(o, soi, "avglength");
+    cs.setAvgLength(avgLength == null ? 0 : avgLength.doubleValue());
+    cs.setMaxLength(getLong(o, soi, "maxlength"));
+    return cs;
+  }
+
+  private static long getLong(Object o, StructObjectInspector soi, String name) {
+    StructField f = soi.getStructFieldRef(name);
+    Object v = soi.getStructFieldData(o, f);
+    return v == null ? 0 : PrimitiveObjectInspectorUtils.getLong(v,
+        (PrimitiveObjectInspector) f.getFieldObjectInspector());
+  }
+
+  /**
+   * Returns min or max as a Long for integer columns and as a Double otherwise.
+   */
+  private static Number getBound(Object o, StructObjectInspector soi, String name) {
+    StructField f = soi.getStructFieldRef(name);
+    PrimitiveObjectInspector oi = (PrimitiveObjectInspector) f.getFieldObjectInspector();
+    if (oi.getPrimitiveCategory() != PrimitiveObjectInspector.PrimitiveCategory.LONG) {
+      return getDouble(o, soi, name);
+    }
+    Object v = soi.getStructFieldData(o, f);
+    return v == null ? null : Long.valueOf(PrimitiveObjectInspectorUtils.getLong(v, oi));
+  }
+
+  private static Double getDouble(Object o, StructObjectInspector soi, String name) {
+    StructField f = soi.getStructFieldRef(name);
+    Object v = soi.getStructFieldData(o, f);
+    return v == null ? null : Double.valueOf(PrimitiveObjectInspectorUtils.getDouble(v,
+        (PrimitiveObjectInspector) f.getFieldObjectInspector()));
+  }
+
+  @Override
+  public StageType getType() {
+    return StageType.STATS;
+  }
+
+  @Override
+  public String getName() {
+    return "COLUMNSTATS";
+  }
+
+  @Override
+  protected void localizeMRTmpFilesImpl(Context ctx) {
+    // Same as the FetchTask the statistics query would otherwise have had
+    FetchWork fetchWork = work.getFetchWork();
+    String s = fetchWork.getTblDir();
+    if ((s != null) && ctx.isMRTmpFileURI(s)) {
+      fetchWork.setTblDir(ctx.localizeMRTmpFileURI(s));
+    }
+
+    ArrayList<String> ls = fetchWork.getPartDir();
+    if (ls != null) {
+      ctx.localizePaths(ls);
+    }
+  }
+}
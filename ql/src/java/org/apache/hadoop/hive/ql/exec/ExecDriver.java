@@ -61,7 +61,9 @@ import org.apache.hadoop.hive.ql.exec.errors.ErrorAndSolution;
 import org.apache.hadoop.hive.ql.exec.errors.TaskLogProcessor;
 import org.apache.hadoop.hive.ql.history.HiveHistory.Keys;
 import org.apache.hadoop.hive.ql.io.HiveKey;
+import org.apache.hadoop.hive.ql.io.HiveInputFormat;
 import org.apache.hadoop.hive.ql.io.HiveOutputFormat;
+import org.apache.hadoop.hive.ql.io.TotalOrderHivePartitioner;
 import org.apache.hadoop.hive.ql.io.IOPrepareCache;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.plan.FetchWork;
@@ -557,6 +559,15 @@ public class ExecDriver extends Task<MapredWork> implements Serializable {
     // it
     String auxJars = HiveConf.getVar(job, HiveConf.ConfVars.HIVEAUXJARS);
     String addedJars = HiveConf.getVar(job, HiveConf.ConfVars.HIVEADDEDJARS);
+    // the generated invokers of the UDF bridges need ASM, which is not in
+    // hive-exec
+    if (HiveConf.getBoolVar(job, HiveConf.ConfVars.HIVEUDFBRIDGEGENERATEDINVOKER)) {
+      String asmJar = MethodInvoker.getAsmJar();
+      if (asmJar != null) {
+        asmJar = "file://" + asmJar;
+        auxJars = StringUtils.isNotBlank(auxJars) ? auxJars + "," + asmJar : asmJar;
+      }
+    }
     if (StringUtils.isNotBlank(auxJars) || StringUtils.isNotBlank(addedJars)) {
       String allJars = StringUtils.isNotBlank(auxJars) ? (StringUtils.isNotBlank(addedJars) ? addedJars
           + "," + auxJars
@@ -631,6 +642,18 @@ public class ExecDriver extends Task<MapredWork> implements Serializable {
 
       addInputPaths(job, work, emptyScratchDirStr);
 
+      if (HiveConf.getBoolVar(job, HiveConf.ConfVars.HIVESKEWJOININJOB)) {
+        sampleSkewJoinKeys();
+      }
+
+      if (HiveConf.getBoolVar(job, HiveConf.ConfVars.HIVEBLOOMFILTERJOIN)) {
+        buildJoinBloomFilter(ctx.getMRTmpFileURI());
+      }
+
+      if (TotalOrderKeySampler.isTotalOrder(work)) {
+        sampleTotalOrderKeys(ctx.getMRTmpFileURI());
+      }
+
       Utilities.setMapRedWork(job, work, ctx.getMRTmpFileURI());
       // remove the pwd from conf file so that job tracker doesn't show this
       // logs
@@ -653,34 +676,67 @@ public class ExecDriver extends Task<MapredWork> implements Serializable {
         }
       }
 
-      // Finally SUBMIT the JOB!
-      rj = jc.submitJob(job);
+      // a map only LIMIT job first reads only part of its input
+      int limit = getMapOnlyLimit(work, job);
+      long totalInputSize = -1;
+      long limitInputSize = -1;
+      if (limit > 0) {
+        totalInputSize = Utilities.getInputSummary(ctx, work, null).getLength();
+        limitInputSize = getLimitInputSize(limit
+            * HiveConf.getLongVar(job, HiveConf.ConfVars.HIVELIMITROWMAXSIZE),
+            totalInputSize);
+      }
 
-      jobId = rj.getJobID();
+      while (true) {
+        job.setLong(HiveInputFormat.LIMIT_INPUT_SIZE, limitInputSize);
 
-      // replace it back
-      if (pwd != null) {
-        HiveConf.setVar(job, HiveConf.ConfVars.METASTOREPWD, pwd);
-      }
+        // Finally SUBMIT the JOB!
+        rj = jc.submitJob(job);
+
+        jobId = rj.getJobID();
 
-      // add to list of running jobs to kill in case of abnormal shutdown
+        // add to list of running jobs to kill in case of abnormal shutdown
 
-      runningJobKillURIs.put(rj.getJobID(), rj.getTrackingURL() + "&action=kill");
+        runningJobKillURIs.put(rj.getJobID(), rj.getTrackingURL() + "&action=kill");
 
-      ExecDriverTaskHandle th = new ExecDriverTaskHandle(jc, rj);
-      jobInfo(rj);
-      success = progress(th);
+        ExecDriverTaskHandle th = new ExecDriverTaskHandle(jc, rj);
+        jobInfo(rj);
+        success = progress(th);
 
-      String statusMesg = getJobEndMsg(rj.getJobID());
-      if (!success) {
-        statusMesg += " with errors";
-        returnVal = 2;
-        console.printError(statusMesg);
-        if (HiveConf.getBoolVar(job, HiveConf.ConfVars.SHOW_JOB_FAIL_DEBUG_INFO)) {
-          showJobFailDebugInfo(job, rj);
+        String statusMesg = getJobEndMsg(rj.getJobID());
+        if (!success) {
+          statusMesg += " with errors";
+          returnVal = 2;
+          console.printError(statusMesg);
+          if (HiveConf.getBoolVar(job, HiveConf.ConfVars.SHOW_JOB_FAIL_DEBUG_INFO)) {
+            showJobFailDebugInfo(job, rj);
+          }
+        } else {
+          console.printInfo(statusMesg);
         }
-      } else {
-        console.printInfo(statusMesg);
+
+        if (!success || limitInputSize <= 0) {
+          break;
+        }
+        limitInputSize = getRerunInputSize(getLimitRows(rj), limit, limitInputSize,
+            totalInputSize);
+        if (limitInputSize == 0) {
+          break;
+        }
+        // too few rows came out of the part of the input that was read:
+        // throw the output away and read more of the input
+        runningJobKillURIs.remove(rj.getJobID());
+        for (Operator<? extends Serializable> op : work.getAliasToWork().values()) {
+          op.jobClose(job, false, new JobCloseFeedBack());
+        }
+        console.printInfo("Fewer than " + limit + " rows returned, rerunning over "
+            + (limitInputSize > 0 ? limitInputSize + " bytes of the input"
+            : "the whole input"));
+      }
+
+      // replace it back
+      if (pwd != null) {
+        HiveConf.setVar(job, HiveConf.ConfVars.METASTOREPWD, pwd);
       }
 
 
@@ -742,6 +798,151 @@ public class ExecDriver extends Task<MapredWork> implements Serializable {
     return (returnVal);
   }
 
+  /**
+   * Finds the hot keys of a reduce side join by sampling its inputs, so that
+   * the reduce sinks can spread them over several reducers. Sampling is only
+   * an optimization: if it fails the job runs as a plain join.
+   */
+  private void sampleSkewJoinKeys() {
+    try {
+      int hotKeys = new SkewJoinKeySampler(work, job).sampleAndAnnotate();
+      if (hotKeys > 0) {
+        console.printInfo("Skew join: spreading " + hotKeys
+            + " hot keys over multiple reducers");
+      }
+    } catch (Exception e) {
+      LOG.warn("Skew join key sampling failed, running a plain join: "
+          + org.apache.hadoop.util.StringUtils.stringifyException(e));
+    }
+  }
+
+  /**
+   * Builds a bloom filter over the join keys of a small filtered join input,
+   * so that the reduce sinks of the other inputs can drop rows that cannot
+   * match. Like the skew join sampling this is only an optimization: if it
+   * fails the job runs as a plain join.
+   */
+  private void buildJoinBloomFilter(String tmpDir) {
+    try {
+      Path path = new JoinBloomFilterBuilder(work, job).buildAndAnnotate(tmpDir);
+      if (path == null) {
+        return;
+      }
+      if (!HiveConf.getVar(job, HiveConf.ConfVars.HADOOPJT).equals("local")) {
+        // the reduce sinks read the localized copy, see Utilities.openCacheFile
+        DistributedCache.addCacheFile(path.toUri(), job);
+      }
+      console.printInfo("Bloom filter join: filtering join inputs with " + path);
+    } catch (Exception e) {
+      LOG.warn("Building the join bloom filter failed, running a plain join: "
+          + org.apache.hadoop.util.StringUtils.stringifyException(e));
+    }
+  }
+
+  /**
+   * Picks the range boundaries of an ORDER BY that is sorted by several
+   * reducers. If the input cannot be sampled the job falls back to a single
+   * reducer, which is always correct. The local job runner only runs a single
+   * reducer anyway.
+   */
+  private void sampleTotalOrderKeys(String tmpDir) {
+    boolean localMode = HiveConf.getVar(job, HiveConf.ConfVars.HADOOPJT).equals("local");
+    Path path = null;
+    if (!localMode) {
+      try {
+        path = new TotalOrderKeySampler(work, job).sampleAndWrite(tmpDir);
+      } catch (Exception e) {
+        LOG.warn("Total order key sampling failed: "
+            + org.apache.hadoop.util.StringUtils.stringifyException(e));
+      }
+    }
+    if (path == null) {
+      work.setNumReduceTasks(Integer.valueOf(1));
+      job.setNumReduceTasks(1);
+      return;
+    }
+    job.setPartitionerClass(TotalOrderHivePartitioner.class);
+    job.set(TotalOrderHivePartitioner.PARTITION_FILE, path.toString());
+    DistributedCache.addCacheFile(path.toUri(), job);
+    console.printInfo("Total order: sorting over " + job.getNumReduceTasks()
+        + " reducers");
+  }
+
+  /**
+   * Returns the limit of a map only job whose output all goes through a
+   * single LIMIT, or -1 if the job is not such a job or
+   * hive.limit.optimize.enable is off.
+   */
+  static int getMapOnlyLimit(MapredWork work, Configuration conf) {
+    if (!HiveConf.getBoolVar(conf, HiveConf.ConfVars.HIVELIMITOPTENABLE)
+        || work.getReducer() != null) {
+      return -1;
+    }
+    Set<LimitOperator> limits = new HashSet<LimitOperator>();
+    for (Operator<? extends Serializable> op : work.getAliasToWork().values()) {
+      if (!collectLimits(op, limits)) {
+        return -1;
+      }
+    }
+    if (limits.size() != 1) {
+      return -1;
+    }
+    return limits.iterator().next().getConf().getLimit();
+  }
+
+  /**
+   * Adds the first LIMIT on every path below op to limits. Returns false if
+   * some leaf is not below a LIMIT.
+   */
+  private static boolean collectLimits(Operator<? extends Serializable> op,
+      Set<LimitOperator> limits) {
+    if (op instanceof LimitOperator) {
+      limits.add((LimitOperator) op);
+      return true;
+    }
+    if (op.getChildOperators() == null || op.getChildOperators().isEmpty()) {
+      return false;
+    }
+    for (Operator<? extends Serializable> child : op.getChildOperators()) {
+      if (!collectLimits(child, limits)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns size, or -1 if the whole input of totalSize bytes is to be read.
+   */
+  static long getLimitInputSize(long size, long totalSize) {
+    return size >= totalSize ? -1 : size;
+  }
+
+  /**
+   * Returns the input size to rerun a map only LIMIT job over after it
+   * returned rows rows from inputSize of totalSize bytes: four times as much,
+   * or -1 for the whole input. Returns 0 if the job need not be rerun.
+   */
+  static long getRerunInputSize(long rows, int limit, long inputSize, long totalSize) {
+    if (rows >= limit || inputSize <= 0) {
+      return 0;
+    }
+    return getLimitInputSize(inputSize * 4, totalSize);
+  }
+
+  /**
+   * Returns the number of rows that passed the LIMIT of a finished job.
+   */
+  private static long getLimitRows(RunningJob rj) throws IOException {
+    Counters ctrs = rj.getCounters();
+    if (ctrs == null) {
+      // the job is done, assume the limit was met
+      return Long.MAX_VALUE;
+    }
+    return ctrs.getGroup(LimitOperator.COUNTER_GROUP).getCounter(
+        LimitOperator.COUNTER_ROWS);
+  }
+
   /**
    * This msg pattern is used to track when a job is started.
    *
@@ -64,6 +64,9 @@ public class ExecMapper extends MapReduceBase implements Mapper {
 
   @Override
   public void configure(JobConf job) {
+    // the flag is static, so a reused JVM would otherwise inherit it from the
+    // previous task
+    done = false;
     // Allocate the bean at the beginning -
     memoryMXBean = ManagementFactory.getMemoryMXBean();
     l4j.info("maximum memory = " + memoryMXBean.getHeapMemoryUsage().getMax());
@@ -141,6 +144,10 @@ public class ExecMapper extends MapReduceBase implements Mapper {
         // Since there is no concept of a group, we don't invoke
         // startGroup/endGroup for a mapper
         mo.process((Writable)value);
+        // let the record reader stop before it reads the next row
+        if (mo.getDone()) {
+          done = true;
+        }
         if (isLogInfoEnabled) {
           numRows++;
           if (numRows == nextCntr) {
@@ -23,6 +23,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +34,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.io.HiveFileFormatUtils;
 import org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat;
 import org.apache.hadoop.hive.ql.io.HiveKey;
@@ -79,6 +82,12 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
   protected transient List<Object> dpWritables;
   protected transient RecordWriter[] rowOutWriters;      // row specific RecordWriters
   protected transient int maxPartitions;
+  protected transient int maxOpenWriters; // 0 means no limit
+  // open dynamic partitions, least recently written first
+  protected transient LinkedHashMap<String, FSPaths> openPaths;
+  // files of dynamic partitions that were closed and later reopened
+  protected transient List<FSPaths> closedPaths;
+  protected transient String lastDpDir;
 
   private static final transient String[] FATAL_ERR_MSG = {
     null, // counter value 0 means no error
@@ -101,6 +110,8 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
     Path[] finalPaths;
     RecordWriter[] outWriters;
     Stat stat;
+    int segment;    // number of earlier files of the same partition in this task
+    boolean closed; // writers were closed before the operator was closed
 
     public FSPaths() {
     }
@@ -162,6 +173,9 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
     }
 
     public void closeWriters(boolean abort) throws HiveException {
+      if (closed) {
+        return;
+      }
       for (int idx = 0; idx < outWriters.length; idx++) {
         if (outWriters[idx] != null) {
           try {
@@ -193,7 +207,9 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
       for (int idx = 0; idx < outWriters.length; idx++) {
         if (outWriters[idx] != null) {
           try {
-            outWriters[idx].close(abort);
+            if (!closed) {
+              outWriters[idx].close(abort);
+            }
             if (delete) {
               fs.delete(outPaths[idx], true);
             }
@@ -204,6 +220,15 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
         }
       }
     }
+
+    /**
+     * Close the writers before the operator is closed. The files are
+     * committed or deleted together with the others in closeOp().
+     */
+    public void closeEarly() throws HiveException {
+      closeWriters(false);
+      closed = true;
+    }
   } // class FSPaths
 
   private static final long serialVersionUID = 1L;
@@ -372,6 +397,19 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
       this.subSetOI = new SubStructObjectInspector(soi, 0, this.dpStartCol);
       this.dpVals = new ArrayList<String>(numDynParts);
       this.dpWritables = new ArrayList<Object>(numDynParts);
+
+      // If the rows are sorted by the DP columns a partition never comes back once
+      // the next one starts, so only one of them needs to be open.
+      this.maxOpenWriters = conf.isDpSortedInput() ? 1 :
+          HiveConf.getIntVar(hconf, HiveConf.ConfVars.DYNAMICPARTITIONMAXOPENWRITERS);
+      if (maxOpenWriters > 0 && (multiFileSpray || dpCtx.getNumBuckets() > 0)) {
+        // a reopened partition would get more files than buckets
+        LOG.info("Not limiting open dynamic partitions for a bucketed table");
+        this.maxOpenWriters = 0;
+      }
+      this.openPaths = new LinkedHashMap<String, FSPaths>(16, 0.75f, true);
+      this.closedPaths = new ArrayList<FSPaths>();
+      this.lastDpDir = null;
     }
   }
 
@@ -415,10 +453,13 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
           bucketMap.put(bucketNum, filesIdx);
           taskId = Utilities.replaceTaskIdFromFilename(Utilities.getTaskId(hconf), bucketNum);
         }
+        // a partition reopened in this task writes to a new file of its own
+        String fileId = fsp.segment == 0 ? taskId :
+            Utilities.getSegmentFilename(taskId, fsp.segment);
         if (isNativeTable) {
-          fsp.finalPaths[filesIdx] = fsp.getFinalPath(taskId);
+          fsp.finalPaths[filesIdx] = fsp.getFinalPath(fileId);
           LOG.info("Final Path: FS " + fsp.finalPaths[filesIdx]);
-          fsp.outPaths[filesIdx] = fsp.getOutPath(taskId);
+          fsp.outPaths[filesIdx] = fsp.getOutPath(fileId);
           LOG.info("Writing to temp file: FS " + fsp.outPaths[filesIdx]);
         } else {
           fsp.finalPaths[filesIdx] = fsp.outPaths[filesIdx] = specPath;
@@ -436,7 +477,7 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
             if (hiveOutputFormat instanceof HiveIgnoreKeyTextOutputFormat) {
               extension = Utilities.getFileExtension(jc, isCompressed);
             }
-            fsp.finalPaths[filesIdx] = fsp.getFinalPath(taskId, fsp.tmpPath, extension);
+            fsp.finalPaths[filesIdx] = fsp.getFinalPath(fileId, fsp.tmpPath, extension);
           }
 
         } catch (Exception e) {
@@ -589,19 +630,37 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
     if (dpDir != null) {
       FSPaths fsp2 = valToPaths.get(dpDir);
 
-      if (fsp2 == null) {
+      if (fsp2 == null || fsp2.closed) {
         // check # of dp
-        if (valToPaths.size() > maxPartitions) {
+        if (fsp2 == null && valToPaths.size() > maxPartitions) {
           // throw fatal error
           incrCounter(fatalErrorCntr, 1);
           fatalError = true;
           LOG.error("Fatal error was thrown due to exceeding number of dynamic partitions");
         }
-        fsp2 = new FSPaths(specPath);
-        fsp2.tmpPath = new Path(fsp2.tmpPath, dpDir);
-        createBucketFiles(fsp2);
-        valToPaths.put(dpDir, fsp2);
+        if (maxOpenWriters > 0 && openPaths.size() >= maxOpenWriters) {
+          closeLeastRecentPartition();
+        }
+        FSPaths newFsp = new FSPaths(specPath);
+        newFsp.tmpPath = new Path(newFsp.tmpPath, dpDir);
+        if (fsp2 != null) {
+          // the partition was closed earlier, continue it in a new file
+          LOG.info("Reopening dynamic partition " + dpDir);
+          newFsp.segment = fsp2.segment + 1;
+          newFsp.stat = fsp2.stat;
+          closedPaths.add(fsp2);
+        }
+        createBucketFiles(newFsp);
+        valToPaths.put(dpDir, newFsp);
+        if (maxOpenWriters > 0) {
+          openPaths.put(dpDir, newFsp);
+        }
+        fsp2 = newFsp;
+      } else if (maxOpenWriters > 1 && !dpDir.equals(lastDpDir)) {
+        // mark the partition as the most recently written one
+        openPaths.get(dpDir);
       }
+      lastDpDir = dpDir;
       if (conf.isGatherStats()) {
         fsp2.stat.increaseNumRows(1);
       }
@@ -612,6 +671,18 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
     return rw;
   }
 
+  /**
+   * Close the files of the dynamic partition that has not been written for the
+   * longest time, to make room for a new one.
+   */
+  private void closeLeastRecentPartition() throws HiveException {
+    Iterator<Map.Entry<String, FSPaths>> it = openPaths.entrySet().iterator();
+    Map.Entry<String, FSPaths> eldest = it.next();
+    it.remove();
+    LOG.info("Closing dynamic partition " + eldest.getKey());
+    eldest.getValue().closeEarly();
+  }
+
   // given the current input row, the mapping for input col info to dp columns, and # of dp cols,
   // return the relative path corresponding to the row.
   // e.g., ds=2008-04-08/hr=11
@@ -644,6 +715,11 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
           fsp.commit(fs);
         }
       }
+      if (closedPaths != null && isNativeTable) {
+        for (FSPaths fsp: closedPaths) {
+          fsp.commit(fs);
+        }
+      }
       // Only publish stats if this operator's flag was set to gather stats
       if (conf.isGatherStats()) {
         publishStats();
@@ -655,6 +731,11 @@ public class FileSinkOperator extends TerminalOperator<FileSinkDesc> implements
       for (FSPaths fsp: valToPaths.values()) {
         fsp.abortWriters(fs, abort, !autoDelete && isNativeTable);
       }
+      if (closedPaths != null) {
+        for (FSPaths fsp: closedPaths) {
+          fsp.abortWriters(fs, abort, !autoDelete && isNativeTable);
+        }
+      }
     }
   }
 
@@ -33,10 +33,12 @@ import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.session.SessionState;
 import org.apache.hadoop.hive.ql.udf.UDAFPercentile;
 import org.apache.hadoop.hive.ql.udf.UDFAbs;
 import org.apache.hadoop.hive.ql.udf.UDFAcos;
@@ -121,9 +123,11 @@ import org.apache.hadoop.hive.ql.udf.UDFUnixTimeStamp;
 import org.apache.hadoop.hive.ql.udf.UDFUpper;
 import org.apache.hadoop.hive.ql.udf.UDFWeekOfYear;
 import org.apache.hadoop.hive.ql.udf.UDFYear;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFApproxDistinct;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFAverage;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFBridge;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFCollectSet;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFComputeStats;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFContextNGrams;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFCorrelation;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFCount;
@@ -379,7 +383,9 @@ public final class FunctionRegistry {
     registerGenericUDAF("corr", new GenericUDAFCorrelation());
     registerGenericUDAF("histogram_numeric", new GenericUDAFHistogramNumeric());
     registerGenericUDAF("percentile_approx", new GenericUDAFPercentileApprox());
+    registerGenericUDAF("approx_distinct", new GenericUDAFApproxDistinct());
     registerGenericUDAF("collect_set", new GenericUDAFCollectSet());
+    registerGenericUDAF("compute_stats", new GenericUDAFComputeStats());
 
     registerGenericUDAF("ngrams", new GenericUDAFnGrams());
     registerGenericUDAF("context_ngrams", new GenericUDAFContextNGrams());
@@ -661,6 +667,20 @@ public final class FunctionRegistry {
   public static GenericUDAFEvaluator getGenericUDAFEvaluator(String name,
       List<TypeInfo> argumentTypeInfos, boolean isDistinct,
       boolean isAllColumns) throws SemanticException {
+    return getGenericUDAFEvaluator(name, argumentTypeInfos, null, isDistinct,
+        isAllColumns);
+  }
+
+  /**
+   * Get the GenericUDAF evaluator for the name and argumentClasses.
+   *
+   * @param constantArguments
+   *          the values of the arguments that are constants, null for the
+   *          others, or null if none is known to be constant
+   */
+  public static GenericUDAFEvaluator getGenericUDAFEvaluator(String name,
+      List<TypeInfo> argumentTypeInfos, List<Object> constantArguments,
+      boolean isDistinct, boolean isAllColumns) throws SemanticException {
 
     GenericUDAFResolver udafResolver = getGenericUDAFResolver(name);
     if (udafResolver == null) {
@@ -671,17 +691,28 @@ public final class FunctionRegistry {
     for (int i = 0; i < parameters.length; i++) {
       parameters[i] = argumentTypeInfos.get(i);
     }
+    Object[] constantParameters = new Object[parameters.length];
+    if (constantArguments != null) {
+      for (int i = 0; i < constantParameters.length; i++) {
+        constantParameters[i] = constantArguments.get(i);
+      }
+    }
 
     GenericUDAFEvaluator udafEvaluator = null;
     if (udafResolver instanceof GenericUDAFResolver2) {
       GenericUDAFParameterInfo paramInfo =
           new SimpleGenericUDAFParameterInfo(
-              parameters, isDistinct, isAllColumns);
+              parameters, constantParameters, isDistinct, isAllColumns);
       udafEvaluator =
           ((GenericUDAFResolver2) udafResolver).getEvaluator(paramInfo);
     } else {
       udafEvaluator = udafResolver.getEvaluator(parameters);
     }
+    if (udafEvaluator instanceof GenericUDAFBridge.GenericUDAFBridgeEvaluator
+        && useGeneratedInvoker()) {
+      ((GenericUDAFBridge.GenericUDAFBridgeEvaluator) udafEvaluator)
+          .setGeneratedInvoker(true);
+    }
     return udafEvaluator;
   }
 
@@ -762,39 +793,68 @@ public final class FunctionRegistry {
     return result;
   }
 
+  /**
+   * Whether the classic UDFs and UDAFs compiled in the current session should
+   * call their methods through generated invokers.
+   */
+  private static boolean useGeneratedInvoker() {
+    SessionState ss = SessionState.get();
+    return ss != null && ss.getConf() != null
+        && HiveConf.getBoolVar(ss.getConf(),
+        HiveConf.ConfVars.HIVEUDFBRIDGEGENERATEDINVOKER);
+  }
+
   public static Object invoke(Method m, Object thisObject, Object... arguments)
       throws HiveException {
     Object o;
     try {
       o = m.invoke(thisObject, arguments);
     } catch (Exception e) {
-      String thisObjectString = "" + thisObject + " of class "
-          + (thisObject == null ? "null" : thisObject.getClass().getName());
+      throw new HiveException(getInvokeErrorMessage(m, thisObject, arguments),
+          e);
+    }
+    return o;
+  }
+
+  public static Object invoke(MethodInvoker invoker, Object thisObject,
+      Object... arguments) throws HiveException {
+    Object o;
+    try {
+      o = invoker.invoke(thisObject, arguments);
+    } catch (Exception e) {
+      throw new HiveException(getInvokeErrorMessage(invoker.getMethod(),
+          thisObject, arguments), e);
+    }
+    return o;
+  }
 
-      StringBuilder argumentString = new StringBuilder();
-      if (arguments == null) {
-        argumentString.append("null");
-      } else {
-        argumentString.append("{");
-        for (int i = 0; i < arguments.length; i++) {
-          if (i > 0) {
-            argumentString.append(", ");
-          }
-          if (arguments[i] == null) {
-            argumentString.append("null");
-          } else {
-            argumentString.append("" + arguments[i] + ":"
-                + arguments[i].getClass().getName());
-          }
+  private static String getInvokeErrorMessage(Method m, Object thisObject,
+      Object[] arguments) {
+    String thisObjectString = "" + thisObject + " of class "
+        + (thisObject == null ? "null" : thisObject.getClass().getName());
+
+    StringBuilder argumentString = new StringBuilder();
+    if (arguments == null) {
+      argumentString.append("null");
+    } else {
+      argumentString.append("{");
+      for (int i = 0; i < arguments.length; i++) {
+        if (i > 0) {
+          argumentString.append(", ");
+        }
+        if (arguments[i] == null) {
+          argumentString.append("null");
+        } else {
+          argumentString.append("" + arguments[i] + ":"
+              + arguments[i].getClass().getName());
         }
-        argumentString.append("} of size " + arguments.length);
       }
-
-      throw new HiveException("Unable to execute method " + m + " "
-          + " on object " + thisObjectString + " with arguments "
-          + argumentString.toString(), e);
+      argumentString.append("} of size " + arguments.length);
     }
-    return o;
+
+    return "Unable to execute method " + m + " "
+        + " on object " + thisObjectString + " with arguments "
+        + argumentString.toString();
   }
 
   /**
@@ -953,8 +1013,11 @@ public final class FunctionRegistry {
 
     if (genericUDF instanceof GenericUDFBridge) {
       GenericUDFBridge bridge = (GenericUDFBridge) genericUDF;
-      return new GenericUDFBridge(bridge.getUdfName(), bridge.isOperator(),
-          bridge.getUdfClass());
+      GenericUDFBridge clone = new GenericUDFBridge(bridge.getUdfName(),
+          bridge.isOperator(), bridge.getUdfClass());
+      clone.setGeneratedInvoker(bridge.isGeneratedInvoker()
+          || useGeneratedInvoker());
+      return clone;
     }
 
     return (GenericUDF) ReflectionUtils
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.exec.persistence.BloomFilter;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.plan.JoinCondDesc;
+import org.apache.hadoop.hive.ql.plan.JoinDesc;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * Builds a bloom filter over the join keys of the small, filtered input of an
+ * inner reduce side join before its job is submitted
+ * (hive.optimize.bloomfilter.join).
+ *
+ * <p>
+ * The small input is read completely and pushed through a copy of the map
+ * side operator tree of its alias, the same way SkewJoinKeySampler samples
+ * the join inputs, so its filters are applied and the reduce sink serializes
+ * its keys exactly as it would in the job. The hashes of the distinct keys go
+ * into a bloom filter that is written to the scratch directory; the reduce
+ * sinks of all other inputs then drop the rows whose key is not in it. Since
+ * the join is inner, those rows could not have produced output anyway.
+ */
+public class JoinBloomFilterBuilder {
+
+  private static final Log LOG = LogFactory.getLog(JoinBloomFilterBuilder.class
+      .getName());
+
+  private final MapredWork work;
+  private final JobConf job;
+
+  public JoinBloomFilterBuilder(MapredWork work, JobConf job) {
+    this.work = work;
+    this.job = job;
+  }
+
+  /**
+   * Collects the hashes of the distinct serialized keys (without the tag byte)
+   * that reach the reduce sink, up to maxEntries of them.
+   */
+  private static class KeyHashCollector implements OutputCollector {
+    private final Set<Long> hashes = new HashSet<Long>();
+    private final int maxEntries;
+    private boolean overflow;
+
+    KeyHashCollector(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+
+    public void collect(Object key, Object value) throws IOException {
+      if (overflow) {
+        return;
+      }
+      BytesWritable keyWritable = (BytesWritable) key;
+      hashes.add(BloomFilter.hash64(keyWritable.get(), 0,
+          keyWritable.getLength() - 1));
+      if (hashes.size() > maxEntries) {
+        overflow = true;
+        hashes.clear();
+      }
+    }
+  }
+
+  /**
+   * Builds the bloom filter and records its path in the reduce sinks of the
+   * other join inputs.
+   *
+   * @param tmpDir
+   *          the scratch directory to write the filter to
+   * @return the path of the filter, or null if the join is not eligible or
+   *         the small input has too many distinct keys
+   */
+  public Path buildAndAnnotate(String tmpDir) throws HiveException {
+    if (!(work.getReducer() instanceof JoinOperator)) {
+      return null;
+    }
+    JoinDesc joinDesc = ((JoinOperator) work.getReducer()).getConf();
+    for (JoinCondDesc cond : joinDesc.getConds()) {
+      if (cond.getType() != JoinDesc.INNER_JOIN) {
+        return null;
+      }
+    }
+
+    try {
+      String smallAlias = null;
+      long smallSize = HiveConf.getLongVar(job,
+          HiveConf.ConfVars.HIVEBLOOMFILTERJOINSMALLTABLESIZE);
+      for (Map.Entry<String, Operator<? extends Serializable>> entry : work
+          .getAliasToWork().entrySet()) {
+        List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+        if (!SkewJoinKeySampler.collectReduceSinks(entry.getValue(), sinks)) {
+          return null;
+        }
+        // an unfiltered input cannot remove anything from the others
+        if (sinks.size() != 1 || !hasFilter(entry.getValue())) {
+          continue;
+        }
+        long size = getAliasSize(entry.getKey());
+        if (size >= 0 && size <= smallSize) {
+          smallAlias = entry.getKey();
+          smallSize = size;
+        }
+      }
+      if (smallAlias == null) {
+        return null;
+      }
+
+      int maxEntries = HiveConf.getIntVar(job,
+          HiveConf.ConfVars.HIVEBLOOMFILTERJOINMAXENTRIES);
+      KeyHashCollector collector = new KeyHashCollector(maxEntries);
+      MapredWork copy = SkewJoinKeySampler.copyWork(work, job);
+      long start = System.currentTimeMillis();
+      SkewJoinKeySampler.sampleAlias(work, job, smallAlias,
+          copy.getAliasToWork().get(smallAlias), -1, collector);
+      if (collector.overflow) {
+        LOG.info("Bloom filter join: " + smallAlias + " has more than "
+            + maxEntries + " distinct keys");
+        return null;
+      }
+
+      float fpp = HiveConf.getFloatVar(job, HiveConf.ConfVars.HIVEBLOOMFILTERJOINFPP);
+      BloomFilter filter = BloomFilter.create(collector.hashes.size(), fpp);
+      for (Long hash : collector.hashes) {
+        filter.addHash(hash);
+      }
+      LOG.info("Bloom filter join: " + collector.hashes.size() + " keys of "
+          + smallAlias + " in " + (System.currentTimeMillis() - start) + " ms");
+
+      // named by the tag, since an alias like "subq:t" is not a valid file name
+      int smallTag = getTag(smallAlias);
+      Path path = new Path(tmpDir, "bloomfilter-" + smallTag);
+      FileSystem fs = path.getFileSystem(job);
+      DataOutputStream out = fs.create(path);
+      try {
+        filter.write(out);
+      } finally {
+        out.close();
+      }
+
+      for (Operator<? extends Serializable> op : work.getAliasToWork().values()) {
+        List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+        SkewJoinKeySampler.collectReduceSinks(op, sinks);
+        for (ReduceSinkOperator rs : sinks) {
+          if (rs.getConf().getTag() != smallTag) {
+            rs.getConf().setBloomFilterPath(path.toString());
+          }
+        }
+      }
+      return path;
+    } catch (IOException e) {
+      throw new HiveException(e);
+    }
+  }
+
+  private int getTag(String alias) {
+    List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+    SkewJoinKeySampler.collectReduceSinks(work.getAliasToWork().get(alias), sinks);
+    return sinks.get(0).getConf().getTag();
+  }
+
+  private static boolean hasFilter(Operator<? extends Serializable> op) {
+    if (op instanceof FilterOperator) {
+      return true;
+    }
+    if (op.getChildOperators() != null) {
+      for (Operator<? extends Serializable> child : op.getChildOperators()) {
+        if (hasFilter(child)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the total size of the input paths of alias, or -1 if it is not
+   * read by this job.
+   */
+  private long getAliasSize(String alias) throws IOException {
+    long size = -1;
+    for (Map.Entry<String, ArrayList<String>> entry : work.getPathToAliases()
+        .entrySet()) {
+      if (entry.getValue().contains(alias)) {
+        Path p = new Path(entry.getKey());
+        size = Math.max(size, 0)
+            + p.getFileSystem(job).getContentSummary(p).getLength();
+      }
+    }
+    return size;
+  }
+}
@@ -31,6 +31,13 @@ import org.apache.hadoop.hive.ql.plan.api.OperatorType;
 public class LimitOperator extends Operator<LimitDesc> implements Serializable {
   private static final long serialVersionUID = 1L;
 
+  /**
+   * Counter of the rows that passed the limit, read by ExecDriver to tell
+   * whether a map only job over part of its input returned enough rows.
+   */
+  public static final String COUNTER_GROUP = "org.apache.hadoop.hive.ql.exec.LimitOperator";
+  public static final String COUNTER_ROWS = "ROWS";
+
   protected transient int limit;
   protected transient int currCount;
 
@@ -46,11 +53,22 @@ public class LimitOperator extends Operator<LimitDesc> implements Serializable {
     if (currCount < limit) {
       forward(row, inputObjInspectors[tag]);
       currCount++;
-    } else {
+    }
+    // stop as soon as the limit is reached, so that the mapper does not read
+    // another row just to find out
+    if (currCount >= limit) {
       setDone(true);
     }
   }
 
+  @Override
+  protected void closeOp(boolean abort) throws HiveException {
+    if (reporter != null) {
+      reporter.incrCounter(COUNTER_GROUP, COUNTER_ROWS, currCount);
+    }
+    super.closeOp(abort);
+  }
+
   @Override
   public String getName() {
     return "LIM";
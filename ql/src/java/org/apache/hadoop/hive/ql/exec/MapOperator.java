@@ -38,6 +38,7 @@ import org.apache.hadoop.hive.ql.plan.api.OperatorType;
 import org.apache.hadoop.hive.ql.plan.MapredWork;
 import org.apache.hadoop.hive.ql.plan.PartitionDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.Deserializer;
 import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.SerDeUtils;
@@ -221,7 +222,7 @@ public class MapOperator extends Operator<MapredWork> implements Serializable {
     // HiveConf.setVar(hconf, HiveConf.ConfVars.HIVETABLENAME, tableName);
     // HiveConf.setVar(hconf, HiveConf.ConfVars.HIVEPARTITIONNAME, partName);
     Deserializer deserializer = (Deserializer) sdclass.newInstance();
-    deserializer.initialize(hconf, tblProps);
+    deserializer.initialize(getDeserializerConf(conf, hconf, onefile), tblProps);
     StructObjectInspector rawRowObjectInspector = (StructObjectInspector) deserializer
         .getObjectInspector();
 
@@ -271,6 +272,31 @@ public class MapOperator extends Operator<MapredWork> implements Serializable {
     return opCtx;
   }
 
+  /**
+   * Returns the configuration to initialize the deserializer of a path with.
+   * It holds the columns read by the table scans of the path, pushed the
+   * way HiveInputFormat pushes them to the configuration of the record
+   * reader, so that a deserializer can skip the other columns as well.
+   */
+  static Configuration getDeserializerConf(MapredWork conf,
+      Configuration hconf, String onefile) {
+    Configuration serdeConf = new Configuration(hconf);
+    for (String alias : conf.getPathToAliases().get(onefile)) {
+      Operator<? extends Serializable> op = conf.getAliasToWork().get(alias);
+      ArrayList<Integer> list = null;
+      if (op instanceof TableScanOperator) {
+        list = ((TableScanOperator) op).getNeededColumnIDs();
+      }
+      if (list == null) {
+        ColumnProjectionUtils.setFullyReadColumns(serdeConf);
+        break;
+      }
+      ColumnProjectionUtils.appendReadColumnIDs(serdeConf, list,
+          ((TableScanOperator) op).getNeededNestedColumnIDs());
+    }
+    return serdeConf;
+  }
+
   public void setChildren(Configuration hconf) throws HiveException {
 
     Path fpath = new Path((new Path(HiveConf.getVar(hconf,
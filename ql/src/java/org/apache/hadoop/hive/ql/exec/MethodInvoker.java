@@ -0,0 +1,346 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Calls a method of a classic UDF or UDAF.
+ *
+ * The reflection invoker uses Method.invoke. The generated invoker is a
+ * class generated for the method whose invoke casts the arguments, unboxes
+ * primitives and calls the method directly, which avoids the access checks
+ * and the argument copying of reflection on every row.
+ */
+public abstract class MethodInvoker {
+
+  private static final Log LOG = LogFactory.getLog(MethodInvoker.class
+      .getName());
+
+  private static final String GENERATED_CLASS_PREFIX = MethodInvoker.class
+      .getName()
+      + "$Generated";
+
+  private static final AtomicInteger generatedClasses = new AtomicInteger();
+
+  /**
+   * The generated invokers by method. An entry is keyed by the method of its
+   * invoker and only lives as long as the invoker is used, so the UDF classes
+   * of ADD JAR and their class loaders are not kept after the queries that
+   * used them.
+   */
+  private static final Map<Method, WeakReference<MethodInvoker>> generatedInvokers =
+      Collections.synchronizedMap(new WeakHashMap<Method, WeakReference<MethodInvoker>>());
+
+  protected final Method method;
+
+  protected MethodInvoker(Method method) {
+    this.method = method;
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  /**
+   * Calls the method on thisObject, which is ignored for static methods.
+   */
+  public abstract Object invoke(Object thisObject, Object[] arguments)
+      throws Exception;
+
+  /**
+   * MethodInvoker that uses reflection.
+   */
+  static class ReflectionInvoker extends MethodInvoker {
+
+    ReflectionInvoker(Method method) {
+      super(method);
+    }
+
+    @Override
+    public Object invoke(Object thisObject, Object[] arguments)
+        throws Exception {
+      return method.invoke(thisObject, arguments);
+    }
+  }
+
+  public static MethodInvoker getReflectionInvoker(Method method) {
+    return new ReflectionInvoker(method);
+  }
+
+  /**
+   * Returns a generated invoker for the method, or a reflection invoker if
+   * the method cannot be called from generated code. Generated invokers are
+   * shared, since they have no state.
+   */
+  public static MethodInvoker getGeneratedInvoker(Method method) {
+    MethodInvoker invoker = getCachedInvoker(method);
+    if (invoker != null) {
+      return invoker;
+    }
+    if (!isAccessible(method)) {
+      return getReflectionInvoker(method);
+    }
+    try {
+      invoker = generate(method);
+    } catch (Throwable e) {
+      LOG.warn("Cannot generate an invoker for " + method
+          + ", using reflection", e);
+      return getReflectionInvoker(method);
+    }
+    synchronized (generatedInvokers) {
+      MethodInvoker cached = getCachedInvoker(method);
+      if (cached != null) {
+        return cached;
+      }
+      // the old key, if any, may be another copy of the method
+      generatedInvokers.remove(method);
+      generatedInvokers.put(invoker.getMethod(), new WeakReference<MethodInvoker>(invoker));
+    }
+    return invoker;
+  }
+
+  private static MethodInvoker getCachedInvoker(Method method) {
+    WeakReference<MethodInvoker> ref = generatedInvokers.get(method);
+    return ref == null ? null : ref.get();
+  }
+
+  /**
+   * Returns the path of the jar that ASM is loaded from, which hive-exec does
+   * not bundle, or null if it was not loaded from a local jar.
+   */
+  public static String getAsmJar() {
+    try {
+      CodeSource source = ClassWriter.class.getProtectionDomain().getCodeSource();
+      if (source == null || source.getLocation() == null
+          || !"file".equals(source.getLocation().getProtocol())) {
+        return null;
+      }
+      File jar = new File(source.getLocation().toURI());
+      return jar.isFile() ? jar.getAbsolutePath() : null;
+    } catch (Throwable e) {
+      LOG.warn("Cannot find the ASM jar", e);
+      return null;
+    }
+  }
+
+  /**
+   * Whether generated code in another package and class loader can call the
+   * method, that is whether the method and all the classes in its signature
+   * are public.
+   */
+  static boolean isAccessible(Method method) {
+    if (!Modifier.isPublic(method.getModifiers())
+        || !isPublic(method.getDeclaringClass())
+        || !isPublic(method.getReturnType())) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!isPublic(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPublic(Class<?> c) {
+    while (c.isArray()) {
+      c = c.getComponentType();
+    }
+    if (c.isPrimitive()) {
+      return true;
+    }
+    for (; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Loads the generated classes. The parent is the loader of the class of the
+   * method, so that the generated code sees the same classes as the method.
+   */
+  private static class GeneratedClassLoader extends ClassLoader {
+
+    GeneratedClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> define(String name, byte[] b) {
+      return defineClass(name, b, 0, b.length);
+    }
+  }
+
+  private static MethodInvoker generate(Method method) throws Exception {
+    String className = GENERATED_CLASS_PREFIX
+        + generatedClasses.incrementAndGet();
+    ClassLoader parent = method.getDeclaringClass().getClassLoader();
+    if (parent == null) {
+      parent = MethodInvoker.class.getClassLoader();
+    }
+    Class<?> c = new GeneratedClassLoader(parent).define(className,
+        Generator.generateClass(className.replace('.', '/'), method));
+    return (MethodInvoker) c.getConstructor(Method.class).newInstance(method);
+  }
+
+  /**
+   * Generates the invoker classes.
+   */
+  private static final class Generator implements Opcodes {
+
+    private Generator() {
+    }
+
+    /**
+     * Generates the class file of an invoker for the method.
+     */
+    static byte[] generateClass(String internalName, Method method) {
+      String superName = Type.getInternalName(MethodInvoker.class);
+      ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+      cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null,
+          superName, null);
+
+      // public <init>(Method method) { super(method); }
+      String constructorDescriptor = Type.getMethodDescriptor(Type.VOID_TYPE,
+          new Type[] {Type.getType(Method.class)});
+      MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>",
+          constructorDescriptor, null, null);
+      mv.visitCode();
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitVarInsn(ALOAD, 1);
+      mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>",
+          constructorDescriptor);
+      mv.visitInsn(RETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+
+      // public Object invoke(Object thisObject, Object[] arguments) {
+      // return box(((C) thisObject).m(unbox((T0) arguments[0]), ...));
+      // }
+      mv = cw.visitMethod(ACC_PUBLIC, "invoke",
+          "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", null,
+          new String[] {"java/lang/Exception"});
+      mv.visitCode();
+      Class<?> declaringClass = method.getDeclaringClass();
+      String owner = Type.getInternalName(declaringClass);
+      boolean isStatic = Modifier.isStatic(method.getModifiers());
+      if (!isStatic) {
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, owner);
+      }
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      for (int i = 0; i < parameterTypes.length; i++) {
+        mv.visitVarInsn(ALOAD, 2);
+        pushInt(mv, i);
+        mv.visitInsn(AALOAD);
+        unbox(mv, parameterTypes[i]);
+      }
+      int opcode = isStatic ? INVOKESTATIC
+          : declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL;
+      mv.visitMethodInsn(opcode, owner, method.getName(), Type
+          .getMethodDescriptor(method));
+      box(mv, method.getReturnType());
+      mv.visitInsn(ARETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+
+      cw.visitEnd();
+      return cw.toByteArray();
+    }
+
+    private static void pushInt(MethodVisitor mv, int i) {
+      if (i <= 5) {
+        mv.visitInsn(ICONST_0 + i);
+      } else if (i <= Byte.MAX_VALUE) {
+        mv.visitIntInsn(BIPUSH, i);
+      } else {
+        mv.visitIntInsn(SIPUSH, i);
+      }
+    }
+
+    /**
+     * Returns the wrapper class of a primitive type.
+     */
+    private static Class<?> getWrapper(Class<?> c) {
+      if (c == Boolean.TYPE) {
+        return Boolean.class;
+      } else if (c == Byte.TYPE) {
+        return Byte.class;
+      } else if (c == Character.TYPE) {
+        return Character.class;
+      } else if (c == Short.TYPE) {
+        return Short.class;
+      } else if (c == Integer.TYPE) {
+        return Integer.class;
+      } else if (c == Long.TYPE) {
+        return Long.class;
+      } else if (c == Float.TYPE) {
+        return Float.class;
+      } else {
+        return Double.class;
+      }
+    }
+
+    /**
+     * Converts the Object on the stack to type c.
+     */
+    private static void unbox(MethodVisitor mv, Class<?> c) {
+      if (!c.isPrimitive()) {
+        if (c != Object.class) {
+          mv.visitTypeInsn(CHECKCAST, Type.getInternalName(c));
+        }
+        return;
+      }
+      String wrapper = Type.getInternalName(getWrapper(c));
+      mv.visitTypeInsn(CHECKCAST, wrapper);
+      mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, c.getName() + "Value", "()"
+          + Type.getDescriptor(c));
+    }
+
+    /**
+     * Converts the value of type c on the stack to an Object.
+     */
+    private static void box(MethodVisitor mv, Class<?> c) {
+      if (c == Void.TYPE) {
+        mv.visitInsn(ACONST_NULL);
+      } else if (c.isPrimitive()) {
+        String wrapper = Type.getInternalName(getWrapper(c));
+        mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "("
+            + Type.getDescriptor(c) + ")L" + wrapper + ";");
+      }
+    }
+  }
+}
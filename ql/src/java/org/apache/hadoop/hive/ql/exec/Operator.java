@@ -738,10 +738,13 @@ public abstract class Operator<T extends Serializable> implements Serializable,
     int childrenDone = 0;
     for (int i = 0; i < childOperatorsArray.length; i++) {
       Operator<? extends Serializable> o = childOperatorsArray[i];
+      if (!o.getDone()) {
+        o.process(row, childOperatorsTag[i]);
+      }
+      // checked after the row too, so that a child finishing on this row
+      // finishes this operator now and not on the next row
       if (o.getDone()) {
         childrenDone++;
-      } else {
-        o.process(row, childOperatorsTag[i]);
       }
     }
 
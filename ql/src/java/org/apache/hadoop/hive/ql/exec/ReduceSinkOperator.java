@@ -18,15 +18,24 @@
 
 package org.apache.hadoop.hive.ql.exec;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.exec.persistence.BloomFilter;
 import org.apache.hadoop.hive.ql.io.HiveKey;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
@@ -81,6 +90,30 @@ public class ReduceSinkOperator extends TerminalOperator<ReduceSinkDesc>
   transient protected int numDistributionKeys;
   transient protected int numDistinctExprs;
 
+  /**
+   * In-job skew join state. A key in skewScatterKeys is hot in this input and
+   * its rows go to one of skewSplitFactor consecutive reducers; a key in
+   * skewReplicateKeys is hot in another input and its rows go to all of them.
+   */
+  transient int skewSplitFactor;
+  transient int numReducers;
+  transient Set<BytesWritable> skewScatterKeys;
+  transient Set<BytesWritable> skewReplicateKeys;
+  transient BytesWritable skewProbe;
+  transient Random skewRandom;
+
+  /**
+   * Bloom filter over the join keys of another input; rows whose key is not
+   * in it are dropped before they are shuffled.
+   */
+  transient BloomFilter bloomFilter;
+  transient long bloomFilteredRows;
+
+  /**
+   * The rows with the smallest keys, forwarded when the operator is closed.
+   */
+  transient TopNHeap topN;
+
   @Override
   protected void initializeOp(Configuration hconf) throws HiveException {
 
@@ -122,6 +155,34 @@ public class ReduceSinkOperator extends TerminalOperator<ReduceSinkDesc>
           .newInstance();
       valueSerializer.initialize(null, valueTableDesc.getProperties());
 
+      skewSplitFactor = conf.getSkewSplitFactor();
+      numReducers = HiveConf.getIntVar(hconf, HiveConf.ConfVars.HADOOPNUMREDUCERS);
+      if (skewSplitFactor > 1 && tag != -1 && numReducers > 1) {
+        skewSplitFactor = Math.min(skewSplitFactor, numReducers);
+        skewScatterKeys = decodeSkewKeys(conf.getSkewScatterKeys());
+        skewReplicateKeys = decodeSkewKeys(conf.getSkewReplicateKeys());
+        skewProbe = new BytesWritable();
+        // Use a constant seed to make the code deterministic.
+        skewRandom = new Random(12345);
+        LOG.info("Skew join: scattering " + skewScatterKeys.size()
+            + " hot keys and replicating " + skewReplicateKeys.size()
+            + " keys over " + skewSplitFactor + " reducers");
+      } else {
+        skewSplitFactor = 0;
+      }
+
+      if (conf.getBloomFilterPath() != null && tag != -1) {
+        bloomFilter = readBloomFilter(conf.getBloomFilterPath(), hconf);
+        bloomFilteredRows = 0;
+        LOG.info("Using bloom filter " + conf.getBloomFilterPath() + " with "
+            + bloomFilter.getNumBits() + " bits");
+      }
+
+      if (conf.getTopN() != null && tag == -1 && numDistinctExprs == 0) {
+        topN = new TopNHeap(conf.getTopN(), hconf);
+        LOG.info("Keeping the first " + conf.getTopN() + " rows");
+      }
+
       firstRow = true;
       initializeChildren(hconf);
     } catch (Exception e) {
@@ -130,6 +191,32 @@ public class ReduceSinkOperator extends TerminalOperator<ReduceSinkDesc>
     }
   }
 
+  private static Set<BytesWritable> decodeSkewKeys(List<String> keys)
+      throws DecoderException {
+    Set<BytesWritable> result = new HashSet<BytesWritable>();
+    if (keys != null) {
+      for (String key : keys) {
+        result.add(new BytesWritable(Hex.decodeHex(key.toCharArray())));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the bloom filter from the distributed cache if it was shipped
+   * there, or else from the file system.
+   */
+  static BloomFilter readBloomFilter(String pathStr, Configuration hconf)
+      throws IOException {
+    InputStream in = Utilities.openCacheFile(new Path(pathStr), hconf);
+    DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+    try {
+      return BloomFilter.read(dataIn);
+    } finally {
+      dataIn.close();
+    }
+  }
+
   transient InspectableObject tempInspectableObject = new InspectableObject();
   transient HiveKey keyWritable = new HiveKey();
   transient Writable value;
@@ -228,12 +315,9 @@ public class ReduceSinkOperator extends TerminalOperator<ReduceSinkDesc>
         }
       }
 
-      // Evaluate the value
-      for (int i = 0; i < valueEval.length; i++) {
-        cachedValues[i] = valueEval[i].evaluate(row);
+      if (bloomFilter == null && topN == null) {
+        serializeValue(row);
       }
-      // Serialize the value
-      value = valueSerializer.serialize(cachedValues, valueObjectInspector);
 
       // Evaluate the keys
       Object[] distributionKeys = new Object[numDistributionKeys];
@@ -285,16 +369,27 @@ public class ReduceSinkOperator extends TerminalOperator<ReduceSinkDesc>
           }
         }
         keyWritable.setHashCode(keyHashCode);
+        if (bloomFilter != null) {
+          // a join has a single key per row; the tag byte is not part of it
+          if (!bloomFilter.mightContain(keyWritable.get(), 0, keyWritable.getLength() - 1)) {
+            bloomFilteredRows++;
+            return;
+          }
+          serializeValue(row);
+        }
+        if (topN != null) {
+          // the value is only needed if the row makes it into the heap
+          if (topN.accepts(keyWritable.get(), keyWritable.getLength())) {
+            serializeValue(row);
+            topN.add(keyWritable, value);
+          }
+          return;
+        }
         if (out != null) {
-          out.collect(keyWritable, value);
-          // Since this is a terminal operator, update counters explicitly -
-          // forward is not called
-          if (counterNameToEnum != null) {
-            ++outputRows;
-            if (outputRows % 1000 == 0) {
-              incrCounter(numOutputRowsCntr, outputRows);
-              outputRows = 0;
-            }
+          if (skewSplitFactor > 0) {
+            collectSkewed(keyHashCode);
+          } else {
+            collect();
           }
         }
       }
@@ -305,6 +400,72 @@ public class ReduceSinkOperator extends TerminalOperator<ReduceSinkDesc>
     }
   }
 
+  private void serializeValue(Object row) throws HiveException, SerDeException {
+    // Evaluate the value
+    for (int i = 0; i < valueEval.length; i++) {
+      cachedValues[i] = valueEval[i].evaluate(row);
+    }
+    // Serialize the value
+    value = valueSerializer.serialize(cachedValues, valueObjectInspector);
+  }
+
+  private void collect() throws IOException {
+    out.collect(keyWritable, value);
+    // Since this is a terminal operator, update counters explicitly -
+    // forward is not called
+    if (counterNameToEnum != null) {
+      ++outputRows;
+      if (outputRows % 1000 == 0) {
+        incrCounter(numOutputRowsCntr, outputRows);
+        outputRows = 0;
+      }
+    }
+  }
+
+  /**
+   * Sends the current row to the reducers of a hot key. The hash codes are
+   * chosen so that the default partitioner maps the copies of one key to
+   * skewSplitFactor distinct reducers, starting from the reducer the key
+   * would normally go to.
+   */
+  private void collectSkewed(int keyHashCode) throws IOException {
+    // the serialized key without the trailing tag byte
+    skewProbe.set(keyWritable.get(), 0, keyWritable.getLength() - 1);
+    int first = (keyHashCode & Integer.MAX_VALUE) % numReducers;
+    if (skewScatterKeys.contains(skewProbe)) {
+      keyWritable.setHashCode((first + skewRandom.nextInt(skewSplitFactor))
+          % numReducers);
+      collect();
+    } else if (skewReplicateKeys.contains(skewProbe)) {
+      for (int i = 0; i < skewSplitFactor; i++) {
+        keyWritable.setHashCode((first + i) % numReducers);
+        collect();
+      }
+    } else {
+      collect();
+    }
+  }
+
+  @Override
+  protected void closeOp(boolean abort) throws HiveException {
+    if (bloomFilter != null) {
+      LOG.info("Bloom filter dropped " + bloomFilteredRows + " rows");
+    }
+    if (topN != null && !abort && out != null) {
+      try {
+        for (TopNHeap.Row r : topN.drain()) {
+          keyWritable.set(r.getKey(), 0, r.getKey().length);
+          keyWritable.setHashCode(r.getHashCode());
+          value = r.getValue();
+          collect();
+        }
+      } catch (IOException e) {
+        throw new HiveException(e);
+      }
+    }
+    super.closeOp(abort);
+  }
+
   /**
    * @return the name of the operator
    */
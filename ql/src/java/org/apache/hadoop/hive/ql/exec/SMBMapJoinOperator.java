@@ -19,10 +19,12 @@ package org.apache.hadoop.hive.ql.exec;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,22 +33,41 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.exec.persistence.RowContainer;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.FetchWork;
 import org.apache.hadoop.hive.ql.plan.MapJoinDesc;
 import org.apache.hadoop.hive.ql.plan.MapredLocalWork;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
 import org.apache.hadoop.hive.ql.plan.SMBJoinDesc;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
 import org.apache.hadoop.hive.ql.plan.MapredLocalWork.BucketMapJoinContext;
 import org.apache.hadoop.hive.ql.plan.api.OperatorType;
 import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.Serializer;
 import org.apache.hadoop.hive.serde2.objectinspector.InspectableObject;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
-import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.util.ReflectionUtils;
 
 /**
  * Sorted Merge Map Join Operator.
+ *
+ * The join keys of all inputs are serialized with BinarySortableSerDe, so the
+ * merge compares raw bytes instead of going through ObjectInspectors, and the
+ * inputs whose current key group is known are kept in a priority queue
+ * ordered by that key (a k-way merge).
+ *
+ * When the big table has a multiple of the buckets of a small table, several
+ * big table buckets map to the same small table bucket. The rows of such a
+ * small table bucket are kept in memory (up to
+ * hive.mapjoin.smb.bucket.cache.rows rows per mapper) the first time it is
+ * read, and replayed for the other big table buckets of the same mapper
+ * instead of opening and reading the bucket again.
  */
 public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> implements
     Serializable {
@@ -58,8 +79,8 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
 
   private MapredLocalWork localWork = null;
   private Map<String, FetchOperator> fetchOperators;
-  transient ArrayList<Object>[] keyWritables;
-  transient ArrayList<Object>[] nextKeyWritables;
+  transient SortedKey[] keyWritables;
+  transient SortedKey[] nextKeyWritables;
   RowContainer<ArrayList<Object>>[] nextGroupStorage;
   RowContainer<ArrayList<Object>>[] candidateStorage;
 
@@ -69,6 +90,140 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
   transient boolean firstFetchHappened = false;
   transient boolean localWorkInited = false;
 
+  // serializers of the join keys of every input, indexed by tag
+  transient Serializer[] keySerializers;
+  transient StructObjectInspector[] keyStructObjectInspectors;
+  transient Object[][] keyFields;
+  // inputs with a current key group, smallest key first
+  transient MergeQueue mergeQueue;
+
+  // small table buckets kept in memory, by alias
+  transient Map<String, BucketCache> bucketCaches;
+  transient int bucketCacheRowsLeft;
+
+  /**
+   * A join key serialized with BinarySortableSerDe. Keys with a null field
+   * sort first and never match any key.
+   */
+  static class SortedKey implements Comparable<SortedKey> {
+    private final byte[] bytes;
+    private final boolean hasNull;
+
+    SortedKey(BytesWritable serialized, boolean hasNull) {
+      bytes = new byte[serialized.getLength()];
+      System.arraycopy(serialized.get(), 0, bytes, 0, bytes.length);
+      this.hasNull = hasNull;
+    }
+
+    public int compareTo(SortedKey other) {
+      return WritableComparator.compareBytes(bytes, 0, bytes.length,
+          other.bytes, 0, other.bytes.length);
+    }
+
+    boolean matches(SortedKey other) {
+      return !hasNull && !other.hasNull && compareTo(other) == 0;
+    }
+
+    boolean sameBytes(BytesWritable serialized) {
+      return WritableComparator.compareBytes(bytes, 0, bytes.length,
+          serialized.get(), 0, serialized.getLength()) == 0;
+    }
+  }
+
+  /**
+   * The inputs that have a current key group, ordered by that key. The keys
+   * are those of the array the queue is created with, indexed by tag.
+   */
+  static class MergeQueue {
+    private final SortedKey[] keys;
+    private final PriorityQueue<Byte> queue;
+
+    MergeQueue(final SortedKey[] keys) {
+      this.keys = keys;
+      queue = new PriorityQueue<Byte>(Math.max(1, keys.length),
+          new Comparator<Byte>() {
+        public int compare(Byte o1, Byte o2) {
+          return keys[o1].compareTo(keys[o2]);
+        }
+      });
+    }
+
+    /**
+     * Changes the current key group of an input, null if it has none.
+     */
+    void setKey(byte alias, SortedKey key) {
+      if (keys[alias] != null) {
+        queue.remove(alias);
+      }
+      keys[alias] = key;
+      if (key != null) {
+        queue.add(alias);
+      }
+    }
+
+    /**
+     * Returns the input with the smallest key, or -1 if no input has one.
+     */
+    int smallest() {
+      Byte smallest = queue.peek();
+      return smallest == null ? -1 : smallest.intValue();
+    }
+  }
+
+  /**
+   * The rows of the small table buckets of one alias that are read for more
+   * than one big table bucket. Each row is kept as its key and value, and the
+   * buckets are identified by their list of files.
+   */
+  static class BucketCache {
+    // number of big table buckets that map to each list of bucket files
+    final Map<List<Path>, Integer> bucketUses = new HashMap<List<Path>, Integer>();
+    final Map<List<Path>, List<Object[]>> buckets =
+        new HashMap<List<Path>, List<Object[]>>();
+    List<Path> currentFiles;
+    List<Object[]> recording;
+    Iterator<Object[]> replay;
+
+    /**
+     * Counts one big table bucket that reads the files.
+     */
+    void addUse(List<Path> files) {
+      Integer uses = bucketUses.get(files);
+      bucketUses.put(files, uses == null ? 1 : uses + 1);
+    }
+
+    /**
+     * Starts reading the files of a bucket. Returns true if its rows are
+     * replayed from memory. Otherwise the rows are recorded if record is set
+     * and another big table bucket reads the same files.
+     */
+    boolean start(List<Path> files, boolean record) {
+      currentFiles = files;
+      recording = null;
+      replay = null;
+      List<Object[]> rows = buckets.get(files);
+      if (rows != null) {
+        replay = rows.iterator();
+        return true;
+      }
+      Integer uses = bucketUses.get(files);
+      if (record && uses != null && uses > 1) {
+        recording = new ArrayList<Object[]>();
+      }
+      return false;
+    }
+
+    /**
+     * Keeps the recorded rows once the whole bucket has been read.
+     */
+    void finish() {
+      if (recording != null) {
+        buckets.put(currentFiles, recording);
+        recording = null;
+      }
+    }
+  }
+
   public SMBMapJoinOperator() {
   }
 
@@ -97,11 +252,38 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
 
     nextGroupStorage = new RowContainer[maxAlias];
     candidateStorage = new RowContainer[maxAlias];
-    keyWritables = new ArrayList[maxAlias];
-    nextKeyWritables = new ArrayList[maxAlias];
+    keyWritables = new SortedKey[maxAlias];
+    nextKeyWritables = new SortedKey[maxAlias];
     fetchOpDone = new boolean[maxAlias];
     foundNextKeyGroup = new boolean[maxAlias];
 
+    keySerializers = new Serializer[maxAlias];
+    keyStructObjectInspectors = new StructObjectInspector[maxAlias];
+    keyFields = new Object[maxAlias][];
+    for (Byte alias : order) {
+      List<ExprNodeDesc> keyExprs = conf.getKeys().get(alias);
+      StringBuilder sortOrder = new StringBuilder();
+      List<String> fieldNames = new ArrayList<String>();
+      for (int i = 0; i < keyExprs.size(); i++) {
+        sortOrder.append('+');
+        fieldNames.add(HiveConf.getColumnInternalName(i));
+      }
+      TableDesc keyTableDesc = PlanUtils.getReduceKeyTableDesc(PlanUtils
+          .getFieldSchemasFromColumnList(keyExprs, "joinkey"), sortOrder.toString());
+      try {
+        keySerializers[alias] = (Serializer) keyTableDesc.getDeserializerClass()
+            .newInstance();
+        keySerializers[alias].initialize(null, keyTableDesc.getProperties());
+      } catch (Exception e) {
+        throw new HiveException(e);
+      }
+      keyStructObjectInspectors[alias] = ObjectInspectorFactory
+          .getStandardStructObjectInspector(fieldNames,
+          joinKeysObjectInspectors.get(alias));
+      keyFields[alias] = new Object[keyExprs.size()];
+    }
+    mergeQueue = new MergeQueue(keyWritables);
+
     int bucketSize = HiveConf.getIntVar(hconf,
         HiveConf.ConfVars.HIVEMAPJOINBUCKETCACHESIZE);
     byte storePos = (byte) 0;
@@ -117,6 +299,8 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
       storePos++;
     }
     tagToAlias = conf.getTagToAlias();
+    bucketCacheRowsLeft = HiveConf.getIntVar(hconf,
+        HiveConf.ConfVars.HIVEMAPJOINSMBBUCKETCACHEROWS);
 
     for (Byte alias : order) {
       if(alias != (byte) posBigTable) {
@@ -175,6 +359,28 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
       forwardOp.initialize(jobConf, new ObjectInspector[] {fetchOp.getOutputObjectInspector()});
       l4j.info("fetchoperator for " + entry.getKey() + " initialized");
     }
+
+    bucketCaches = new HashMap<String, BucketCache>();
+    BucketMapJoinContext bucketMatcherCxt = localWork.getBucketMapjoinContext();
+    if (bucketMatcherCxt != null
+        && bucketMatcherCxt.getAliasBucketFileNameMapping() != null) {
+      for (String alias : fetchOperators.keySet()) {
+        Map<String, ArrayList<String>> bucketMapping = bucketMatcherCxt
+            .getAliasBucketFileNameMapping().get(alias);
+        if (bucketMapping == null) {
+          continue;
+        }
+        BucketCache cache = new BucketCache();
+        for (ArrayList<String> files : bucketMapping.values()) {
+          List<Path> paths = new ArrayList<Path>();
+          for (String file : files) {
+            paths.add(new Path(file));
+          }
+          cache.addUse(paths);
+        }
+        bucketCaches.put(alias, cache);
+      }
+    }
   }
 
   @Override
@@ -209,14 +415,48 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
 
     byte alias = (byte) tag;
     // compute keys and values as StandardObjects
-
-    // compute keys and values as StandardObjects
-    ArrayList<Object> key = JoinUtil.computeKeys(row, joinKeys.get(alias),
-        joinKeysObjectInspectors.get(alias));
+    SortedKey key = computeKey(alias, row);
     ArrayList<Object> value = JoinUtil.computeValues(row, joinValues.get(alias),
         joinValuesObjectInspectors.get(alias), joinFilters.get(alias),
         joinFilterObjectInspectors.get(alias), noOuterJoin);
 
+    if (tag != posBigTable) {
+      recordRow(alias, key, value);
+    }
+    processRow(alias, key, value);
+  }
+
+  /**
+   * Serializes the join key of a row. Rows of the current key group of the
+   * alias share one key object, so the new row is only copied when it starts
+   * a new group.
+   */
+  private SortedKey computeKey(byte alias, Object row) throws HiveException {
+    List<ExprNodeEvaluator> evals = joinKeys.get(alias);
+    Object[] fields = keyFields[alias];
+    boolean hasNull = false;
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = evals.get(i).evaluate(row);
+      hasNull = hasNull || fields[i] == null;
+    }
+    BytesWritable serialized;
+    try {
+      serialized = (BytesWritable) keySerializers[alias].serialize(fields,
+          keyStructObjectInspectors[alias]);
+    } catch (SerDeException e) {
+      throw new HiveException(e);
+    }
+    SortedKey current = keyWritables[alias];
+    if (!hasNull && current != null && !current.hasNull
+        && current.sameBytes(serialized)) {
+      return current;
+    }
+    return new SortedKey(serialized, hasNull);
+  }
+
+  private void processRow(byte alias, SortedKey key, ArrayList<Object> value)
+      throws HiveException {
+    int tag = alias;
 
     //have we reached a new key group?
     boolean nextKeyGroup = processKey(alias, key);
@@ -329,19 +569,18 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
 
   private List<Byte> joinObject(int smallestPos) throws HiveException {
     List<Byte> needFetchList = new ArrayList<Byte>();
-    ArrayList<Object> smallKey = keyWritables[smallestPos];
+    SortedKey smallKey = keyWritables[smallestPos];
     needFetchList.add((byte)smallestPos);
     this.storage.put((byte) smallestPos, this.candidateStorage[smallestPos]);
     for (Byte i : order) {
       if ((byte) smallestPos == i) {
         continue;
       }
-      ArrayList<Object> key = keyWritables[i];
+      SortedKey key = keyWritables[i];
       if (key == null) {
         putDummyOrEmpty(i);
       } else {
-        int cmp = compareKeys(key, smallKey);
-        if (cmp == 0) {
+        if (key.matches(smallKey)) {
           this.storage.put((byte) i, this.candidateStorage[i]);
           needFetchList.add(i);
           continue;
@@ -353,7 +592,7 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
     checkAndGenObject();
     for (Byte pos : needFetchList) {
       this.candidateStorage[pos].clear();
-      this.keyWritables[pos] = null;
+      setCurrentKey(pos, null);
     }
     return needFetchList;
   }
@@ -365,7 +604,7 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
       if (this.nextKeyWritables[t] != null) {
         promoteNextGroupToCandidate(t);
       } else {
-        this.keyWritables[t] = null;
+        setCurrentKey(t, null);
         this.candidateStorage[t] = null;
         this.nextGroupStorage[t] = null;
       }
@@ -389,7 +628,7 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
   }
 
   private void promoteNextGroupToCandidate(Byte t) throws HiveException {
-    this.keyWritables[t] = this.nextKeyWritables[t];
+    setCurrentKey(t, this.nextKeyWritables[t]);
     this.nextKeyWritables[t] = null;
     RowContainer<ArrayList<Object>> oldRowContainer = this.candidateStorage[t];
     oldRowContainer.clear();
@@ -397,31 +636,12 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
     this.nextGroupStorage[t] = oldRowContainer;
   }
 
-  private int compareKeys (ArrayList<Object> k1, ArrayList<Object> k2) {
-    int ret = 0;
-
-   // join keys have difference sizes?
-    ret = k1.size() - k2.size();
-    if (ret != 0) {
-      return ret;
-    }
-
-    for (int i = 0; i < k1.size(); i++) {
-      WritableComparable key_1 = (WritableComparable) k1.get(i);
-      WritableComparable key_2 = (WritableComparable) k2.get(i);
-      if (key_1 == null && key_2 == null) {
-        return -1; // just return k1 is smaller than k2
-      } else if (key_1 == null) {
-        return -1;
-      } else if (key_2 == null) {
-        return 1;
-      }
-      ret = WritableComparator.get(key_1.getClass()).compare(key_1, key_2);
-      if(ret != 0) {
-        return ret;
-      }
-    }
-    return ret;
+  /**
+   * Changes the current key group of an input, keeping the merge queue in
+   * order.
+   */
+  private void setCurrentKey(byte alias, SortedKey key) {
+    mergeQueue.setKey(alias, key);
   }
 
   private void putDummyOrEmpty(Byte i) {
@@ -434,39 +654,19 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
   }
 
   private int findSmallestKey() {
-    byte index = -1;
-    ArrayList<Object> smallestOne = null;
-
-    for (byte i : order) {
-      ArrayList<Object> key = keyWritables[i];
-      if (key == null) {
-        continue;
-      }
-      if (smallestOne == null) {
-        smallestOne = key;
-        index = i;
-        continue;
-      }
-      int cmp = compareKeys(key, smallestOne);
-      if (cmp < 0) {
-        smallestOne = key;
-        index = i;
-        continue;
-      }
-    }
-    return index;
+    return mergeQueue.smallest();
   }
 
-  private boolean processKey(byte alias, ArrayList<Object> key)
+  private boolean processKey(byte alias, SortedKey key)
       throws HiveException {
-    ArrayList<Object> keyWritable = keyWritables[alias];
+    SortedKey keyWritable = keyWritables[alias];
     if (keyWritable == null) {
       //the first group.
-      keyWritables[alias] = key;
+      setCurrentKey(alias, key);
       return false;
     } else {
-      int cmp = compareKeys(key, keyWritable);
-      if (cmp != 0) {
+      // rows of the same group share the key object, see computeKey
+      if (key != keyWritable) {
         nextKeyWritables[alias] = key;
         return true;
       }
@@ -489,21 +689,63 @@ public class SMBMapJoinOperator extends AbstractMapJoinOperator<SMBJoinDesc> imp
         .getAliasBucketFileNameMapping());
     List<Path> aliasFiles = bucketMatcher.getAliasBucketFiles(currentInputFile,
         bucketMatcherCxt.getMapJoinBigTableAlias(), alias);
+
+    BucketCache cache = bucketCaches.get(alias);
+    if (cache != null && cache.start(aliasFiles, bucketCacheRowsLeft > 0)) {
+      LOG.info("replay the cached rows of " + aliasFiles);
+      return;
+    }
     Iterator<Path> iter = aliasFiles.iterator();
     fetchOp.setupContext(iter, null);
   }
 
+  /**
+   * Keeps a row of a small table bucket that will be needed again for another
+   * big table bucket. Gives up on the bucket once the row budget is used up.
+   */
+  private void recordRow(byte tag, SortedKey key, ArrayList<Object> value) {
+    BucketCache cache = bucketCaches == null ? null : bucketCaches.get(tagToAlias.get(tag));
+    if (cache == null || cache.recording == null) {
+      return;
+    }
+    if (bucketCacheRowsLeft <= 0) {
+      bucketCacheRowsLeft += cache.recording.size();
+      cache.recording = null;
+      return;
+    }
+    cache.recording.add(new Object[] {key, value});
+    bucketCacheRowsLeft--;
+  }
+
   private void fetchOneRow(byte tag) {
     if (fetchOperators != null) {
       String tble = this.tagToAlias.get(tag);
       FetchOperator fetchOp = fetchOperators.get(tble);
 
+      BucketCache cache = bucketCaches.get(tble);
+      if (cache != null && cache.replay != null) {
+        try {
+          if (cache.replay.hasNext()) {
+            Object[] cached = cache.replay.next();
+            processRow(tag, (SortedKey) cached[0], (ArrayList<Object>) cached[1]);
+          } else {
+            this.fetchOpDone[tag] = true;
+          }
+        } catch (HiveException e) {
+          throw new RuntimeException("Map local work failed", e);
+        }
+        return;
+      }
+
       Operator<? extends Serializable> forwardOp = localWork.getAliasToWork()
           .get(tble);
       try {
         InspectableObject row = fetchOp.getNextRow();
         if (row == null) {
           this.fetchOpDone[tag] = true;
+          if (cache != null) {
+            cache.finish();
+          }
           return;
         }
         forwardOp.process(row.o, 0);
@@ -61,11 +61,16 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
    *
    */
   public static enum Counter {
-    DESERIALIZE_ERRORS, SERIALIZE_ERRORS
+    DESERIALIZE_ERRORS, SERIALIZE_ERRORS,
+    ROWS_TO_SCRIPT, BYTES_TO_SCRIPT, ROWS_FROM_SCRIPT, BYTES_FROM_SCRIPT
   }
 
   private final transient LongWritable deserialize_error_count = new LongWritable();
   private final transient LongWritable serialize_error_count = new LongWritable();
+  private final transient LongWritable rows_to_script_count = new LongWritable();
+  private final transient LongWritable bytes_to_script_count = new LongWritable();
+  private final transient LongWritable rows_from_script_count = new LongWritable();
+  private final transient LongWritable bytes_from_script_count = new LongWritable();
 
   transient Thread outThread = null;
   transient Thread errThread = null;
@@ -195,6 +200,10 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
 
     statsMap.put(Counter.DESERIALIZE_ERRORS, deserialize_error_count);
     statsMap.put(Counter.SERIALIZE_ERRORS, serialize_error_count);
+    statsMap.put(Counter.ROWS_TO_SCRIPT, rows_to_script_count);
+    statsMap.put(Counter.BYTES_TO_SCRIPT, bytes_to_script_count);
+    statsMap.put(Counter.ROWS_FROM_SCRIPT, rows_from_script_count);
+    statsMap.put(Counter.BYTES_FROM_SCRIPT, bytes_from_script_count);
 
     try {
       this.hconf = hconf;
@@ -278,10 +287,11 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
 
         scriptPid = pb.start(); // Runtime.getRuntime().exec(wrappedCmdArgs);
 
+        int bufferSize = HiveConf.getIntVar(hconf, HiveConf.ConfVars.HIVESCRIPTBUFFERSIZE);
         DataOutputStream scriptOut = new DataOutputStream(
-            new BufferedOutputStream(scriptPid.getOutputStream()));
+            new BufferedOutputStream(scriptPid.getOutputStream(), bufferSize));
         DataInputStream scriptIn = new DataInputStream(new BufferedInputStream(
-            scriptPid.getInputStream()));
+            scriptPid.getInputStream(), bufferSize));
         DataInputStream scriptErr = new DataInputStream(
             new BufferedInputStream(scriptPid.getErrorStream()));
 
@@ -303,7 +313,8 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
             .getProperties());
 
         errThread = new StreamThread(scriptErrReader, new ErrorStreamProcessor(
-            HiveConf.getIntVar(hconf, HiveConf.ConfVars.SCRIPTERRORLIMIT)),
+            HiveConf.getIntVar(hconf, HiveConf.ConfVars.SCRIPTERRORLIMIT),
+            HiveConf.getVar(hconf, HiveConf.ConfVars.HIVESCRIPTREPORTERPREFIX)),
             "ErrorProcessor");
 
         if (HiveConf
@@ -329,6 +340,8 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
       Writable res = scriptInputSerializer.serialize(row,
           inputObjInspectors[tag]);
       scriptOutWriter.write(res);
+      rows_to_script_count.set(rows_to_script_count.get() + 1);
+      bytes_to_script_count.set(bytes_to_script_count.get() + getLength(res));
     } catch (SerDeException e) {
       LOG.error("Error in serializing the row: " + e.getMessage());
       scriptError = e;
@@ -453,6 +466,18 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
     }
   }
 
+  /**
+   * The number of bytes of a row read from or written to the script.
+   */
+  static int getLength(Writable row) {
+    if (row instanceof Text) {
+      return ((Text) row).getLength();
+    } else if (row instanceof BytesWritable) {
+      return ((BytesWritable) row).getSize();
+    }
+    return 0;
+  }
+
   interface StreamProcessor {
     void processLine(Writable line) throws HiveException;
 
@@ -468,6 +493,8 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
     }
 
     public void processLine(Writable line) throws HiveException {
+      rows_from_script_count.set(rows_from_script_count.get() + 1);
+      bytes_from_script_count.set(bytes_from_script_count.get() + getLength(line));
       try {
         row = scriptOutputDeserializer.deserialize(line);
       } catch (SerDeException e) {
@@ -484,30 +511,62 @@ public class ScriptOperator extends Operator<ScriptDesc> implements
   /**
    * The processor for stderr stream.
    *
-   * TODO: In the future when we move to hadoop 0.18 and above, we should borrow
-   * the logic from HadoopStreaming: PipeMapRed.java MRErrorThread to support
-   * counters and status updates.
+   * Like HadoopStreaming (PipeMapRed.java MRErrorThread), lines starting with
+   * the reporter prefix are used for counters and status updates:
+   * "reporter:counter:group,counter,amount" and "reporter:status:message".
    */
   class ErrorStreamProcessor implements StreamProcessor {
     private long bytesCopied = 0;
     private final long maxBytes;
+    private final String reporterPrefix;
 
     private long lastReportTime;
 
     public ErrorStreamProcessor(int maxBytes) {
+      this(maxBytes, null);
+    }
+
+    public ErrorStreamProcessor(int maxBytes, String reporterPrefix) {
       this.maxBytes = maxBytes;
+      this.reporterPrefix = (reporterPrefix == null || reporterPrefix.length() == 0) ?
+          null : reporterPrefix;
       lastReportTime = 0;
     }
 
+    private boolean processReporterLine(String line) {
+      if (line.startsWith("counter:")) {
+        String[] items = line.substring("counter:".length()).trim().split(",");
+        if (items.length != 3) {
+          LOG.warn("Cannot parse reporter line: " + line);
+          return false;
+        }
+        try {
+          long amount = Long.parseLong(items[2].trim());
+          if (reporter != null) {
+            reporter.incrCounter(items[0].trim(), items[1].trim(), amount);
+          }
+        } catch (NumberFormatException e) {
+          LOG.warn("Cannot parse counter amount in reporter line: " + line);
+          return false;
+        }
+        return true;
+      } else if (line.startsWith("status:")) {
+        if (reporter != null) {
+          reporter.setStatus(line.substring("status:".length()).trim());
+        }
+        return true;
+      }
+      return false;
+    }
+
     public void processLine(Writable line) throws HiveException {
 
       String stringLine = line.toString();
-      int len = 0;
+      int len = getLength(line);
 
-      if (line instanceof Text) {
-        len = ((Text) line).getLength();
-      } else if (line instanceof BytesWritable) {
-        len = ((BytesWritable) line).getSize();
+      if (reporterPrefix != null && stringLine.startsWith(reporterPrefix)
+          && processReporterLine(stringLine.substring(reporterPrefix.length()))) {
+        return;
       }
 
       // Report progress for each stderr line, but no more frequently than once
@@ -0,0 +1,445 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.io.DefaultHivePartitioner;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.JoinCondDesc;
+import org.apache.hadoop.hive.ql.plan.JoinDesc;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.hive.ql.plan.ReduceSinkDesc;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.InspectableObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * Finds the heavy hitter keys of a reduce side join before its job is
+ * submitted, for the in-job skew join (hive.optimize.skewjoin.injob).
+ *
+ * <p>
+ * A sample of every join input is read with a FetchOperator and pushed through
+ * a copy of the map side operator tree of its alias, exactly like
+ * MapredLocalTask does for the small tables of a map join. The reduce sink at
+ * the end of the tree hands its serialized keys to a counting collector
+ * instead of the shuffle. A key that carries at least
+ * hive.skewjoin.injob.hotkey.fraction of the sampled rows of one input is hot:
+ * the reduce sink of that input scatters its rows over several reducers and
+ * the reduce sinks of all other inputs replicate their matching rows to each
+ * of those reducers. See ReduceSinkOperator.
+ *
+ * <p>
+ * Replicated rows must not be outer join preserved rows, since they would
+ * then be emitted once per reducer. A key is therefore only scattered on an
+ * input that is the single preserved input of the join, or on any input of an
+ * inner join. For the same reason the runtime skew join handling of
+ * hive.optimize.skewjoin is turned off for a join that gets hot keys; it stays
+ * on for the joins that this class leaves untouched.
+ *
+ * <p>
+ * The sample is the first rows of every path of an input, not a random
+ * sample, so that only the head of each file is read. On inputs clustered by
+ * the join key it can miss hot keys or report local ones.
+ */
+public class SkewJoinKeySampler {
+
+  private static final Log LOG = LogFactory.getLog(SkewJoinKeySampler.class
+      .getName());
+
+  private final MapredWork work;
+  private final JobConf job;
+
+  public SkewJoinKeySampler(MapredWork work, JobConf job) {
+    this.work = work;
+    this.job = job;
+  }
+
+  /**
+   * Collects the serialized keys (without the tag byte) of the rows that
+   * reach the reduce sinks, per tag.
+   */
+  private static class KeyCountingCollector implements OutputCollector {
+    private final Map<Integer, Map<BytesWritable, Long>> keyCounts =
+        new HashMap<Integer, Map<BytesWritable, Long>>();
+    private final Map<Integer, Long> rowCounts = new HashMap<Integer, Long>();
+
+    public void collect(Object key, Object value) throws IOException {
+      BytesWritable keyWritable = (BytesWritable) key;
+      int length = keyWritable.getLength() - 1;
+      int tag = keyWritable.get()[length];
+      byte[] keyBytes = new byte[length];
+      System.arraycopy(keyWritable.get(), 0, keyBytes, 0, length);
+
+      Map<BytesWritable, Long> counts = keyCounts.get(tag);
+      if (counts == null) {
+        counts = new HashMap<BytesWritable, Long>();
+        keyCounts.put(tag, counts);
+      }
+      BytesWritable k = new BytesWritable(keyBytes);
+      Long count = counts.get(k);
+      counts.put(k, count == null ? 1L : count + 1);
+      Long rows = rowCounts.get(tag);
+      rowCounts.put(tag, rows == null ? 1L : rows + 1);
+    }
+  }
+
+  /**
+   * Samples the join inputs and records the hot keys in the reduce sinks of
+   * the work. Returns the number of hot keys found. The work is left untouched
+   * if the join or its map side plan is not eligible.
+   */
+  public int sampleAndAnnotate() throws HiveException {
+    if (!(work.getReducer() instanceof JoinOperator)) {
+      return 0;
+    }
+    int numReducers = work.getNumReduceTasks() == null ? 0 : work.getNumReduceTasks();
+    int splitFactor = Math.min(numReducers,
+        HiveConf.getIntVar(job, HiveConf.ConfVars.HIVESKEWJOININJOBSPLITFACTOR));
+    if (splitFactor <= 1) {
+      return 0;
+    }
+    // the reduce sinks pick the reducers of a hot key through the hash code,
+    // which only works with the default partitioner
+    if (!DefaultHivePartitioner.class.getName().equals(
+        HiveConf.getVar(job, HiveConf.ConfVars.HIVEPARTITIONER))) {
+      LOG.info("Skew join: custom partitioner in use, not sampling");
+      return 0;
+    }
+
+    JoinDesc joinDesc = ((JoinOperator) work.getReducer()).getConf();
+    Set<Integer> scatterableTags = getScatterableTags(joinDesc);
+    if (scatterableTags.isEmpty()) {
+      return 0;
+    }
+
+    Map<String, List<ReduceSinkOperator>> aliasToSinks =
+        new HashMap<String, List<ReduceSinkOperator>>();
+    for (Map.Entry<String, Operator<? extends Serializable>> entry : work
+        .getAliasToWork().entrySet()) {
+      List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+      if (!collectReduceSinks(entry.getValue(), sinks)) {
+        // the map side plan writes somewhere else as well, so running it on a
+        // sample would have side effects
+        return 0;
+      }
+      aliasToSinks.put(entry.getKey(), sinks);
+    }
+
+    KeyCountingCollector collector = new KeyCountingCollector();
+    MapredWork copy = copyWork(work, job);
+    int rowsPerAlias = HiveConf.getIntVar(job,
+        HiveConf.ConfVars.HIVESKEWJOININJOBSAMPLEROWS);
+    long start = System.currentTimeMillis();
+    for (Map.Entry<String, Operator<? extends Serializable>> entry : copy
+        .getAliasToWork().entrySet()) {
+      sampleAlias(work, job, entry.getKey(), entry.getValue(), rowsPerAlias,
+          collector);
+    }
+
+    float fraction = HiveConf.getFloatVar(job,
+        HiveConf.ConfVars.HIVESKEWJOININJOBHOTKEYFRACTION);
+    int maxHotKeys = HiveConf.getIntVar(job,
+        HiveConf.ConfVars.HIVESKEWJOININJOBMAXHOTKEYS);
+    Map<BytesWritable, Integer> hotKeys = selectHotKeys(collector.keyCounts,
+        collector.rowCounts, scatterableTags, fraction, maxHotKeys);
+    LOG.info("Skew join: sampled " + collector.rowCounts + " rows per tag in "
+        + (System.currentTimeMillis() - start) + " ms, found " + hotKeys.size()
+        + " hot keys");
+    if (hotKeys.isEmpty()) {
+      return 0;
+    }
+
+    annotate(joinDesc, aliasToSinks.values(), hotKeys, splitFactor);
+    return hotKeys.size();
+  }
+
+  /**
+   * Records the hot keys in the reduce sinks: each sink scatters the keys that
+   * are hot on its tag and replicates the others. The runtime skew join
+   * handling is turned off for the join, since its follow-up jobs would join
+   * the replicated rows once per reducer.
+   */
+  static void annotate(JoinDesc joinDesc,
+      Collection<List<ReduceSinkOperator>> aliasSinks,
+      Map<BytesWritable, Integer> hotKeys, int splitFactor) {
+    joinDesc.setHandleSkewJoin(false);
+    for (List<ReduceSinkOperator> sinks : aliasSinks) {
+      for (ReduceSinkOperator rs : sinks) {
+        ReduceSinkDesc desc = rs.getConf();
+        ArrayList<String> scatter = new ArrayList<String>();
+        ArrayList<String> replicate = new ArrayList<String>();
+        for (Map.Entry<BytesWritable, Integer> hot : hotKeys.entrySet()) {
+          byte[] bytes = new byte[hot.getKey().getLength()];
+          System.arraycopy(hot.getKey().get(), 0, bytes, 0, bytes.length);
+          String encoded = new String(Hex.encodeHex(bytes));
+          if (hot.getValue().intValue() == desc.getTag()) {
+            scatter.add(encoded);
+          } else {
+            replicate.add(encoded);
+          }
+        }
+        desc.setSkewScatterKeys(scatter);
+        desc.setSkewReplicateKeys(replicate);
+        desc.setSkewSplitFactor(splitFactor);
+      }
+    }
+  }
+
+  /**
+   * Returns the tags whose rows may be scattered: every tag of an inner join,
+   * or the single preserved tag of an outer or semi join.
+   */
+  static Set<Integer> getScatterableTags(JoinDesc joinDesc) {
+    Set<Integer> allTags = new HashSet<Integer>();
+    Set<Integer> preserved = new HashSet<Integer>();
+    for (JoinCondDesc cond : joinDesc.getConds()) {
+      int left = getTag(joinDesc, cond.getLeft());
+      int right = getTag(joinDesc, cond.getRight());
+      allTags.add(left);
+      allTags.add(right);
+      switch (cond.getType()) {
+      case JoinDesc.INNER_JOIN:
+        break;
+      case JoinDesc.LEFT_OUTER_JOIN:
+      case JoinDesc.LEFT_SEMI_JOIN:
+        preserved.add(left);
+        break;
+      case JoinDesc.RIGHT_OUTER_JOIN:
+        preserved.add(right);
+        break;
+      case JoinDesc.FULL_OUTER_JOIN:
+        preserved.add(left);
+        preserved.add(right);
+        break;
+      default:
+        // unique join
+        return new HashSet<Integer>();
+      }
+    }
+    if (preserved.isEmpty()) {
+      return allTags;
+    }
+    if (preserved.size() == 1) {
+      return preserved;
+    }
+    return new HashSet<Integer>();
+  }
+
+  private static int getTag(JoinDesc joinDesc, int pos) {
+    Byte[] order = joinDesc.getTagOrder();
+    return order == null ? pos : order[pos].intValue();
+  }
+
+  /**
+   * Picks the hot keys from the sampled key counts. A key is hot if its share
+   * of the sampled rows of a scatterable tag is at least fraction; it is then
+   * scattered on the tag where it is most frequent. At most maxHotKeys keys
+   * are returned, most frequent first.
+   *
+   * @return map from hot key to the tag that scatters it
+   */
+  static Map<BytesWritable, Integer> selectHotKeys(
+      Map<Integer, Map<BytesWritable, Long>> keyCounts,
+      Map<Integer, Long> rowCounts, Set<Integer> scatterableTags,
+      float fraction, int maxHotKeys) {
+    final Map<BytesWritable, Double> bestShare = new HashMap<BytesWritable, Double>();
+    Map<BytesWritable, Integer> bestTag = new HashMap<BytesWritable, Integer>();
+    for (Map.Entry<Integer, Map<BytesWritable, Long>> tagCounts : keyCounts
+        .entrySet()) {
+      Integer tag = tagCounts.getKey();
+      if (!scatterableTags.contains(tag)) {
+        continue;
+      }
+      double rows = rowCounts.get(tag);
+      for (Map.Entry<BytesWritable, Long> keyCount : tagCounts.getValue()
+          .entrySet()) {
+        double share = keyCount.getValue() / rows;
+        if (share < fraction) {
+          continue;
+        }
+        Double best = bestShare.get(keyCount.getKey());
+        if (best == null || share > best) {
+          bestShare.put(keyCount.getKey(), share);
+          bestTag.put(keyCount.getKey(), tag);
+        }
+      }
+    }
+
+    List<BytesWritable> keys = new ArrayList<BytesWritable>(bestShare.keySet());
+    Collections.sort(keys, new Comparator<BytesWritable>() {
+      public int compare(BytesWritable o1, BytesWritable o2) {
+        return bestShare.get(o2).compareTo(bestShare.get(o1));
+      }
+    });
+    Map<BytesWritable, Integer> result = new HashMap<BytesWritable, Integer>();
+    for (int i = 0; i < keys.size() && i < maxHotKeys; i++) {
+      result.put(keys.get(i), bestTag.get(keys.get(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Adds the reduce sinks below op to sinks. Returns false if any leaf of the
+   * tree is not a reduce sink.
+   */
+  static boolean collectReduceSinks(Operator<? extends Serializable> op,
+      List<ReduceSinkOperator> sinks) {
+    if (op instanceof ReduceSinkOperator) {
+      sinks.add((ReduceSinkOperator) op);
+      return true;
+    }
+    if (op.getChildOperators() == null || op.getChildOperators().isEmpty()) {
+      return false;
+    }
+    for (Operator<? extends Serializable> child : op.getChildOperators()) {
+      if (!collectReduceSinks(child, sinks)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The sample is pushed through a copy of the plan, so that the operators
+   * of the submitted plan are never initialized here.
+   */
+  static MapredWork copyWork(MapredWork work, JobConf job) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utilities.serializeMapRedWork(work, out);
+    return Utilities.deserializeMapRedWork(
+        new ByteArrayInputStream(out.toByteArray()), job);
+  }
+
+  /**
+   * Pushes up to rowsPerAlias rows of alias through forwardOp, or all of its
+   * rows if rowsPerAlias is negative.
+   */
+  static void sampleAlias(MapredWork work, JobConf job, String alias,
+      Operator<? extends Serializable> forwardOp, int rowsPerAlias,
+      OutputCollector collector) throws HiveException {
+    List<String> paths = new ArrayList<String>();
+    for (Map.Entry<String, ArrayList<String>> entry : work.getPathToAliases()
+        .entrySet()) {
+      if (entry.getValue().contains(alias)) {
+        paths.add(entry.getKey());
+      }
+    }
+    if (paths.isEmpty()) {
+      return;
+    }
+    // spread the sample over all the paths of the alias
+    int rowsPerPath = rowsPerAlias < 0 ? Integer.MAX_VALUE
+        : Math.max(1, rowsPerAlias / paths.size());
+    List<PartitionDesc> partDescs = new ArrayList<PartitionDesc>();
+    for (String path : paths) {
+      partDescs.add(work.getPathToPartitionInfo().get(path));
+    }
+    samplePaths(job, paths, partDescs, forwardOp, rowsPerPath, collector);
+  }
+
+  /**
+   * Pushes the first rowsPerPath rows of every path through forwardOp. A path
+   * may be a directory or a single file; partDescs holds the partition of
+   * each path. The rows are the head of the path rather than a random
+   * sample, see the class comment.
+   */
+  static void samplePaths(JobConf job, List<String> paths,
+      List<PartitionDesc> partDescs, Operator<? extends Serializable> forwardOp,
+      int rowsPerPath, OutputCollector collector) throws HiveException {
+    JobConf jobClone = new JobConf(job);
+    if (forwardOp instanceof TableScanOperator
+        && ((TableScanOperator) forwardOp).getNeededColumnIDs() != null) {
+      ColumnProjectionUtils.appendReadColumnIDs(jobClone,
+          ((TableScanOperator) forwardOp).getNeededColumnIDs());
+    } else {
+      ColumnProjectionUtils.setFullyReadColumns(jobClone);
+    }
+
+    ExecMapperContext execContext = new ExecMapperContext();
+    execContext.setJc(jobClone);
+    forwardOp.setExecContext(execContext);
+
+    boolean initialized = false;
+    try {
+      for (int p = 0; p < paths.size(); p++) {
+        String path = paths.get(p);
+        PartitionDesc partDesc = partDescs.get(p);
+        FetchWork fetchWork;
+        if (partDesc.getPartSpec() == null || partDesc.getPartSpec().isEmpty()) {
+          fetchWork = new FetchWork(path, partDesc.getTableDesc());
+        } else {
+          List<String> partDir = new ArrayList<String>();
+          partDir.add(path);
+          List<PartitionDesc> fetchPartDescs = new ArrayList<PartitionDesc>();
+          fetchPartDescs.add(partDesc);
+          fetchWork = new FetchWork(partDir, fetchPartDescs);
+        }
+        FetchOperator fetchOp = new FetchOperator(fetchWork, new JobConf(jobClone));
+        if (!initialized) {
+          ObjectInspector objectInspector = fetchOp.getOutputObjectInspector();
+          if (objectInspector == null) {
+            continue;
+          }
+          forwardOp.initialize(jobClone, new ObjectInspector[] {objectInspector});
+          // initialize() clears the collector, so it is set afterwards as in ExecMapper
+          forwardOp.setOutputCollector(collector);
+          initialized = true;
+        }
+        for (int i = 0; i < rowsPerPath; i++) {
+          InspectableObject row = fetchOp.getNextRow();
+          if (row == null) {
+            break;
+          }
+          forwardOp.process(row.o, 0);
+          if (forwardOp.getDone()) {
+            break;
+          }
+        }
+        fetchOp.clearFetchContext();
+      }
+      if (initialized) {
+        forwardOp.close(false);
+      }
+    } catch (IOException e) {
+      throw new HiveException(e);
+    }
+  }
+}
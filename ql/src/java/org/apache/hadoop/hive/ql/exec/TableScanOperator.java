@@ -180,6 +180,18 @@ public class TableScanOperator extends Operator<TableScanDesc> implements
     return neededColumnIDs;
   }
 
+  // fields of the needed struct columns actually used by the query, as
+  // "column:field" pairs; a needed column that is not listed is read whole
+  java.util.ArrayList<String> neededNestedColumnIDs;
+
+  public void setNeededNestedColumnIDs(java.util.ArrayList<String> nestedIDs) {
+    neededNestedColumnIDs = nestedIDs;
+  }
+
+  public java.util.ArrayList<String> getNeededNestedColumnIDs() {
+    return neededNestedColumnIDs;
+  }
+
   @Override
   public OperatorType getType() {
     return OperatorType.TABLESCAN;
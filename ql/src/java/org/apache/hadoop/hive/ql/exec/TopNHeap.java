@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.io.HiveKey;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Keeps the n rows with the smallest serialized keys that were added to it.
+ * The serialized keys of a reduce sink sort in the order of the ORDER BY
+ * clause, so the rows kept are the first n rows the reducer would see.
+ *
+ * <p>
+ * The rows are held in a heap whose head is the largest key kept, so a row
+ * that cannot make it into the top n is rejected with a single comparison,
+ * before its value is even serialized.
+ */
+public class TopNHeap {
+
+  /**
+   * A row held in the heap: a copy of its key and value.
+   */
+  public static class Row {
+    private final byte[] key;
+    private final int hashCode;
+    private final Writable value;
+
+    Row(byte[] key, int hashCode, Writable value) {
+      this.key = key;
+      this.hashCode = hashCode;
+      this.value = value;
+    }
+
+    public byte[] getKey() {
+      return key;
+    }
+
+    public int getHashCode() {
+      return hashCode;
+    }
+
+    public Writable getValue() {
+      return value;
+    }
+  }
+
+  private static final Comparator<Row> ASCENDING = new Comparator<Row>() {
+    public int compare(Row o1, Row o2) {
+      return WritableComparator.compareBytes(o1.key, 0, o1.key.length,
+          o2.key, 0, o2.key.length);
+    }
+  };
+
+  private final int limit;
+  private final Configuration conf;
+  private final PriorityQueue<Row> heap;
+
+  public TopNHeap(int limit, Configuration conf) {
+    this.limit = limit;
+    this.conf = conf;
+    heap = new PriorityQueue<Row>(Math.max(1, limit) + 1,
+        Collections.reverseOrder(ASCENDING));
+  }
+
+  /**
+   * Returns whether a row with the given key would be kept.
+   */
+  public boolean accepts(byte[] key, int length) {
+    if (heap.size() < limit) {
+      return true;
+    }
+    if (limit == 0) {
+      return false;
+    }
+    byte[] largest = heap.peek().key;
+    return WritableComparator.compareBytes(key, 0, length, largest, 0,
+        largest.length) < 0;
+  }
+
+  /**
+   * Adds a copy of the row, evicting the row with the largest key if the heap
+   * is full. The caller should check accepts() first.
+   */
+  public void add(HiveKey key, Writable value) throws IOException {
+    byte[] keyBytes = new byte[key.getLength()];
+    System.arraycopy(key.get(), 0, keyBytes, 0, keyBytes.length);
+    heap.add(new Row(keyBytes, key.hashCode(), WritableUtils.clone(value, conf)));
+    if (heap.size() > limit) {
+      heap.poll();
+    }
+  }
+
+  public int size() {
+    return heap.size();
+  }
+
+  /**
+   * Removes all rows from the heap and returns them in key order.
+   */
+  public List<Row> drain() {
+    List<Row> rows = new ArrayList<Row>(heap);
+    heap.clear();
+    Collections.sort(rows, ASCENDING);
+    return rows;
+  }
+}
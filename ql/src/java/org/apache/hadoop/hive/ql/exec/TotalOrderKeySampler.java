@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.io.TotalOrderHivePartitioner;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * Picks the range boundaries of an ORDER BY that is sorted by several
+ * reducers (hive.optimize.totalorder), before its job is submitted.
+ *
+ * <p>
+ * A few files of every input directory are sampled and their rows pushed
+ * through a copy of the map side operator tree, the same way
+ * SkewJoinKeySampler samples the inputs of a join, so the reduce sink
+ * serializes the sampled keys exactly as it will in the job. The sorted keys
+ * are cut into as many ranges as there are reducers and the boundaries are
+ * written for TotalOrderHivePartitioner.
+ */
+public class TotalOrderKeySampler {
+
+  private static final Log LOG = LogFactory.getLog(TotalOrderKeySampler.class
+      .getName());
+
+  private static final Comparator<byte[]> BYTES_COMPARATOR = new Comparator<byte[]>() {
+    public int compare(byte[] o1, byte[] o2) {
+      return WritableComparator.compareBytes(o1, 0, o1.length, o2, 0, o2.length);
+    }
+  };
+
+  private final MapredWork work;
+  private final JobConf job;
+
+  public TotalOrderKeySampler(MapredWork work, JobConf job) {
+    this.work = work;
+    this.job = job;
+  }
+
+  /**
+   * Collects copies of the serialized keys that reach the reduce sink.
+   */
+  private static class KeyCollector implements OutputCollector {
+    private final List<byte[]> keys = new ArrayList<byte[]>();
+
+    public void collect(Object key, Object value) throws IOException {
+      BytesWritable keyWritable = (BytesWritable) key;
+      byte[] bytes = new byte[keyWritable.getLength()];
+      System.arraycopy(keyWritable.get(), 0, bytes, 0, bytes.length);
+      keys.add(bytes);
+    }
+  }
+
+  /**
+   * Returns whether the map side of work ends in reduce sinks that ask for a
+   * total order.
+   */
+  public static boolean isTotalOrder(MapredWork work) {
+    if (work.getReducer() == null) {
+      return false;
+    }
+    for (Operator<? extends Serializable> op : work.getAliasToWork().values()) {
+      List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+      SkewJoinKeySampler.collectReduceSinks(op, sinks);
+      for (ReduceSinkOperator rs : sinks) {
+        if (rs.getConf().isTotalOrder()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Samples the input and writes the range boundaries for the reducers of
+   * the job.
+   *
+   * @param tmpDir
+   *          the scratch directory to write the boundaries to
+   * @return the path of the boundaries, or null if the input could not be
+   *         sampled, in which case the job must use a single reducer
+   */
+  public Path sampleAndWrite(String tmpDir) throws HiveException {
+    int numReducers = job.getNumReduceTasks();
+    if (numReducers <= 1) {
+      return null;
+    }
+    // map joins need their hash tables, which are only built for the job
+    if (work.getMapLocalWork() != null) {
+      return null;
+    }
+    for (Operator<? extends Serializable> op : work.getAliasToWork().values()) {
+      List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+      if (!SkewJoinKeySampler.collectReduceSinks(op, sinks)) {
+        return null;
+      }
+      for (ReduceSinkOperator rs : sinks) {
+        if (!rs.getConf().isTotalOrder()) {
+          return null;
+        }
+      }
+    }
+
+    try {
+      int filesPerPath = HiveConf.getIntVar(job,
+          HiveConf.ConfVars.HIVEOPTTOTALORDERSAMPLEFILES);
+      int rowsPerFile = HiveConf.getIntVar(job,
+          HiveConf.ConfVars.HIVEOPTTOTALORDERSAMPLEROWS);
+      KeyCollector collector = new KeyCollector();
+      MapredWork copy = SkewJoinKeySampler.copyWork(work, job);
+      long start = System.currentTimeMillis();
+      for (Map.Entry<String, Operator<? extends Serializable>> entry : copy
+          .getAliasToWork().entrySet()) {
+        List<String> files = new ArrayList<String>();
+        List<PartitionDesc> partDescs = new ArrayList<PartitionDesc>();
+        for (Map.Entry<String, ArrayList<String>> pathEntry : work
+            .getPathToAliases().entrySet()) {
+          if (pathEntry.getValue().contains(entry.getKey())) {
+            PartitionDesc partDesc = work.getPathToPartitionInfo().get(
+                pathEntry.getKey());
+            for (Path file : selectFiles(new Path(pathEntry.getKey()), filesPerPath)) {
+              files.add(file.toString());
+              partDescs.add(partDesc);
+            }
+          }
+        }
+        if (!files.isEmpty()) {
+          SkewJoinKeySampler.samplePaths(job, files, partDescs, entry.getValue(),
+              rowsPerFile, collector);
+        }
+      }
+
+      List<byte[]> splitPoints = selectSplitPoints(collector.keys, numReducers);
+      LOG.info("Total order: sampled " + collector.keys.size() + " keys in "
+          + (System.currentTimeMillis() - start) + " ms, found "
+          + splitPoints.size() + " range boundaries");
+      if (splitPoints.isEmpty()) {
+        return null;
+      }
+
+      Path path = new Path(tmpDir, "totalorder-partitions");
+      FileSystem fs = path.getFileSystem(job);
+      DataOutputStream out = fs.create(path);
+      try {
+        TotalOrderHivePartitioner.writeSplitPoints(splitPoints, out);
+      } finally {
+        out.close();
+      }
+      return path;
+    } catch (IOException e) {
+      throw new HiveException(e);
+    }
+  }
+
+  /**
+   * Returns up to maxFiles non empty files of dir, spread evenly over its
+   * listing, or dir itself if it is a file.
+   */
+  private List<Path> selectFiles(Path dir, int maxFiles) throws IOException {
+    List<Path> result = new ArrayList<Path>();
+    FileSystem fs = dir.getFileSystem(job);
+    if (!fs.exists(dir)) {
+      return result;
+    }
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    for (FileStatus status : fs.listStatus(dir)) {
+      if (!status.isDir() && status.getLen() > 0) {
+        files.add(status);
+      }
+    }
+    if (files.isEmpty() && !fs.getFileStatus(dir).isDir()) {
+      result.add(dir);
+      return result;
+    }
+    Collections.sort(files, new Comparator<FileStatus>() {
+      public int compare(FileStatus o1, FileStatus o2) {
+        return o1.getPath().compareTo(o2.getPath());
+      }
+    });
+    int n = Math.min(maxFiles, files.size());
+    for (int i = 0; i < n; i++) {
+      result.add(files.get((int) ((long) i * files.size() / n)).getPath());
+    }
+    return result;
+  }
+
+  /**
+   * Sorts the sampled keys and returns at most numPartitions - 1 distinct
+   * keys that cut them into ranges of about the same size.
+   */
+  static List<byte[]> selectSplitPoints(List<byte[]> keys, int numPartitions) {
+    byte[][] sorted = keys.toArray(new byte[keys.size()][]);
+    Arrays.sort(sorted, BYTES_COMPARATOR);
+    List<byte[]> splitPoints = new ArrayList<byte[]>();
+    for (int i = 1; i < numPartitions && sorted.length > 0; i++) {
+      byte[] split = sorted[(int) ((long) i * sorted.length / numPartitions)];
+      if (splitPoints.isEmpty()
+          || BYTES_COMPARATOR.compare(splitPoints.get(splitPoints.size() - 1), split) < 0) {
+        splitPoints.add(split);
+      }
+    }
+    return splitPoints;
+  }
+}
@@ -59,6 +59,12 @@ import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -339,6 +345,27 @@ public final class Utilities {
     }
   }
 
+  /**
+   * Opens a file that the job may have shipped through the distributed cache.
+   * The task's localized copy is read if the file is among the job's cache
+   * files, and the file itself otherwise (e.g. in local mode). Files in the
+   * working directory are never used, since one left over from an earlier job
+   * could have the same name.
+   */
+  public static InputStream openCacheFile(Path path, Configuration conf) throws IOException {
+    URI[] cacheFiles = DistributedCache.getCacheFiles(conf);
+    Path[] localFiles = DistributedCache.getLocalCacheFiles(conf);
+    if (cacheFiles != null && localFiles != null) {
+      String pathStr = path.toUri().getPath();
+      for (int i = 0; i < cacheFiles.length && i < localFiles.length; i++) {
+        if (pathStr.equals(cacheFiles[i].getPath())) {
+          return FileSystem.getLocal(conf).open(localFiles[i]);
+        }
+      }
+    }
+    return path.getFileSystem(conf).open(path);
+  }
+
   public static String getHiveJobID(Configuration job) {
     String planPath = HiveConf.getVar(job, HiveConf.ConfVars.PLAN);
     if (planPath != null) {
@@ -932,6 +959,7 @@ public final class Utilities {
   }
 
   private static final String tmpPrefix = "_tmp.";
+  public static final String FILE_SEGMENT_PREFIX = "_segment";
 
   public static Path toTempPath(Path orig) {
     if (orig.getName().indexOf(tmpPrefix) == 0) {
@@ -1015,11 +1043,37 @@ public final class Utilities {
   }
 
   /**
-   * The first group will contain the task id. The second group is the optional extension. The file
-   * name looks like: "0_0" or "0_0.gz". There may be a leading prefix (tmp_). Since getTaskId() can
-   * return an integer only - this should match a pure integer as well
+   * The first group will contain the task id. The third group is the optional file segment and the
+   * fourth group is the optional extension. The file name looks like: "0_0", "0_0.gz" or
+   * "0_0_segment1.gz". There may be a leading prefix (tmp_). Since getTaskId() can return an
+   * integer only - this should match a pure integer as well
+   */
+  private static Pattern fileNameTaskIdRegex =
+      Pattern.compile("^.*?([0-9]+)(_[0-9])?(" + FILE_SEGMENT_PREFIX + "[0-9]+)?(\\..*)?$");
+
+  /**
+   * Get the file name of a later file written by the same task into the same directory.
+   *
+   * @param taskId
+   *          the output of getTaskId
+   * @param segment
+   *          the sequence number of the file, starting from 1
    */
-  private static Pattern fileNameTaskIdRegex = Pattern.compile("^.*?([0-9]+)(_[0-9])?(\\..*)?$");
+  public static String getSegmentFilename(String taskId, int segment) {
+    return taskId + FILE_SEGMENT_PREFIX + segment;
+  }
+
+  /**
+   * Get the file segment of the filename, or the empty string if the file is the first one
+   * written by its task.
+   */
+  public static String getSegmentFromFilename(String filename) {
+    Matcher m = fileNameTaskIdRegex.matcher(new Path(filename).getName());
+    if (m.matches() && m.group(3) != null) {
+      return m.group(3);
+    }
+    return "";
+  }
 
   /**
    * Get the task id from the filename. It is assumed that the filename is derived from the output
@@ -1204,7 +1258,9 @@ public final class Utilities {
           throw new IOException("Unable to delete tmp file: " + one.getPath());
         }
       } else {
-        String taskId = getTaskIdFromFilename(one.getPath().getName());
+        // different segments of a task are different files, not attempts of the same file
+        String taskId = getTaskIdFromFilename(one.getPath().getName())
+            + getSegmentFromFilename(one.getPath().getName());
         FileStatus otherFile = taskIdToFile.get(taskId);
         if (otherFile == null) {
           taskIdToFile.put(taskId, one);
@@ -1410,6 +1466,11 @@ public final class Utilities {
     }
   }
 
+  /**
+   * The name prefix of the threads that get the input content summaries.
+   */
+  static final String INPUT_SUMMARY_THREAD_PREFIX = "Get-Input-Summary-";
+
   /**
    * Calculate the total size of input files.
    *
@@ -1422,41 +1483,100 @@ public final class Utilities {
    * @return the summary of all the input paths.
    * @throws IOException
    */
-  public static ContentSummary getInputSummary(Context ctx, MapredWork work, PathFilter filter)
-      throws IOException {
+  public static ContentSummary getInputSummary(final Context ctx, MapredWork work,
+      PathFilter filter) throws IOException {
 
+    long startTime = System.currentTimeMillis();
     long[] summary = {0, 0, 0};
 
-    // For each input path, calculate the total size.
+    // Find the paths whose summaries are not cached in the context yet.
+    List<String> pathNeedProcess = new ArrayList<String>();
     for (String path : work.getPathToAliases().keySet()) {
-      try {
-        Path p = new Path(path);
+      Path p = new Path(path);
 
-        if (filter != null && !filter.accept(p)) {
-          continue;
-        }
+      if (filter != null && !filter.accept(p)) {
+        continue;
+      }
 
-        ContentSummary cs = ctx.getCS(path);
-        if (cs == null) {
-          FileSystem fs = p.getFileSystem(ctx.getConf());
-          cs = fs.getContentSummary(p);
-          ctx.addCS(path, cs);
-        }
+      ContentSummary cs = ctx.getCS(path);
+      if (cs == null) {
+        pathNeedProcess.add(path);
+        continue;
+      }
 
-        summary[0] += cs.getLength();
-        summary[1] += cs.getFileCount();
-        summary[2] += cs.getDirectoryCount();
+      summary[0] += cs.getLength();
+      summary[1] += cs.getFileCount();
+      summary[2] += cs.getDirectoryCount();
+    }
+
+    // Each content summary is a round trip to the NameNode, so get them
+    // concurrently if there are many.
+    int numThreads = Math.min(pathNeedProcess.size(), HiveConf.getIntVar(ctx.getConf(),
+        HiveConf.ConfVars.HIVE_EXEC_INPUT_LISTING_MAX_THREADS));
+    if (numThreads > 1) {
+      ExecutorService executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
 
-      } catch (IOException e) {
-        LOG.info("Cannot get size of " + path + ". Safely ignored.");
-        if (path != null) {
-          ctx.addCS(path, new ContentSummary(0, 0, 0));
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, INPUT_SUMMARY_THREAD_PREFIX + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          return t;
         }
+      });
+      try {
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (final String path : pathNeedProcess) {
+          results.add(executor.submit(new Runnable() {
+            public void run() {
+              addInputSummary(ctx, path);
+            }
+          }));
+        }
+        for (Future<?> result : results) {
+          result.get();
+        }
+      } catch (InterruptedException e) {
+        throw new IOException("Interrupted while getting the size of the input paths");
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
+    } else {
+      for (String path : pathNeedProcess) {
+        addInputSummary(ctx, path);
       }
     }
+
+    for (String path : pathNeedProcess) {
+      ContentSummary cs = ctx.getCS(path);
+      summary[0] += cs.getLength();
+      summary[1] += cs.getFileCount();
+      summary[2] += cs.getDirectoryCount();
+    }
+
+    if (!pathNeedProcess.isEmpty()) {
+      LOG.info("Got the content summaries of " + pathNeedProcess.size() + " input paths with "
+          + Math.max(numThreads, 1) + " threads in "
+          + (System.currentTimeMillis() - startTime) + " ms");
+    }
     return new ContentSummary(summary[0], summary[1], summary[2]);
   }
 
+  /**
+   * Get the content summary of one path and cache it in the context.
+   */
+  private static void addInputSummary(Context ctx, String path) {
+    try {
+      Path p = new Path(path);
+      FileSystem fs = p.getFileSystem(ctx.getConf());
+      ctx.addCS(path, fs.getContentSummary(p));
+    } catch (IOException e) {
+      LOG.info("Cannot get size of " + path + ". Safely ignored.");
+      ctx.addCS(path, new ContentSummary(0, 0, 0));
+    }
+  }
+
   public static boolean isEmptyPath(JobConf job, Path dirPath) throws Exception {
     FileSystem inpFs = dirPath.getFileSystem(job);
 
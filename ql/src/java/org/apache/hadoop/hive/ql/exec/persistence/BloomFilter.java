@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A bloom filter over byte sequences, used to drop the rows of a join input
+ * whose serialized join key cannot match any key of another input.
+ *
+ * A key is hashed once into 64 bits (MurmurHash64A); the two 32-bit halves
+ * drive the double hashing that picks its bits. Building code can therefore
+ * collect the distinct 64-bit hashes first and size the filter for their
+ * exact count.
+ *
+ * The step of the double hashing is made odd: the number of bits is a
+ * multiple of 64, and an even step would send several of the hashes of a
+ * key to the same bits.
+ */
+public class BloomFilter {
+
+  private final long[] bits;
+  private final long numBits;
+  private final int numHashes;
+
+  private BloomFilter(long[] bits, int numHashes) {
+    this.bits = bits;
+    this.numBits = (long) bits.length * 64;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Creates an empty filter sized for the given number of entries and false
+   * positive probability.
+   */
+  public static BloomFilter create(long expectedEntries, double fpp) {
+    long n = Math.max(1, expectedEntries);
+    long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.max(1, (m + 63) / 64);
+    int k = (int) Math.max(1, Math.round((double) words * 64 / n * Math.log(2)));
+    return new BloomFilter(new long[words], k);
+  }
+
+  public long getNumBits() {
+    return numBits;
+  }
+
+  public int getNumHashes() {
+    return numHashes;
+  }
+
+  public void add(byte[] bytes, int start, int len) {
+    addHash(hash64(bytes, start, len));
+  }
+
+  public boolean mightContain(byte[] bytes, int start, int len) {
+    return mightContainHash(hash64(bytes, start, len));
+  }
+
+  public void addHash(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 1; i <= numHashes; i++) {
+      long bit = index(h1 + i * h2);
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  public boolean mightContainHash(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 1; i <= numHashes; i++) {
+      long bit = index(h1 + i * h2);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long index(int combined) {
+    return (combined & 0xffffffffL) % numBits;
+  }
+
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(numHashes);
+    out.writeInt(bits.length);
+    for (long word : bits) {
+      out.writeLong(word);
+    }
+  }
+
+  public static BloomFilter read(DataInput in) throws IOException {
+    int numHashes = in.readInt();
+    long[] bits = new long[in.readInt()];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = in.readLong();
+    }
+    return new BloomFilter(bits, numHashes);
+  }
+
+  /**
+   * MurmurHash64A of a byte range.
+   */
+  public static long hash64(byte[] bytes, int start, int len) {
+    final long m = 0xc6a4a7935bd1e995L;
+    final int r = 47;
+    long h = 0x9747b28cL ^ (len * m);
+
+    int end = start + (len & ~7);
+    for (int i = start; i < end; i += 8) {
+      long k = (bytes[i] & 0xffL)
+          | (bytes[i + 1] & 0xffL) << 8
+          | (bytes[i + 2] & 0xffL) << 16
+          | (bytes[i + 3] & 0xffL) << 24
+          | (bytes[i + 4] & 0xffL) << 32
+          | (bytes[i + 5] & 0xffL) << 40
+          | (bytes[i + 6] & 0xffL) << 48
+          | (bytes[i + 7] & 0xffL) << 56;
+      k *= m;
+      k ^= k >>> r;
+      k *= m;
+      h ^= k;
+      h *= m;
+    }
+
+    int remaining = len & 7;
+    if (remaining > 0) {
+      for (int i = remaining - 1; i >= 0; i--) {
+        h ^= (bytes[end + i] & 0xffL) << (8 * i);
+      }
+      h *= m;
+    }
+
+    h ^= h >>> r;
+    h *= m;
+    h ^= h >>> r;
+    return h;
+  }
+}
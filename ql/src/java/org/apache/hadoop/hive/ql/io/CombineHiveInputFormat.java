@@ -312,6 +312,7 @@ public class CombineHiveInputFormat<K extends WritableComparable, V extends Writ
       CombineHiveInputSplit csplit = new CombineHiveInputSplit(job, is);
       result.add(csplit);
     }
+    result = limitSplits(result, job);
 
     LOG.info("number of splits " + result.size());
 
@@ -242,6 +242,12 @@ public class HiveInputFormat<K extends WritableComparable, V extends Writable>
     return rr;
   }
 
+  /**
+   * If set to a positive number, only the first splits that together hold
+   * this many bytes are read. Set by ExecDriver for LIMIT queries.
+   */
+  public static final String LIMIT_INPUT_SIZE = "hive.exec.limit.input.size";
+
   protected Map<String, PartitionDesc> pathToPartitionInfo;
   MapredWork mrwork = null;
 
@@ -288,6 +294,7 @@ public class HiveInputFormat<K extends WritableComparable, V extends Writable>
         result.add(new HiveInputSplit(is, inputFormatClass.getName()));
       }
     }
+    result = limitSplits(result, job);
     return result.toArray(new HiveInputSplit[result.size()]);
   }
 
@@ -315,6 +322,30 @@ public class HiveInputFormat<K extends WritableComparable, V extends Writable>
     }
   }
 
+  /**
+   * Returns the first splits that together hold at least LIMIT_INPUT_SIZE
+   * bytes, or all splits if it is not set.
+   */
+  protected static <T extends InputSplit> ArrayList<T> limitSplits(
+      ArrayList<T> splits, JobConf job) throws IOException {
+    long limit = job.getLong(LIMIT_INPUT_SIZE, -1);
+    if (limit <= 0) {
+      return splits;
+    }
+    ArrayList<T> result = new ArrayList<T>();
+    long size = 0;
+    for (T split : splits) {
+      if (size >= limit) {
+        break;
+      }
+      result.add(split);
+      size += split.getLength();
+    }
+    LOG.info("Reading " + result.size() + " of " + splits.size()
+        + " splits for a limit of " + limit + " bytes");
+    return result;
+  }
+
   protected static PartitionDesc getPartitionDescFromPath(
       Map<String, PartitionDesc> pathToPartitionInfo, Path dir)
       throws IOException {
@@ -411,7 +442,8 @@ public class HiveInputFormat<K extends WritableComparable, V extends Writable>
         // push down projections
         ArrayList<Integer> list = tableScan.getNeededColumnIDs();
         if (list != null) {
-          ColumnProjectionUtils.appendReadColumnIDs(jobConf, list);
+          ColumnProjectionUtils.appendReadColumnIDs(jobConf, list, tableScan
+              .getNeededNestedColumnIDs());
         } else {
           ColumnProjectionUtils.setFullyReadColumns(jobConf);
         }
@@ -27,7 +27,9 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.rmi.server.UID;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -154,6 +156,17 @@ public class RCFile {
 
   public static final String COLUMN_NUMBER_CONF_STR = "hive.io.rcfile.column.number.conf";
 
+  /**
+   * The number of columns that each column of the table takes in the file,
+   * separated by commas. It is only set when some table column is stored in
+   * more than one column. The reader then maps the ids of the table columns
+   * to read to the columns in the file, and hands the layout to the SerDe
+   * with each row, see {@link BytesRefArrayWritable#getColumnLayout()}.
+   */
+  public static final String COLUMN_LAYOUT_METADATA_STR = "hive.io.rcfile.column.layout";
+
+  public static final String COLUMN_LAYOUT_CONF_STR = "hive.io.rcfile.column.layout.conf";
+
   /*
    * these header and Sync are kept from SequenceFile, for compatible of
    * SequenceFile's format.
@@ -662,6 +675,11 @@ public class RCFile {
       }
       metadata.set(new Text(COLUMN_NUMBER_METADATA_STR), new Text(""
           + columnNumber));
+      String columnLayout = conf.get(COLUMN_LAYOUT_CONF_STR, "");
+      if (columnLayout.length() > 0) {
+        metadata.set(new Text(COLUMN_LAYOUT_METADATA_STR), new Text(
+            columnLayout));
+      }
 
       columnsBufferSize = conf.getInt(COLUMNS_BUFFER_SIZE_CONF_STR,
           4 * 1024 * 1024);
@@ -959,6 +977,9 @@ public class RCFile {
 
     int[] prjColIDs = null; // selected column IDs
 
+    // the number of columns each table column takes, or null if one each
+    private int[] columnLayout = null;
+
     /** Create a new RCFile reader. */
     public Reader(FileSystem fs, Path file, Configuration conf) throws IOException {
       this(fs, file, conf.getInt("io.file.buffer.size", 4096), conf, 0, fs
@@ -1000,6 +1021,11 @@ public class RCFile {
       columnNumber = Integer.parseInt(metadata.get(
           new Text(COLUMN_NUMBER_METADATA_STR)).toString());
 
+      Text layout = metadata.get(new Text(COLUMN_LAYOUT_METADATA_STR));
+      if (layout != null) {
+        columnLayout = parseColumnLayout(layout.toString());
+      }
+
       java.util.ArrayList<Integer> notSkipIDs = ColumnProjectionUtils
           .getReadColumnIDs(conf);
       skippedColIDs = new boolean[columnNumber];
@@ -1007,6 +1033,10 @@ public class RCFile {
         for (int i = 0; i < skippedColIDs.length; i++) {
           skippedColIDs[i] = true;
         }
+        if (columnLayout != null) {
+          notSkipIDs = getFileColumnIDs(notSkipIDs, ColumnProjectionUtils
+              .getReadNestedColumnIDs(conf), columnLayout);
+        }
         for (int read : notSkipIDs) {
           if (read < columnNumber) {
             skippedColIDs[read] = false;
@@ -1055,6 +1085,62 @@ public class RCFile {
       currentValue = new ValueBuffer(null, columnNumber, skippedColIDs, codec);
     }
     
+    /**
+     * Parse the number of columns that each table column takes in the file,
+     * separated by commas.
+     */
+    static int[] parseColumnLayout(String columnLayout) {
+      String[] counts = columnLayout.split(",");
+      int[] layout = new int[counts.length];
+      for (int i = 0; i < counts.length; i++) {
+        layout[i] = Integer.parseInt(counts[i]);
+      }
+      return layout;
+    }
+
+    /**
+     * Map the ids of the table columns to read to the ids of the columns in
+     * the file. A table column that takes several columns is stored as one
+     * column that is always read, followed by one column for each of its
+     * fields, of which only those in nestedColumnIDs are read if it has an
+     * entry there.
+     *
+     * @param tableColumnIDs
+     *          the ids of the table columns to read
+     * @param nestedColumnIDs
+     *          the fields to read of the table columns not read whole
+     * @param columnLayout
+     *          the number of columns that each table column takes in the file
+     */
+    static ArrayList<Integer> getFileColumnIDs(
+        ArrayList<Integer> tableColumnIDs,
+        Map<Integer, ArrayList<Integer>> nestedColumnIDs, int[] columnLayout) {
+      int[] firstColumn = new int[columnLayout.length + 1];
+      for (int i = 0; i < columnLayout.length; i++) {
+        firstColumn[i + 1] = firstColumn[i] + columnLayout[i];
+      }
+      ArrayList<Integer> fileColumnIDs = new ArrayList<Integer>();
+      for (int read : tableColumnIDs) {
+        if (read >= columnLayout.length) {
+          continue;
+        }
+        ArrayList<Integer> fields = nestedColumnIDs.get(read);
+        if (fields == null || columnLayout[read] == 1) {
+          for (int i = firstColumn[read]; i < firstColumn[read + 1]; i++) {
+            fileColumnIDs.add(i);
+          }
+        } else {
+          fileColumnIDs.add(firstColumn[read]);
+          for (int field : fields) {
+            if (field + 1 < columnLayout[read]) {
+              fileColumnIDs.add(firstColumn[read] + 1 + field);
+            }
+          }
+        }
+      }
+      return fileColumnIDs;
+    }
+
     /**
      * Override this method to specialize the type of
      * {@link FSDataInputStream} returned.
@@ -1427,6 +1513,7 @@ public class RCFile {
         // tell the caller how to initialize the valid size
         ret.resetValid(columnNumber);
       }
+      ret.setColumnLayout(columnLayout);
 
       // we do not use BytesWritable here to avoid the byte-copy from
       // DataOutputStream to BytesWritable
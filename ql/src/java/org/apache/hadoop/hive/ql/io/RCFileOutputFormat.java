@@ -27,6 +27,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.serde2.columnar.BytesRefArrayWritable;
+import org.apache.hadoop.hive.serde2.columnar.LazyBinaryColumnarSerDe;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -133,7 +134,19 @@ public class RCFileOutputFormat extends
       cols = StringUtils.split(columns, ",");
     }
 
-    RCFileOutputFormat.setColumnNumber(jc, cols.length);
+    // a shredded table column takes several columns in the file
+    int[] layout = LazyBinaryColumnarSerDe.getColumnLayout(tableProperties);
+    int columnNumber = cols.length;
+    StringBuilder columnLayout = new StringBuilder();
+    if (layout != null) {
+      columnNumber = 0;
+      for (int i = 0; i < layout.length; i++) {
+        columnNumber += layout[i];
+        columnLayout.append(i == 0 ? "" : ",").append(layout[i]);
+      }
+    }
+    RCFileOutputFormat.setColumnNumber(jc, columnNumber);
+    jc.set(RCFile.COLUMN_LAYOUT_CONF_STR, columnLayout.toString());
     final RCFile.Writer outWriter = Utilities.createRCFileWriter
       (jc, finalOutPath.getFileSystem(jc),
        finalOutPath, isCompressed);
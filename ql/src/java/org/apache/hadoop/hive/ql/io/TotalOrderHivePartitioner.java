@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * Partitions serialized keys into contiguous ranges, so that the output of
+ * reducer i sorts entirely before the output of reducer i + 1. The range
+ * boundaries are read from the file named by {@link #PARTITION_FILE}, which
+ * holds numPartitions - 1 sorted keys; see TotalOrderKeySampler.
+ */
+public class TotalOrderHivePartitioner<V2> extends
+    DefaultHivePartitioner<HiveKey, V2> {
+
+  public static final String PARTITION_FILE = "hive.exec.totalorder.partition.file";
+
+  private byte[][] splitPoints;
+
+  @Override
+  public void configure(JobConf job) {
+    String pathStr = job.get(PARTITION_FILE);
+    if (pathStr == null) {
+      throw new RuntimeException(PARTITION_FILE + " is not set");
+    }
+    try {
+      // the file is shipped through the distributed cache on a cluster
+      InputStream in = Utilities.openCacheFile(new Path(pathStr), job);
+      DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+      try {
+        splitPoints = readSplitPoints(dataIn);
+      } finally {
+        dataIn.close();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public int getPartition(HiveKey key, V2 value, int numPartitions) {
+    int partition = findPartition(splitPoints, key.get(), key.getLength());
+    return Math.min(partition, numPartitions - 1);
+  }
+
+  /**
+   * Returns the number of split points that are less than or equal to key.
+   */
+  public static int findPartition(byte[][] splitPoints, byte[] key, int length) {
+    int low = 0;
+    int high = splitPoints.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      byte[] split = splitPoints[mid];
+      if (WritableComparator.compareBytes(split, 0, split.length, key, 0,
+          length) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  public static void writeSplitPoints(List<byte[]> splitPoints, DataOutput out)
+      throws IOException {
+    out.writeInt(splitPoints.size());
+    for (byte[] split : splitPoints) {
+      out.writeInt(split.length);
+      out.write(split);
+    }
+  }
+
+  public static byte[][] readSplitPoints(DataInput in) throws IOException {
+    byte[][] splitPoints = new byte[in.readInt()][];
+    for (int i = 0; i < splitPoints.length; i++) {
+      splitPoints[i] = new byte[in.readInt()];
+      in.readFully(splitPoints[i]);
+    }
+    return splitPoints;
+  }
+}
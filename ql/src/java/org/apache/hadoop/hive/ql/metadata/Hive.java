@@ -45,6 +45,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FsShell;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
 import org.apache.hadoop.hive.metastore.HiveMetaException;
 import org.apache.hadoop.hive.metastore.HiveMetaHook;
 import org.apache.hadoop.hive.metastore.HiveMetaHookLoader;
@@ -408,6 +409,62 @@ public class Hive {
     }
   }
 
+  /**
+   * Stores column statistics of a table.
+   *
+   * @param tbl
+   *          the table the statistics were computed on
+   * @param stats
+   *          statistics keyed by column name
+   * @throws HiveException
+   */
+  public void updateColumnStatistics(Table tbl, Map<String, ColumnStatistics> stats)
+      throws HiveException {
+    try {
+      getMSC().updateTableColumnStatistics(tbl.getDbName(), tbl.getTableName(), stats);
+    } catch (Exception e) {
+      throw new HiveException("Unable to update column statistics of "
+          + tbl.getTableName(), e);
+    }
+  }
+
+  /**
+   * Stores column statistics of a partition.
+   *
+   * @param part
+   *          the partition the statistics were computed on
+   * @param stats
+   *          statistics keyed by column name
+   * @throws HiveException
+   */
+  public void updateColumnStatistics(Partition part, Map<String, ColumnStatistics> stats)
+      throws HiveException {
+    Table tbl = part.getTable();
+    try {
+      getMSC().updatePartitionColumnStatistics(tbl.getDbName(), tbl.getTableName(),
+          part.getName(), stats);
+    } catch (Exception e) {
+      throw new HiveException("Unable to update column statistics of "
+          + tbl.getTableName() + " " + part.getName(), e);
+    }
+  }
+
+  /**
+   * Returns the column statistics of a table, keyed by lower case column name.
+   * Columns that were never analyzed are absent.
+   */
+  public Map<String, ColumnStatistics> getColumnStatistics(Table tbl) {
+    return ColumnStatistics.getFromParameters(tbl.getParameters());
+  }
+
+  /**
+   * Returns the column statistics of a partition, keyed by lower case column name.
+   * Columns that were never analyzed are absent.
+   */
+  public Map<String, ColumnStatistics> getColumnStatistics(Partition part) {
+    return ColumnStatistics.getFromParameters(part.getParameters());
+  }
+
   public void alterDatabase(String dbName, Database db)
       throws HiveException {
     try {
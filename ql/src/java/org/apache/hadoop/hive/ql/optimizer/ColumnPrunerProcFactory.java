@@ -22,6 +22,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -56,7 +57,9 @@ import org.apache.hadoop.hive.ql.parse.OpParseContext;
 import org.apache.hadoop.hive.ql.parse.RowResolver;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
 import org.apache.hadoop.hive.ql.plan.AggregationDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeFieldDesc;
 import org.apache.hadoop.hive.ql.plan.GroupByDesc;
 import org.apache.hadoop.hive.ql.plan.JoinDesc;
 import org.apache.hadoop.hive.ql.plan.MapJoinDesc;
@@ -65,6 +68,10 @@ import org.apache.hadoop.hive.ql.plan.ReduceSinkDesc;
 import org.apache.hadoop.hive.ql.plan.SelectDesc;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 
 /**
  * Factory for generating the different node processors used by ColumnPruner.
@@ -179,6 +186,11 @@ public final class ColumnPrunerProcFactory {
       cppCtx.getPrunedColLists().put((Operator<? extends Serializable>) nd,
           cols);
       ArrayList<Integer> needed_columns = new ArrayList<Integer>();
+      ArrayList<String> needed_nested_columns = new ArrayList<String>();
+      Map<String, Set<String>> usedFields = new HashMap<String, Set<String>>();
+      if (!getUsedFields(scanOp, usedFields)) {
+        usedFields.clear();
+      }
       RowResolver inputRR = cppCtx.getOpToParseCtxMap().get(scanOp).getRowResolver();
       TableScanDesc desc = scanOp.getConf();
       List<VirtualColumn> virtualCols = desc.getVirtualCols();
@@ -204,13 +216,99 @@ public final class ColumnPrunerProcFactory {
         int position = inputRR.getPosition(cols.get(i));
         if (position >=0) {
           needed_columns.add(position);
+          Set<String> fields = usedFields.get(cols.get(i));
+          List<Integer> fieldIDs = fields == null ? null : getFieldIDs(colInfo
+              .getType(), fields);
+          if (fieldIDs != null) {
+            for (Integer fieldID : fieldIDs) {
+              needed_nested_columns.add(position + ":" + fieldID);
+            }
+          }
         }
       }
 
       desc.setVirtualCols(newVirtualCols);
       scanOp.setNeededColumnIDs(needed_columns);
+      scanOp.setNeededNestedColumnIDs(needed_nested_columns);
+      return null;
+    }
+  }
+
+  /**
+   * Collects the fields of the struct columns that the children of a table
+   * scan access. A column that is used as a whole maps to null.
+   *
+   * @return false if some child could not be analyzed
+   */
+  static boolean getUsedFields(Operator<? extends Serializable> op,
+      Map<String, Set<String>> usedFields) {
+    List<Operator<? extends Serializable>> children = op.getChildOperators();
+    if (children == null || children.isEmpty()) {
+      return false;
+    }
+    for (Operator<? extends Serializable> child : children) {
+      if (child instanceof FilterOperator) {
+        addUsedFields(((FilterOperator) child).getConf().getPredicate(),
+            usedFields);
+        // the filter forwards its input rows unchanged
+        if (!getUsedFields(child, usedFields)) {
+          return false;
+        }
+      } else if (child instanceof SelectOperator
+          && !((SelectOperator) child).getConf().isSelStarNoCompute()) {
+        for (ExprNodeDesc expr : ((SelectOperator) child).getConf()
+            .getColList()) {
+          addUsedFields(expr, usedFields);
+        }
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static void addUsedFields(ExprNodeDesc expr,
+      Map<String, Set<String>> usedFields) {
+    if (expr instanceof ExprNodeFieldDesc
+        && ((ExprNodeFieldDesc) expr).getDesc() instanceof ExprNodeColumnDesc) {
+      String column = ((ExprNodeColumnDesc) ((ExprNodeFieldDesc) expr)
+          .getDesc()).getColumn();
+      if (!usedFields.containsKey(column)) {
+        usedFields.put(column, new HashSet<String>());
+      }
+      Set<String> fields = usedFields.get(column);
+      if (fields != null) {
+        fields.add(((ExprNodeFieldDesc) expr).getFieldName().toLowerCase());
+      }
+    } else if (expr instanceof ExprNodeColumnDesc) {
+      usedFields.put(((ExprNodeColumnDesc) expr).getColumn(), null);
+    } else if (expr != null && expr.getChildren() != null) {
+      for (ExprNodeDesc child : expr.getChildren()) {
+        addUsedFields(child, usedFields);
+      }
+    }
+  }
+
+  /**
+   * Gets the positions of the named fields in a struct or array of structs.
+   *
+   * @return null if the type has no such fields
+   */
+  static List<Integer> getFieldIDs(TypeInfo type, Set<String> fields) {
+    if (type.getCategory() == Category.LIST) {
+      type = ((ListTypeInfo) type).getListElementTypeInfo();
+    }
+    if (type.getCategory() != Category.STRUCT) {
       return null;
     }
+    List<String> names = ((StructTypeInfo) type).getAllStructFieldNames();
+    List<Integer> fieldIDs = new ArrayList<Integer>();
+    for (int i = 0; i < names.size(); i++) {
+      if (fields.contains(names.get(i).toLowerCase())) {
+        fieldIDs.add(i);
+      }
+    }
+    return fieldIDs.size() == fields.size() ? fieldIDs : null;
   }
 
   /**
@@ -8,8 +8,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.exec.ConditionalTask;
 import org.apache.hadoop.hive.ql.exec.JoinOperator;
 import org.apache.hadoop.hive.ql.exec.MapRedTask;
@@ -92,6 +94,7 @@ public class CommonJoinResolver implements PhysicalPlanResolver {
       JoinDesc joinDesc = joinOp.getConf();
       Byte[] order = joinDesc.getTagOrder();
       int numAliases = order.length;
+      HashMap<String, Long> aliasToKnownSize = null;
       try {
         HashSet<Integer> smallTableOnlySet = MapJoinProcessor.getSmallTableOnlySet(joinDesc
             .getConds());
@@ -99,6 +102,25 @@ public class CommonJoinResolver implements PhysicalPlanResolver {
         if (smallTableOnlySet == null) {
           return null;
         }
+
+        // estimate the hash table sizes from the metastore statistics; if they
+        // cover the small tables and no big table choice fits into memory, the
+        // local task would only fail, so keep the common join
+        if (HiveConf.getBoolVar(parseCtx.getConf(), HiveConf.ConfVars.HIVECONVERTJOINUSESTATS)) {
+          aliasToKnownSize = MapJoinSizeEstimator.estimateHashTableSizes(currWork, joinOp,
+              parseCtx);
+          Set<String> candidates = MapJoinSizeEstimator.getBigTableCandidates(currWork, joinOp,
+              smallTableOnlySet);
+          String estimatedBigTableAlias = candidates == null ? null
+              : ConditionalResolverCommonJoin.getEstimatedBigTableAlias(aliasToKnownSize,
+              candidates);
+          if (estimatedBigTableAlias != null
+              && ConditionalResolverCommonJoin.getSmallTablesKnownSize(aliasToKnownSize,
+              estimatedBigTableAlias) > HiveConf.getLongVar(parseCtx.getConf(),
+              HiveConf.ConfVars.HIVESMALLTABLESESTIMATEDSIZE)) {
+            return null;
+          }
+        }
         currWork.setOpParseCtxMap(parseCtx.getOpParseCtx());
         currWork.setJoinTree(joinTree);
 
@@ -169,6 +191,7 @@ public class CommonJoinResolver implements PhysicalPlanResolver {
       ConditionalResolverCommonJoinCtx resolverCtx = new ConditionalResolverCommonJoinCtx();
       resolverCtx.setAliasToPath(aliasToPath);
       resolverCtx.setAliasToTask(aliasToTask);
+      resolverCtx.setAliasToKnownSize(aliasToKnownSize);
       resolverCtx.setCommonJoinTask(currTask);
       cndTsk.setResolverCtx(resolverCtx);
 
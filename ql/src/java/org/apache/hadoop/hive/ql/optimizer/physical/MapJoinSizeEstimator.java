@@ -0,0 +1,469 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.optimizer.physical;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
+import org.apache.hadoop.hive.ql.exec.FilterOperator;
+import org.apache.hadoop.hive.ql.exec.JoinOperator;
+import org.apache.hadoop.hive.ql.exec.Operator;
+import org.apache.hadoop.hive.ql.exec.ReduceSinkOperator;
+import org.apache.hadoop.hive.ql.exec.SelectOperator;
+import org.apache.hadoop.hive.ql.exec.TableScanOperator;
+import org.apache.hadoop.hive.ql.metadata.Partition;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.parse.ParseContext;
+import org.apache.hadoop.hive.ql.parse.PrunedPartitionList;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+import org.apache.hadoop.hive.ql.stats.StatsSetupConst;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNotNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+
+/**
+ * MapJoinSizeEstimator.
+ *
+ * Estimates how much memory the hash table of each input of a common join
+ * would take if that input were a small table of a map join. The estimate
+ * starts from the row counts and column statistics kept in the metastore and
+ * applies the filters and the projection found between the table scan and the
+ * reduce sink feeding the join, so a selective filter over a big file is not
+ * penalized and a small file that expands into a big hash table is not trusted.
+ *
+ * Inputs whose size cannot be estimated (no row count, intermediate results,
+ * operators other than filters and selects on the way to the join) are
+ * reported as {@link #UNKNOWN_SIZE}.
+ */
+public final class MapJoinSizeEstimator {
+
+  private static final Log LOG = LogFactory.getLog(MapJoinSizeEstimator.class.getName());
+
+  public static final long UNKNOWN_SIZE = -1L;
+
+  // java objects behind one row of the hash table: the map entry, the key and
+  // value wrappers and the row containers
+  static final int ROW_OVERHEAD = 96;
+  // the writable holding a single field
+  static final int FIELD_OVERHEAD = 16;
+  // used for strings without column statistics
+  static final int DEFAULT_STRING_LENGTH = 32;
+  // used for maps, lists and structs
+  static final int DEFAULT_COMPLEX_LENGTH = 128;
+
+  private MapJoinSizeEstimator() {
+  }
+
+  /**
+   * Estimates the hash table size of every alias of the given join work.
+   *
+   * @return the estimate in bytes per alias, or UNKNOWN_SIZE for the aliases
+   *         which cannot be estimated
+   */
+  public static HashMap<String, Long> estimateHashTableSizes(MapredWork work,
+      JoinOperator joinOp, ParseContext parseCtx) {
+    HashMap<String, Long> aliasToSize = new HashMap<String, Long>();
+    for (Map.Entry<String, Operator<? extends Serializable>> entry : work.getAliasToWork()
+        .entrySet()) {
+      long size = estimateHashTableSize(entry.getValue(), joinOp, parseCtx);
+      LOG.info("Estimated hash table size of " + entry.getKey() + ": " + size);
+      aliasToSize.put(entry.getKey(), Long.valueOf(size));
+    }
+    return aliasToSize;
+  }
+
+  /**
+   * Returns the aliases of the join inputs which may be the big table, i.e.
+   * whose position is not in smallTableOnlySet; or null if an input cannot be
+   * traced down to the join.
+   */
+  public static Set<String> getBigTableCandidates(MapredWork work, JoinOperator joinOp,
+      Set<Integer> smallTableOnlySet) {
+    Set<String> candidates = new HashSet<String>();
+    for (Map.Entry<String, Operator<? extends Serializable>> entry : work.getAliasToWork()
+        .entrySet()) {
+      Operator<? extends Serializable> parentOp = null;
+      Operator<? extends Serializable> childOp = entry.getValue();
+      while (childOp != null && childOp != joinOp) {
+        List<Operator<? extends Serializable>> children = childOp.getChildOperators();
+        if (children == null || children.size() != 1) {
+          return null;
+        }
+        parentOp = childOp;
+        childOp = children.get(0);
+      }
+      if (childOp == null) {
+        return null;
+      }
+      int pos = joinOp.getParentOperators().indexOf(parentOp);
+      if (!smallTableOnlySet.contains(pos)) {
+        candidates.add(entry.getKey());
+      }
+    }
+    return candidates;
+  }
+
+  private static long estimateHashTableSize(Operator<? extends Serializable> topOp,
+      JoinOperator joinOp, ParseContext parseCtx) {
+    if (!(topOp instanceof TableScanOperator)) {
+      return UNKNOWN_SIZE;
+    }
+    TableScanOperator tableScanOp = (TableScanOperator) topOp;
+    Table tbl = parseCtx.getTopToTable().get(tableScanOp);
+    if (tbl == null) {
+      return UNKNOWN_SIZE;
+    }
+
+    // trace down the operator tree to the reduce sink feeding the join
+    List<FilterOperator> filters = new ArrayList<FilterOperator>();
+    Operator<? extends Serializable> op = tableScanOp;
+    while (!(op instanceof ReduceSinkOperator)) {
+      List<Operator<? extends Serializable>> children = op.getChildOperators();
+      if (children == null || children.size() != 1) {
+        return UNKNOWN_SIZE;
+      }
+      op = children.get(0);
+      if (op instanceof FilterOperator) {
+        filters.add((FilterOperator) op);
+      } else if (!(op instanceof SelectOperator) && !(op instanceof ReduceSinkOperator)) {
+        return UNKNOWN_SIZE;
+      }
+    }
+    ReduceSinkOperator rsOp = (ReduceSinkOperator) op;
+    if (rsOp.getChildOperators() == null || !rsOp.getChildOperators().contains(joinOp)) {
+      return UNKNOWN_SIZE;
+    }
+
+    // collect the row count and the column statistics of the scanned data
+    List<Map<String, String>> parameters = new ArrayList<Map<String, String>>();
+    if (tbl.isPartitioned()) {
+      PrunedPartitionList partsList = parseCtx.getOpToPartList().get(tableScanOp);
+      if (partsList == null) {
+        return UNKNOWN_SIZE;
+      }
+      Set<Partition> parts = new LinkedHashSet<Partition>(partsList.getConfirmedPartns());
+      parts.addAll(partsList.getUnknownPartns());
+      for (Partition part : parts) {
+        parameters.add(part.getParameters());
+      }
+    } else {
+      parameters.add(tbl.getParameters());
+    }
+    long numRows = 0;
+    long[] rowCounts = new long[parameters.size()];
+    for (int i = 0; i < rowCounts.length; i++) {
+      rowCounts[i] = getRowCount(parameters.get(i));
+      if (rowCounts[i] < 0) {
+        return UNKNOWN_SIZE;
+      }
+      numRows += rowCounts[i];
+    }
+    Map<String, ColumnStatistics> stats = mergeColumnStatistics(parameters, rowCounts);
+
+    double selectivity = 1.0;
+    for (FilterOperator filter : filters) {
+      selectivity *= getSelectivity(filter.getConf().getPredicate(),
+          filter.getParentOperators().get(0), tbl, stats, numRows);
+    }
+
+    Operator<? extends Serializable> rsInput = rsOp.getParentOperators().get(0);
+    long rowSize = ROW_OVERHEAD;
+    for (ExprNodeDesc expr : rsOp.getConf().getKeyCols()) {
+      rowSize += getFieldSize(expr, rsInput, stats);
+    }
+    for (ExprNodeDesc expr : rsOp.getConf().getValueCols()) {
+      rowSize += getFieldSize(expr, rsInput, stats);
+    }
+    return (long) Math.ceil(numRows * selectivity) * rowSize;
+  }
+
+  /**
+   * Returns the number of rows recorded in the given table or partition
+   * parameters, or -1 if no statistics were gathered.
+   */
+  static long getRowCount(Map<String, String> parameters) {
+    String rows = parameters == null ? null : parameters.get(StatsSetupConst.ROW_COUNT);
+    if (rows == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(rows);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Merges the column statistics of several partitions. Only the columns
+   * analyzed in all the partitions are kept: the distinct count is the largest
+   * one, the null count the sum and the average length is weighted by the
+   * partition row counts.
+   */
+  static Map<String, ColumnStatistics> mergeColumnStatistics(
+      List<Map<String, String>> parameters, long[] rowCounts) {
+    Map<String, ColumnStatistics> merged = null;
+    long totalRows = 0;
+    for (int i = 0; i < parameters.size(); i++) {
+      Map<String, ColumnStatistics> partStats =
+          ColumnStatistics.getFromParameters(parameters.get(i));
+      if (merged == null) {
+        merged = partStats;
+        totalRows = rowCounts[i];
+        continue;
+      }
+      merged.keySet().retainAll(partStats.keySet());
+      long rows = totalRows + rowCounts[i];
+      for (Map.Entry<String, ColumnStatistics> entry : merged.entrySet()) {
+        ColumnStatistics acc = entry.getValue();
+        ColumnStatistics cs = partStats.get(entry.getKey());
+        acc.setNumDistincts(Math.max(acc.getNumDistincts(), cs.getNumDistincts()));
+        acc.setNumNulls(acc.getNumNulls() + cs.getNumNulls());
+        acc.setMaxLength(Math.max(acc.getMaxLength(), cs.getMaxLength()));
+        if (rows > 0) {
+          acc.setAvgLength((acc.getAvgLength() * totalRows + cs.getAvgLength() * rowCounts[i])
+              / rows);
+        }
+        acc.setMin(mergeBound(acc.getMin(), cs.getMin(), true));
+        acc.setMax(mergeBound(acc.getMax(), cs.getMax(), false));
+      }
+      totalRows = rows;
+    }
+    return merged == null ? new HashMap<String, ColumnStatistics>() : merged;
+  }
+
+  /**
+   * Returns the lower (or upper) of two partition bounds, keeping integer
+   * bounds exact, or null if either partition has none.
+   */
+  private static Number mergeBound(Number a, Number b, boolean lower) {
+    if (a == null || b == null) {
+      return null;
+    }
+    if (a instanceof Long && b instanceof Long) {
+      long x = a.longValue();
+      long y = b.longValue();
+      return Long.valueOf(lower ? Math.min(x, y) : Math.max(x, y));
+    }
+    double x = a.doubleValue();
+    double y = b.doubleValue();
+    return Double.valueOf(lower ? Math.min(x, y) : Math.max(x, y));
+  }
+
+  /**
+   * Returns the estimated number of bytes taken in memory by one field.
+   */
+  static long getFieldSize(TypeInfo typeInfo, ColumnStatistics stats) {
+    if (typeInfo.getCategory() != Category.PRIMITIVE) {
+      return FIELD_OVERHEAD + DEFAULT_COMPLEX_LENGTH;
+    }
+    switch (((PrimitiveTypeInfo) typeInfo).getPrimitiveCategory()) {
+    case BOOLEAN:
+    case BYTE:
+      return FIELD_OVERHEAD + 1;
+    case SHORT:
+      return FIELD_OVERHEAD + 2;
+    case INT:
+    case FLOAT:
+      return FIELD_OVERHEAD + 4;
+    case LONG:
+    case DOUBLE:
+      return FIELD_OVERHEAD + 8;
+    case STRING:
+      if (stats != null) {
+        return FIELD_OVERHEAD + (long) Math.ceil(stats.getAvgLength());
+      }
+      return FIELD_OVERHEAD + DEFAULT_STRING_LENGTH;
+    default:
+      return FIELD_OVERHEAD;
+    }
+  }
+
+  private static long getFieldSize(ExprNodeDesc expr, Operator<? extends Serializable> input,
+      Map<String, ColumnStatistics> stats) {
+    return getFieldSize(expr.getTypeInfo(), getColumnStatistics(expr, input, stats));
+  }
+
+  /**
+   * Returns the fraction of rows that pass the predicate. Conjunctions and
+   * disjunctions are combined assuming independence, equality with a constant
+   * uses the distinct count and range comparisons with a constant interpolate
+   * between the column minimum and maximum. Anything else, and predicates on
+   * partition columns (already accounted for by partition pruning), is
+   * assumed to keep every row.
+   */
+  static double getSelectivity(ExprNodeDesc expr, Operator<? extends Serializable> input,
+      Table tbl, Map<String, ColumnStatistics> stats, long numRows) {
+    if (!(expr instanceof ExprNodeGenericFuncDesc)) {
+      return 1.0;
+    }
+    GenericUDF udf = ((ExprNodeGenericFuncDesc) expr).getGenericUDF();
+    List<ExprNodeDesc> children = expr.getChildren();
+
+    if (udf instanceof GenericUDFOPAnd) {
+      double selectivity = 1.0;
+      for (ExprNodeDesc child : children) {
+        selectivity *= getSelectivity(child, input, tbl, stats, numRows);
+      }
+      return selectivity;
+    }
+    if (udf instanceof GenericUDFOPOr) {
+      double selectivity = 0.0;
+      for (ExprNodeDesc child : children) {
+        double s = getSelectivity(child, input, tbl, stats, numRows);
+        selectivity = selectivity + s - selectivity * s;
+      }
+      return selectivity;
+    }
+    if (udf instanceof GenericUDFOPNull || udf instanceof GenericUDFOPNotNull) {
+      ColumnStatistics cs = getUnpartitionedColumnStatistics(children.get(0), input, tbl, stats);
+      if (cs == null || numRows <= 0) {
+        return 1.0;
+      }
+      double nullFraction = Math.min(1.0, (double) cs.getNumNulls() / numRows);
+      return udf instanceof GenericUDFOPNull ? nullFraction : 1.0 - nullFraction;
+    }
+    if (children.size() != 2) {
+      return 1.0;
+    }
+
+    // a column compared with a constant, in either order
+    int colIndex;
+    if (children.get(0) instanceof ExprNodeColumnDesc
+        && children.get(1) instanceof ExprNodeConstantDesc) {
+      colIndex = 0;
+    } else if (children.get(1) instanceof ExprNodeColumnDesc
+        && children.get(0) instanceof ExprNodeConstantDesc) {
+      colIndex = 1;
+    } else {
+      return 1.0;
+    }
+    ColumnStatistics cs = getUnpartitionedColumnStatistics(children.get(colIndex), input, tbl,
+        stats);
+    if (cs == null) {
+      return 1.0;
+    }
+    if (udf instanceof GenericUDFOPEqual) {
+      return cs.getNumDistincts() > 0 ? 1.0 / cs.getNumDistincts() : 1.0;
+    }
+
+    boolean below;
+    if (udf instanceof GenericUDFOPLessThan || udf instanceof GenericUDFOPEqualOrLessThan) {
+      below = colIndex == 0;
+    } else if (udf instanceof GenericUDFOPGreaterThan
+        || udf instanceof GenericUDFOPEqualOrGreaterThan) {
+      below = colIndex == 1;
+    } else {
+      return 1.0;
+    }
+    Object value = ((ExprNodeConstantDesc) children.get(1 - colIndex)).getValue();
+    if (!(value instanceof Number)) {
+      return 1.0;
+    }
+    return getRangeSelectivity(cs, ((Number) value).doubleValue(), below);
+  }
+
+  /**
+   * Returns the fraction of the column values below (or above) the given
+   * value, assuming they are spread uniformly between the minimum and the
+   * maximum.
+   */
+  static double getRangeSelectivity(ColumnStatistics cs, double value, boolean below) {
+    if (cs.getMin() == null || cs.getMax() == null) {
+      return 1.0;
+    }
+    double min = cs.getMin().doubleValue();
+    double max = cs.getMax().doubleValue();
+    if (max <= min) {
+      return 1.0;
+    }
+    double fraction = Math.max(0.0, Math.min(1.0, (value - min) / (max - min)));
+    return below ? fraction : 1.0 - fraction;
+  }
+
+  private static ColumnStatistics getUnpartitionedColumnStatistics(ExprNodeDesc expr,
+      Operator<? extends Serializable> input, Table tbl, Map<String, ColumnStatistics> stats) {
+    if (!(expr instanceof ExprNodeColumnDesc)) {
+      return null;
+    }
+    String column = resolveTableColumn(input, ((ExprNodeColumnDesc) expr).getColumn());
+    if (column == null || tbl.isPartitionKey(column.toLowerCase())) {
+      return null;
+    }
+    return stats.get(column.toLowerCase());
+  }
+
+  private static ColumnStatistics getColumnStatistics(ExprNodeDesc expr,
+      Operator<? extends Serializable> input, Map<String, ColumnStatistics> stats) {
+    if (!(expr instanceof ExprNodeColumnDesc)) {
+      return null;
+    }
+    String column = resolveTableColumn(input, ((ExprNodeColumnDesc) expr).getColumn());
+    return column == null ? null : stats.get(column.toLowerCase());
+  }
+
+  /**
+   * Follows an output column of the given operator back to the table scan.
+   *
+   * @return the table column it is a plain copy of, or null if it is computed
+   */
+  static String resolveTableColumn(Operator<? extends Serializable> op, String column) {
+    while (op != null) {
+      if (op instanceof TableScanOperator) {
+        return column;
+      }
+      Map<String, ExprNodeDesc> colExprMap = op.getColumnExprMap();
+      if (colExprMap != null) {
+        ExprNodeDesc expr = colExprMap.get(column);
+        if (!(expr instanceof ExprNodeColumnDesc)) {
+          return null;
+        }
+        column = ((ExprNodeColumnDesc) expr).getColumn();
+      }
+      List<Operator<? extends Serializable>> parents = op.getParentOperators();
+      if (parents == null || parents.size() != 1) {
+        return null;
+      }
+      op = parents.get(0);
+    }
+    return null;
+  }
+}
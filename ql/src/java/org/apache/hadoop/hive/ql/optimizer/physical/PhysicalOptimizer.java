@@ -46,6 +46,9 @@ public class PhysicalOptimizer {
    */
   private void initialize(HiveConf hiveConf) {
     resolvers = new ArrayList<PhysicalPlanResolver>();
+    // the follow-up map join jobs are kept with the in-job skew join too: they
+    // handle the joins where the sampling finds no hot key or cannot run, and
+    // SkewJoinKeySampler turns them off for the joins it annotates
     if (hiveConf.getBoolVar(HiveConf.ConfVars.HIVESKEWJOIN)) {
       resolvers.add(new SkewJoinResolver());
     }
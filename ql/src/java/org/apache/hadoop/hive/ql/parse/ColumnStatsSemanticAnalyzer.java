@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.parse;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.ql.exec.FetchTask;
+import org.apache.hadoop.hive.ql.exec.Task;
+import org.apache.hadoop.hive.ql.exec.TaskFactory;
+import org.apache.hadoop.hive.ql.hooks.WriteEntity;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.metadata.Partition;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.parse.BaseSemanticAnalyzer.tableSpec.SpecType;
+import org.apache.hadoop.hive.ql.plan.ColumnStatsWork;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * ColumnStatsSemanticAnalyzer. Handles
+ *   ANALYZE TABLE t [PARTITION (...)] COMPUTE STATISTICS FOR COLUMNS [c1, c2, ...]
+ * by rewriting it into
+ *   SELECT compute_stats(c1, p), compute_stats(c2, p), ..., partcols FROM t
+ *   [WHERE static partition spec] [GROUP BY partcols]
+ * so that the statistics of all columns are gathered in a single scan, with
+ * map-side partial aggregation. The result rows are stored in the metastore
+ * by a ColumnStatsTask instead of being fetched by the client.
+ *
+ */
+public class ColumnStatsSemanticAnalyzer extends SemanticAnalyzer {
+
+  public ColumnStatsSemanticAnalyzer(HiveConf conf) throws SemanticException {
+    super(conf);
+  }
+
+  @Override
+  public void analyzeInternal(ASTNode ast) throws SemanticException {
+    ASTNode tabNode = (ASTNode) ast.getChild(0);
+
+    // Allow analyzing the whole table and dynamic partitions, as for basic stats
+    HiveConf.setVar(conf, HiveConf.ConfVars.DYNAMICPARTITIONINGMODE, "nonstrict");
+    HiveConf.setVar(conf, HiveConf.ConfVars.HIVEMAPREDMODE, "nonstrict");
+    tableSpec ts = new tableSpec(db, conf, tabNode);
+    Table tab = ts.tableHandle;
+    if (tab.isView() || tab.isNonNative()) {
+      throw new SemanticException(ErrorMsg.GENERIC_ERROR.getMsg(tabNode,
+          "Cannot compute column statistics of a view or a non-native table"));
+    }
+
+    List<String> colNames = getColumnNames(ast, tab);
+    if (colNames.isEmpty()) {
+      throw new SemanticException(ErrorMsg.COLUMNSTATS_NOT_PRIMITIVE.getMsg(tabNode));
+    }
+    // Rows are grouped by all partition columns, the static ones are also
+    // filtered on so that only the given partitions are scanned.
+    List<String> partColNames = new ArrayList<String>();
+    List<String> staticPredicates = new ArrayList<String>();
+    for (FieldSchema fs : tab.getPartCols()) {
+      partColNames.add(fs.getName());
+      String val = ts.partSpec == null ? null : ts.partSpec.get(fs.getName().toLowerCase());
+      if (val != null) {
+        staticPredicates.add(quote(fs.getName()) + " = '" + escapeString(val) + "'");
+      }
+    }
+
+    String rewritten = genRewrittenQuery(tab.getTableName(), colNames, partColNames,
+        staticPredicates, conf.getIntVar(HiveConf.ConfVars.HIVE_STATS_NDV_PRECISION));
+    ASTNode rewrittenTree;
+    try {
+      ParseDriver pd = new ParseDriver();
+      rewrittenTree = ParseUtils.findRootNonNullToken(pd.parse(rewritten));
+    } catch (ParseException e) {
+      throw new SemanticException(e.getMessage(), e);
+    }
+    super.analyzeInternal(rewrittenTree);
+
+    // Store the rows in the metastore instead of returning them
+    FetchTask fetch = getFetchTask();
+    if (fetch == null) {
+      throw new SemanticException(ErrorMsg.GENERIC_ERROR.getMsg(
+          "Column statistics query has no result"));
+    }
+    setFetchTask(null);
+    ColumnStatsWork cStatsWork = new ColumnStatsWork(fetch.getWork(), tab.getTableName(),
+        colNames, partColNames);
+    Task<ColumnStatsWork> cStatsTask = TaskFactory.get(cStatsWork, conf);
+    Set<Task<? extends Serializable>> visited = new HashSet<Task<? extends Serializable>>();
+    for (Task<? extends Serializable> rootTask : rootTasks) {
+      addToLeaves(rootTask, cStatsTask, visited);
+    }
+
+    outputs.add(new WriteEntity(tab, true));
+    try {
+      if (ts.specType == SpecType.STATIC_PARTITION) {
+        outputs.add(new WriteEntity(ts.partHandle, true));
+      } else if (ts.specType == SpecType.DYNAMIC_PARTITION) {
+        for (Partition part : db.getPartitionsByNames(tab, ts.partSpec)) {
+          outputs.add(new WriteEntity(part, true));
+        }
+      } else if (tab.isPartitioned()) {
+        for (Partition part : db.getPartitions(tab)) {
+          outputs.add(new WriteEntity(part, true));
+        }
+      }
+    } catch (HiveException e) {
+      throw new SemanticException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public List<FieldSchema> getResultSchema() {
+    // nothing is returned to the client
+    return null;
+  }
+
+  private List<String> getColumnNames(ASTNode ast, Table tab) throws SemanticException {
+    List<String> colNames = new ArrayList<String>();
+    ASTNode colList = null;
+    for (int i = 1; i < ast.getChildCount(); i++) {
+      if (((ASTNode) ast.getChild(i)).getToken().getType() == HiveParser.TOK_TABCOLNAME) {
+        colList = (ASTNode) ast.getChild(i);
+      }
+    }
+
+    if (colList == null) {
+      // all columns of a supported type
+      for (FieldSchema fs : tab.getCols()) {
+        if (isPrimitive(fs)) {
+          colNames.add(fs.getName());
+        }
+      }
+      return colNames;
+    }
+
+    for (int i = 0; i < colList.getChildCount(); i++) {
+      ASTNode colNode = (ASTNode) colList.getChild(i);
+      String name = unescapeIdentifier(colNode.getText()).toLowerCase();
+      FieldSchema found = null;
+      for (FieldSchema fs : tab.getCols()) {
+        if (fs.getName().equalsIgnoreCase(name)) {
+          found = fs;
+        }
+      }
+      if (found == null) {
+        throw new SemanticException(ErrorMsg.INVALID_COLUMN.getMsg(colNode));
+      }
+      if (!isPrimitive(found)) {
+        throw new SemanticException(ErrorMsg.COLUMNSTATS_NOT_PRIMITIVE.getMsg(colNode));
+      }
+      if (!colNames.contains(found.getName())) {
+        colNames.add(found.getName());
+      }
+    }
+    return colNames;
+  }
+
+  private static boolean isPrimitive(FieldSchema fs) {
+    TypeInfo ti = TypeInfoUtils.getTypeInfoFromTypeString(fs.getType());
+    return ti.getCategory() == org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector
+        .Category.PRIMITIVE && !fs.getType().equals(Constants.VOID_TYPE_NAME);
+  }
+
+  static String genRewrittenQuery(String tableName, List<String> colNames,
+      List<String> partColNames, List<String> staticPredicates, int precision) {
+    StringBuilder sb = new StringBuilder("SELECT ");
+    for (int i = 0; i < colNames.size(); i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append("compute_stats(").append(quote(colNames.get(i))).append(", ")
+          .append(precision).append(")");
+    }
+    for (String partCol : partColNames) {
+      sb.append(", ").append(quote(partCol));
+    }
+    sb.append(" FROM ").append(quote(tableName));
+    if (!staticPredicates.isEmpty()) {
+      sb.append(" WHERE ");
+      for (int i = 0; i < staticPredicates.size(); i++) {
+        if (i > 0) {
+          sb.append(" AND ");
+        }
+        sb.append(staticPredicates.get(i));
+      }
+    }
+    if (!partColNames.isEmpty()) {
+      sb.append(" GROUP BY ");
+      for (int i = 0; i < partColNames.size(); i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(quote(partColNames.get(i)));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String quote(String identifier) {
+    return "`" + identifier + "`";
+  }
+
+  private static String escapeString(String val) {
+    return val.replace("\\", "\\\\").replace("'", "\\'");
+  }
+
+  private static void addToLeaves(Task<? extends Serializable> task,
+      Task<? extends Serializable> leaf, Set<Task<? extends Serializable>> visited) {
+    if (!visited.add(task)) {
+      return;
+    }
+    List<Task<? extends Serializable>> children = task.getDependentTasks();
+    if (children == null || children.isEmpty()) {
+      task.addDependentTask(leaf);
+      return;
+    }
+    for (Task<? extends Serializable> child : children) {
+      addToLeaves(child, leaf, visited);
+    }
+  }
+}
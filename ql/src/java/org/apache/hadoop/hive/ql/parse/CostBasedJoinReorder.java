@@ -0,0 +1,472 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.parse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.antlr.runtime.CommonToken;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.stats.StatsSetupConst;
+
+/**
+ * Cost-based reordering of a chain of inner joins.
+ *
+ * The join expression of a query block is flattened into its tables and the
+ * conjuncts of its ON clauses, and the left-deep order minimizing the
+ * intermediate data is searched for by dynamic programming over the subsets of
+ * tables. The cost of an order is the data shuffled by every common join plus
+ * the data materialized between the joins; a join whose new table is small
+ * enough to be converted into a map join (hive.auto.convert.join) does not
+ * shuffle. Join cardinalities use the distinct value counts of the join keys
+ * when they were analyzed, and otherwise assume a foreign key to primary key
+ * join.
+ *
+ * The join expression is then rebuilt in the chosen order, each ON clause
+ * holding the conjuncts whose tables have been joined. The estimates of every
+ * rebuilt join are recorded so that EXPLAIN can show them.
+ *
+ * The expression is left as written when a table has no row count, when a
+ * source is not a plain table, when an outer or semi join is involved, or
+ * when a conjunct cannot be attributed to one or two tables.
+ */
+public class CostBasedJoinReorder {
+
+  private static final Log LOG = LogFactory.getLog(CostBasedJoinReorder.class.getName());
+
+  // the search is exponential in the number of tables
+  static final int MAX_TABLES = 12;
+  // used for tables without a total size
+  static final long DEFAULT_ROW_WIDTH = 100;
+
+  /**
+   * A table of the join.
+   */
+  static class Source {
+    final String alias;
+    final ASTNode node;
+    final long rows;
+    final long width;
+    final boolean small;
+    final Map<String, ColumnStatistics> colStats;
+
+    Source(String alias, ASTNode node, long rows, long width, boolean small,
+        Map<String, ColumnStatistics> colStats) {
+      this.alias = alias;
+      this.node = node;
+      this.rows = rows;
+      this.width = width;
+      this.small = small;
+      this.colStats = colStats;
+    }
+
+    long getNumDistincts(String column) {
+      ColumnStatistics cs = column == null ? null : colStats.get(column);
+      return cs == null || cs.getNumDistincts() <= 0 ? -1 : cs.getNumDistincts();
+    }
+  }
+
+  /**
+   * A conjunct of the ON clauses. An equality between columns of two tables
+   * is a join predicate; a conjunct on a single table is a filter.
+   */
+  static class Conjunct {
+    final ASTNode node;
+    final int mask;
+    final int left;
+    final int right;
+    final String leftColumn;
+    final String rightColumn;
+
+    Conjunct(ASTNode node, int mask, int left, int right, String leftColumn,
+        String rightColumn) {
+      this.node = node;
+      this.mask = mask;
+      this.left = left;
+      this.right = right;
+      this.leftColumn = leftColumn;
+      this.rightColumn = rightColumn;
+    }
+
+    boolean isJoinPredicate() {
+      return right >= 0;
+    }
+  }
+
+  /**
+   * A left-deep plan over a subset of the tables.
+   */
+  static class Plan {
+    final Plan prev;
+    final int source;
+    final int mask;
+    final double rows;
+    final double width;
+    final double cost;
+    final boolean mapJoin;
+
+    Plan(Plan prev, int source, int mask, double rows, double width, double cost,
+        boolean mapJoin) {
+      this.prev = prev;
+      this.source = source;
+      this.mask = mask;
+      this.rows = rows;
+      this.width = width;
+      this.cost = cost;
+      this.mapJoin = mapJoin;
+    }
+  }
+
+  private final boolean autoConvertJoin;
+  private final long smallTableSize;
+
+  public CostBasedJoinReorder(HiveConf conf) {
+    autoConvertJoin = HiveConf.getBoolVar(conf, HiveConf.ConfVars.HIVECONVERTJOIN);
+    smallTableSize = HiveConf.getLongVar(conf, HiveConf.ConfVars.HIVESMALLTABLESFILESIZE);
+  }
+
+  /**
+   * Reorders the join expression of the query block.
+   *
+   * @param joinCosts
+   *          receives the description of the estimates of every rebuilt join
+   * @return the rebuilt join expression, or the given one if it cannot be
+   *         costed
+   */
+  public ASTNode reorder(QB qb, ASTNode joinExpr, Map<ASTNode, String> joinCosts) {
+    List<ASTNode> sourceNodes = new ArrayList<ASTNode>();
+    List<ASTNode> conjunctNodes = new ArrayList<ASTNode>();
+    if (!flatten(joinExpr, sourceNodes, conjunctNodes)) {
+      return joinExpr;
+    }
+    if (sourceNodes.size() < 3 || sourceNodes.size() > MAX_TABLES) {
+      return joinExpr;
+    }
+
+    Source[] sources = new Source[sourceNodes.size()];
+    Map<String, Integer> aliasToPos = new HashMap<String, Integer>();
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = getSource(qb, sourceNodes.get(i));
+      if (sources[i] == null || aliasToPos.containsKey(sources[i].alias)) {
+        return joinExpr;
+      }
+      aliasToPos.put(sources[i].alias, Integer.valueOf(i));
+    }
+
+    List<Conjunct> conjuncts = new ArrayList<Conjunct>();
+    for (ASTNode node : conjunctNodes) {
+      Conjunct conjunct = getConjunct(node, aliasToPos);
+      if (conjunct == null) {
+        return joinExpr;
+      }
+      conjuncts.add(conjunct);
+    }
+
+    Plan best = search(sources, conjuncts);
+    if (best == null) {
+      // the tables are not all connected by join predicates
+      return joinExpr;
+    }
+    return rebuild(best, sources, conjuncts, joinCosts);
+  }
+
+  /**
+   * Collects the tables and the ON conjuncts of a tree of inner joins.
+   *
+   * @return false if the tree holds anything else
+   */
+  private boolean flatten(ASTNode node, List<ASTNode> sources, List<ASTNode> conjuncts) {
+    switch (node.getToken().getType()) {
+    case HiveParser.TOK_JOIN:
+      if (node.getChildCount() != 3) {
+        return false;
+      }
+      if (!flatten((ASTNode) node.getChild(0), sources, conjuncts)
+          || !flatten((ASTNode) node.getChild(1), sources, conjuncts)) {
+        return false;
+      }
+      splitConjuncts((ASTNode) node.getChild(2), conjuncts);
+      return true;
+    case HiveParser.TOK_TABREF:
+      sources.add(node);
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private void splitConjuncts(ASTNode cond, List<ASTNode> conjuncts) {
+    if (cond.getToken().getType() == HiveParser.KW_AND) {
+      splitConjuncts((ASTNode) cond.getChild(0), conjuncts);
+      splitConjuncts((ASTNode) cond.getChild(1), conjuncts);
+    } else {
+      conjuncts.add(cond);
+    }
+  }
+
+  private Source getSource(QB qb, ASTNode tabRef) {
+    for (int i = 1; i < tabRef.getChildCount(); i++) {
+      if (tabRef.getChild(i).getType() == HiveParser.TOK_TABLESAMPLE) {
+        return null;
+      }
+    }
+    String tableName = BaseSemanticAnalyzer.unescapeIdentifier(tabRef.getChild(0).getText());
+    String alias = tabRef.getChildCount() == 1 ? tableName
+        : BaseSemanticAnalyzer.unescapeIdentifier(tabRef.getChild(
+        tabRef.getChildCount() - 1).getText());
+    alias = alias.toLowerCase();
+    Table tbl = qb.getMetaData().getSrcForAlias(alias);
+    if (tbl == null) {
+      return null;
+    }
+
+    Map<String, String> parameters = tbl.getParameters();
+    long rows = getLongParameter(parameters, StatsSetupConst.ROW_COUNT);
+    if (rows < 0) {
+      LOG.info("No row count for " + tbl.getTableName() + ", joins are not reordered");
+      return null;
+    }
+    long size = getLongParameter(parameters, StatsSetupConst.TOTAL_SIZE);
+    long width = DEFAULT_ROW_WIDTH;
+    if (size >= 0 && rows > 0) {
+      width = Math.max(1, size / rows);
+    }
+    boolean small = autoConvertJoin && size >= 0 && size <= smallTableSize;
+    return new Source(alias, tabRef, rows, width, small,
+        ColumnStatistics.getFromParameters(parameters));
+  }
+
+  private static long getLongParameter(Map<String, String> parameters, String key) {
+    String value = parameters == null ? null : parameters.get(key);
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private Conjunct getConjunct(ASTNode node, Map<String, Integer> aliasToPos) {
+    Set<String> aliases = new HashSet<String>();
+    if (!collectAliases(node, aliases)) {
+      return null;
+    }
+    int mask = 0;
+    for (String alias : aliases) {
+      Integer pos = aliasToPos.get(alias);
+      if (pos == null) {
+        return null;
+      }
+      mask |= 1 << pos.intValue();
+    }
+    if (aliases.size() <= 1) {
+      return new Conjunct(node, mask, aliases.isEmpty() ? -1
+          : aliasToPos.get(aliases.iterator().next()).intValue(), -1, null, null);
+    }
+    if (aliases.size() != 2 || node.getToken().getType() != HiveParser.EQUAL) {
+      return null;
+    }
+
+    // an equality between one table on each side
+    ASTNode leftSide = (ASTNode) node.getChild(0);
+    ASTNode rightSide = (ASTNode) node.getChild(1);
+    Set<String> leftAliases = new HashSet<String>();
+    Set<String> rightAliases = new HashSet<String>();
+    collectAliases(leftSide, leftAliases);
+    collectAliases(rightSide, rightAliases);
+    if (leftAliases.size() != 1 || rightAliases.size() != 1) {
+      return null;
+    }
+    return new Conjunct(node, mask,
+        aliasToPos.get(leftAliases.iterator().next()).intValue(),
+        aliasToPos.get(rightAliases.iterator().next()).intValue(),
+        getColumnName(leftSide), getColumnName(rightSide));
+  }
+
+  /**
+   * Collects the table aliases referenced by an expression.
+   *
+   * @return false if a column is not qualified by its table alias
+   */
+  private boolean collectAliases(ASTNode node, Set<String> aliases) {
+    if (node.getToken().getType() == HiveParser.DOT
+        && ((ASTNode) node.getChild(0)).getToken().getType() == HiveParser.TOK_TABLE_OR_COL) {
+      aliases.add(BaseSemanticAnalyzer.unescapeIdentifier(
+          node.getChild(0).getChild(0).getText()).toLowerCase());
+      return true;
+    }
+    if (node.getToken().getType() == HiveParser.TOK_TABLE_OR_COL) {
+      return false;
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      if (!collectAliases((ASTNode) node.getChild(i), aliases)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String getColumnName(ASTNode node) {
+    if (node.getToken().getType() != HiveParser.DOT) {
+      return null;
+    }
+    return BaseSemanticAnalyzer.unescapeIdentifier(node.getChild(1).getText()).toLowerCase();
+  }
+
+  /**
+   * Finds the cheapest left-deep order, joining at each step a table connected
+   * to the already joined ones by a join predicate.
+   */
+  Plan search(Source[] sources, List<Conjunct> conjuncts) {
+    int full = (1 << sources.length) - 1;
+    Plan[] best = new Plan[full + 1];
+    for (int i = 0; i < sources.length; i++) {
+      best[1 << i] = new Plan(null, i, 1 << i, sources[i].rows, sources[i].width, 0, false);
+    }
+    for (int mask = 1; mask < full; mask++) {
+      Plan plan = best[mask];
+      if (plan == null) {
+        continue;
+      }
+      for (int t = 0; t < sources.length; t++) {
+        int newMask = mask | (1 << t);
+        if (newMask == mask) {
+          continue;
+        }
+        Plan next = join(plan, sources, t, conjuncts, newMask == full);
+        if (next != null && (best[newMask] == null || next.cost < best[newMask].cost)) {
+          best[newMask] = next;
+        }
+      }
+    }
+    return best[full];
+  }
+
+  private Plan join(Plan left, Source[] sources, int t, List<Conjunct> conjuncts,
+      boolean last) {
+    Source right = sources[t];
+    double rows = -1;
+    for (Conjunct conjunct : conjuncts) {
+      if (!conjunct.isJoinPredicate()) {
+        continue;
+      }
+      int leftPos;
+      String leftColumn;
+      String rightColumn;
+      if (conjunct.right == t && (left.mask & (1 << conjunct.left)) != 0) {
+        leftPos = conjunct.left;
+        leftColumn = conjunct.leftColumn;
+        rightColumn = conjunct.rightColumn;
+      } else if (conjunct.left == t && (left.mask & (1 << conjunct.right)) != 0) {
+        leftPos = conjunct.right;
+        leftColumn = conjunct.rightColumn;
+        rightColumn = conjunct.leftColumn;
+      } else {
+        continue;
+      }
+      double estimate = estimateJoinRows(left.rows, sources[leftPos].getNumDistincts(leftColumn),
+          right.rows, right.getNumDistincts(rightColumn));
+      rows = rows < 0 ? estimate : Math.min(rows, estimate);
+    }
+    if (rows < 0) {
+      return null;
+    }
+
+    boolean mapJoin = right.small || (left.prev == null && sources[left.source].small);
+    double cost = left.cost;
+    if (!mapJoin) {
+      cost += left.rows * left.width + right.rows * right.width;
+    }
+    double width = left.width + right.width;
+    if (!last) {
+      cost += rows * width;
+    }
+    return new Plan(left, t, left.mask | (1 << t), rows, width, cost, mapJoin);
+  }
+
+  /**
+   * Estimates the rows of an equi-join. With the distinct counts of both keys
+   * every key value of the side with fewer distinct values is assumed to match;
+   * otherwise the join is assumed to look up a key of the smaller side.
+   */
+  static double estimateJoinRows(double leftRows, long leftDistincts, double rightRows,
+      long rightDistincts) {
+    if (leftDistincts <= 0 || rightDistincts <= 0) {
+      return Math.max(leftRows, rightRows);
+    }
+    double leftNdv = Math.max(1, Math.min(leftDistincts, leftRows));
+    double rightNdv = Math.max(1, Math.min(rightDistincts, rightRows));
+    return Math.max(1, leftRows * rightRows / Math.max(leftNdv, rightNdv));
+  }
+
+  private ASTNode rebuild(Plan best, Source[] sources, List<Conjunct> conjuncts,
+      Map<ASTNode, String> joinCosts) {
+    List<Plan> steps = new ArrayList<Plan>();
+    for (Plan plan = best; plan != null; plan = plan.prev) {
+      steps.add(0, plan);
+    }
+
+    Set<Conjunct> placed = new HashSet<Conjunct>();
+    ASTNode tree = sources[steps.get(0).source].node;
+    StringBuilder order = new StringBuilder(sources[steps.get(0).source].alias);
+    for (int i = 1; i < steps.size(); i++) {
+      Plan step = steps.get(i);
+      ASTNode cond = null;
+      for (Conjunct conjunct : conjuncts) {
+        if (placed.contains(conjunct) || (conjunct.mask & ~step.mask) != 0) {
+          continue;
+        }
+        placed.add(conjunct);
+        if (cond == null) {
+          cond = conjunct.node;
+        } else {
+          ASTNode and = new ASTNode(new CommonToken(HiveParser.KW_AND, "AND"));
+          and.addChild(cond);
+          and.addChild(conjunct.node);
+          cond = and;
+        }
+      }
+      ASTNode join = new ASTNode(new CommonToken(HiveParser.TOK_JOIN, "TOK_JOIN"));
+      join.addChild(tree);
+      join.addChild(sources[step.source].node);
+      join.addChild(cond);
+      joinCosts.put(join, describe(step));
+      tree = join;
+      order.append(", ").append(sources[step.source].alias);
+    }
+    LOG.info("Join order: " + order + " with estimated cost " + (long) best.cost);
+    return tree;
+  }
+
+  private static String describe(Plan step) {
+    return "rows: " + (long) step.rows + ", bytes: " + (long) (step.rows * step.width)
+        + ", cumulative cost: " + (long) step.cost
+        + (step.mapJoin ? ", map join" : ", common join");
+  }
+}
@@ -169,6 +169,7 @@ public enum ErrorMsg {
   OUTERJOIN_USES_FILTERS("The query results could be wrong. " +
   		"Turn on hive.outerjoin.supports.filters"),
   NEED_PARTITION_SPECIFICATION("Table is partitioned and partition specification is needed"),
+  COLUMNSTATS_NOT_PRIMITIVE("Column statistics can only be computed on primitive type columns"),
       ;
 
   private String mesg;
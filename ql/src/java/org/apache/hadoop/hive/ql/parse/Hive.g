@@ -728,7 +728,8 @@ descStatement
 analyzeStatement
 @init { msgs.push("analyze statement"); }
 @after { msgs.pop(); }
-    : KW_ANALYZE KW_TABLE (parttype=partTypeExpr) KW_COMPUTE KW_STATISTICS -> ^(TOK_ANALYZE $parttype)
+    : KW_ANALYZE KW_TABLE (parttype=partTypeExpr) KW_COMPUTE KW_STATISTICS (KW_FOR KW_COLUMNS (statsColumnName=columnNameList)?)?
+      -> ^(TOK_ANALYZE $parttype KW_COLUMNS? $statsColumnName?)
     ;
 
 showStatement
@@ -2065,6 +2066,7 @@ KW_CAST: 'CAST';
 KW_ADD: 'ADD';
 KW_REPLACE: 'REPLACE';
 KW_COLUMNS: 'COLUMNS';
+KW_FOR: 'FOR';
 KW_RLIKE: 'RLIKE';
 KW_REGEXP: 'REGEXP';
 KW_TEMPORARY: 'TEMPORARY';
@@ -60,6 +60,9 @@ public class QBJoinTree implements Serializable{
   // big tables that should be streamed
   private List<String> streamAliases;
 
+  // estimates of the cost-based join reordering, if it rebuilt this join
+  private String estimatedCost;
+
   /**
    * constructor.
    */
@@ -229,6 +232,14 @@ public class QBJoinTree implements Serializable{
     this.streamAliases = streamAliases;
   }
 
+  public String getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  public void setEstimatedCost(String estimatedCost) {
+    this.estimatedCost = estimatedCost;
+  }
+
   /**
    * Insert only a key to the semijoin table name to column names map.
    *
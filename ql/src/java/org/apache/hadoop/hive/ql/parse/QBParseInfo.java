@@ -80,6 +80,7 @@ public class QBParseInfo {
   private final HashMap<String, ASTNode> destToOrderby;
   private final HashMap<String, Integer> destToLimit;
   private int outerQueryLimit;
+  private boolean outerQueryTotalOrder;
 
   // used by GroupBy
   private final LinkedHashMap<String, LinkedHashMap<String, ASTNode>> destToAggregationExprs;
@@ -365,6 +366,21 @@ public class QBParseInfo {
     this.outerQueryLimit = outerQueryLimit;
   }
 
+  /**
+   * @return whether the order by of the outer query is range partitioned
+   */
+  public boolean isOuterQueryTotalOrder() {
+    return outerQueryTotalOrder;
+  }
+
+  /**
+   * @param outerQueryTotalOrder
+   *          whether the order by of the outer query is range partitioned
+   */
+  public void setOuterQueryTotalOrder(boolean outerQueryTotalOrder) {
+    this.outerQueryTotalOrder = outerQueryTotalOrder;
+  }
+
   public boolean isSelectStarQuery() {
     if (isSubQ || (joinExpr != null) || (!nameToSample.isEmpty())
         || (!destToGroupby.isEmpty()) || (!destToClusterby.isEmpty())
@@ -191,6 +191,8 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
   private CreateViewDesc createVwDesc;
   private ASTNode viewSelect;
   private final UnparseTranslator unparseTranslator;
+  // estimates of the joins rebuilt by the cost-based join reordering
+  private final HashMap<ASTNode, String> joinCosts;
 
   private static class Phase1Ctx {
     String dest;
@@ -216,6 +218,7 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     groupOpToInputTables = new HashMap<GroupByOperator, Set<String>>();
     prunedPartitions = new HashMap<String, PrunedPartitionList>();
     unparseTranslator = new UnparseTranslator();
+    joinCosts = new HashMap<ASTNode, String>();
   }
 
   @Override
@@ -234,6 +237,7 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     opParseCtx.clear();
     groupOpToInputTables.clear();
     prunedPartitions.clear();
+    joinCosts.clear();
   }
 
   public void init(ParseContext pctx) {
@@ -2129,8 +2133,14 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
       boolean isDistinct, boolean isAllColumns)
       throws SemanticException {
     ArrayList<TypeInfo> originalParameterTypeInfos = getTypeInfo(aggParameters);
+    ArrayList<Object> constantParameters = new ArrayList<Object>();
+    for (ExprNodeDesc param : aggParameters) {
+      constantParameters.add(param instanceof ExprNodeConstantDesc
+          ? ((ExprNodeConstantDesc) param).getValue() : null);
+    }
     GenericUDAFEvaluator result = FunctionRegistry.getGenericUDAFEvaluator(
-        aggName, originalParameterTypeInfos, isDistinct, isAllColumns);
+        aggName, originalParameterTypeInfos, constantParameters, isDistinct,
+        isAllColumns);
     if (null == result) {
       String reason = "Looking for UDAF Evaluator\"" + aggName
           + "\" with parameters " + originalParameterTypeInfos;
@@ -3295,12 +3305,28 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     boolean multiFileSpray;
     int     numFiles;
     int     totalFiles;
+    boolean dpSorted;
 
     public SortBucketRSCtx() {
       partnCols = null;
       multiFileSpray = false;
       numFiles = 1;
       totalFiles = 1;
+      dpSorted = false;
+    }
+
+    /**
+     * @return whether the rows are sorted by the dynamic partition columns
+     */
+    public boolean isDpSorted() {
+      return dpSorted;
+    }
+
+    /**
+     * @param dpSorted whether the rows are sorted by the dynamic partition columns
+     */
+    public void setDpSorted(boolean dpSorted) {
+      this.dpSorted = dpSorted;
     }
 
     /**
@@ -3425,6 +3451,26 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
       //disable "merge mapfiles" and "merge mapred files".
       HiveConf.setBoolVar(conf, HiveConf.ConfVars.HIVEMERGEMAPFILES, false);
       HiveConf.setBoolVar(conf, HiveConf.ConfVars.HIVEMERGEMAPREDFILES, false);
+    } else if (conf.getBoolVar(HiveConf.ConfVars.HIVEOPTSORTDYNAMICPARTITION)) {
+      // If the rows go to dynamic partitions, distribute and sort them by the
+      // dynamic partition columns. Every partition is then written by a single
+      // reducer, one partition after the other, so the file sink only needs to
+      // keep one partition open at a time.
+      DynamicPartitionCtx dpCtx = qb.getMetaData().getDPCtx(dest);
+      RowResolver inputRR = opParseCtx.get(input).getRowResolver();
+      if (dpCtx != null && dpCtx.getNumDPCols() > 0
+          && inputRR.getColumnInfos().size() > dpCtx.getNumDPCols()) {
+        // the dynamic partition columns are the last columns of the row
+        ArrayList<ColumnInfo> colInfos = inputRR.getColumnInfos();
+        ArrayList<ExprNodeDesc> dpCols = new ArrayList<ExprNodeDesc>();
+        for (int i = colInfos.size() - dpCtx.getNumDPCols(); i < colInfos.size(); i++) {
+          ColumnInfo colInfo = colInfos.get(i);
+          dpCols.add(new ExprNodeColumnDesc(colInfo.getType(), colInfo.getInternalName(),
+              colInfo.getTabAlias(), colInfo.getIsVirtualCol()));
+        }
+        input = genReduceSinkPlanForSortingBucketing(dest_tab, input, dpCols, dpCols, -1);
+        ctx.setDpSorted(true);
+      }
     }
     return input;
   }
@@ -3788,6 +3834,7 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     // can be changed in the optimizer  but the key should not be changed
     // it should be the same as the MoveWork's sourceDir.
     fileSinkDesc.setStatsAggPrefix(fileSinkDesc.getDirName());
+    fileSinkDesc.setDpSortedInput(rsCtx.isDpSorted());
 
     if (dest_part != null) {
       try {
@@ -4251,6 +4298,8 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
       sortExprs = qb.getParseInfo().getSortByForClause(dest);
     }
 
+    Integer topN = null;
+    boolean totalOrder = false;
     if (sortExprs == null) {
       sortExprs = qb.getParseInfo().getOrderByForClause(dest);
       if (sortExprs != null) {
@@ -4263,6 +4312,20 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
           throw new SemanticException(ErrorMsg.NO_LIMIT_WITH_ORDERBY
               .getMsg(sortExprs));
         }
+        // the limit is applied right after the single reducer, so every
+        // mapper only needs to send its first rows
+        if (limit != null && conf.getBoolVar(HiveConf.ConfVars.HIVEOPTTOPN)
+            && limit.intValue() <= conf.getIntVar(HiveConf.ConfVars.HIVEOPTTOPNMAXROWS)) {
+          topN = limit;
+        }
+        // without a limit the outermost order by may be range partitioned
+        // over several reducers
+        if (limit == null && !qb.getParseInfo().getIsSubQ()
+            && conf.getBoolVar(HiveConf.ConfVars.HIVEOPTTOTALORDER)) {
+          totalOrder = true;
+          qb.getParseInfo().setOuterQueryTotalOrder(true);
+          numReducers = -1;
+        }
       }
     }
 
@@ -4306,9 +4369,11 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     for (int i = 0; i < valueCols.size(); i++) {
       outputColumns.add(getColumnInternalName(i));
     }
-    Operator interim = putOpInsertMap(OperatorFactory.getAndMakeChild(PlanUtils
-        .getReduceSinkDesc(sortCols, valueCols, outputColumns, false, -1,
-        partitionCols, order.toString(), numReducers),
+    ReduceSinkDesc rsDesc = PlanUtils.getReduceSinkDesc(sortCols, valueCols,
+        outputColumns, false, -1, partitionCols, order.toString(), numReducers);
+    rsDesc.setTopN(topN);
+    rsDesc.setTotalOrder(totalOrder);
+    Operator interim = putOpInsertMap(OperatorFactory.getAndMakeChild(rsDesc,
         new RowSchema(inputRR.getColumnInfos()), input), inputRR);
     interim.setColumnExprMap(colExprMap);
 
@@ -4416,6 +4481,7 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     JoinDesc desc = new JoinDesc(exprMap, outputColumnNames,
         join.getNoOuterJoin(), joinCondns, filterMap);
     desc.setReversedExprs(reversedExprs);
+    desc.setEstimatedCost(join.getEstimatedCost());
     JoinOperator joinOp = (JoinOperator) OperatorFactory.getAndMakeChild(desc,
         new RowSchema(outputRS.getColumnInfos()), rightOps);
     joinOp.setColumnExprMap(colExprMap);
@@ -4694,6 +4760,56 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     return joinOp;
   }
 
+  /**
+   * Puts the columns of a reordered join back in the order of the tables in
+   * the query, so that the order of the joins does not change the columns
+   * returned by SELECT * and of the rows seen by the rest of the plan.
+   *
+   * @param qb
+   *          the query block whose joins were reordered
+   * @param input
+   *          the last join operator
+   * @return the selection operator.
+   */
+  private Operator genJoinOrderSelectPlan(QB qb, Operator input) {
+    RowResolver inputRR = opParseCtx.get(input).getRowResolver();
+    RowResolver outputRR = new RowResolver();
+    ArrayList<ExprNodeDesc> colList = new ArrayList<ExprNodeDesc>();
+    ArrayList<String> columnNames = new ArrayList<String>();
+    Map<String, ExprNodeDesc> colExprMap = new HashMap<String, ExprNodeDesc>();
+
+    List<String> aliases = new ArrayList<String>(qb.getAliases());
+    for (String alias : inputRR.getTableNames()) {
+      if (!aliases.contains(alias)) {
+        aliases.add(alias);
+      }
+    }
+    for (String alias : aliases) {
+      HashMap<String, ColumnInfo> fMap = inputRR.getFieldMap(alias);
+      if (fMap == null) {
+        continue;
+      }
+      for (Map.Entry<String, ColumnInfo> entry : fMap.entrySet()) {
+        ColumnInfo colInfo = entry.getValue();
+        ExprNodeDesc expr = new ExprNodeColumnDesc(colInfo.getType(),
+            colInfo.getInternalName(), colInfo.getTabAlias(), colInfo.getIsVirtualCol());
+        String internalName = getColumnInternalName(colList.size());
+        colList.add(expr);
+        columnNames.add(internalName);
+        colExprMap.put(internalName, expr);
+        outputRR.put(alias, entry.getKey(), new ColumnInfo(internalName,
+            colInfo.getType(), colInfo.getTabAlias(), colInfo.getIsVirtualCol(),
+            colInfo.isHiddenVirtualCol()));
+      }
+    }
+
+    Operator output = putOpInsertMap(OperatorFactory.getAndMakeChild(
+        new SelectDesc(colList, columnNames, false), new RowSchema(outputRR
+        .getColumnInfos()), input), outputRR);
+    output.setColumnExprMap(colExprMap);
+    return output;
+  }
+
   /**
    * Extract the filters from the join condition and push them on top of the
    * source operators. This procedure traverses the query tree recursively,
@@ -4863,6 +4979,7 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     }
 
     joinTree.setJoinCond(condn);
+    joinTree.setEstimatedCost(joinCosts.get(joinParseTree));
 
     ASTNode left = (ASTNode) joinParseTree.getChild(0);
     ASTNode right = (ASTNode) joinParseTree.getChild(1);
@@ -5062,6 +5179,11 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
 
     target.mergeRHSSemijoin(node);
 
+    // the merged join produces the output of the node
+    if (node.getEstimatedCost() != null) {
+      target.setEstimatedCost(node.getEstimatedCost());
+    }
+
     JoinCond[] nodeCondns = node.getJoinCond();
     int nodeCondnsSize = nodeCondns.length;
     JoinCond[] targetCondns = target.getJoinCond();
@@ -5984,11 +6106,20 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
     // process join
     if (qb.getParseInfo().getJoinExpr() != null) {
       ASTNode joinExpr = qb.getParseInfo().getJoinExpr();
+      boolean joinReordered = false;
 
       if (joinExpr.getToken().getType() == HiveParser.TOK_UNIQUEJOIN) {
         QBJoinTree joinTree = genUniqueJoinTree(qb, joinExpr);
         qb.setQbJoinTree(joinTree);
       } else {
+        // hints pin the join order chosen by the user
+        if (conf.getBoolVar(HiveConf.ConfVars.HIVEOPTJOINREORDERCOSTBASED)
+            && qb.getParseInfo().getHints() == null) {
+          ASTNode reordered = new CostBasedJoinReorder(conf).reorder(qb, joinExpr, joinCosts);
+          joinReordered = reordered != joinExpr;
+          joinExpr = reordered;
+          qb.getParseInfo().setJoinExpr(joinExpr);
+        }
         QBJoinTree joinTree = genJoinTree(qb, joinExpr);
         qb.setQbJoinTree(joinTree);
         mergeJoinTree(qb);
@@ -5998,6 +6129,9 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
       // table
       pushJoinFilters(qb, qb.getQbJoinTree(), aliasToOpInfo);
       srcOpInfo = genJoinPlan(qb, aliasToOpInfo);
+      if (joinReordered) {
+        srcOpInfo = genJoinOrderSelectPlan(qb, srcOpInfo);
+      }
     } else {
       // Now if there are more than 1 sources then we have a join case
       // later we can extend this to the union all case as well
@@ -6251,6 +6385,7 @@ public class SemanticAnalyzer extends BaseSemanticAnalyzer {
 
       fetch = new FetchWork(new Path(loadFileWork.get(0).getSourceDir()).toString(),
           resultTab, qb.getParseInfo().getOuterQueryLimit());
+      fetch.setTotalOrder(qb.getParseInfo().isOuterQueryTotalOrder());
 
       fetchTask = (FetchTask) TaskFactory.get(fetch, conf);
       setFetchTask(fetchTask);
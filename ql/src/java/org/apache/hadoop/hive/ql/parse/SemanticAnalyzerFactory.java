@@ -172,6 +172,12 @@ public final class SemanticAnalyzerFactory {
       case HiveParser.TOK_CREATEFUNCTION:
       case HiveParser.TOK_DROPFUNCTION:
         return new FunctionSemanticAnalyzer(conf);
+      case HiveParser.TOK_ANALYZE:
+        // ANALYZE ... FOR COLUMNS carries the COLUMNS keyword after the table
+        if (tree.getChildCount() > 1) {
+          return new ColumnStatsSemanticAnalyzer(conf);
+        }
+        return new SemanticAnalyzer(conf);
       default:
         return new SemanticAnalyzer(conf);
       }
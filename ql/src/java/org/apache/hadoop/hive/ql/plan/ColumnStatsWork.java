@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.plan;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * ColumnStatsWork. Persists the column statistics computed by the query that
+ * ANALYZE TABLE ... COMPUTE STATISTICS FOR COLUMNS was rewritten into.
+ *
+ */
+@Explain(displayName = "Column Stats Work")
+public class ColumnStatsWork implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private FetchWork fetchWork;      // reads the result of the statistics query
+  private String tableName;
+  private List<String> colNames;    // one compute_stats() result per column
+  private List<String> partColNames; // trailing partition columns of each row
+
+  public ColumnStatsWork() {
+  }
+
+  public ColumnStatsWork(FetchWork fetchWork, String tableName, List<String> colNames,
+      List<String> partColNames) {
+    this.fetchWork = fetchWork;
+    this.tableName = tableName;
+    this.colNames = colNames;
+    this.partColNames = partColNames;
+  }
+
+  public FetchWork getFetchWork() {
+    return fetchWork;
+  }
+
+  public void setFetchWork(FetchWork fetchWork) {
+    this.fetchWork = fetchWork;
+  }
+
+  @Explain(displayName = "table")
+  public String getTableName() {
+    return tableName;
+  }
+
+  public void setTableName(String tableName) {
+    this.tableName = tableName;
+  }
+
+  @Explain(displayName = "columns")
+  public List<String> getColNames() {
+    return colNames;
+  }
+
+  public void setColNames(List<String> colNames) {
+    this.colNames = colNames;
+  }
+
+  @Explain(displayName = "partition columns")
+  public List<String> getPartColNames() {
+    return partColNames;
+  }
+
+  public void setPartColNames(List<String> partColNames) {
+    this.partColNames = partColNames;
+  }
+}
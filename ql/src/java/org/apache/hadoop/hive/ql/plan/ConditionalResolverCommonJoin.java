@@ -19,6 +19,7 @@ package org.apache.hadoop.hive.ql.plan;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -46,6 +47,7 @@ public class ConditionalResolverCommonJoin implements ConditionalResolver, Seria
 
     private HashMap<String, Task<? extends Serializable>> aliasToTask;
     private HashMap<String, String> aliasToPath;
+    private HashMap<String, Long> aliasToKnownSize;
     private Task<? extends Serializable> commonJoinTask;
 
 
@@ -69,6 +71,18 @@ public class ConditionalResolverCommonJoin implements ConditionalResolver, Seria
       this.aliasToPath = aliasToPath;
     }
 
+    /**
+     * Returns the estimated hash table size of every join input, or a negative
+     * value for the inputs without statistics.
+     */
+    public HashMap<String, Long> getAliasToKnownSize() {
+      return aliasToKnownSize;
+    }
+
+    public void setAliasToKnownSize(HashMap<String, Long> aliasToKnownSize) {
+      this.aliasToKnownSize = aliasToKnownSize;
+    }
+
     public Task<? extends Serializable> getCommonJoinTask() {
       return commonJoinTask;
     }
@@ -87,9 +101,24 @@ public class ConditionalResolverCommonJoin implements ConditionalResolver, Seria
     ConditionalResolverCommonJoinCtx ctx = (ConditionalResolverCommonJoinCtx) objCtx;
     List<Task<? extends Serializable>> resTsks = new ArrayList<Task<? extends Serializable>>();
 
-    // get aliasToPath and pass it to the heuristic
-    HashMap<String, String> aliasToPath = ctx.getAliasToPath();
-    String bigTableAlias = this.resolveMapJoinTask(aliasToPath, conf);
+    String bigTableAlias;
+    String estimatedBigTableAlias = null;
+    if (HiveConf.getBoolVar(conf, HiveConf.ConfVars.HIVECONVERTJOINUSESTATS)) {
+      estimatedBigTableAlias = getEstimatedBigTableAlias(ctx.getAliasToKnownSize(),
+          ctx.getAliasToTask().keySet());
+    }
+    if (estimatedBigTableAlias != null) {
+      // the statistics cover all the small tables: trust them over the file sizes
+      long smallTablesSize = getSmallTablesKnownSize(ctx.getAliasToKnownSize(),
+          estimatedBigTableAlias);
+      long threshold = HiveConf.getLongVar(conf,
+          HiveConf.ConfVars.HIVESMALLTABLESESTIMATEDSIZE);
+      bigTableAlias = smallTablesSize <= threshold ? estimatedBigTableAlias : null;
+    } else {
+      // get aliasToPath and pass it to the heuristic
+      HashMap<String, String> aliasToPath = ctx.getAliasToPath();
+      bigTableAlias = this.resolveMapJoinTask(aliasToPath, conf);
+    }
 
     if (bigTableAlias == null) {
       // run common join task
@@ -108,6 +137,47 @@ public class ConditionalResolverCommonJoin implements ConditionalResolver, Seria
     return resTsks;
   }
 
+  /**
+   * Returns, among the big table candidates, the one leaving the smallest
+   * estimated hash tables to build; or null if no candidate has an estimate
+   * for all of its small tables.
+   */
+  public static String getEstimatedBigTableAlias(Map<String, Long> aliasToKnownSize,
+      Collection<String> bigTableCandidates) {
+    if (aliasToKnownSize == null) {
+      return null;
+    }
+    String bigTableAlias = null;
+    long minSize = -1;
+    for (String alias : bigTableCandidates) {
+      long size = getSmallTablesKnownSize(aliasToKnownSize, alias);
+      if (size >= 0 && (minSize < 0 || size < minSize)) {
+        minSize = size;
+        bigTableAlias = alias;
+      }
+    }
+    return bigTableAlias;
+  }
+
+  /**
+   * Returns the total estimated hash table size of the inputs other than the
+   * big table, or -1 if one of them has no estimate.
+   */
+  public static long getSmallTablesKnownSize(Map<String, Long> aliasToKnownSize,
+      String bigTableAlias) {
+    long size = 0;
+    for (Map.Entry<String, Long> entry : aliasToKnownSize.entrySet()) {
+      if (entry.getKey().equals(bigTableAlias)) {
+        continue;
+      }
+      if (entry.getValue() == null || entry.getValue().longValue() < 0) {
+        return -1;
+      }
+      size += entry.getValue().longValue();
+    }
+    return size;
+  }
+
   private String resolveMapJoinTask(HashMap<String, String> aliasToPath, HiveConf conf) {
     // for the full out join; return null directly
     if (aliasToPath.size() == 0) {
@@ -40,6 +40,11 @@ public class FetchWork implements Serializable {
 
   private int limit;
 
+  /**
+   * Whether the files hold a totally ordered result, to be read in name order.
+   */
+  private boolean totalOrder;
+
   /**
    * Serialization Null Format for the serde used to fetch data.
    */
@@ -189,6 +194,21 @@ public class FetchWork implements Serializable {
     this.limit = limit;
   }
 
+  /**
+   * @return the totalOrder
+   */
+  public boolean isTotalOrder() {
+    return totalOrder;
+  }
+
+  /**
+   * @param totalOrder
+   *          the totalOrder to set
+   */
+  public void setTotalOrder(boolean totalOrder) {
+    this.totalOrder = totalOrder;
+  }
+
   @Override
   public String toString() {
     if (tblDir != null) {
@@ -46,6 +46,8 @@ public class FileSinkDesc implements Serializable {
   private DynamicPartitionCtx dpCtx;
   private String staticSpec; // static partition spec ends with a '/'
   private boolean gatherStats;
+  // rows arrive grouped by their dynamic partition values
+  private boolean dpSortedInput;
 
   public FileSinkDesc() {
   }
@@ -216,6 +218,21 @@ public class FileSinkDesc implements Serializable {
     return gatherStats;
   }
 
+  /**
+   * @return true if the rows of each dynamic partition reach this operator
+   *         contiguously, so a partition can be closed once the next one starts
+   */
+  public boolean isDpSortedInput() {
+    return dpSortedInput;
+  }
+
+  /**
+   * @param dpSortedInput whether the input is sorted by the dynamic partition columns
+   */
+  public void setDpSortedInput(boolean dpSortedInput) {
+    this.dpSortedInput = dpSortedInput;
+  }
+
   /**
    * Construct the key prefix used as (intermediate) statistics publishing
    * and aggregation. During stats publishing phase, this key prefix will be
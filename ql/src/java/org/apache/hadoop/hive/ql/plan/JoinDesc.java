@@ -65,6 +65,9 @@ public class JoinDesc implements Serializable {
   protected Byte[] tagOrder;
   private TableDesc keyTableDesc;
 
+  // estimates of the cost-based join reordering
+  private String estimatedCost;
+
   public JoinDesc() {
   }
 
@@ -113,6 +116,7 @@ public class JoinDesc implements Serializable {
     this.smallKeysDirMap = clone.smallKeysDirMap;
     this.tagOrder = clone.tagOrder;
     this.filters = clone.filters;
+    this.estimatedCost = clone.estimatedCost;
   }
 
   public Map<Byte, List<ExprNodeDesc>> getExprs() {
@@ -127,6 +131,19 @@ public class JoinDesc implements Serializable {
     this.reversedExprs = reversedExprs;
   }
 
+  /**
+   * Returns the estimates of the cost-based join reordering, or null if it
+   * did not place this join.
+   */
+  @Explain(displayName = "estimated cost")
+  public String getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  public void setEstimatedCost(String estimatedCost) {
+    this.estimatedCost = estimatedCost;
+  }
+
   @Explain(displayName = "condition expressions")
   public Map<Byte, String> getExprsStringMap() {
     if (getExprs() == null) {
@@ -67,6 +67,42 @@ public class ReduceSinkDesc implements Serializable {
 
   private int numReducers;
 
+  /**
+   * Hex encoded serialized keys that are hot in this input. Rows with these
+   * keys are scattered over skewSplitFactor reducers. Filled in right before
+   * the job is submitted when the in-job skew join is enabled.
+   */
+  private java.util.ArrayList<java.lang.String> skewScatterKeys;
+
+  /**
+   * Hex encoded serialized keys that are hot in another input of the join.
+   * Rows with these keys are replicated to all skewSplitFactor reducers that
+   * the hot input scatters them to.
+   */
+  private java.util.ArrayList<java.lang.String> skewReplicateKeys;
+
+  private int skewSplitFactor;
+
+  /**
+   * Path of a bloom filter over the serialized join keys of another input.
+   * Rows whose key is not in the filter cannot match and are dropped. Filled
+   * in right before the job is submitted when the bloom filter join is enabled.
+   */
+  private String bloomFilterPath;
+
+  /**
+   * If set, only the topN rows with the smallest keys are forwarded, when the
+   * operator is closed. Used for ORDER BY with LIMIT.
+   */
+  private Integer topN;
+
+  /**
+   * Whether the rows are range partitioned on their keys, so that the
+   * reducers together produce a total order. The number of reducers and the
+   * range boundaries are chosen right before the job is submitted.
+   */
+  private boolean totalOrder;
+
   public ReduceSinkDesc() {
   }
 
@@ -203,6 +239,61 @@ public class ReduceSinkDesc implements Serializable {
         orderStr);
   }
 
+  public java.util.ArrayList<java.lang.String> getSkewScatterKeys() {
+    return skewScatterKeys;
+  }
+
+  public void setSkewScatterKeys(
+      java.util.ArrayList<java.lang.String> skewScatterKeys) {
+    this.skewScatterKeys = skewScatterKeys;
+  }
+
+  public java.util.ArrayList<java.lang.String> getSkewReplicateKeys() {
+    return skewReplicateKeys;
+  }
+
+  public void setSkewReplicateKeys(
+      java.util.ArrayList<java.lang.String> skewReplicateKeys) {
+    this.skewReplicateKeys = skewReplicateKeys;
+  }
+
+  /**
+   * Returns the number of reducers the rows of a hot key are spread over, or
+   * 0 if the in-job skew join is not used.
+   */
+  public int getSkewSplitFactor() {
+    return skewSplitFactor;
+  }
+
+  public void setSkewSplitFactor(int skewSplitFactor) {
+    this.skewSplitFactor = skewSplitFactor;
+  }
+
+  public String getBloomFilterPath() {
+    return bloomFilterPath;
+  }
+
+  public void setBloomFilterPath(String bloomFilterPath) {
+    this.bloomFilterPath = bloomFilterPath;
+  }
+
+  @Explain(displayName = "top n")
+  public Integer getTopN() {
+    return topN;
+  }
+
+  public void setTopN(Integer topN) {
+    this.topN = topN;
+  }
+
+  public boolean isTotalOrder() {
+    return totalOrder;
+  }
+
+  public void setTotalOrder(boolean totalOrder) {
+    this.totalOrder = totalOrder;
+  }
+
   public List<List<Integer>> getDistinctColumnIndices() {
     return distinctColumnIndices;
   }
@@ -0,0 +1,430 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Parses and formats the "yyyy-MM-dd" and "yyyy-MM-dd HH:mm:ss" dates of the
+ * date UDFs directly on the bytes of Text, without SimpleDateFormat and
+ * without allocating.
+ *
+ * Only well formed dates between MIN_YEAR and MAX_YEAR are handled, and only
+ * on days without a time zone transition. For everything else the methods
+ * return false or NO_MILLIS, and the UDFs fall back to SimpleDateFormat and
+ * Calendar, so that lenient input such as "2010-02-30" and wall times that
+ * do not exist give the same results as always.
+ *
+ * A FastDateParser is not thread safe, like the SimpleDateFormat it stands
+ * in for.
+ */
+public class FastDateParser {
+
+  /**
+   * The first year after the switch from the Julian to the Gregorian
+   * calendar in GregorianCalendar.
+   */
+  public static final int MIN_YEAR = 1583;
+  public static final int MAX_YEAR = 9999;
+
+  /**
+   * Returned by getMillis when the parsed local time is on a day with a time
+   * zone transition.
+   */
+  public static final long NO_MILLIS = Long.MIN_VALUE;
+
+  static final long MILLIS_PER_DAY = 86400000L;
+
+  private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151,
+      181, 212, 243, 273, 304, 334, 365};
+
+  /**
+   * The number of days from 1970-01-01 to the first day of each year from
+   * MIN_YEAR to MAX_YEAR + 1.
+   */
+  private static final int[] DAYS_BEFORE_YEAR =
+      new int[MAX_YEAR - MIN_YEAR + 2];
+
+  static {
+    int days = 0;
+    for (int year = 1970; year > MIN_YEAR; year--) {
+      days -= isLeapYear(year - 1) ? 366 : 365;
+    }
+    for (int year = MIN_YEAR; year <= MAX_YEAR + 1; year++) {
+      DAYS_BEFORE_YEAR[year - MIN_YEAR] = days;
+      days += isLeapYear(year) ? 366 : 365;
+    }
+  }
+
+  private static final int MIN_DAYS = DAYS_BEFORE_YEAR[0];
+  private static final int MAX_DAYS =
+      DAYS_BEFORE_YEAR[MAX_YEAR - MIN_YEAR + 1] - 1;
+
+  private static final int DAY_CACHE_SIZE = 64;
+
+  private final TimeZone zone;
+  private final Calendar calendar;
+
+  /**
+   * For the last days looked up by getDayStart, the time of their local
+   * midnight, or NO_MILLIS if they have a time zone transition.
+   */
+  private final int[] cachedDays = new int[DAY_CACHE_SIZE];
+  private final long[] cachedDayStarts = new long[DAY_CACHE_SIZE];
+
+  private final byte[] buffer = new byte[19];
+
+  private int year;
+  private int month;
+  private int day;
+  private int hour;
+  private int minute;
+  private int second;
+
+  /**
+   * Creates a parser for local times in zone, which should be the time zone
+   * of the SimpleDateFormat or Calendar it stands in for.
+   */
+  public FastDateParser(TimeZone zone) {
+    this.zone = zone;
+    calendar = new GregorianCalendar(zone);
+    Arrays.fill(cachedDays, Integer.MIN_VALUE);
+  }
+
+  public static boolean isLeapYear(int year) {
+    return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+  }
+
+  private static int getDaysInMonth(int year, int month) {
+    if (month == 2 && isLeapYear(year)) {
+      return 29;
+    }
+    return DAYS_BEFORE_MONTH[month] - DAYS_BEFORE_MONTH[month - 1];
+  }
+
+  private static int getDayOfYear(int year, int month, int day) {
+    int dayOfYear = DAYS_BEFORE_MONTH[month - 1] + day;
+    if (month > 2 && isLeapYear(year)) {
+      dayOfYear++;
+    }
+    return dayOfYear;
+  }
+
+  private static int parseDigits(byte[] data, int offset, int count) {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      int digit = data[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static boolean isDigitAt(byte[] data, int length, int offset) {
+    return offset < length && data[offset] >= '0' && data[offset] <= '9';
+  }
+
+  /**
+   * Parses the "yyyy-MM-dd" date at the start of text.
+   */
+  private boolean parseDatePart(byte[] data, int length) {
+    if (length < 10 || data[4] != '-' || data[7] != '-') {
+      return false;
+    }
+    year = parseDigits(data, 0, 4);
+    month = parseDigits(data, 5, 2);
+    day = parseDigits(data, 8, 2);
+    return year >= MIN_YEAR && month >= 1 && month <= 12 && day >= 1
+        && day <= getDaysInMonth(year, month);
+  }
+
+  /**
+   * Parses text the way SimpleDateFormat("yyyy-MM-dd") does, which ignores
+   * anything after the date.
+   *
+   * @return false if text is not a well formed date
+   */
+  public boolean parseDate(Text text) {
+    byte[] data = text.getBytes();
+    int length = text.getLength();
+    // SimpleDateFormat would read any digits after dd as part of the day
+    if (!parseDatePart(data, length) || isDigitAt(data, length, 10)) {
+      return false;
+    }
+    hour = 0;
+    minute = 0;
+    second = 0;
+    return true;
+  }
+
+  /**
+   * Parses text the way SimpleDateFormat("yyyy-MM-dd HH:mm:ss") does, which
+   * ignores anything after the time.
+   *
+   * @return false if text is not a well formed date and time
+   */
+  public boolean parseDateTime(Text text) {
+    byte[] data = text.getBytes();
+    int length = text.getLength();
+    if (length < 19 || !parseDatePart(data, length) || data[10] != ' '
+        || data[13] != ':' || data[16] != ':' || isDigitAt(data, length, 19)) {
+      return false;
+    }
+    hour = parseDigits(data, 11, 2);
+    minute = parseDigits(data, 14, 2);
+    second = parseDigits(data, 17, 2);
+    return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+        && second >= 0 && second <= 59;
+  }
+
+  public int getYear() {
+    return year;
+  }
+
+  public int getMonth() {
+    return month;
+  }
+
+  public int getDay() {
+    return day;
+  }
+
+  public int getHour() {
+    return hour;
+  }
+
+  public int getMinute() {
+    return minute;
+  }
+
+  public int getSecond() {
+    return second;
+  }
+
+  /**
+   * Returns the number of days from 1970-01-01 to the date.
+   */
+  public int getDays() {
+    return DAYS_BEFORE_YEAR[year - MIN_YEAR] + getDayOfYear(year, month, day)
+        - 1;
+  }
+
+  /**
+   * Sets the date to the given number of days after 1970-01-01 and the time
+   * to midnight.
+   *
+   * @return false if the date is not between MIN_YEAR and MAX_YEAR
+   */
+  public boolean setDays(long days) {
+    if (days < MIN_DAYS || days > MAX_DAYS) {
+      return false;
+    }
+    // guess the year from the average length of a year, then correct it
+    int y = 1970 + (int) Math.floor(days / 365.2425);
+    y = Math.max(MIN_YEAR, Math.min(MAX_YEAR, y));
+    while (DAYS_BEFORE_YEAR[y - MIN_YEAR] > days) {
+      y--;
+    }
+    while (DAYS_BEFORE_YEAR[y - MIN_YEAR + 1] <= days) {
+      y++;
+    }
+    int dayOfYear = (int) days - DAYS_BEFORE_YEAR[y - MIN_YEAR];
+    int leap = isLeapYear(y) ? 1 : 0;
+    int m = 1;
+    while (m < 12
+        && dayOfYear >= DAYS_BEFORE_MONTH[m] + (m >= 2 ? leap : 0)) {
+      m++;
+    }
+    year = y;
+    month = m;
+    day = dayOfYear - DAYS_BEFORE_MONTH[m - 1] - (m > 2 ? leap : 0) + 1;
+    hour = 0;
+    minute = 0;
+    second = 0;
+    return true;
+  }
+
+  /**
+   * Returns the week of the year of the date, as Calendar.WEEK_OF_YEAR does
+   * with Monday as the first day of the week and 4 as the minimal days in
+   * the first week, which is the ISO 8601 week number.
+   *
+   * @return the week, or -1 if it depends on the year before MIN_YEAR
+   */
+  public int getWeekOfYear() {
+    int week = (getDayOfYear(year, month, day) - getDayOfWeek(getDays()) + 10)
+        / 7;
+    if (week < 1) {
+      return year > MIN_YEAR ? getWeeksInYear(year - 1) : -1;
+    }
+    if (week > getWeeksInYear(year)) {
+      return 1;
+    }
+    return week;
+  }
+
+  /**
+   * Returns the day of the week of the day, from 1 for Monday to 7 for
+   * Sunday.
+   */
+  private static int getDayOfWeek(int days) {
+    // 1970-01-01 was a Thursday
+    return ((days + 3) % 7 + 7) % 7 + 1;
+  }
+
+  private static int getWeeksInYear(int year) {
+    // a year has 53 weeks if it starts on a Thursday, or on a Wednesday in
+    // a leap year
+    int dayOfWeek = getDayOfWeek(DAYS_BEFORE_YEAR[year - MIN_YEAR]);
+    return (dayOfWeek == 4 || (dayOfWeek == 3 && isLeapYear(year))) ? 53
+        : 52;
+  }
+
+  /**
+   * Returns the time of the local midnight that starts the date, or
+   * NO_MILLIS if the time zone changes its offset on that day or the day
+   * does not exist. The first lookup of a day uses Calendar, the next ones a
+   * cache.
+   */
+  private long getDayStart() {
+    int days = getDays();
+    int slot = days & (DAY_CACHE_SIZE - 1);
+    if (cachedDays[slot] == days) {
+      return cachedDayStarts[slot];
+    }
+    int y = year;
+    int m = month;
+    int d = day;
+    long start = getCalendarMillis(y, m, d, 0, 0, 0);
+    long end = getCalendarMillis(y, m, d, 23, 59, 59);
+    if (start == NO_MILLIS || end == NO_MILLIS
+        || end - start != MILLIS_PER_DAY - 1000) {
+      start = NO_MILLIS;
+    }
+    cachedDays[slot] = days;
+    cachedDayStarts[slot] = start;
+    return start;
+  }
+
+  /**
+   * Returns the time of the local time from Calendar, or NO_MILLIS if
+   * Calendar moves it to another local time.
+   */
+  private long getCalendarMillis(int y, int m, int d, int h, int mi, int s) {
+    calendar.clear();
+    calendar.set(y, m - 1, d, h, mi, s);
+    long millis = calendar.getTimeInMillis();
+    if (calendar.get(Calendar.YEAR) != y
+        || calendar.get(Calendar.MONTH) != m - 1
+        || calendar.get(Calendar.DAY_OF_MONTH) != d
+        || calendar.get(Calendar.HOUR_OF_DAY) != h
+        || calendar.get(Calendar.MINUTE) != mi
+        || calendar.get(Calendar.SECOND) != s) {
+      return NO_MILLIS;
+    }
+    return millis;
+  }
+
+  /**
+   * Whether the date is a regular day in the time zone, that is a day on
+   * which every local time exists exactly once.
+   */
+  public boolean isRegularDay() {
+    return getDayStart() != NO_MILLIS;
+  }
+
+  /**
+   * Returns the time of the local date and time, as SimpleDateFormat.parse
+   * would, or NO_MILLIS if the date is not a regular day.
+   */
+  public long getMillis() {
+    long start = getDayStart();
+    if (start == NO_MILLIS) {
+      return NO_MILLIS;
+    }
+    return start + ((hour * 60 + minute) * 60 + second) * 1000L;
+  }
+
+  /**
+   * Sets the date and time to the local time at millis, as
+   * SimpleDateFormat.format would show it.
+   *
+   * @return false if the date is not between MIN_YEAR and MAX_YEAR
+   */
+  public boolean setMillis(long millis) {
+    long local = millis + zone.getOffset(millis);
+    long days = local / MILLIS_PER_DAY;
+    if (local % MILLIS_PER_DAY < 0) {
+      days--;
+    }
+    if (days < MIN_DAYS || days > MAX_DAYS) {
+      return false;
+    }
+    int seconds = (int) ((local - days * MILLIS_PER_DAY) / 1000);
+    setDays(days);
+    hour = seconds / 3600;
+    minute = seconds / 60 % 60;
+    second = seconds % 60;
+    return true;
+  }
+
+  private void formatDigits(int value, int offset, int count) {
+    for (int i = offset + count - 1; i >= offset; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  private void formatDatePart() {
+    formatDigits(year, 0, 4);
+    buffer[4] = '-';
+    formatDigits(month, 5, 2);
+    buffer[7] = '-';
+    formatDigits(day, 8, 2);
+  }
+
+  /**
+   * Sets result to the date in the format "yyyy-MM-dd".
+   */
+  public void formatDate(Text result) {
+    formatDatePart();
+    result.set(buffer, 0, 10);
+  }
+
+  /**
+   * Sets result to the date and time in the format "yyyy-MM-dd HH:mm:ss".
+   */
+  public void formatDateTime(Text result) {
+    formatDatePart();
+    buffer[10] = ' ';
+    formatDigits(hour, 11, 2);
+    buffer[13] = ':';
+    formatDigits(minute, 14, 2);
+    buffer[16] = ':';
+    formatDigits(second, 17, 2);
+    result.set(buffer, 0, 19);
+  }
+}
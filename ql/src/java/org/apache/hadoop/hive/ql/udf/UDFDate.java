@@ -38,6 +38,9 @@ import org.apache.hadoop.io.Text;
 public class UDFDate extends UDF {
   private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 
+  private final FastDateParser parser = new FastDateParser(formatter
+      .getTimeZone());
+
   private Text t = new Text();
 
   public UDFDate() {
@@ -57,6 +60,11 @@ public class UDFDate extends UDF {
       return null;
     }
 
+    if (parser.parseDate(dateString) && parser.isRegularDay()) {
+      parser.formatDate(t);
+      return t;
+    }
+
     try {
       Date date = formatter.parse(dateString.toString());
       t.set(formatter.format(date));
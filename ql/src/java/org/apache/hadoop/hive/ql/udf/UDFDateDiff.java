@@ -42,10 +42,13 @@ import org.apache.hadoop.io.Text;
 public class UDFDateDiff extends UDF {
   private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 
+  private final FastDateParser parser;
+
   private IntWritable result = new IntWritable();
 
   public UDFDateDiff() {
     formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+    parser = new FastDateParser(formatter.getTimeZone());
   }
 
   /**
@@ -67,6 +70,16 @@ public class UDFDateDiff extends UDF {
       return null;
     }
 
+    // UTC has no time zone transitions, so the difference of the days is the
+    // same as the one of the times
+    if (parser.parseDate(dateString1)) {
+      int days1 = parser.getDays();
+      if (parser.parseDate(dateString2)) {
+        result.set(days1 - parser.getDays());
+        return result;
+      }
+    }
+
     try {
       // NOTE: This implementation avoids the extra-second problem
       // by comparing with UTC epoch and integer division.
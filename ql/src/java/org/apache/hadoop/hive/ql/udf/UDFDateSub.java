@@ -43,6 +43,8 @@ import org.apache.hadoop.io.Text;
 public class UDFDateSub extends UDF {
   private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
   private final Calendar calendar = Calendar.getInstance();
+  private final FastDateParser parser = new FastDateParser(formatter
+      .getTimeZone());
 
   private Text result = new Text();
 
@@ -70,6 +72,15 @@ public class UDFDateSub extends UDF {
       return null;
     }
 
+    // Calendar.add keeps the local time, midnight, unless the new day has a
+    // time zone transition
+    if (parser.parseDate(dateString1) && parser.isRegularDay()
+        && parser.setDays(parser.getDays() - (long) days.get())
+        && parser.isRegularDay()) {
+      parser.formatDate(result);
+      return result;
+    }
+
     try {
       calendar.setTime(formatter.parse(dateString1.toString()));
       calendar.add(Calendar.DAY_OF_MONTH, -days.get());
@@ -38,6 +38,7 @@ import org.apache.hadoop.io.Text;
     + "  '1970-01-01 00:00:00'")
 public class UDFFromUnixTime extends UDF {
   private SimpleDateFormat formatter;
+  private FastDateParser parser;
 
   private Text result = new Text();
   private Text lastFormat = new Text();
@@ -120,9 +121,15 @@ public class UDFFromUnixTime extends UDF {
     if (!format.equals(lastFormat)) {
       formatter = new SimpleDateFormat(format.toString());
       lastFormat.set(format);
+      parser = format.equals(defaultFormat) ? new FastDateParser(formatter
+          .getTimeZone()) : null;
     }
 
     // convert seconds to milliseconds
+    if (parser != null && parser.setMillis(unixtime * 1000L)) {
+      parser.formatDateTime(result);
+      return result;
+    }
     Date date = new Date(unixtime * 1000L);
     result.set(formatter.format(date));
     return result;
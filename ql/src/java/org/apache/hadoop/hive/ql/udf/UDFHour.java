@@ -44,6 +44,8 @@ public class UDFHour extends UDF {
   private final SimpleDateFormat formatter1 = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
   private final SimpleDateFormat formatter2 = new SimpleDateFormat("HH:mm:ss");
   private final Calendar calendar = Calendar.getInstance();
+  private final FastDateParser parser = new FastDateParser(formatter1
+      .getTimeZone());
 
   private IntWritable result = new IntWritable();
 
@@ -65,6 +67,11 @@ public class UDFHour extends UDF {
       return null;
     }
 
+    if (parser.parseDateTime(dateString) && parser.isRegularDay()) {
+      result.set(parser.getHour());
+      return result;
+    }
+
     try {
       Date date = null;
       try {
@@ -18,15 +18,22 @@
 
 package org.apache.hadoop.hive.ql.udf;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
 import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFMethodResolver;
+import org.apache.hadoop.hive.ql.udf.generic.JsonPathScanner;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.io.Text;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -86,7 +93,33 @@ public class UDFJson extends UDF {
 
   Text result = new Text();
 
+  // the last path and its scanner, which is null if the path is not simple
+  private Text scannedPath;
+  private JsonPathScanner scanner;
+
+  /**
+   * Resolves get_json_object to evaluate(Text, Text). The arguments of both
+   * evaluate methods are strings, so the default resolver could pick either.
+   */
+  private static class TextMethodResolver implements UDFMethodResolver {
+
+    public Method getEvalMethod(List<TypeInfo> argClasses)
+        throws UDFArgumentException {
+      Method method;
+      try {
+        method = UDFJson.class.getMethod("evaluate", Text.class, Text.class);
+      } catch (NoSuchMethodException e) {
+        throw new RuntimeException(e);
+      }
+      List<Method> methods = new ArrayList<Method>();
+      methods.add(method);
+      return FunctionRegistry.getMethodInternal(UDFJson.class, methods, false,
+          argClasses);
+    }
+  }
+
   public UDFJson() {
+    super(new TextMethodResolver());
   }
 
   /**
@@ -102,6 +135,49 @@ public class UDFJson extends UDF {
    * expression ?() : Filter (script) expression. [,] : Union operator
    * [start:end:step] : array slice operator
    * 
+   * Simple paths of member names and array indexes are looked up with a
+   * JsonPathScanner, without building the objects of the json string. The
+   * result is the same as that of {@link #evaluate(String, String)}.
+   *
+   * @param jsonText
+   *          the json string.
+   * @param pathText
+   *          the json path expression.
+   * @return json string or null when an error happens.
+   */
+  public Text evaluate(Text jsonText, Text pathText) {
+    if (jsonText == null || pathText == null) {
+      return null;
+    }
+
+    if (scannedPath == null || !scannedPath.equals(pathText)) {
+      JsonPathScanner.Path path = JsonPathScanner.compilePath(pathText
+          .toString());
+      scanner = path == null ? null : new JsonPathScanner(path);
+      scannedPath = new Text();
+      scannedPath.set(pathText);
+    }
+    if (scanner != null) {
+      try {
+        if (scanner.scan(jsonText)) {
+          if (!scanner.isFound(0)) {
+            return null;
+          }
+          scanner.getValue(0, result);
+          return result;
+        }
+      } catch (Exception e) {
+        return null;
+      }
+    }
+    return evaluate(jsonText.toString(), pathText.toString());
+  }
+
+  /**
+   * Extracts the json object with org.json. Queries call
+   * {@link #evaluate(Text, Text)}, which uses this for the paths and json
+   * strings the scanner leaves out.
+   *
    * @param jsonString
    *          the json string.
    * @param pathString
@@ -18,7 +18,6 @@
 
 package org.apache.hadoop.hive.ql.udf;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.Text;
@@ -41,7 +40,12 @@ public class UDFLTrim extends UDF {
     if (s == null) {
       return null;
     }
-    result.set(StringUtils.stripStart(s.toString(), " "));
+    byte[] data = s.getBytes();
+    int start = 0;
+    while (start < s.getLength() && data[start] == ' ') {
+      start++;
+    }
+    result.set(data, start, s.getLength() - start);
     return result;
   }
 
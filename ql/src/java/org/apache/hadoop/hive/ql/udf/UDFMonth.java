@@ -39,6 +39,8 @@ import org.apache.hadoop.io.Text;
 public class UDFMonth extends UDF {
   private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
   private final Calendar calendar = Calendar.getInstance();
+  private final FastDateParser parser = new FastDateParser(formatter
+      .getTimeZone());
 
   private IntWritable result = new IntWritable();
 
@@ -58,6 +60,11 @@ public class UDFMonth extends UDF {
     if (dateString == null) {
       return null;
     }
+    if (parser.parseDate(dateString) && parser.isRegularDay()) {
+      result.set(parser.getMonth());
+      return result;
+    }
+
     try {
       Date date = formatter.parse(dateString.toString());
       calendar.setTime(date);
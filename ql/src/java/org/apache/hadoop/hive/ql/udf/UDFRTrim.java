@@ -18,7 +18,6 @@
 
 package org.apache.hadoop.hive.ql.udf;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.Text;
@@ -42,7 +41,12 @@ public class UDFRTrim extends UDF {
     if (s == null) {
       return null;
     }
-    result.set(StringUtils.stripEnd(s.toString(), " "));
+    byte[] data = s.getBytes();
+    int end = s.getLength();
+    while (end > 0 && data[end - 1] == ' ') {
+      end--;
+    }
+    result.set(data, 0, end);
     return result;
   }
 
@@ -45,6 +45,8 @@ public class UDFSecond extends UDF {
       "yyyy-MM-dd HH:mm:ss");
   private final SimpleDateFormat formatter2 = new SimpleDateFormat("HH:mm:ss");
   private final Calendar calendar = Calendar.getInstance();
+  private final FastDateParser parser = new FastDateParser(formatter1
+      .getTimeZone());
 
   private IntWritable result = new IntWritable();
 
@@ -66,6 +68,11 @@ public class UDFSecond extends UDF {
       return null;
     }
 
+    if (parser.parseDateTime(dateString) && parser.isRegularDay()) {
+      result.set(parser.getSecond());
+      return result;
+    }
+
     try {
       Date date = null;
       try {
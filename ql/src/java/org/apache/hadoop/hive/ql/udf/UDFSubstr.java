@@ -20,6 +20,7 @@ package org.apache.hadoop.hive.ql.udf;
 
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFUtils;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 
@@ -57,6 +58,76 @@ public class UDFSubstr extends UDF {
       return r;
     }
 
+    // pos and len count the chars of the String, which are the UTF-8
+    // characters as long as there are no characters above U+FFFF
+    byte[] data = t.getBytes();
+    int byteLength = t.getLength();
+    int start;
+    if (pos.get() > 0) {
+      start = pos.get() - 1;
+    } else if (pos.get() < 0) {
+      int length = countCharacters(data, byteLength);
+      if (length < 0) {
+        return evaluateString(t, pos, len);
+      }
+      if (-pos.get() > length) {
+        return r;
+      }
+      start = length + pos.get();
+    } else {
+      start = 0;
+    }
+
+    int startByte = skipCharacters(data, 0, byteLength, start);
+    int endByte = startByte < 0 ? -1 : skipCharacters(data, startByte,
+        byteLength, len.get());
+    if (endByte < 0) {
+      return evaluateString(t, pos, len);
+    }
+    r.set(data, startByte, endByte - startByte);
+    return r;
+  }
+
+  /**
+   * Returns the number of UTF-8 characters in data, or -1 if one of them is
+   * above U+FFFF.
+   */
+  private static int countCharacters(byte[] data, int byteLength) {
+    int count = 0;
+    for (int i = 0; i < byteLength; i++) {
+      if ((data[i] & 0xF8) == 0xF0) {
+        return -1;
+      }
+      if (GenericUDFUtils.isUtfStartByte(data[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the offset of the UTF-8 character that is count characters after
+   * the one at offset, or -1 if one of the skipped characters is above
+   * U+FFFF.
+   */
+  private static int skipCharacters(byte[] data, int offset, int byteLength,
+      int count) {
+    for (; count > 0 && offset < byteLength; count--) {
+      byte b = data[offset++];
+      if (b < 0) {
+        if ((b & 0xF8) == 0xF0) {
+          return -1;
+        }
+        while (offset < byteLength
+            && !GenericUDFUtils.isUtfStartByte(data[offset])) {
+          offset++;
+        }
+      }
+    }
+    return offset;
+  }
+
+  private Text evaluateString(Text t, IntWritable pos, IntWritable len) {
     String s = t.toString();
     if ((Math.abs(pos.get()) > s.length())) {
       return r;
@@ -40,6 +40,13 @@ public class UDFUnixTimeStamp extends UDF {
   // For now, we just use the default time zone.
   private final SimpleDateFormat formatter = new SimpleDateFormat(
       "yyyy-MM-dd HH:mm:ss");
+  private final FastDateParser parser = new FastDateParser(formatter
+      .getTimeZone());
+
+  /**
+   * Whether formatter still has the default pattern that parser handles.
+   */
+  private boolean defaultPattern = true;
 
   LongWritable result = new LongWritable();
 
@@ -69,6 +76,14 @@ public class UDFUnixTimeStamp extends UDF {
       return null;
     }
 
+    if (defaultPattern && parser.parseDateTime(dateText)) {
+      long millis = parser.getMillis();
+      if (millis != FastDateParser.NO_MILLIS) {
+        result.set(millis / 1000);
+        return result;
+      }
+    }
+
     try {
       Date date = formatter.parse(dateText.toString());
       result.set(date.getTime() / 1000);
@@ -97,6 +112,7 @@ public class UDFUnixTimeStamp extends UDF {
       if (!patternText.equals(lastPatternText)) {
         formatter.applyPattern(patternText.toString());
         lastPatternText.set(patternText);
+        defaultPattern = formatter.toPattern().equals("yyyy-MM-dd HH:mm:ss");
       }
     } catch (Exception e) {
       return null;
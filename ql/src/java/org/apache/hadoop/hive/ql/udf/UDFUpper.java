@@ -20,6 +20,7 @@ package org.apache.hadoop.hive.ql.udf;
 
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFUtils;
 import org.apache.hadoop.io.Text;
 
 /**
@@ -41,7 +42,7 @@ public class UDFUpper extends UDF {
     if (s == null) {
       return null;
     }
-    t.set(s.toString().toUpperCase());
+    GenericUDFUtils.toUpperCase(s, t);
     return t;
   }
 
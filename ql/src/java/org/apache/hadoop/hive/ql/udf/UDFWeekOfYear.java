@@ -42,6 +42,8 @@ import org.apache.hadoop.io.Text;
 public class UDFWeekOfYear extends UDF {
   private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
   private final Calendar calendar = Calendar.getInstance();
+  private final FastDateParser parser = new FastDateParser(formatter
+      .getTimeZone());
 
   private IntWritable result = new IntWritable();
 
@@ -63,6 +65,14 @@ public class UDFWeekOfYear extends UDF {
     if (dateString == null) {
       return null;
     }
+    if (parser.parseDate(dateString) && parser.isRegularDay()) {
+      int week = parser.getWeekOfYear();
+      if (week > 0) {
+        result.set(week);
+        return result;
+      }
+    }
+
     try {
       Date date = formatter.parse(dateString.toString());
       calendar.setTime(date);
@@ -41,6 +41,8 @@ import org.apache.hadoop.io.Text;
 public class UDFYear extends UDF {
   private final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
   private final Calendar calendar = Calendar.getInstance();
+  private final FastDateParser parser = new FastDateParser(formatter
+      .getTimeZone());
 
   private IntWritable result = new IntWritable();
 
@@ -62,6 +64,11 @@ public class UDFYear extends UDF {
       return null;
     }
 
+    if (parser.parseDate(dateString) && parser.isRegularDay()) {
+      result.set(parser.getYear());
+      return result;
+    }
+
     try {
       Date date = formatter.parse(dateString.toString());
       calendar.setTime(date);
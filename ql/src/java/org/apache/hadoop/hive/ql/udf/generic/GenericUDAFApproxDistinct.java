@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+
+/**
+ * Computes an approximate count of the distinct values of a column using a
+ * HyperLogLog sketch. The partial aggregation is the fixed-size sketch itself,
+ * so map-side aggregation and merging across reducers do not grow with the
+ * number of distinct values.
+ */
+@Description(name = "approx_distinct",
+    value = "_FUNC_(expr, [p]) - Returns the approximate number of distinct non-null "
+          + "values of 'expr'.",
+    extended = "The optional constant p (an integer between 4 and 16, default 12) sets "
+             + "the precision: the estimate uses 2^p one-byte registers per group and "
+             + "has a relative standard error of about 1.04/sqrt(2^p).\n"
+             + "Example:\n"
+             + "> SELECT approx_distinct(key, 14) FROM src;")
+public class GenericUDAFApproxDistinct extends AbstractGenericUDAFResolver {
+  // class static variables
+  static final Log LOG = LogFactory.getLog(GenericUDAFApproxDistinct.class.getName());
+
+  public static final int DEFAULT_PRECISION = 12;
+
+  @Override
+  public GenericUDAFEvaluator getEvaluator(TypeInfo[] parameters) throws SemanticException {
+    if (parameters.length != 1 && parameters.length != 2) {
+      throw new UDFArgumentTypeException(parameters.length - 1,
+          "Please specify either one or two arguments.");
+    }
+
+    // validate the first parameter, which is the expression to compute over
+    if (parameters[0].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+      throw new UDFArgumentTypeException(0,
+          "Only primitive type arguments are accepted but "
+          + parameters[0].getTypeName() + " was passed as parameter 1.");
+    }
+
+    // validate the second parameter, which is the precision of the sketch
+    if (parameters.length == 2) {
+      if (parameters[1].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+        throw new UDFArgumentTypeException(1,
+            "Only primitive type arguments are accepted but "
+            + parameters[1].getTypeName() + " was passed as parameter 2.");
+      }
+      switch (((PrimitiveTypeInfo) parameters[1]).getPrimitiveCategory()) {
+      case BYTE:
+      case SHORT:
+      case INT:
+        break;
+      default:
+        throw new UDFArgumentTypeException(1,
+            "Only an integer argument is accepted as parameter 2, but "
+            + parameters[1].getTypeName() + " was passed instead.");
+      }
+    }
+
+    return new GenericUDAFApproxDistinctEvaluator();
+  }
+
+  @Override
+  public GenericUDAFEvaluator getEvaluator(GenericUDAFParameterInfo info)
+      throws SemanticException {
+    GenericUDAFEvaluator evaluator = super.getEvaluator(info);
+
+    // Sketches of one aggregation must all have the same precision, so it
+    // can not change from row to row.
+    if (info.getParameters().length == 2) {
+      Object precision = info.getConstantParameters()[1];
+      if (!(precision instanceof Number)) {
+        throw new UDFArgumentTypeException(1,
+            "The precision, parameter 2, must be a constant integer.");
+      }
+      int p = ((Number) precision).intValue();
+      if (p < HyperLogLog.MIN_PRECISION || p > HyperLogLog.MAX_PRECISION) {
+        throw new UDFArgumentTypeException(1, "The precision must be between "
+            + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION
+            + ", but " + p + " was passed as parameter 2.");
+      }
+    }
+    return evaluator;
+  }
+
+  /**
+   * The evaluator keeps one HyperLogLog sketch per group. The value of every
+   * row is hashed to 64 bits and added to the sketch; partial results are the
+   * serialized sketches, which are merged by register-wise maximum.
+   */
+  public static class GenericUDAFApproxDistinctEvaluator extends GenericUDAFEvaluator {
+
+    // For PARTIAL1 and COMPLETE: ObjectInspectors for original data
+    private PrimitiveObjectInspector inputOI;
+    private PrimitiveObjectInspector precisionOI;
+
+    // For PARTIAL2 and FINAL: ObjectInspectors for partial aggregations (list of ints)
+    private StandardListObjectInspector loi;
+
+    private LongWritable result;
+
+    @Override
+    public ObjectInspector init(Mode m, ObjectInspector[] parameters) throws HiveException {
+      super.init(m, parameters);
+
+      // init input object inspectors
+      if (m == Mode.PARTIAL1 || m == Mode.COMPLETE) {
+        inputOI = (PrimitiveObjectInspector) parameters[0];
+        if (parameters.length > 1) {
+          precisionOI = (PrimitiveObjectInspector) parameters[1];
+        }
+      } else {
+        loi = (StandardListObjectInspector) parameters[0];
+      }
+
+      // init output object inspectors
+      if (m == Mode.PARTIAL1 || m == Mode.PARTIAL2) {
+        // The output of a partial aggregation is a list of ints holding the
+        // sketch: the precision followed by the packed registers.
+        return ObjectInspectorFactory.getStandardListObjectInspector(
+            PrimitiveObjectInspectorFactory.writableIntObjectInspector);
+      } else {
+        result = new LongWritable(0);
+        return PrimitiveObjectInspectorFactory.writableLongObjectInspector;
+      }
+    }
+
+    @Override
+    public void iterate(AggregationBuffer agg, Object[] parameters) throws HiveException {
+      HyperLogLogAgg myagg = (HyperLogLogAgg) agg;
+
+      // Parse out the precision only once, if we haven't already done so before.
+      if (!myagg.sketch.isReady()) {
+        int p = DEFAULT_PRECISION;
+        if (precisionOI != null && parameters[1] != null) {
+          p = PrimitiveObjectInspectorUtils.getInt(parameters[1], precisionOI);
+        }
+        if (p < HyperLogLog.MIN_PRECISION || p > HyperLogLog.MAX_PRECISION) {
+          throw new HiveException(getClass().getSimpleName() + " needs the precision to be "
+              + "between " + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION
+              + ", but you supplied " + p + ".");
+        }
+        myagg.sketch.allocate(p);
+      }
+
+      if (parameters[0] != null) {
+        myagg.sketch.add(parameters[0], inputOI);
+      }
+    }
+
+    @Override
+    public Object terminatePartial(AggregationBuffer agg) throws HiveException {
+      HyperLogLogAgg myagg = (HyperLogLogAgg) agg;
+      return myagg.sketch.serialize();
+    }
+
+    @Override
+    public void merge(AggregationBuffer agg, Object partial) throws HiveException {
+      if (partial == null) {
+        return;
+      }
+      HyperLogLogAgg myagg = (HyperLogLogAgg) agg;
+      List<IntWritable> partialSketch = (List<IntWritable>) loi.getList(partial);
+      myagg.sketch.merge(partialSketch);
+    }
+
+    @Override
+    public Object terminate(AggregationBuffer agg) throws HiveException {
+      HyperLogLogAgg myagg = (HyperLogLogAgg) agg;
+      result.set(myagg.sketch.estimate());
+      return result;
+    }
+
+    // Aggregation buffer definition and manipulation methods
+    static class HyperLogLogAgg implements AggregationBuffer {
+      HyperLogLog sketch;
+    };
+
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      HyperLogLogAgg result = new HyperLogLogAgg();
+      reset(result);
+      return result;
+    }
+
+    @Override
+    public void reset(AggregationBuffer agg) throws HiveException {
+      HyperLogLogAgg myagg = (HyperLogLogAgg) agg;
+      myagg.sketch = new HyperLogLog();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import java.lang.reflect.Type;
 import java.util.Arrays;
 
 import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
+import org.apache.hadoop.hive.ql.exec.MethodInvoker;
 import org.apache.hadoop.hive.ql.exec.UDAF;
 import org.apache.hadoop.hive.ql.exec.UDAFEvaluator;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
@@ -87,6 +88,20 @@ public class GenericUDAFBridge extends AbstractGenericUDAFResolver {
 
     Class<? extends UDAFEvaluator> udafEvaluator;
 
+    /**
+     * Whether the methods of udafEvaluator are called through generated
+     * invokers instead of reflection.
+     */
+    boolean generatedInvoker;
+
+    public boolean isGeneratedInvoker() {
+      return generatedInvoker;
+    }
+
+    public void setGeneratedInvoker(boolean generatedInvoker) {
+      this.generatedInvoker = generatedInvoker;
+    }
+
     transient ObjectInspector[] parameterOIs;
     transient Object result;
 
@@ -95,7 +110,15 @@ public class GenericUDAFBridge extends AbstractGenericUDAFResolver {
     transient Method terminatePartialMethod;
     transient Method terminateMethod;
 
+    transient MethodInvoker iterateInvoker;
+    transient MethodInvoker mergeInvoker;
+    transient MethodInvoker terminatePartialInvoker;
+    transient MethodInvoker terminateInvoker;
+
     transient ConversionHelper conversionHelper;
+    transient Object[] partialArgument;
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
 
     @Override
     public ObjectInspector init(Mode m, ObjectInspector[] parameters) throws HiveException {
@@ -118,6 +141,11 @@ public class GenericUDAFBridge extends AbstractGenericUDAFResolver {
           terminateMethod = method;
         }
       }
+      iterateInvoker = getInvoker(iterateMethod);
+      mergeInvoker = getInvoker(mergeMethod);
+      terminatePartialInvoker = getInvoker(terminatePartialMethod);
+      terminateInvoker = getInvoker(terminateMethod);
+      partialArgument = new Object[1];
 
       // Input: do Java/Writable conversion if needed
       Method aggregateMethod = null;
@@ -146,6 +174,14 @@ public class GenericUDAFBridge extends AbstractGenericUDAFResolver {
       }
     }
 
+    private MethodInvoker getInvoker(Method method) {
+      if (method == null) {
+        return null;
+      }
+      return generatedInvoker ? MethodInvoker.getGeneratedInvoker(method)
+          : MethodInvoker.getReflectionInvoker(method);
+    }
+
     /** class for storing UDAFEvaluator value. */
     static class UDAFAgg implements AggregationBuffer {
       UDAFEvaluator ueObject;
@@ -167,25 +203,27 @@ public class GenericUDAFBridge extends AbstractGenericUDAFResolver {
 
     @Override
     public void iterate(AggregationBuffer agg, Object[] parameters) throws HiveException {
-      FunctionRegistry.invoke(iterateMethod, ((UDAFAgg) agg).ueObject,
+      FunctionRegistry.invoke(iterateInvoker, ((UDAFAgg) agg).ueObject,
           conversionHelper.convertIfNecessary(parameters));
     }
 
     @Override
     public void merge(AggregationBuffer agg, Object partial) throws HiveException {
-      FunctionRegistry.invoke(mergeMethod, ((UDAFAgg) agg).ueObject,
-          conversionHelper.convertIfNecessary(partial));
+      partialArgument[0] = partial;
+      FunctionRegistry.invoke(mergeInvoker, ((UDAFAgg) agg).ueObject,
+          conversionHelper.convertIfNecessary(partialArgument));
     }
 
     @Override
     public Object terminate(AggregationBuffer agg) throws HiveException {
-      return FunctionRegistry.invoke(terminateMethod, ((UDAFAgg) agg).ueObject);
+      return FunctionRegistry.invoke(terminateInvoker,
+          ((UDAFAgg) agg).ueObject, NO_ARGUMENTS);
     }
 
     @Override
     public Object terminatePartial(AggregationBuffer agg) throws HiveException {
-      return FunctionRegistry.invoke(terminatePartialMethod,
-          ((UDAFAgg) agg).ueObject);
+      return FunctionRegistry.invoke(terminatePartialInvoker,
+          ((UDAFAgg) agg).ueObject, NO_ARGUMENTS);
     }
 
   }
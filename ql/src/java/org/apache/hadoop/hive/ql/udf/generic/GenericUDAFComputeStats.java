@@ -0,0 +1,371 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DoubleObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.LongObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+
+/**
+ * Computes the statistics of a column that are kept in the metastore: the
+ * number of nulls, the approximate number of distinct values, the range of
+ * numeric columns and the average and maximum length of string columns.
+ *
+ * All of them are gathered in one pass with a partial aggregation that is
+ * merged map-side and across reducers; the number of distinct values comes
+ * from a HyperLogLog sketch. This is used by ANALYZE TABLE ... COMPUTE
+ * STATISTICS FOR COLUMNS.
+ */
+@Description(name = "compute_stats",
+    value = "_FUNC_(x, [p]) - Returns the statistics summary of the column x as a struct of "
+          + "(numnulls, numdistincts, min, max, avglength, maxlength).",
+    extended = "The optional parameter p sets the precision of the estimated number of "
+             + "distinct values, see approx_distinct. min and max are only set for numeric "
+             + "and boolean columns, as a bigint for integer and boolean columns and a double "
+             + "otherwise; avglength and maxlength are only set for string columns.")
+public class GenericUDAFComputeStats extends AbstractGenericUDAFResolver {
+  // class static variables
+  static final Log LOG = LogFactory.getLog(GenericUDAFComputeStats.class.getName());
+
+  @Override
+  public GenericUDAFEvaluator getEvaluator(TypeInfo[] parameters) throws SemanticException {
+    if (parameters.length != 1 && parameters.length != 2) {
+      throw new UDFArgumentTypeException(parameters.length - 1,
+          "Please specify either one or two arguments.");
+    }
+
+    if (parameters[0].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+      throw new UDFArgumentTypeException(0,
+          "Only primitive type arguments are accepted but "
+          + parameters[0].getTypeName() + " was passed as parameter 1.");
+    }
+
+    if (parameters.length == 2) {
+      if (parameters[1].getCategory() != ObjectInspector.Category.PRIMITIVE
+          || ((PrimitiveTypeInfo) parameters[1]).getPrimitiveCategory()
+          != PrimitiveObjectInspector.PrimitiveCategory.INT) {
+        throw new UDFArgumentTypeException(1,
+            "Only an integer argument is accepted as parameter 2, but "
+            + parameters[1].getTypeName() + " was passed instead.");
+      }
+    }
+
+    return new GenericUDAFComputeStatsEvaluator();
+  }
+
+  /**
+   * The partial aggregation is a struct of (count, countnulls, min, max,
+   * sumlength, maxlength, sketch) where sketch is a serialized HyperLogLog.
+   * min and max are bigints for integer columns, so that values beyond 2^53
+   * stay exact, and doubles otherwise.
+   */
+  public static class GenericUDAFComputeStatsEvaluator extends GenericUDAFEvaluator {
+
+    // For PARTIAL1 and COMPLETE: ObjectInspectors for original data
+    private PrimitiveObjectInspector inputOI;
+    private PrimitiveObjectInspector precisionOI;
+    private boolean isString;
+    // whether min and max are kept as long rather than double
+    private boolean isIntegral;
+
+    // For PARTIAL2 and FINAL: ObjectInspectors for partial aggregations
+    private StructObjectInspector soi;
+    private StructField countField;
+    private StructField countNullsField;
+    private StructField minField;
+    private StructField maxField;
+    private StructField sumLengthField;
+    private StructField maxLengthField;
+    private StructField sketchField;
+    private LongObjectInspector countFieldOI;
+    private LongObjectInspector countNullsFieldOI;
+    private PrimitiveObjectInspector minFieldOI;
+    private PrimitiveObjectInspector maxFieldOI;
+    private LongObjectInspector sumLengthFieldOI;
+    private LongObjectInspector maxLengthFieldOI;
+    private StandardListObjectInspector sketchFieldOI;
+
+    // Output of PARTIAL1 and PARTIAL2
+    private Object[] partialResult;
+
+    // Output of FINAL and COMPLETE
+    private Object[] result;
+
+    @Override
+    public ObjectInspector init(Mode m, ObjectInspector[] parameters) throws HiveException {
+      super.init(m, parameters);
+
+      // init input object inspectors
+      if (m == Mode.PARTIAL1 || m == Mode.COMPLETE) {
+        inputOI = (PrimitiveObjectInspector) parameters[0];
+        isString = inputOI.getPrimitiveCategory()
+            == PrimitiveObjectInspector.PrimitiveCategory.STRING;
+        isIntegral = isIntegral(inputOI.getPrimitiveCategory());
+        if (parameters.length > 1) {
+          precisionOI = (PrimitiveObjectInspector) parameters[1];
+        }
+      } else {
+        soi = (StructObjectInspector) parameters[0];
+        countField = soi.getStructFieldRef("count");
+        countNullsField = soi.getStructFieldRef("countnulls");
+        minField = soi.getStructFieldRef("min");
+        maxField = soi.getStructFieldRef("max");
+        sumLengthField = soi.getStructFieldRef("sumlength");
+        maxLengthField = soi.getStructFieldRef("maxlength");
+        sketchField = soi.getStructFieldRef("sketch");
+        countFieldOI = (LongObjectInspector) countField.getFieldObjectInspector();
+        countNullsFieldOI = (LongObjectInspector) countNullsField.getFieldObjectInspector();
+        minFieldOI = (PrimitiveObjectInspector) minField.getFieldObjectInspector();
+        maxFieldOI = (PrimitiveObjectInspector) maxField.getFieldObjectInspector();
+        isIntegral = minFieldOI.getPrimitiveCategory()
+            == PrimitiveObjectInspector.PrimitiveCategory.LONG;
+        sumLengthFieldOI = (LongObjectInspector) sumLengthField.getFieldObjectInspector();
+        maxLengthFieldOI = (LongObjectInspector) maxLengthField.getFieldObjectInspector();
+        sketchFieldOI = (StandardListObjectInspector) sketchField.getFieldObjectInspector();
+      }
+
+      // init output object inspectors
+      ArrayList<ObjectInspector> foi = new ArrayList<ObjectInspector>();
+      ArrayList<String> fname = new ArrayList<String>();
+      ObjectInspector rangeOI = isIntegral
+          ? PrimitiveObjectInspectorFactory.writableLongObjectInspector
+          : PrimitiveObjectInspectorFactory.writableDoubleObjectInspector;
+      if (m == Mode.PARTIAL1 || m == Mode.PARTIAL2) {
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        foi.add(rangeOI);
+        foi.add(rangeOI);
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        foi.add(ObjectInspectorFactory.getStandardListObjectInspector(
+            PrimitiveObjectInspectorFactory.writableIntObjectInspector));
+        fname.add("count");
+        fname.add("countnulls");
+        fname.add("min");
+        fname.add("max");
+        fname.add("sumlength");
+        fname.add("maxlength");
+        fname.add("sketch");
+        partialResult = new Object[7];
+        partialResult[0] = new LongWritable(0);
+        partialResult[1] = new LongWritable(0);
+        partialResult[4] = new LongWritable(0);
+        partialResult[5] = new LongWritable(0);
+      } else {
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        foi.add(rangeOI);
+        foi.add(rangeOI);
+        foi.add(PrimitiveObjectInspectorFactory.writableDoubleObjectInspector);
+        foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        fname.add("numnulls");
+        fname.add("numdistincts");
+        fname.add("min");
+        fname.add("max");
+        fname.add("avglength");
+        fname.add("maxlength");
+        result = new Object[6];
+        result[0] = new LongWritable(0);
+        result[1] = new LongWritable(0);
+        result[4] = new DoubleWritable(0);
+        result[5] = new LongWritable(0);
+      }
+      return ObjectInspectorFactory.getStandardStructObjectInspector(fname, foi);
+    }
+
+    // Aggregation buffer definition and manipulation methods
+    static class StatsAgg implements AggregationBuffer {
+      long count;
+      long countNulls;
+      double min;
+      double max;
+      long minLong;
+      long maxLong;
+      long sumLength;
+      long maxLength;
+      HyperLogLog sketch;
+    };
+
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      StatsAgg result = new StatsAgg();
+      reset(result);
+      return result;
+    }
+
+    @Override
+    public void reset(AggregationBuffer agg) throws HiveException {
+      StatsAgg myagg = (StatsAgg) agg;
+      myagg.count = 0;
+      myagg.countNulls = 0;
+      myagg.min = Double.POSITIVE_INFINITY;
+      myagg.max = Double.NEGATIVE_INFINITY;
+      myagg.minLong = Long.MAX_VALUE;
+      myagg.maxLong = Long.MIN_VALUE;
+      myagg.sumLength = 0;
+      myagg.maxLength = 0;
+      myagg.sketch = new HyperLogLog();
+    }
+
+    @Override
+    public void iterate(AggregationBuffer agg, Object[] parameters) throws HiveException {
+      StatsAgg myagg = (StatsAgg) agg;
+
+      if (!myagg.sketch.isReady()) {
+        int p = GenericUDAFApproxDistinct.DEFAULT_PRECISION;
+        if (precisionOI != null && parameters[1] != null) {
+          p = PrimitiveObjectInspectorUtils.getInt(parameters[1], precisionOI);
+        }
+        if (p < HyperLogLog.MIN_PRECISION || p > HyperLogLog.MAX_PRECISION) {
+          throw new HiveException(getClass().getSimpleName() + " needs the precision to be "
+              + "between " + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION
+              + ", but you supplied " + p + ".");
+        }
+        myagg.sketch.allocate(p);
+      }
+
+      Object v = parameters[0];
+      if (v == null) {
+        myagg.countNulls++;
+        return;
+      }
+      myagg.count++;
+      myagg.sketch.add(v, inputOI);
+      if (isString) {
+        long len = ((StringObjectInspector) inputOI).getPrimitiveWritableObject(v).getLength();
+        myagg.sumLength += len;
+        myagg.maxLength = Math.max(myagg.maxLength, len);
+      } else if (isIntegral) {
+        long l = PrimitiveObjectInspectorUtils.getLong(v, inputOI);
+        myagg.minLong = Math.min(myagg.minLong, l);
+        myagg.maxLong = Math.max(myagg.maxLong, l);
+      } else {
+        double d = PrimitiveObjectInspectorUtils.getDouble(v, inputOI);
+        myagg.min = Math.min(myagg.min, d);
+        myagg.max = Math.max(myagg.max, d);
+      }
+    }
+
+    @Override
+    public Object terminatePartial(AggregationBuffer agg) throws HiveException {
+      StatsAgg myagg = (StatsAgg) agg;
+      ((LongWritable) partialResult[0]).set(myagg.count);
+      ((LongWritable) partialResult[1]).set(myagg.countNulls);
+      partialResult[2] = getMin(myagg);
+      partialResult[3] = getMax(myagg);
+      ((LongWritable) partialResult[4]).set(myagg.sumLength);
+      ((LongWritable) partialResult[5]).set(myagg.maxLength);
+      partialResult[6] = myagg.sketch.serialize();
+      return partialResult;
+    }
+
+    @Override
+    public void merge(AggregationBuffer agg, Object partial) throws HiveException {
+      if (partial == null) {
+        return;
+      }
+      StatsAgg myagg = (StatsAgg) agg;
+      myagg.count += countFieldOI.get(soi.getStructFieldData(partial, countField));
+      myagg.countNulls += countNullsFieldOI.get(soi.getStructFieldData(partial, countNullsField));
+      Object min = soi.getStructFieldData(partial, minField);
+      if (min != null) {
+        if (isIntegral) {
+          myagg.minLong = Math.min(myagg.minLong, ((LongObjectInspector) minFieldOI).get(min));
+        } else {
+          myagg.min = Math.min(myagg.min, ((DoubleObjectInspector) minFieldOI).get(min));
+        }
+      }
+      Object max = soi.getStructFieldData(partial, maxField);
+      if (max != null) {
+        if (isIntegral) {
+          myagg.maxLong = Math.max(myagg.maxLong, ((LongObjectInspector) maxFieldOI).get(max));
+        } else {
+          myagg.max = Math.max(myagg.max, ((DoubleObjectInspector) maxFieldOI).get(max));
+        }
+      }
+      myagg.sumLength += sumLengthFieldOI.get(soi.getStructFieldData(partial, sumLengthField));
+      myagg.maxLength = Math.max(myagg.maxLength,
+          maxLengthFieldOI.get(soi.getStructFieldData(partial, maxLengthField)));
+      myagg.sketch.merge((List<IntWritable>) sketchFieldOI.getList(
+          soi.getStructFieldData(partial, sketchField)));
+    }
+
+    @Override
+    public Object terminate(AggregationBuffer agg) throws HiveException {
+      StatsAgg myagg = (StatsAgg) agg;
+      ((LongWritable) result[0]).set(myagg.countNulls);
+      // the estimate can not exceed the number of values
+      ((LongWritable) result[1]).set(Math.min(myagg.sketch.estimate(), myagg.count));
+      result[2] = getMin(myagg);
+      result[3] = getMax(myagg);
+      ((DoubleWritable) result[4]).set(myagg.count == 0 ? 0 :
+          (double) myagg.sumLength / myagg.count);
+      ((LongWritable) result[5]).set(myagg.maxLength);
+      return result;
+    }
+
+    private Object getMin(StatsAgg myagg) {
+      if (isIntegral) {
+        return myagg.minLong <= myagg.maxLong ? new LongWritable(myagg.minLong) : null;
+      }
+      return myagg.min <= myagg.max ? new DoubleWritable(myagg.min) : null;
+    }
+
+    private Object getMax(StatsAgg myagg) {
+      if (isIntegral) {
+        return myagg.minLong <= myagg.maxLong ? new LongWritable(myagg.maxLong) : null;
+      }
+      return myagg.min <= myagg.max ? new DoubleWritable(myagg.max) : null;
+    }
+
+    private static boolean isIntegral(PrimitiveObjectInspector.PrimitiveCategory category) {
+      switch (category) {
+      case BOOLEAN:
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+        return true;
+      default:
+        return false;
+      }
+    }
+  }
+}
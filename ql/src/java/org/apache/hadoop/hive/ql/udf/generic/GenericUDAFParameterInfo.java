@@ -47,6 +47,14 @@ public interface GenericUDAFParameterInfo {
    */
   TypeInfo[] getParameters();
 
+  /**
+   * Returns the values of the parameters that are constant expressions, in
+   * the order of {@link #getParameters()}. The value of a parameter that is
+   * not a constant, or not known to be one, is <tt>null</tt>.
+   * @return the constant values of the parameters
+   */
+  Object[] getConstantParameters();
+
   /**
    * Returns <tt>true</tt> if the UDAF invocation was qualified with
    * <tt>DISTINCT</tt> keyword. Note that this is provided for informational
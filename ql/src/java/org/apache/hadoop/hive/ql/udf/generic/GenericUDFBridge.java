@@ -23,6 +23,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
+import org.apache.hadoop.hive.ql.exec.MethodInvoker;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
@@ -59,6 +60,12 @@ public class GenericUDFBridge extends GenericUDF implements Serializable {
    */
   Class<? extends UDF> udfClass;
 
+  /**
+   * Whether udfMethod is called through a generated invoker instead of
+   * reflection.
+   */
+  boolean generatedInvoker;
+
   /**
    * Greate a new GenericUDFBridge object.
    * 
@@ -102,11 +109,24 @@ public class GenericUDFBridge extends GenericUDF implements Serializable {
     return udfClass;
   }
 
+  public boolean isGeneratedInvoker() {
+    return generatedInvoker;
+  }
+
+  public void setGeneratedInvoker(boolean generatedInvoker) {
+    this.generatedInvoker = generatedInvoker;
+  }
+
   /**
    * The underlying method of the UDF class.
    */
   transient Method udfMethod;
 
+  /**
+   * Calls udfMethod.
+   */
+  transient MethodInvoker udfInvoker;
+
   /**
    * Helper to convert the parameters before passing to udfMethod.
    */
@@ -134,6 +154,8 @@ public class GenericUDFBridge extends GenericUDF implements Serializable {
     }
     udfMethod = udf.getResolver().getEvalMethod(argumentTypeInfos);
     udfMethod.setAccessible(true);
+    udfInvoker = generatedInvoker ? MethodInvoker.getGeneratedInvoker(udfMethod)
+        : MethodInvoker.getReflectionInvoker(udfMethod);
 
     // Create parameter converters
     conversionHelper = new ConversionHelper(udfMethod, arguments);
@@ -159,7 +181,7 @@ public class GenericUDFBridge extends GenericUDF implements Serializable {
     }
 
     // Call the function
-    Object result = FunctionRegistry.invoke(udfMethod, udf, conversionHelper
+    Object result = FunctionRegistry.invoke(udfInvoker, udf, conversionHelper
         .convertIfNecessary(realArguments));
 
     return result;
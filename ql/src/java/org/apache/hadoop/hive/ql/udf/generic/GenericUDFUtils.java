@@ -24,6 +24,7 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.Locale;
 
 import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
@@ -54,6 +55,200 @@ public final class GenericUDFUtils {
     return (b & 0xC0) != 0x80;
   }
 
+  /**
+   * Whether String.toUpperCase and toLowerCase change only the ASCII letters
+   * of ASCII text in the default locale. This is not the case in Turkish,
+   * for instance, where the upper case of i is not I.
+   */
+  private static final boolean ASCII_CASE_MAPPING = isAsciiCaseMapping();
+
+  private static boolean isAsciiCaseMapping() {
+    for (char c = 0; c < 0x80; c++) {
+      String s = String.valueOf(c);
+      char upper = (c >= 'a' && c <= 'z') ? (char) (c - 'a' + 'A') : c;
+      char lower = (c >= 'A' && c <= 'Z') ? (char) (c - 'A' + 'a') : c;
+      if (!s.toUpperCase().equals(String.valueOf(upper))
+          || !s.toLowerCase().equals(String.valueOf(lower))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether the case of a character can be changed without looking at the
+   * characters around it. String.toLowerCase looks at them for the final
+   * sigma, which is handled apart, and in Lithuanian for the dot above i.
+   */
+  private static final boolean CHAR_CASE_MAPPING = ASCII_CASE_MAPPING
+      && !"lt".equals(Locale.getDefault().getLanguage());
+
+  // marks the chars that String does not map to exactly one char
+  private static final char NO_MAPPING = '\uD800';
+  private static final char GREEK_CAPITAL_SIGMA = '\u03A3';
+
+  // the case mappings of the chars of the Basic Multilingual Plane, filled
+  // in as they are met; 0 when not computed yet
+  private static final char[] UPPER_CASE = new char[0x10000];
+  private static final char[] LOWER_CASE = new char[0x10000];
+
+  private static char changeCase(char c, boolean upper) {
+    char[] mapping = upper ? UPPER_CASE : LOWER_CASE;
+    char m = mapping[c];
+    if (m == 0) {
+      String s = String.valueOf(c);
+      String changed = upper ? s.toUpperCase() : s.toLowerCase();
+      m = changed.length() == 1 ? changed.charAt(0) : NO_MAPPING;
+      if (!upper && c == GREEK_CAPITAL_SIGMA) {
+        // its lower case depends on whether it ends a word
+        m = NO_MAPPING;
+      }
+      mapping[c] = m;
+    }
+    return m;
+  }
+
+  /**
+   * Sets result to text in upper case, as String.toUpperCase does. The
+   * characters are converted one at a time on the UTF-8 bytes, without
+   * decoding the whole text. result must not be text.
+   */
+  public static void toUpperCase(Text text, Text result) {
+    changeCase(text, result, true);
+  }
+
+  /**
+   * Sets result to text in lower case, as String.toLowerCase does. The
+   * characters are converted one at a time on the UTF-8 bytes, without
+   * decoding the whole text. result must not be text.
+   */
+  public static void toLowerCase(Text text, Text result) {
+    changeCase(text, result, false);
+  }
+
+  private static void changeCase(Text text, Text result, boolean upper) {
+    byte[] data = text.getBytes();
+    int length = text.getLength();
+    if (ASCII_CASE_MAPPING) {
+      // set() only grows the buffer of result, so the rows after the first
+      // few do not allocate. A character is never longer in the other case
+      // than in data, or the text is converted by String below, so the
+      // result is written over the copy.
+      result.set(data, 0, length);
+      byte[] out = result.getBytes();
+      char first = upper ? 'a' : 'A';
+      char last = upper ? 'z' : 'Z';
+      int shift = upper ? 'A' - 'a' : 'a' - 'A';
+      int i = 0;
+      int j = 0;
+      while (i < length) {
+        int b = data[i];
+        if (b >= 0) {
+          out[j++] = (byte) (b >= first && b <= last ? b + shift : b);
+          i++;
+          continue;
+        }
+        if (!CHAR_CASE_MAPPING) {
+          break;
+        }
+        int n = getUtf8Length(data, i, length);
+        if (n == 0) {
+          break;
+        }
+        int c = decodeUtf8(data, i, n);
+        int m;
+        if (c < 0x10000) {
+          m = changeCase((char) c, upper);
+          if (m == NO_MAPPING) {
+            break;
+          }
+        } else {
+          // no supplementary character has a special case mapping
+          m = upper ? Character.toUpperCase(c) : Character.toLowerCase(c);
+        }
+        if (getUtf8Length(m) > n) {
+          break;
+        }
+        j = encodeUtf8(m, out, j);
+        i += n;
+      }
+      if (i == length) {
+        if (j < length) {
+          result.set(out, 0, j);
+        }
+        return;
+      }
+    }
+    String s = text.toString();
+    result.set(upper ? s.toUpperCase() : s.toLowerCase());
+  }
+
+  /**
+   * Returns the length of the well formed UTF-8 sequence of a non ASCII
+   * character at data[i], or 0 if there is none.
+   */
+  private static int getUtf8Length(byte[] data, int i, int length) {
+    int b = data[i] & 0xFF;
+    int n;
+    int min;
+    if (b >= 0xC2 && b <= 0xDF) {
+      n = 2;
+      min = 0x80;
+    } else if (b >= 0xE0 && b <= 0xEF) {
+      n = 3;
+      min = 0x800;
+    } else if (b >= 0xF0 && b <= 0xF4) {
+      n = 4;
+      min = 0x10000;
+    } else {
+      return 0;
+    }
+    if (i + n > length) {
+      return 0;
+    }
+    for (int k = 1; k < n; k++) {
+      if ((data[i + k] & 0xC0) != 0x80) {
+        return 0;
+      }
+    }
+    int c = decodeUtf8(data, i, n);
+    if (c < min || c > Character.MAX_CODE_POINT || (c >= 0xD800 && c <= 0xDFFF)) {
+      return 0;
+    }
+    return n;
+  }
+
+  private static int decodeUtf8(byte[] data, int i, int n) {
+    int c = data[i] & (0xFF >> (n + 1));
+    for (int k = 1; k < n; k++) {
+      c = (c << 6) | (data[i + k] & 0x3F);
+    }
+    return c;
+  }
+
+  private static int getUtf8Length(int c) {
+    return c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+  }
+
+  private static int encodeUtf8(int c, byte[] out, int j) {
+    if (c < 0x80) {
+      out[j++] = (byte) c;
+    } else if (c < 0x800) {
+      out[j++] = (byte) (0xC0 | (c >> 6));
+      out[j++] = (byte) (0x80 | (c & 0x3F));
+    } else if (c < 0x10000) {
+      out[j++] = (byte) (0xE0 | (c >> 12));
+      out[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      out[j++] = (byte) (0x80 | (c & 0x3F));
+    } else {
+      out[j++] = (byte) (0xF0 | (c >> 18));
+      out[j++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+      out[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      out[j++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return j;
+  }
+
   /**
    * This class helps to find the return ObjectInspector for a GenericUDF.
    * 
@@ -52,6 +52,7 @@ public class GenericUDTFJSONTuple extends GenericUDTF {
   Text[] cols;    // object pool of non-null Text, avoid creating objects all the time
   Object[] nullCols; // array of null column values
   ObjectInspector[] inputOIs; // input ObjectInspectors
+  JsonPathScanner scanner; // finds the paths without parsing the whole string
   boolean pathParsed = false;
   boolean seenErrors = false;
 
@@ -112,19 +113,38 @@ public class GenericUDTFJSONTuple extends GenericUDTF {
     }
     // get the path expression for the 1st row only
     if (!pathParsed) {
+      JsonPathScanner.Path[] scannedPaths = new JsonPathScanner.Path[numCols];
       for (int i = 0;i < numCols; ++i) {
         paths[i] = ((StringObjectInspector) inputOIs[i+1]).getPrimitiveJavaObject(o[i+1]);
+        scannedPaths[i] = JsonPathScanner.memberPath(paths[i]);
       }
+      scanner = new JsonPathScanner(scannedPaths);
       pathParsed = true;
     }
 
-    String jsonStr = ((StringObjectInspector) inputOIs[0]).getPrimitiveJavaObject(o[0]);
-    if (jsonStr == null) {
+    Text jsonText = ((StringObjectInspector) inputOIs[0]).getPrimitiveWritableObject(o[0]);
+    if (jsonText == null) {
       forward(nullCols);
       return;
     }
     try {
-      JSONObject jsonObj = new JSONObject(jsonStr);
+      // look the names up in the bytes, and parse only what the scanner leaves out
+      if (scanner.scan(jsonText)) {
+        for (int i = 0; i < numCols; ++i) {
+          if (scanner.isNull(i)) {
+            retCols[i] = null;
+          } else {
+            if (retCols[i] == null) {
+              retCols[i] = cols[i];
+            }
+            scanner.getValue(i, retCols[i]);
+          }
+        }
+        forward(retCols);
+        return;
+      }
+
+      JSONObject jsonObj = new JSONObject(jsonText.toString());
 
       for (int i = 0; i < numCols; ++i) {
         if (jsonObj.isNull(paths[i])) {
@@ -141,7 +161,7 @@ public class GenericUDTFJSONTuple extends GenericUDTF {
     } catch (JSONException e) {
       // parsing error, invalid JSON string
       if (!seenErrors) {
-        LOG.error("The input is not a valid JSON string: " + jsonStr + ". Skipping such error messages in the future.");
+        LOG.error("The input is not a valid JSON string: " + jsonText + ". Skipping such error messages in the future.");
         seenErrors = true;
       }
       forward(nullCols);
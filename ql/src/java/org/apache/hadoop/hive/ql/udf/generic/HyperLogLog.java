@@ -0,0 +1,291 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BooleanObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * A generic, re-usable cardinality estimator that supports partial aggregations.
+ * The algorithm is described in the following paper:
+ * Philippe Flajolet, Eric Fusy, Olivier Gandouet and Frederic Meunier, "HyperLogLog:
+ * the analysis of a near-optimal cardinality estimation algorithm", AofA 2007.
+ *
+ * The sketch keeps 2^precision one-byte registers, so its size does not depend on the
+ * number of values added, and two sketches are merged by taking the register-wise maximum.
+ * The relative standard error of the estimate is about 1.04 / sqrt(2^precision).
+ */
+public class HyperLogLog {
+
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 16;
+
+  // Class variables
+  private int precision;
+  private byte[] registers;
+
+  /**
+   * Creates a new sketch object. Note that the allocate() or merge()
+   * method must be called before the sketch can be used.
+   */
+  public HyperLogLog() {
+    reset();
+  }
+
+  /**
+   * Resets a sketch object to its initial state. allocate() or merge() must be
+   * called again before use.
+   */
+  public void reset() {
+    precision = 0;
+    registers = null;
+  }
+
+  /**
+   * Returns true if this sketch object has been initialized by calling merge()
+   * or allocate().
+   */
+  public boolean isReady() {
+    return precision != 0;
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Sets the number of index bits to use for approximating the cardinality.
+   *
+   * @param p The sketch uses 2^p registers
+   */
+  public void allocate(int p) {
+    if (p < MIN_PRECISION || p > MAX_PRECISION) {
+      throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION
+          + " and " + MAX_PRECISION + ", but " + p + " was given.");
+    }
+    precision = p;
+    registers = new byte[1 << p];
+  }
+
+  /**
+   * Adds a value, given by its 64-bit hash, to the sketch.
+   */
+  public void addHash(long hash) {
+    int idx = (int) (hash >>> (64 - precision));
+    // Position of the leftmost 1-bit in the remaining bits, with a sentinel bit so
+    // that an all-zero suffix is bounded by 64 - precision + 1
+    long w = (hash << precision) | (1L << (precision - 1));
+    byte rho = (byte) (Long.numberOfLeadingZeros(w) + 1);
+    if (rho > registers[idx]) {
+      registers[idx] = rho;
+    }
+  }
+
+  public void add(long v) {
+    addHash(hash64(v));
+  }
+
+  public void add(byte[] bytes, int start, int len) {
+    addHash(hash64(bytes, start, len));
+  }
+
+  /**
+   * Adds a non-null primitive value. Values are hashed by their content, so the
+   * same value read through different object inspectors hashes alike.
+   */
+  public void add(Object o, PrimitiveObjectInspector oi) {
+    switch (oi.getPrimitiveCategory()) {
+    case BOOLEAN:
+      add(((BooleanObjectInspector) oi).get(o) ? 1 : 0);
+      break;
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+      add(PrimitiveObjectInspectorUtils.getLong(o, oi));
+      break;
+    case FLOAT:
+    case DOUBLE:
+      add(Double.doubleToLongBits(PrimitiveObjectInspectorUtils.getDouble(o, oi)));
+      break;
+    case STRING:
+      // Hash the UTF-8 bytes so that lazy and java strings agree
+      Text t = ((StringObjectInspector) oi).getPrimitiveWritableObject(o);
+      add(t.getBytes(), 0, t.getLength());
+      break;
+    default:
+      break;
+    }
+  }
+
+  /**
+   * Returns the estimated number of distinct values added to the sketch.
+   */
+  public long estimate() {
+    if (registers == null) {
+      return 0;
+    }
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (int i = 0; i < m; i++) {
+      sum += 1.0 / (1L << registers[i]);
+      if (registers[i] == 0) {
+        zeros++;
+      }
+    }
+    double e = alpha(m) * m * m / sum;
+    // Small range correction: fall back to linear counting while there are
+    // empty registers. No large range correction is needed with a 64-bit hash.
+    if (e <= 2.5 * m && zeros != 0) {
+      e = m * Math.log((double) m / zeros);
+    }
+    return Math.round(e);
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+    case 16:
+      return 0.673;
+    case 32:
+      return 0.697;
+    case 64:
+      return 0.709;
+    default:
+      return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+
+  /**
+   * Takes a serialized sketch created by the serialize() method and merges
+   * it with the current sketch object. If the two sketches were built with a
+   * different precision, the result has the smaller of the two.
+   *
+   * @param other A serialized sketch created by the serialize() method
+   */
+  public void merge(List<IntWritable> other) {
+    if (other == null || other.isEmpty()) {
+      return;
+    }
+    int otherPrecision = other.get(0).get();
+    if (otherPrecision == 0) {
+      return;
+    }
+    if (precision == 0) {
+      allocate(otherPrecision);
+    } else if (otherPrecision < precision) {
+      fold(otherPrecision);
+    }
+
+    // Registers are packed four to an int, big-endian
+    int shift = otherPrecision - precision;
+    for (int i = 0; i < (1 << otherPrecision); i++) {
+      int packed = other.get(1 + (i >> 2)).get();
+      byte r = (byte) (packed >>> (24 - 8 * (i & 3)));
+      if (shift == 0) {
+        if (r > registers[i]) {
+          registers[i] = r;
+        }
+      } else {
+        mergeFolded(i, r, shift);
+      }
+    }
+  }
+
+  /**
+   * Reduces the precision of this sketch to p.
+   */
+  private void fold(int p) {
+    byte[] old = registers;
+    int shift = precision - p;
+    allocate(p);
+    for (int i = 0; i < old.length; i++) {
+      mergeFolded(i, old[i], shift);
+    }
+  }
+
+  /**
+   * Merges register i of a sketch whose precision is larger by shift bits.
+   */
+  private void mergeFolded(int i, byte r, int shift) {
+    if (r == 0) {
+      return;
+    }
+    // The low index bits of the larger sketch lead the suffix of the smaller one
+    int low = i & ((1 << shift) - 1);
+    byte rho;
+    if (low != 0) {
+      rho = (byte) (Integer.numberOfLeadingZeros(low) - (32 - shift) + 1);
+    } else {
+      rho = (byte) (shift + r);
+    }
+    int idx = i >>> shift;
+    if (rho > registers[idx]) {
+      registers[idx] = rho;
+    }
+  }
+
+  /**
+   * In preparation for a Hive merge() call, serializes the current sketch object into an
+   * ArrayList of IntWritable objects. The first element is the precision, and the
+   * registers follow packed four to an int, so the size only depends on the precision.
+   *
+   * @return An ArrayList of Hadoop IntWritable objects that represents the current sketch.
+   */
+  public ArrayList<IntWritable> serialize() {
+    ArrayList<IntWritable> result = new ArrayList<IntWritable>();
+    result.add(new IntWritable(precision));
+    if (registers != null) {
+      for (int i = 0; i < registers.length; i += 4) {
+        int packed = ((registers[i] & 0xff) << 24) | ((registers[i + 1] & 0xff) << 16)
+            | ((registers[i + 2] & 0xff) << 8) | (registers[i + 3] & 0xff);
+        result.add(new IntWritable(packed));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finalization step of MurmurHash3, spreads the bits of a 64-bit value.
+   */
+  static long hash64(long v) {
+    v ^= v >>> 33;
+    v *= 0xff51afd7ed558ccdL;
+    v ^= v >>> 33;
+    v *= 0xc4ceb9fe1a85ec53L;
+    v ^= v >>> 33;
+    return v;
+  }
+
+  static long hash64(byte[] bytes, int start, int len) {
+    // 64-bit FNV-1a followed by a final mix
+    long h = 0xcbf29ce484222325L;
+    for (int i = start; i < start + len; i++) {
+      h ^= bytes[i] & 0xff;
+      h *= 0x100000001b3L;
+    }
+    return hash64(h ^ len);
+  }
+}
@@ -0,0 +1,709 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.nio.charset.CharacterCodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Text;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * JsonPathScanner finds the values of a fixed set of paths in a JSON object
+ * with a single pass over its UTF-8 bytes, the way get_json_object and
+ * json_tuple would find them in the JSONObject built from the same text.
+ *
+ * Only the values on the paths are decoded: other members are skipped,
+ * though still checked, so that a syntax error or a repeated member name
+ * anywhere in the object makes the scan fail where org.json would reject the
+ * text. A value that is an object or an array is handed to org.json, which
+ * gives the same string for it as the full parse would.
+ *
+ * The scanner does not follow the lenient syntax org.json accepts besides
+ * JSON (single quotes, comments, other separators), names with escapes or
+ * bytes beyond ASCII, nor the paths that go through a value of an unexpected
+ * type. {@link #scan} returns false then, and the caller has to parse the
+ * text with org.json instead.
+ */
+public class JsonPathScanner {
+
+  /**
+   * A chain of member names and array indexes, starting at the root object.
+   */
+  public static final class Path {
+    // the name to look up at each step, or null for an array index
+    final byte[][] keys;
+    final int[] indexes;
+
+    Path(byte[][] keys, int[] indexes) {
+      this.keys = keys;
+      this.indexes = indexes;
+    }
+
+    int length() {
+      return keys.length;
+    }
+  }
+
+  /**
+   * Compiles a get_json_object path such as $.store.book[0].title.
+   *
+   * @return the path, or null if it uses syntax other than member names and
+   *         array indexes, such as the [*] wildcard
+   */
+  public static Path compilePath(String pathString) {
+    String[] pathExpr = pathString.split("\\.", -1);
+    if (!pathExpr[0].equals("$")) {
+      return null;
+    }
+    ArrayList<byte[]> keys = new ArrayList<byte[]>();
+    ArrayList<Integer> indexes = new ArrayList<Integer>();
+    for (int i = 1; i < pathExpr.length; i++) {
+      String expr = pathExpr[i];
+      int pos = 0;
+      while (pos < expr.length() && isKeyChar(expr.charAt(pos))) {
+        pos++;
+      }
+      if (pos == 0) {
+        return null;
+      }
+      keys.add(utf8(expr.substring(0, pos)));
+      indexes.add(-1);
+      while (pos < expr.length()) {
+        if (expr.charAt(pos) != '[') {
+          return null;
+        }
+        int start = ++pos;
+        while (pos < expr.length() && Character.isDigit(expr.charAt(pos))
+            && expr.charAt(pos) < 0x80) {
+          pos++;
+        }
+        // larger indexes do not fit an int, which fails get_json_object
+        if (pos == start || pos - start > 9 || pos == expr.length()
+            || expr.charAt(pos) != ']') {
+          return null;
+        }
+        keys.add(null);
+        indexes.add(Integer.parseInt(expr.substring(start, pos)));
+        pos++;
+      }
+    }
+    int[] indexArray = new int[indexes.size()];
+    for (int i = 0; i < indexArray.length; i++) {
+      indexArray[i] = indexes.get(i);
+    }
+    return new Path(keys.toArray(new byte[keys.size()][]), indexArray);
+  }
+
+  /**
+   * Returns the path of a member of the root object, as used by json_tuple.
+   * A null name gives a path that is never found.
+   */
+  public static Path memberPath(String key) {
+    if (key == null) {
+      return null;
+    }
+    return new Path(new byte[][] {utf8(key)}, new int[] {-1});
+  }
+
+  private static boolean isKeyChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9') || c == '_' || c == '-';
+  }
+
+  private static byte[] utf8(String s) {
+    Text text = new Text(s);
+    return Arrays.copyOf(text.getBytes(), text.getLength());
+  }
+
+  // what a path led to
+  private static final byte MISSING = 0;
+  private static final byte STRING = 1;
+  private static final byte ESCAPED_STRING = 2;
+  private static final byte TOKEN = 3;
+  private static final byte OBJECT = 4;
+  private static final byte ARRAY = 5;
+
+  // how a part of the scan ended
+  private static final int CONTINUE = 0;
+  private static final int FALLBACK = 1;
+
+  // the bytes org.json ends an unquoted value at, besides control characters
+  private static final boolean[] TOKEN_END = new boolean[128];
+  static {
+    for (int i = 0; i <= ' '; i++) {
+      TOKEN_END[i] = true;
+    }
+    for (char c : ",:]}/\\\"[{;=#".toCharArray()) {
+      TOKEN_END[c] = true;
+    }
+  }
+
+  private final Path[] paths;
+  // active[depth] holds the paths that matched the values above depth
+  private final int[][] active;
+  private final byte[] kinds;
+  private final int[] starts;
+  private final int[] ends;
+
+  // the member names of the objects being read, to find a repeated one
+  private int[] nameStarts = new int[16];
+  private int[] nameEnds = new int[16];
+  private int[] nameHashes = new int[16];
+  private int nameCount;
+
+  private byte[] bytes;
+  private int pos;
+  private int end;
+
+  private final StringBuilder unescaped = new StringBuilder();
+
+  /**
+   * @param paths
+   *          the paths to look for; a null path is never found
+   */
+  public JsonPathScanner(Path... paths) {
+    this.paths = paths;
+    int maxLength = 0;
+    for (Path path : paths) {
+      if (path != null) {
+        maxLength = Math.max(maxLength, path.length());
+      }
+    }
+    active = new int[maxLength + 1][paths.length];
+    kinds = new byte[paths.length];
+    starts = new int[paths.length];
+    ends = new int[paths.length];
+  }
+
+  /**
+   * Looks for the paths in the JSON object in the given bytes. The bytes
+   * must not change until the values have been read.
+   *
+   * @return false if the text has to be parsed by org.json instead
+   */
+  public boolean scan(byte[] bytes, int start, int length) {
+    this.bytes = bytes;
+    pos = start;
+    end = start + length;
+    nameCount = 0;
+    int count = 0;
+    for (int i = 0; i < paths.length; i++) {
+      kinds[i] = MISSING;
+      if (paths[i] != null) {
+        active[0][count++] = i;
+      }
+    }
+    skipWhitespace();
+    if (pos == end || bytes[pos] != '{') {
+      return false;
+    }
+    // like org.json, the text after the object is not looked at
+    return scanValue(0, count) == CONTINUE;
+  }
+
+  /**
+   * @see #scan(byte[], int, int)
+   */
+  public boolean scan(Text text) {
+    return scan(text.getBytes(), 0, text.getLength());
+  }
+
+  /**
+   * Whether path i led to a value.
+   */
+  public boolean isFound(int i) {
+    return kinds[i] != MISSING;
+  }
+
+  /**
+   * Whether path i led nowhere or to null, as JSONObject.isNull tells.
+   */
+  public boolean isNull(int i) {
+    if (kinds[i] == MISSING) {
+      return true;
+    }
+    if (kinds[i] != TOKEN || ends[i] - starts[i] != 4) {
+      return false;
+    }
+    // org.json reads any case of null as null
+    for (int j = 0; j < 4; j++) {
+      if ((bytes[starts[i] + j] | 0x20) != "null".charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sets result to the string org.json gives for the value path i led to.
+   * The path must have been found.
+   */
+  public void getValue(int i, Text result) throws CharacterCodingException,
+      JSONException {
+    int start = starts[i];
+    int length = ends[i] - start;
+    switch (kinds[i]) {
+    case STRING:
+      result.set(bytes, start + 1, length - 2);
+      break;
+    case ESCAPED_STRING:
+      result.set(unescape(Text.decode(bytes, start + 1, length - 2)));
+      break;
+    case TOKEN:
+      result.set(JSONObject.stringToValue(Text.decode(bytes, start, length))
+          .toString());
+      break;
+    case OBJECT:
+      result.set(new JSONObject(Text.decode(bytes, start, length)).toString());
+      break;
+    case ARRAY:
+      result.set(new JSONArray(Text.decode(bytes, start, length)).toString());
+      break;
+    default:
+      throw new IllegalStateException("Path " + i + " was not found");
+    }
+  }
+
+  /**
+   * Reads the value at pos, which the active paths at depth lead to, and
+   * records it for those that end here.
+   */
+  private int scanValue(int depth, int count) {
+    int[] ids = active[depth];
+    int start = pos;
+    boolean ending = false;
+    boolean descending = false;
+    for (int i = 0; i < count; i++) {
+      if (paths[ids[i]].length() == depth) {
+        ending = true;
+      } else {
+        descending = true;
+      }
+    }
+
+    byte kind;
+    if (!descending) {
+      kind = skipValue();
+      if (kind == MISSING) {
+        return FALLBACK;
+      }
+    } else {
+      int result;
+      if (bytes[pos] == '{') {
+        kind = OBJECT;
+        result = scanObject(depth, count);
+      } else if (bytes[pos] == '[') {
+        kind = ARRAY;
+        result = scanArray(depth, count);
+      } else {
+        // get_json_object has its own rules for stepping into a scalar
+        return FALLBACK;
+      }
+      if (result != CONTINUE) {
+        return result;
+      }
+    }
+
+    if (ending) {
+      for (int i = 0; i < count; i++) {
+        int path = ids[i];
+        if (paths[path].length() == depth) {
+          kinds[path] = kind;
+          starts[path] = start;
+          ends[path] = pos;
+        }
+      }
+    }
+    return CONTINUE;
+  }
+
+  /**
+   * Reads the object at pos, descending into the members the active paths
+   * at depth name.
+   */
+  private int scanObject(int depth, int count) {
+    int[] ids = active[depth];
+    int[] next = active[depth + 1];
+    for (int i = 0; i < count; i++) {
+      Path path = paths[ids[i]];
+      if (path.length() > depth && path.keys[depth] == null) {
+        // an index into an object is left out by get_json_object
+        return FALLBACK;
+      }
+    }
+
+    int base = nameCount;
+    pos++;
+    skipWhitespace();
+    if (pos < end && bytes[pos] == '}') {
+      pos++;
+      return CONTINUE;
+    }
+    while (true) {
+      int keyStart = pos + 1;
+      int keyEnd = scanName(base);
+      if (keyEnd < 0) {
+        return FALLBACK;
+      }
+
+      int matched = 0;
+      for (int i = 0; i < count; i++) {
+        Path path = paths[ids[i]];
+        if (path.length() > depth
+            && equals(path.keys[depth], keyStart, keyEnd)) {
+          next[matched++] = ids[i];
+        }
+      }
+      if (matched == 0) {
+        if (skipValue() == MISSING) {
+          return FALLBACK;
+        }
+      } else {
+        int result = scanValue(depth + 1, matched);
+        if (result != CONTINUE) {
+          return result;
+        }
+      }
+
+      skipWhitespace();
+      if (pos == end) {
+        return FALLBACK;
+      }
+      byte b = bytes[pos++];
+      if (b == '}') {
+        nameCount = base;
+        return CONTINUE;
+      }
+      if (b != ',') {
+        return FALLBACK;
+      }
+      skipWhitespace();
+    }
+  }
+
+  /**
+   * Reads the array at pos, descending into the elements the active paths at
+   * depth index.
+   */
+  private int scanArray(int depth, int count) {
+    int[] ids = active[depth];
+    int[] next = active[depth + 1];
+    for (int i = 0; i < count; i++) {
+      Path path = paths[ids[i]];
+      if (path.length() > depth && path.keys[depth] != null) {
+        // get_json_object collects a name from all the elements
+        return FALLBACK;
+      }
+    }
+
+    pos++;
+    skipWhitespace();
+    if (pos < end && bytes[pos] == ']') {
+      pos++;
+      return CONTINUE;
+    }
+    for (int index = 0;; index++) {
+      if (pos == end) {
+        return FALLBACK;
+      }
+      int matched = 0;
+      for (int i = 0; i < count; i++) {
+        Path path = paths[ids[i]];
+        if (path.length() > depth && path.indexes[depth] == index) {
+          next[matched++] = ids[i];
+        }
+      }
+      if (matched == 0) {
+        if (skipValue() == MISSING) {
+          return FALLBACK;
+        }
+      } else {
+        int result = scanValue(depth + 1, matched);
+        if (result != CONTINUE) {
+          return result;
+        }
+      }
+
+      skipWhitespace();
+      if (pos == end) {
+        return FALLBACK;
+      }
+      byte b = bytes[pos++];
+      if (b == ']') {
+        return CONTINUE;
+      }
+      if (b != ',') {
+        return FALLBACK;
+      }
+      skipWhitespace();
+    }
+  }
+
+  /**
+   * Moves past the member name at pos and the colon after it, and adds the
+   * name to those of the object whose names start at base.
+   *
+   * @return the end of the name, or -1 if the name is repeated or has to be
+   *         read by org.json
+   */
+  private int scanName(int base) {
+    if (pos == end || bytes[pos] != '"') {
+      return -1;
+    }
+    int nameStart = ++pos;
+    int hash = 0;
+    while (pos < end && bytes[pos] != '"') {
+      byte b = bytes[pos++];
+      // escapes and malformed UTF-8 could make two different names decode to
+      // the same string, and org.json ends a name at a line break or NUL
+      if (b == '\\' || b < ' ') {
+        return -1;
+      }
+      hash = 31 * hash + b;
+    }
+    if (pos == end) {
+      return -1;
+    }
+    int nameEnd = pos++;
+
+    // org.json rejects the whole text on a name repeated in any object
+    for (int i = base; i < nameCount; i++) {
+      if (nameHashes[i] == hash
+          && nameEnds[i] - nameStarts[i] == nameEnd - nameStart
+          && equals(nameStarts[i], nameStart, nameEnd - nameStart)) {
+        return -1;
+      }
+    }
+    if (nameCount == nameHashes.length) {
+      nameStarts = Arrays.copyOf(nameStarts, nameCount * 2);
+      nameEnds = Arrays.copyOf(nameEnds, nameCount * 2);
+      nameHashes = Arrays.copyOf(nameHashes, nameCount * 2);
+    }
+    nameStarts[nameCount] = nameStart;
+    nameEnds[nameCount] = nameEnd;
+    nameHashes[nameCount] = hash;
+    nameCount++;
+
+    skipWhitespace();
+    if (pos == end || bytes[pos] != ':') {
+      return -1;
+    }
+    pos++;
+    skipWhitespace();
+    if (pos == end) {
+      return -1;
+    }
+    return nameEnd;
+  }
+
+  private boolean equals(int start1, int start2, int length) {
+    for (int i = 0; i < length; i++) {
+      if (bytes[start1 + i] != bytes[start2 + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean equals(byte[] key, int start, int end) {
+    if (key == null || key.length != end - start) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != bytes[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void skipWhitespace() {
+    // org.json skips all the control characters, but ends the text at NUL
+    while (pos < end && bytes[pos] > 0 && bytes[pos] <= ' ') {
+      pos++;
+    }
+  }
+
+  /**
+   * Moves past the value at pos.
+   *
+   * @return the kind of the value, or MISSING if it cannot be skipped
+   */
+  private byte skipValue() {
+    byte b = bytes[pos];
+    if (b == '"') {
+      return skipString();
+    }
+    if (b == '{') {
+      return skipObject();
+    }
+    if (b == '[') {
+      return skipArray();
+    }
+    if (b == '\'' || b == '(' || (b >= 0 && TOKEN_END[b])) {
+      return MISSING;
+    }
+    do {
+      pos++;
+    } while (pos < end && (bytes[pos] < 0 || !TOKEN_END[bytes[pos]]));
+    return TOKEN;
+  }
+
+  private byte skipString() {
+    byte kind = STRING;
+    pos++;
+    while (pos < end) {
+      byte b = bytes[pos];
+      if (b == '"') {
+        pos++;
+        return kind;
+      } else if (b == '\\') {
+        kind = ESCAPED_STRING;
+        if (pos + 1 == end) {
+          return MISSING;
+        }
+        byte c = bytes[pos + 1];
+        int digits = c == 'u' ? 4 : c == 'x' ? 2 : 0;
+        // org.json fails on an escape that is not followed by hex digits
+        for (int i = 0; i < digits; i++) {
+          if (pos + 2 + i == end
+              || Character.digit(bytes[pos + 2 + i], 16) < 0) {
+            return MISSING;
+          }
+        }
+        pos += 2 + digits;
+      } else if (b == '\n' || b == '\r' || b == 0) {
+        return MISSING;
+      } else {
+        pos++;
+      }
+    }
+    return MISSING;
+  }
+
+  /**
+   * Moves past the object at pos, checking its syntax and names.
+   */
+  private byte skipObject() {
+    int base = nameCount;
+    pos++;
+    skipWhitespace();
+    if (pos < end && bytes[pos] == '}') {
+      pos++;
+      return OBJECT;
+    }
+    while (true) {
+      if (scanName(base) < 0 || skipValue() == MISSING) {
+        return MISSING;
+      }
+      skipWhitespace();
+      if (pos == end) {
+        return MISSING;
+      }
+      byte b = bytes[pos++];
+      if (b == '}') {
+        nameCount = base;
+        return OBJECT;
+      }
+      if (b != ',') {
+        return MISSING;
+      }
+      skipWhitespace();
+    }
+  }
+
+  /**
+   * Moves past the array at pos, checking its syntax.
+   */
+  private byte skipArray() {
+    pos++;
+    skipWhitespace();
+    if (pos < end && bytes[pos] == ']') {
+      pos++;
+      return ARRAY;
+    }
+    while (true) {
+      if (pos == end || skipValue() == MISSING) {
+        return MISSING;
+      }
+      skipWhitespace();
+      if (pos == end) {
+        return MISSING;
+      }
+      byte b = bytes[pos++];
+      if (b == ']') {
+        return ARRAY;
+      }
+      if (b != ',') {
+        return MISSING;
+      }
+      skipWhitespace();
+    }
+  }
+
+  /**
+   * Resolves the escapes of a string the way JSONTokener.nextString does.
+   */
+  private String unescape(String s) throws JSONException {
+    unescaped.setLength(0);
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c != '\\') {
+        unescaped.append(c);
+        continue;
+      }
+      c = s.charAt(++i);
+      switch (c) {
+      case 'b':
+        unescaped.append('\b');
+        break;
+      case 't':
+        unescaped.append('\t');
+        break;
+      case 'n':
+        unescaped.append('\n');
+        break;
+      case 'f':
+        unescaped.append('\f');
+        break;
+      case 'r':
+        unescaped.append('\r');
+        break;
+      case 'u':
+      case 'x':
+        int digits = c == 'u' ? 4 : 2;
+        if (i + digits >= s.length()) {
+          throw new JSONException("Unterminated string");
+        }
+        unescaped.append((char) Integer.parseInt(
+            s.substring(i + 1, i + 1 + digits), 16));
+        i += digits;
+        break;
+      default:
+        unescaped.append(c);
+        break;
+      }
+    }
+    return unescaped.toString();
+  }
+}
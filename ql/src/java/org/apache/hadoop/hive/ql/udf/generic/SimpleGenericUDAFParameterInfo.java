@@ -27,12 +27,19 @@ public class SimpleGenericUDAFParameterInfo implements GenericUDAFParameterInfo
 {
 
   private final TypeInfo[] parameters;
+  private final Object[] constantParameters;
   private final boolean distinct;
   private final boolean allColumns;
 
   public SimpleGenericUDAFParameterInfo(TypeInfo[] params, boolean distinct,
       boolean allColumns) {
+    this(params, new Object[params.length], distinct, allColumns);
+  }
+
+  public SimpleGenericUDAFParameterInfo(TypeInfo[] params,
+      Object[] constantParams, boolean distinct, boolean allColumns) {
     this.parameters = params;
+    this.constantParameters = constantParams;
     this.distinct = distinct;
     this.allColumns = allColumns;
   }
@@ -42,6 +49,11 @@ public class SimpleGenericUDAFParameterInfo implements GenericUDAFParameterInfo
     return parameters;
   }
 
+  @Override
+  public Object[] getConstantParameters() {
+    return constantParameters;
+  }
+
   @Override
   public boolean isDistinct() {
     return distinct;
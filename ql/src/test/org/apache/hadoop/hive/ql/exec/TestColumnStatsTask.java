@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.LongWritable;
+
+/**
+ * TestColumnStatsTask.
+ *
+ */
+public class TestColumnStatsTask extends TestCase {
+
+  /**
+   * Returns the object inspector of a compute_stats() result with the
+   * given type of min and max.
+   */
+  private static StructObjectInspector resultOI(ObjectInspector rangeOI) {
+    List<ObjectInspector> foi = new ArrayList<ObjectInspector>();
+    foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+    foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+    foi.add(rangeOI);
+    foi.add(rangeOI);
+    foi.add(PrimitiveObjectInspectorFactory.writableDoubleObjectInspector);
+    foi.add(PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+    return ObjectInspectorFactory.getStandardStructObjectInspector(Arrays.asList(
+        "numnulls", "numdistincts", "min", "max", "avglength", "maxlength"), foi);
+  }
+
+  private static ColumnStatistics roundTrip(ColumnStatistics cs) {
+    return ColumnStatistics.getColumnStatisticsFromString(cs.toString());
+  }
+
+  public void testIntegerRange() {
+    long big = (1L << 53) + 1;
+    Object[] row = {new LongWritable(2), new LongWritable(40), new LongWritable(-big),
+        new LongWritable(big), new DoubleWritable(0), new LongWritable(0)};
+    ColumnStatistics cs = ColumnStatsTask.getColumnStatistics(Arrays.asList(row),
+        resultOI(PrimitiveObjectInspectorFactory.writableLongObjectInspector));
+    assertEquals(2, cs.getNumNulls());
+    assertEquals(40, cs.getNumDistincts());
+    assertEquals(Long.valueOf(-big), cs.getMin());
+    assertEquals(Long.valueOf(big), cs.getMax());
+
+    cs = roundTrip(cs);
+    assertEquals(Long.valueOf(-big), cs.getMin());
+    assertEquals(Long.valueOf(big), cs.getMax());
+  }
+
+  public void testDoubleRange() {
+    Object[] row = {new LongWritable(0), new LongWritable(3), new DoubleWritable(-1),
+        new DoubleWritable(2.5), new DoubleWritable(0), new LongWritable(0)};
+    ColumnStatistics cs = roundTrip(ColumnStatsTask.getColumnStatistics(Arrays.asList(row),
+        resultOI(PrimitiveObjectInspectorFactory.writableDoubleObjectInspector)));
+    // a whole double stays a Double
+    assertEquals(Double.valueOf(-1), cs.getMin());
+    assertEquals(Double.valueOf(2.5), cs.getMax());
+  }
+
+  public void testStringColumn() {
+    Object[] row = {new LongWritable(1), new LongWritable(3), null, null,
+        new DoubleWritable(2.25), new LongWritable(4)};
+    ColumnStatistics cs = roundTrip(ColumnStatsTask.getColumnStatistics(Arrays.asList(row),
+        resultOI(PrimitiveObjectInspectorFactory.writableDoubleObjectInspector)));
+    assertNull(cs.getMin());
+    assertNull(cs.getMax());
+    assertEquals(2.25, cs.getAvgLength());
+    assertEquals(4, cs.getMaxLength());
+  }
+}
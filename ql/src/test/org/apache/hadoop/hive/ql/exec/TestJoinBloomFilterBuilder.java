@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.FilterDesc;
+import org.apache.hadoop.hive.ql.plan.JoinCondDesc;
+import org.apache.hadoop.hive.ql.plan.JoinDesc;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.plan.ReduceSinkDesc;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * TestJoinBloomFilterBuilder.
+ *
+ */
+public class TestJoinBloomFilterBuilder extends TestCase {
+
+  private JobConf job;
+  private FileSystem fs;
+  private Path dir;
+  private TableDesc tableDesc;
+
+  @Override
+  protected void setUp() throws Exception {
+    job = new JobConf(TestJoinBloomFilterBuilder.class);
+    dir = new Path(System.getProperty("test.tmp.dir", "/tmp"),
+        "TestJoinBloomFilterBuilder");
+    fs = dir.getFileSystem(job);
+    fs.delete(dir, true);
+    tableDesc = PlanUtils.getDefaultTableDesc("" + Utilities.ctrlaCode, "key,value");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    fs.delete(dir, true);
+  }
+
+  private String writeTable(String name, String... keys) throws IOException {
+    Path path = new Path(dir, name);
+    Writer out = new OutputStreamWriter(fs.create(new Path(path, "data")), "UTF-8");
+    try {
+      for (String key : keys) {
+        out.write(key + "\001val_" + key + "\n");
+      }
+    } finally {
+      out.close();
+    }
+    return path.toString();
+  }
+
+  private static ExprNodeDesc column(String name) {
+    return new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, name, "", false);
+  }
+
+  private static ReduceSinkOperator reduceSink(int tag, Operator<? extends Serializable> parent)
+      throws Exception {
+    ReduceSinkDesc desc = PlanUtils.getReduceSinkDesc(Utilities.makeList(column("key")),
+        Utilities.makeList(column("value")), Arrays.asList("_col0", "_col1"), true, tag,
+        1, -1);
+    return (ReduceSinkOperator) (parent == null ? OperatorFactory.get(desc)
+        : OperatorFactory.getAndMakeChild(desc, parent));
+  }
+
+  /**
+   * Returns a plan joining a filtered input, whose alias is not a valid file
+   * name, with an unfiltered one.
+   */
+  private MapredWork joinPlan(String small, String big) throws Exception {
+    ExprNodeDesc predicate = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPLessThan(), Utilities.makeList(column("key"),
+        new ExprNodeConstantDesc("3")));
+    Operator<FilterDesc> filter = OperatorFactory.get(new FilterDesc(predicate, false));
+    reduceSink(0, filter);
+    ReduceSinkOperator bigSink = reduceSink(1, null);
+
+    JoinDesc joinDesc = new JoinDesc();
+    joinDesc.setConds(new JoinCondDesc[] {new JoinCondDesc(0, 1, JoinDesc.INNER_JOIN)});
+    MapredWork work = PlanUtils.getMapRedWork();
+    work.addMapWork(small, "subq:a", filter, new PartitionDesc(tableDesc, null));
+    work.addMapWork(big, "b", bigSink, new PartitionDesc(tableDesc, null));
+    work.setReducer(OperatorFactory.get(joinDesc));
+    return work;
+  }
+
+  private static ReduceSinkOperator getReduceSink(MapredWork work, String alias) {
+    List<ReduceSinkOperator> sinks = new ArrayList<ReduceSinkOperator>();
+    SkewJoinKeySampler.collectReduceSinks(work.getAliasToWork().get(alias), sinks);
+    return sinks.get(0);
+  }
+
+  public void testBuildAndFilter() throws Exception {
+    MapredWork work = joinPlan(writeTable("small", "1", "2", "5"),
+        writeTable("big", "1", "2", "3", "4", "5"));
+    Path path = new JoinBloomFilterBuilder(work, job).buildAndAnnotate(dir.toString());
+    assertNotNull(path);
+    // named by the tag of the small input, not by its alias
+    assertEquals("bloomfilter-0", path.getName());
+    assertTrue(fs.exists(path));
+    assertNull(getReduceSink(work, "subq:a").getConf().getBloomFilterPath());
+    ReduceSinkOperator rs = getReduceSink(work, "b");
+    assertEquals(path.toString(), rs.getConf().getBloomFilterPath());
+
+    // the reduce sink of the other input only passes keys that pass the filter
+    List<String> names = Arrays.asList("key", "value");
+    List<ObjectInspector> ois = new ArrayList<ObjectInspector>();
+    ois.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+    ois.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+    rs.initialize(job, new ObjectInspector[] {
+        ObjectInspectorFactory.getStandardStructObjectInspector(names, ois)});
+    final List<String> passed = new ArrayList<String>();
+    rs.setOutputCollector(new OutputCollector() {
+      public void collect(Object key, Object value) {
+        // skip the null marker, the string terminator and the tag byte
+        BytesWritable k = (BytesWritable) key;
+        passed.add(new String(k.get(), 1, k.getLength() - 3));
+      }
+    });
+    for (String key : Arrays.asList("1", "2", "3", "4", "5")) {
+      rs.process(Arrays.asList(key, "val_" + key), 0);
+    }
+    rs.close(false);
+    assertEquals(Arrays.asList("1", "2"), passed);
+  }
+
+  public void testTooManyKeys() throws Exception {
+    HiveConf.setIntVar(job, HiveConf.ConfVars.HIVEBLOOMFILTERJOINMAXENTRIES, 1);
+    MapredWork work = joinPlan(writeTable("small", "1", "2"), writeTable("big", "1"));
+    assertNull(new JoinBloomFilterBuilder(work, job).buildAndAnnotate(dir.toString()));
+    assertNull(getReduceSink(work, "b").getConf().getBloomFilterPath());
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.plan.CollectDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.FilterDesc;
+import org.apache.hadoop.hive.ql.plan.LimitDesc;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.plan.ReduceSinkDesc;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * TestMapOnlyLimit.
+ *
+ */
+public class TestMapOnlyLimit extends TestCase {
+
+  private JobConf job;
+
+  @Override
+  protected void setUp() {
+    job = new JobConf(TestMapOnlyLimit.class);
+    HiveConf.setBoolVar(job, HiveConf.ConfVars.HIVELIMITOPTENABLE, true);
+  }
+
+  private static Operator<FilterDesc> filter() {
+    return OperatorFactory.get(new FilterDesc(new ExprNodeConstantDesc(Boolean.TRUE), false));
+  }
+
+  private static Operator<LimitDesc> limit(int limit, Operator<? extends Serializable> parent) {
+    return OperatorFactory.getAndMakeChild(new LimitDesc(limit), parent);
+  }
+
+  private static void collect(Operator<? extends Serializable> parent) {
+    OperatorFactory.getAndMakeChild(new CollectDesc(Integer.valueOf(1)), parent);
+  }
+
+  public void testGetMapOnlyLimit() {
+    MapredWork work = PlanUtils.getMapRedWork();
+    Operator<FilterDesc> a = filter();
+    Operator<LimitDesc> lim = limit(10, a);
+    collect(lim);
+    work.getAliasToWork().put("a", a);
+    assertEquals(10, ExecDriver.getMapOnlyLimit(work, job));
+
+    // a second alias feeding the same LIMIT
+    Operator<FilterDesc> b = filter();
+    ArrayList<Operator<? extends Serializable>> children =
+      new ArrayList<Operator<? extends Serializable>>();
+    children.add(lim);
+    b.setChildOperators(children);
+    work.getAliasToWork().put("b", b);
+    assertEquals(10, ExecDriver.getMapOnlyLimit(work, job));
+
+    HiveConf.setBoolVar(job, HiveConf.ConfVars.HIVELIMITOPTENABLE, false);
+    assertEquals(-1, ExecDriver.getMapOnlyLimit(work, job));
+  }
+
+  public void testNotMapOnlyLimit() {
+    // an alias whose rows do not all go through a LIMIT
+    MapredWork work = PlanUtils.getMapRedWork();
+    Operator<FilterDesc> a = filter();
+    collect(limit(10, a));
+    collect(a);
+    work.getAliasToWork().put("a", a);
+    assertEquals(-1, ExecDriver.getMapOnlyLimit(work, job));
+
+    // two different LIMITs
+    work = PlanUtils.getMapRedWork();
+    a = filter();
+    collect(limit(10, a));
+    Operator<FilterDesc> b = filter();
+    collect(limit(10, b));
+    work.getAliasToWork().put("a", a);
+    work.getAliasToWork().put("b", b);
+    assertEquals(-1, ExecDriver.getMapOnlyLimit(work, job));
+
+    // a job with a reducer
+    work = PlanUtils.getMapRedWork();
+    a = filter();
+    collect(limit(10, a));
+    work.getAliasToWork().put("a", a);
+    work.setReducer(OperatorFactory.get(ReduceSinkDesc.class));
+    assertEquals(-1, ExecDriver.getMapOnlyLimit(work, job));
+  }
+
+  public void testRerunInputSize() {
+    // LIMIT 10 of rows up to 10 bytes over 1000 bytes of input
+    long size = ExecDriver.getLimitInputSize(10 * 10, 1000);
+    assertEquals(100, size);
+    // too few rows: four times as much input, then the whole input
+    size = ExecDriver.getRerunInputSize(3, 10, size, 1000);
+    assertEquals(400, size);
+    size = ExecDriver.getRerunInputSize(9, 10, size, 1000);
+    assertEquals(-1, size);
+    // the whole input was read, so there is nothing left to read
+    assertEquals(0, ExecDriver.getRerunInputSize(9, 10, size, 1000));
+    // enough rows
+    assertEquals(0, ExecDriver.getRerunInputSize(10, 10, 100, 1000));
+    // a limit covering the whole input reads all of it the first time
+    assertEquals(-1, ExecDriver.getLimitInputSize(10000, 1000));
+  }
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.UDFSubstr;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBridge;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * TestMethodInvoker.
+ *
+ */
+public class TestMethodInvoker extends TestCase {
+
+  /**
+   * Methods with the kinds of signatures that classic UDFs use.
+   */
+  public static class Methods {
+    public int base = 10;
+
+    public Integer add(int a, Integer b) {
+      return b == null ? null : base + a + b;
+    }
+
+    public long multiply(long a, double b) {
+      return (long) (a * b);
+    }
+
+    public String concat(String... args) {
+      StringBuilder sb = new StringBuilder();
+      for (String arg : args) {
+        sb.append(arg);
+      }
+      return sb.toString();
+    }
+
+    public static boolean not(boolean b) {
+      return !b;
+    }
+
+    public void fail(String message) throws HiveException {
+      throw new HiveException(message);
+    }
+  }
+
+  static class HiddenMethods {
+    public int one() {
+      return 1;
+    }
+  }
+
+  private static class Argument implements DeferredObject {
+    Object value;
+
+    public Object get() {
+      return value;
+    }
+  }
+
+  private static MethodInvoker generated(String name, Class<?>... types)
+      throws Exception {
+    Method m = Methods.class.getMethod(name, types);
+    MethodInvoker invoker = MethodInvoker.getGeneratedInvoker(m);
+    assertFalse(invoker.getClass() == MethodInvoker.ReflectionInvoker.class);
+    assertSame(invoker, MethodInvoker.getGeneratedInvoker(m));
+    return invoker;
+  }
+
+  public void testGeneratedInvoker() throws Exception {
+    Methods m = new Methods();
+    assertEquals(13, generated("add", int.class, Integer.class).invoke(m,
+        new Object[] {1, 2}));
+    assertNull(generated("add", int.class, Integer.class).invoke(m,
+        new Object[] {1, null}));
+    assertEquals(7L, generated("multiply", long.class, double.class).invoke(m,
+        new Object[] {3L, 2.5}));
+    assertEquals("ab", generated("concat", String[].class).invoke(m,
+        new Object[] {new String[] {"a", "b"}}));
+    assertEquals(Boolean.FALSE, generated("not", boolean.class).invoke(null,
+        new Object[] {true}));
+    try {
+      generated("fail", String.class).invoke(m, new Object[] {"error"});
+      fail("the exception of the method should be thrown");
+    } catch (HiveException e) {
+      assertEquals("error", e.getMessage());
+    }
+  }
+
+  public void testNonPublicMethod() throws Exception {
+    Method m = HiddenMethods.class.getMethod("one");
+    MethodInvoker invoker = MethodInvoker.getGeneratedInvoker(m);
+    assertEquals(MethodInvoker.ReflectionInvoker.class, invoker.getClass());
+    assertEquals(1, invoker.invoke(new HiddenMethods(), new Object[0]));
+  }
+
+  private static GenericUDFBridge substr(boolean generatedInvoker)
+      throws Exception {
+    GenericUDFBridge bridge = new GenericUDFBridge("substr", false,
+        UDFSubstr.class);
+    bridge.setGeneratedInvoker(generatedInvoker);
+    bridge.initialize(new ObjectInspector[] {
+        PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+        PrimitiveObjectInspectorFactory.writableIntObjectInspector,
+        PrimitiveObjectInspectorFactory.writableIntObjectInspector});
+    return bridge;
+  }
+
+  public void testBridge() throws Exception {
+    Argument[] arguments = new Argument[] {new Argument(), new Argument(),
+        new Argument()};
+    arguments[0].value = new Text("generated invoker");
+    arguments[1].value = new IntWritable(3);
+    arguments[2].value = new IntWritable(5);
+
+    GenericUDFBridge reflection = substr(false);
+    GenericUDFBridge generated = substr(true);
+    assertFalse(reflection.isGeneratedInvoker());
+    assertTrue(generated.isGeneratedInvoker());
+    assertEquals(reflection.evaluate(arguments), generated.evaluate(arguments));
+    assertEquals("nerat", generated.evaluate(arguments).toString());
+  }
+
+  public void testInvokerNotRetained() throws Exception {
+    WeakReference<MethodInvoker> ref = new WeakReference<MethodInvoker>(
+        generated("multiply", long.class, double.class));
+    // the cache alone does not keep the invoker, and with it the class of
+    // the method and its class loader
+    for (int i = 0; i < 10 && ref.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+  }
+
+  public void testAsmJar() {
+    // hive-exec does not bundle ASM, so it is shipped from its own jar
+    String jar = MethodInvoker.getAsmJar();
+    assertNotNull(jar);
+    assertTrue(jar, jar.endsWith(".jar"));
+  }
+}
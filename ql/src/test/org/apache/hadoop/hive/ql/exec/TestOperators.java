@@ -18,27 +18,39 @@
 
 package org.apache.hadoop.hive.ql.exec;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Properties;
 
 import junit.framework.TestCase;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat;
 import org.apache.hadoop.hive.ql.parse.TypeCheckProcFactory;
 import org.apache.hadoop.hive.ql.plan.CollectDesc;
+import org.apache.hadoop.hive.ql.plan.DynamicPartitionCtx;
 import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.FileSinkDesc;
 import org.apache.hadoop.hive.ql.plan.FilterDesc;
+import org.apache.hadoop.hive.ql.plan.LimitDesc;
 import org.apache.hadoop.hive.ql.plan.MapredWork;
 import org.apache.hadoop.hive.ql.plan.PartitionDesc;
 import org.apache.hadoop.hive.ql.plan.PlanUtils;
 import org.apache.hadoop.hive.ql.plan.ScriptDesc;
 import org.apache.hadoop.hive.ql.plan.SelectDesc;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.lazyjson.LazyJsonSerDe;
 import org.apache.hadoop.hive.serde2.objectinspector.InspectableObject;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
@@ -48,6 +60,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TextInputFormat;
 
 /**
  * TestOperators.
@@ -148,6 +161,10 @@ public class TestOperators extends TestCase {
       assertEquals(Utilities.getTaskIdFromFilename(attemptId + ".gz"), expectedTaskId);
       assertEquals(Utilities.getTaskIdFromFilename
                    (Utilities.toTempPath(new Path(attemptId + ".gz")).toString()), expectedTaskId);
+      String segment = Utilities.getSegmentFilename(attemptId, 2);
+      assertEquals(Utilities.getTaskIdFromFilename(segment + ".gz"), expectedTaskId);
+      assertEquals(Utilities.getSegmentFromFilename(segment + ".gz"), "_segment2");
+      assertEquals(Utilities.getSegmentFromFilename(attemptId + ".gz"), "");
     }
   }
 
@@ -185,6 +202,80 @@ public class TestOperators extends TestCase {
     }
   }
 
+  /**
+   * Writes more dynamic partitions than writers may be open at a time and
+   * checks that the least recently written partition is closed and continued
+   * in a new file when it comes back.
+   */
+  public void testFileSinkOpenWriterLimit() throws Throwable {
+    Path dir = new Path(System.getProperty("test.tmp.dir", "/tmp"),
+        "TestOperators.openWriterLimit");
+    JobConf jc = new JobConf(TestOperators.class);
+    FileSystem fs = dir.getFileSystem(jc);
+    fs.delete(dir, true);
+    fs.delete(Utilities.toTempPath(dir), true);
+
+    jc.set("mapred.task.id", "attempt_200707121733_0003_m_000005_0");
+    HiveConf.setIntVar(jc, HiveConf.ConfVars.DYNAMICPARTITIONMAXOPENWRITERS, 2);
+
+    DynamicPartitionCtx dpCtx = new DynamicPartitionCtx();
+    dpCtx.setNumDPCols(1);
+    dpCtx.setDPColNames(new ArrayList<String>(Arrays.asList("p")));
+    Map<String, String> inputToDP = new LinkedHashMap<String, String>();
+    inputToDP.put("p", "p");
+    dpCtx.setInputToDPCols(inputToDP);
+    dpCtx.setMaxPartitionsPerNode(100);
+    dpCtx.setDefaultPartitionName("__HIVE_DEFAULT_PARTITION__");
+    FileSinkDesc desc = new FileSinkDesc(dir.toString(),
+        PlanUtils.getDefaultTableDesc("" + Utilities.tabCode, "c"), false);
+    desc.setDynPartCtx(dpCtx);
+    FileSinkOperator op = (FileSinkOperator) OperatorFactory.get(desc);
+
+    ArrayList<String> names = new ArrayList<String>(Arrays.asList("c", "p"));
+    ArrayList<ObjectInspector> ois = new ArrayList<ObjectInspector>();
+    ois.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+    ois.add(PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+    op.initialize(jc, new ObjectInspector[] {
+        ObjectInspectorFactory.getStandardStructObjectInspector(names, ois)});
+
+    String[] parts = {"a", "b", "a", "c", "b", "a"};
+    for (int i = 0; i < parts.length; i++) {
+      op.process(new ArrayList<String>(Arrays.asList("v" + i, parts[i])), 0);
+      assertTrue(op.openPaths.size() <= 2);
+    }
+    // "b" was evicted by "c" and "a" by "b"; each came back once
+    assertEquals(new ArrayList<String>(Arrays.asList("p=b", "p=a")),
+        new ArrayList<String>(op.openPaths.keySet()));
+    assertEquals(2, op.closedPaths.size());
+    for (FileSinkOperator.FSPaths fsp : op.closedPaths) {
+      assertTrue(fsp.closed);
+    }
+    assertTrue(op.valToPaths.get("p=c").closed);
+    op.close(false);
+
+    Path tmp = Utilities.toTempPath(dir);
+    String taskId = Utilities.getTaskId(jc);
+    String segment = Utilities.getSegmentFilename(taskId, 1);
+    assertEquals("v0\nv2\n", readFile(fs, new Path(tmp, "p=a/" + taskId)));
+    assertEquals("v5\n", readFile(fs, new Path(tmp, "p=a/" + segment)));
+    assertEquals("v1\n", readFile(fs, new Path(tmp, "p=b/" + taskId)));
+    assertEquals("v4\n", readFile(fs, new Path(tmp, "p=b/" + segment)));
+    assertEquals("v3\n", readFile(fs, new Path(tmp, "p=c/" + taskId)));
+    assertFalse(fs.exists(new Path(tmp, "p=c/" + segment)));
+    fs.delete(tmp, true);
+  }
+
+  private static String readFile(FileSystem fs, Path p) throws IOException {
+    FSDataInputStream in = fs.open(p);
+    try {
+      byte[] buf = new byte[(int) fs.getFileStatus(p).getLen()];
+      in.readFully(buf);
+      return new String(buf, "UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+
   public void testScriptOperator() throws Throwable {
     try {
       System.out.println("Testing Script Operator");
@@ -329,4 +420,101 @@ public class TestOperators extends TestCase {
       throw (e);
     }
   }
+
+  public void testMapOperatorProjection() throws Throwable {
+    Configuration hconf = new JobConf(TestOperators.class);
+    HiveConf.setVar(hconf, HiveConf.ConfVars.HADOOPMAPFILENAME,
+        "hdfs:///testDir/testFile");
+    ArrayList<String> aliases = new ArrayList<String>();
+    aliases.add("a");
+    LinkedHashMap<String, ArrayList<String>> pathToAliases =
+      new LinkedHashMap<String, ArrayList<String>>();
+    pathToAliases.put("/testDir", aliases);
+
+    Properties props = new Properties();
+    props.setProperty(Constants.LIST_COLUMNS, "id,name,tags");
+    props.setProperty(Constants.LIST_COLUMN_TYPES, "bigint:string:array<int>");
+    TableDesc td = new TableDesc(LazyJsonSerDe.class, TextInputFormat.class,
+        HiveIgnoreKeyTextOutputFormat.class, props);
+    LinkedHashMap<String, PartitionDesc> pathToPartitionInfo =
+      new LinkedHashMap<String, PartitionDesc>();
+    pathToPartitionInfo.put("/testDir", new PartitionDesc(td, null));
+
+    // the scan reads name only
+    TableScanOperator ts = (TableScanOperator) OperatorFactory.get(
+        new TableScanDesc("a"));
+    ArrayList<Integer> neededColumnIDs = new ArrayList<Integer>();
+    neededColumnIDs.add(1);
+    ts.setNeededColumnIDs(neededColumnIDs);
+    CollectOperator cdop = (CollectOperator) OperatorFactory.getAndMakeChild(
+        new CollectDesc(Integer.valueOf(1)), ts);
+    LinkedHashMap<String, Operator<? extends Serializable>> aliasToWork =
+      new LinkedHashMap<String, Operator<? extends Serializable>>();
+    aliasToWork.put("a", ts);
+
+    MapredWork mrwork = new MapredWork();
+    mrwork.setPathToAliases(pathToAliases);
+    mrwork.setPathToPartitionInfo(pathToPartitionInfo);
+    mrwork.setAliasToWork(aliasToWork);
+    MapOperator mo = new MapOperator();
+    mo.initializeAsRoot(hconf, mrwork);
+
+    // the deserializer stops scanning the row once it has found name, so
+    // the other columns are NULL and the broken tail is never looked at
+    InspectableObject io = new InspectableObject();
+    mo.process(new Text("{\"id\":1,\"name\":\"n\",\"tags\":[1,"));
+    cdop.retrieve(io);
+    assertEquals("[null, n, null]", io.o.toString());
+  }
+
+  public void testLimitDone() throws Throwable {
+    Configuration hconf = new JobConf(TestOperators.class);
+    HiveConf.setVar(hconf, HiveConf.ConfVars.HADOOPMAPFILENAME,
+        "hdfs:///testDir/testFile");
+    ArrayList<String> aliases = new ArrayList<String>();
+    aliases.add("a");
+    LinkedHashMap<String, ArrayList<String>> pathToAliases =
+      new LinkedHashMap<String, ArrayList<String>>();
+    pathToAliases.put("/testDir", aliases);
+    LinkedHashMap<String, PartitionDesc> pathToPartitionInfo =
+      new LinkedHashMap<String, PartitionDesc>();
+    pathToPartitionInfo.put("/testDir", new PartitionDesc(Utilities.defaultTd, null));
+
+    // MAP -> FIL -> LIM -> collect
+    ExprNodeDesc expr = new ExprNodeConstantDesc(Boolean.TRUE);
+    Operator<FilterDesc> filter = OperatorFactory.get(new FilterDesc(expr, false));
+    Operator<LimitDesc> limit = OperatorFactory.getAndMakeChild(new LimitDesc(2), filter);
+    CollectOperator collect = (CollectOperator) OperatorFactory.getAndMakeChild(
+        new CollectDesc(Integer.valueOf(10)), limit);
+    LinkedHashMap<String, Operator<? extends Serializable>> aliasToWork =
+      new LinkedHashMap<String, Operator<? extends Serializable>>();
+    aliasToWork.put("a", filter);
+
+    MapredWork mrwork = new MapredWork();
+    mrwork.setPathToAliases(pathToAliases);
+    mrwork.setPathToPartitionInfo(pathToPartitionInfo);
+    mrwork.setAliasToWork(aliasToWork);
+    MapOperator mo = new MapOperator();
+    mo.initializeAsRoot(hconf, mrwork);
+
+    Text tw = new Text();
+    tw.set("0");
+    mo.process(tw);
+    assertFalse(mo.getDone());
+    tw.set("1");
+    mo.process(tw);
+    // the row that reached the limit finishes the whole tree, so the mapper
+    // stops before reading another row
+    assertTrue(limit.getDone());
+    assertTrue(filter.getDone());
+    assertTrue(mo.getDone());
+
+    InspectableObject io = new InspectableObject();
+    collect.retrieve(io);
+    assertEquals("[[0]]", io.o.toString());
+    collect.retrieve(io);
+    assertEquals("[[1]]", io.o.toString());
+    collect.retrieve(io);
+    assertNull(io.o);
+  }
 }
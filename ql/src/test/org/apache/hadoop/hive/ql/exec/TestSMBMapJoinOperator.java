@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableSerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.BytesWritable;
+
+/**
+ * TestSMBMapJoinOperator.
+ *
+ */
+public class TestSMBMapJoinOperator extends TestCase {
+
+  private BinarySortableSerDe serDe;
+  private ObjectInspector keyOI;
+
+  @Override
+  protected void setUp() throws Exception {
+    Properties schema = new Properties();
+    schema.setProperty(Constants.LIST_COLUMNS, "k");
+    schema.setProperty(Constants.LIST_COLUMN_TYPES, "int");
+    schema.setProperty(Constants.SERIALIZATION_SORT_ORDER, "+");
+    serDe = new BinarySortableSerDe();
+    serDe.initialize(null, schema);
+    keyOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Arrays.asList("k"), Arrays.asList((ObjectInspector)
+        PrimitiveObjectInspectorFactory.javaIntObjectInspector));
+  }
+
+  private SMBMapJoinOperator.SortedKey key(Integer k) throws Exception {
+    BytesWritable serialized = (BytesWritable) serDe.serialize(
+        Arrays.asList(k), keyOI);
+    return new SMBMapJoinOperator.SortedKey(serialized, k == null);
+  }
+
+  private static List<Path> files(String... names) {
+    List<Path> files = new ArrayList<Path>();
+    for (String name : names) {
+      files.add(new Path(name));
+    }
+    return files;
+  }
+
+  public void testSortedKey() throws Exception {
+    assertTrue(key(-5).compareTo(key(3)) < 0);
+    assertTrue(key(300).compareTo(key(3)) > 0);
+    assertTrue(key(null).compareTo(key(Integer.MIN_VALUE)) < 0);
+    assertEquals(0, key(7).compareTo(key(7)));
+    assertTrue(key(7).matches(key(7)));
+    // a null key never matches, not even another null key
+    assertFalse(key(null).matches(key(null)));
+  }
+
+  /**
+   * Merge three sorted buckets, advancing the input with the smallest key.
+   */
+  public void testMergeOrder() throws Exception {
+    int[][] buckets = {{-4, 1, 1, 9}, {0, 1, 5}, {-7, 2, 9, 12}};
+    SMBMapJoinOperator.SortedKey[] keys =
+        new SMBMapJoinOperator.SortedKey[buckets.length];
+    SMBMapJoinOperator.MergeQueue queue = new SMBMapJoinOperator.MergeQueue(
+        keys);
+    int[] next = new int[buckets.length];
+    assertEquals(-1, queue.smallest());
+    for (byte b = 0; b < buckets.length; b++) {
+      queue.setKey(b, key(buckets[b][next[b]++]));
+    }
+
+    List<Integer> merged = new ArrayList<Integer>();
+    int smallest;
+    while ((smallest = queue.smallest()) >= 0) {
+      byte b = (byte) smallest;
+      merged.add(buckets[b][next[b] - 1]);
+      queue.setKey(b, next[b] < buckets[b].length ? key(buckets[b][next[b]++])
+          : null);
+    }
+    assertEquals(Arrays.asList(-7, -4, 0, 1, 1, 1, 2, 5, 9, 9, 12), merged);
+  }
+
+  public void testBucketCache() throws Exception {
+    SMBMapJoinOperator.BucketCache cache = new SMBMapJoinOperator.BucketCache();
+    // two big table buckets read bucket 0 of the small table, one reads 1
+    cache.addUse(files("/t/b0"));
+    cache.addUse(files("/t/b1"));
+    cache.addUse(files("/t/b0"));
+
+    // first read of a reused bucket: a miss that records the rows
+    assertFalse(cache.start(files("/t/b0"), true));
+    assertNotNull(cache.recording);
+    cache.recording.add(new Object[] {key(1), null});
+    cache.recording.add(new Object[] {key(2), null});
+    cache.finish();
+    assertNull(cache.recording);
+
+    // a bucket read only once is not recorded
+    assertFalse(cache.start(files("/t/b1"), true));
+    assertNull(cache.recording);
+    cache.finish();
+
+    // the same files in a new list are a hit
+    assertTrue(cache.start(files("/t/b0"), true));
+    assertNull(cache.recording);
+    assertEquals(0, key(1).compareTo((SMBMapJoinOperator.SortedKey) cache
+        .replay.next()[0]));
+    assertEquals(0, key(2).compareTo((SMBMapJoinOperator.SortedKey) cache
+        .replay.next()[0]));
+    assertFalse(cache.replay.hasNext());
+
+    // without a row budget a reused bucket is not recorded
+    cache = new SMBMapJoinOperator.BucketCache();
+    cache.addUse(files("/t/b0", "/t/b2"));
+    cache.addUse(files("/t/b0", "/t/b2"));
+    assertFalse(cache.start(files("/t/b0", "/t/b2"), false));
+    assertNull(cache.recording);
+    // the order of the files matters
+    cache.addUse(files("/t/b2", "/t/b0"));
+    assertFalse(cache.start(files("/t/b2", "/t/b0"), true));
+    assertNull(cache.recording);
+  }
+}
@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.JoinCondDesc;
+import org.apache.hadoop.hive.ql.plan.JoinDesc;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.plan.ReduceSinkDesc;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * TestSkewJoinKeySampler.
+ *
+ */
+public class TestSkewJoinKeySampler extends TestCase {
+
+  private static JoinDesc joinDesc(int... types) {
+    JoinCondDesc[] conds = new JoinCondDesc[types.length];
+    for (int i = 0; i < types.length; i++) {
+      conds[i] = new JoinCondDesc(i, i + 1, types[i]);
+    }
+    JoinDesc desc = new JoinDesc();
+    desc.setConds(conds);
+    return desc;
+  }
+
+  private static BytesWritable key(String k) {
+    return new BytesWritable(k.getBytes());
+  }
+
+  public void testScatterableTags() {
+    Set<Integer> tags = SkewJoinKeySampler.getScatterableTags(joinDesc(
+        JoinDesc.INNER_JOIN, JoinDesc.INNER_JOIN));
+    assertEquals(3, tags.size());
+
+    tags = SkewJoinKeySampler.getScatterableTags(joinDesc(JoinDesc.LEFT_OUTER_JOIN));
+    assertEquals(1, tags.size());
+    assertTrue(tags.contains(0));
+
+    tags = SkewJoinKeySampler.getScatterableTags(joinDesc(JoinDesc.RIGHT_OUTER_JOIN));
+    assertEquals(1, tags.size());
+    assertTrue(tags.contains(1));
+
+    tags = SkewJoinKeySampler.getScatterableTags(joinDesc(JoinDesc.LEFT_SEMI_JOIN));
+    assertEquals(1, tags.size());
+    assertTrue(tags.contains(0));
+
+    assertTrue(SkewJoinKeySampler.getScatterableTags(
+        joinDesc(JoinDesc.FULL_OUTER_JOIN)).isEmpty());
+    assertTrue(SkewJoinKeySampler.getScatterableTags(
+        joinDesc(JoinDesc.LEFT_OUTER_JOIN, JoinDesc.RIGHT_OUTER_JOIN)).isEmpty());
+  }
+
+  public void testSelectHotKeys() {
+    Map<Integer, Map<BytesWritable, Long>> keyCounts =
+        new HashMap<Integer, Map<BytesWritable, Long>>();
+    Map<BytesWritable, Long> tag0 = new HashMap<BytesWritable, Long>();
+    tag0.put(key("a"), 50L);
+    tag0.put(key("b"), 30L);
+    tag0.put(key("c"), 20L);
+    keyCounts.put(0, tag0);
+    Map<BytesWritable, Long> tag1 = new HashMap<BytesWritable, Long>();
+    tag1.put(key("b"), 90L);
+    tag1.put(key("d"), 10L);
+    keyCounts.put(1, tag1);
+    Map<Integer, Long> rowCounts = new HashMap<Integer, Long>();
+    rowCounts.put(0, 100L);
+    rowCounts.put(1, 100L);
+
+    Set<Integer> both = new HashSet<Integer>();
+    both.add(0);
+    both.add(1);
+
+    // "b" is hotter in tag 1, "c" and "d" are below the threshold
+    Map<BytesWritable, Integer> hot = SkewJoinKeySampler.selectHotKeys(
+        keyCounts, rowCounts, both, 0.25f, 10);
+    assertEquals(2, hot.size());
+    assertEquals(Integer.valueOf(0), hot.get(key("a")));
+    assertEquals(Integer.valueOf(1), hot.get(key("b")));
+
+    // only the most frequent key survives the cap
+    hot = SkewJoinKeySampler.selectHotKeys(keyCounts, rowCounts, both, 0.25f, 1);
+    assertEquals(1, hot.size());
+    assertEquals(Integer.valueOf(1), hot.get(key("b")));
+
+    // keys of a tag that may not be scattered are ignored
+    Set<Integer> onlyLeft = new HashSet<Integer>();
+    onlyLeft.add(0);
+    hot = SkewJoinKeySampler.selectHotKeys(keyCounts, rowCounts, onlyLeft, 0.25f, 10);
+    assertEquals(2, hot.size());
+    assertEquals(Integer.valueOf(0), hot.get(key("b")));
+  }
+
+  private static ReduceSinkOperator reduceSink(int tag) {
+    ReduceSinkDesc desc = new ReduceSinkDesc();
+    desc.setTag(tag);
+    ReduceSinkOperator rs = new ReduceSinkOperator();
+    rs.setConf(desc);
+    return rs;
+  }
+
+  public void testAnnotate() {
+    JoinDesc joinDesc = joinDesc(JoinDesc.INNER_JOIN);
+    joinDesc.setHandleSkewJoin(true);
+    ReduceSinkOperator rs0 = reduceSink(0);
+    ReduceSinkOperator rs1 = reduceSink(1);
+    List<List<ReduceSinkOperator>> sinks = new ArrayList<List<ReduceSinkOperator>>();
+    sinks.add(Arrays.asList(rs0));
+    sinks.add(Arrays.asList(rs1));
+    Map<BytesWritable, Integer> hot = new HashMap<BytesWritable, Integer>();
+    hot.put(key("a"), 0);
+
+    SkewJoinKeySampler.annotate(joinDesc, sinks, hot, 4);
+    // hex of "a"
+    assertEquals(Arrays.asList("61"), rs0.getConf().getSkewScatterKeys());
+    assertTrue(rs0.getConf().getSkewReplicateKeys().isEmpty());
+    assertTrue(rs1.getConf().getSkewScatterKeys().isEmpty());
+    assertEquals(Arrays.asList("61"), rs1.getConf().getSkewReplicateKeys());
+    assertEquals(4, rs1.getConf().getSkewSplitFactor());
+    // the follow-up jobs would join the replicated rows more than once
+    assertFalse(joinDesc.getHandleSkewJoin());
+  }
+
+  public void testSamplePaths() throws Exception {
+    JobConf job = new JobConf(TestSkewJoinKeySampler.class);
+    Path dir = new Path(System.getProperty("test.tmp.dir", "/tmp"),
+        "TestSkewJoinKeySampler");
+    FileSystem fs = dir.getFileSystem(job);
+    fs.delete(dir, true);
+    Writer out = new OutputStreamWriter(fs.create(new Path(dir, "data")), "UTF-8");
+    for (String key : Arrays.asList("a", "b", "a", "c")) {
+      out.write(key + "\001" + key + "\n");
+    }
+    out.close();
+
+    ExprNodeDesc key = new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, "key", "", false);
+    ExprNodeDesc value = new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, "value", "",
+        false);
+    ReduceSinkOperator rs = (ReduceSinkOperator) OperatorFactory.get(
+        PlanUtils.getReduceSinkDesc(Utilities.makeList(key), Utilities.makeList(value),
+        Arrays.asList("_col0", "_col1"), true, 0, 1, -1));
+    final List<String> keys = new ArrayList<String>();
+    OutputCollector collector = new OutputCollector() {
+      public void collect(Object k, Object v) {
+        BytesWritable bw = (BytesWritable) k;
+        // skip the null marker, the string terminator and the tag byte
+        keys.add(new String(bw.get(), 1, bw.getLength() - 3));
+      }
+    };
+    PartitionDesc partDesc = new PartitionDesc(
+        PlanUtils.getDefaultTableDesc("" + Utilities.ctrlaCode, "key,value"), null);
+
+    // the rows reach the collector, up to rowsPerPath of them
+    SkewJoinKeySampler.samplePaths(job, Arrays.asList(dir.toString()),
+        Arrays.asList(partDesc), rs, 3, collector);
+    assertEquals(Arrays.asList("a", "b", "a"), keys);
+    fs.delete(dir, true);
+  }
+}
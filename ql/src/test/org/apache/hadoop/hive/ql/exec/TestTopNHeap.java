@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.io.HiveKey;
+import org.apache.hadoop.io.Text;
+
+/**
+ * TestTopNHeap.
+ *
+ */
+public class TestTopNHeap extends TestCase {
+
+  private static HiveKey key(String k) {
+    HiveKey key = new HiveKey();
+    byte[] bytes = k.getBytes();
+    key.set(bytes, 0, bytes.length);
+    key.setHashCode(k.hashCode());
+    return key;
+  }
+
+  private static void add(TopNHeap heap, String k, String v) throws Exception {
+    HiveKey key = key(k);
+    if (heap.accepts(key.get(), key.getLength())) {
+      heap.add(key, new Text(v));
+    }
+  }
+
+  public void testKeepsSmallestKeys() throws Exception {
+    TopNHeap heap = new TopNHeap(3, new Configuration());
+    String[] keys = {"e", "b", "g", "a", "f", "c", "d"};
+    for (String k : keys) {
+      add(heap, k, "v" + k);
+    }
+    assertEquals(3, heap.size());
+    // a key larger than all kept ones is rejected without being added
+    assertFalse(heap.accepts("z".getBytes(), 1));
+    assertTrue(heap.accepts("0".getBytes(), 1));
+
+    List<TopNHeap.Row> rows = heap.drain();
+    assertEquals(3, rows.size());
+    assertEquals("a", new String(rows.get(0).getKey()));
+    assertEquals("b", new String(rows.get(1).getKey()));
+    assertEquals("c", new String(rows.get(2).getKey()));
+    assertEquals(new Text("vc"), rows.get(2).getValue());
+    assertEquals("c".hashCode(), rows.get(2).getHashCode());
+    assertEquals(0, heap.size());
+  }
+
+  public void testDuplicateKeys() throws Exception {
+    TopNHeap heap = new TopNHeap(2, new Configuration());
+    add(heap, "a", "1");
+    add(heap, "a", "2");
+    add(heap, "a", "3");
+    add(heap, "b", "4");
+    List<TopNHeap.Row> rows = heap.drain();
+    assertEquals(2, rows.size());
+    assertEquals("a", new String(rows.get(0).getKey()));
+    assertEquals("a", new String(rows.get(1).getKey()));
+  }
+
+  public void testValuesAreCopied() throws Exception {
+    TopNHeap heap = new TopNHeap(1, new Configuration());
+    Text value = new Text("x");
+    heap.add(key("a"), value);
+    value.set("y");
+    assertEquals(new Text("x"), heap.drain().get(0).getValue());
+  }
+
+  public void testZeroLimit() throws Exception {
+    TopNHeap heap = new TopNHeap(0, new Configuration());
+    assertFalse(heap.accepts("a".getBytes(), 1));
+    assertTrue(heap.drain().isEmpty());
+  }
+}
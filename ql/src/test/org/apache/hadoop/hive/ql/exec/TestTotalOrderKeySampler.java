@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.ql.io.TotalOrderHivePartitioner;
+
+/**
+ * TestTotalOrderKeySampler.
+ *
+ */
+public class TestTotalOrderKeySampler extends TestCase {
+
+  private static List<byte[]> keys(String... keys) {
+    List<byte[]> result = new ArrayList<byte[]>();
+    for (String k : keys) {
+      result.add(k.getBytes());
+    }
+    return result;
+  }
+
+  private static String toString(List<byte[]> keys) {
+    StringBuilder sb = new StringBuilder();
+    for (byte[] k : keys) {
+      sb.append(new String(k));
+    }
+    return sb.toString();
+  }
+
+  public void testSelectSplitPoints() {
+    List<byte[]> sample = keys("h", "c", "a", "f", "b", "g", "d", "e");
+    assertEquals("ceg", toString(TotalOrderKeySampler.selectSplitPoints(sample, 4)));
+    assertEquals("e", toString(TotalOrderKeySampler.selectSplitPoints(sample, 2)));
+
+    // a heavy key only becomes a single boundary
+    sample = keys("a", "a", "a", "a", "a", "a", "b", "c");
+    assertEquals("ab", toString(TotalOrderKeySampler.selectSplitPoints(sample, 4)));
+
+    assertEquals("a", toString(TotalOrderKeySampler.selectSplitPoints(keys("a", "a"), 4)));
+    assertTrue(TotalOrderKeySampler.selectSplitPoints(keys(), 4).isEmpty());
+  }
+
+  public void testFindPartition() throws Exception {
+    List<byte[]> splits = keys("c", "e", "g");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TotalOrderHivePartitioner.writeSplitPoints(splits, new DataOutputStream(bytes));
+    byte[][] read = TotalOrderHivePartitioner.readSplitPoints(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(3, read.length);
+
+    String[] keys = {"a", "c", "d", "e", "f", "g", "z"};
+    int[] expected = {0, 1, 1, 2, 2, 3, 3};
+    for (int i = 0; i < keys.length; i++) {
+      byte[] key = keys[i].getBytes();
+      assertEquals(keys[i], expected[i],
+          TotalOrderHivePartitioner.findPartition(read, key, key.length));
+    }
+    // without boundaries everything goes to the first partition
+    assertEquals(0, TotalOrderHivePartitioner.findPartition(new byte[0][],
+        "a".getBytes(), 1));
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.Context;
+import org.apache.hadoop.hive.ql.plan.MapredWork;
+
+/**
+ * TestUtilities.
+ *
+ */
+public class TestUtilities extends TestCase {
+
+  /**
+   * A file system that counts the content summaries asked for, and answers
+   * them without listing anything.
+   */
+  public static class CountingFileSystem extends RawLocalFileSystem {
+    static final AtomicInteger summaries = new AtomicInteger();
+    static volatile boolean failing = false;
+
+    @Override
+    public URI getUri() {
+      return URI.create("countingfs:///");
+    }
+
+    @Override
+    public ContentSummary getContentSummary(Path f) throws IOException {
+      summaries.incrementAndGet();
+      if (failing) {
+        throw new IllegalStateException("listing failed");
+      }
+      return new ContentSummary(100, 2, 1);
+    }
+  }
+
+  private HiveConf conf;
+
+  @Override
+  protected void setUp() {
+    conf = new HiveConf(TestUtilities.class);
+    conf.setClass("fs.countingfs.impl", CountingFileSystem.class,
+        RawLocalFileSystem.class);
+    CountingFileSystem.summaries.set(0);
+    CountingFileSystem.failing = false;
+  }
+
+  private static MapredWork work(int paths) {
+    LinkedHashMap<String, ArrayList<String>> pathToAliases =
+        new LinkedHashMap<String, ArrayList<String>>();
+    for (int i = 0; i < paths; i++) {
+      ArrayList<String> aliases = new ArrayList<String>();
+      aliases.add("t");
+      pathToAliases.put("countingfs:///t/p=" + i, aliases);
+    }
+    MapredWork work = new MapredWork();
+    work.setPathToAliases(pathToAliases);
+    return work;
+  }
+
+  public void testGetInputSummary() throws Exception {
+    Context ctx = new Context(conf);
+    ContentSummary cs = Utilities.getInputSummary(ctx, work(5), null);
+    assertEquals(500, cs.getLength());
+    assertEquals(10, cs.getFileCount());
+    assertEquals(5, cs.getDirectoryCount());
+    assertEquals(5, CountingFileSystem.summaries.get());
+
+    // the cached summaries are not asked for again
+    ctx.addCS("countingfs:///t/p=5", new ContentSummary(7, 1, 0));
+    cs = Utilities.getInputSummary(ctx, work(7), null);
+    assertEquals(607, cs.getLength());
+    assertEquals(13, cs.getFileCount());
+    assertEquals(6, cs.getDirectoryCount());
+    assertEquals(6, CountingFileSystem.summaries.get());
+
+    // one thread lists the paths in the caller
+    HiveConf.setIntVar(conf,
+        HiveConf.ConfVars.HIVE_EXEC_INPUT_LISTING_MAX_THREADS, 1);
+    cs = Utilities.getInputSummary(new Context(conf), work(3), null);
+    assertEquals(300, cs.getLength());
+    assertEquals(9, CountingFileSystem.summaries.get());
+  }
+
+  public void testGetInputSummaryFailure() throws Exception {
+    CountingFileSystem.failing = true;
+    try {
+      Utilities.getInputSummary(new Context(conf), work(8), null);
+      fail("the failed listing was not reported");
+    } catch (IOException e) {
+      assertEquals("listing failed", e.getCause().getMessage());
+    }
+
+    // the pool is shut down, so its threads go away
+    long deadline = System.currentTimeMillis() + 10000;
+    while (hasSummaryThreads() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(hasSummaryThreads());
+  }
+
+  private static boolean hasSummaryThreads() {
+    for (Thread t : Thread.getAllStackTraces().keySet()) {
+      if (t.isAlive()
+          && t.getName().startsWith(Utilities.INPUT_SUMMARY_THREAD_PREFIX)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
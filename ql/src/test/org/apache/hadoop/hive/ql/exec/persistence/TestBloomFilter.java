@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * TestBloomFilter.
+ *
+ */
+public class TestBloomFilter extends TestCase {
+
+  private static byte[] key(int i) {
+    return ("key_" + i).getBytes();
+  }
+
+  public void testNoFalseNegatives() {
+    BloomFilter filter = BloomFilter.create(10000, 0.03);
+    for (int i = 0; i < 10000; i++) {
+      byte[] k = key(i);
+      filter.add(k, 0, k.length);
+    }
+    for (int i = 0; i < 10000; i++) {
+      byte[] k = key(i);
+      assertTrue(filter.mightContain(k, 0, k.length));
+    }
+  }
+
+  public void testFalsePositiveRate() {
+    BloomFilter filter = BloomFilter.create(10000, 0.03);
+    for (int i = 0; i < 10000; i++) {
+      byte[] k = key(i);
+      filter.add(k, 0, k.length);
+    }
+    int falsePositives = 0;
+    for (int i = 10000; i < 110000; i++) {
+      byte[] k = key(i);
+      if (filter.mightContain(k, 0, k.length)) {
+        falsePositives++;
+      }
+    }
+    assertTrue("false positives: " + falsePositives, falsePositives < 100000 * 0.06);
+  }
+
+  public void testDistinctBitsPerKey() throws Exception {
+    // in a single word of bits, every hash of a key sets a different bit
+    for (int i = 0; i < 100; i++) {
+      BloomFilter filter = BloomFilter.create(1, 0.03);
+      assertEquals(64, filter.getNumBits());
+      byte[] k = key(i);
+      filter.add(k, 0, k.length);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      filter.write(new DataOutputStream(bytes));
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      in.readInt();
+      in.readInt();
+      assertEquals("key_" + i, filter.getNumHashes(), Long.bitCount(in.readLong()));
+    }
+  }
+
+  public void testByteRange() {
+    byte[] padded = "xxkey_7yy".getBytes();
+    byte[] k = key(7);
+    assertEquals(BloomFilter.hash64(k, 0, k.length), BloomFilter.hash64(padded, 2, k.length));
+  }
+
+  public void testSerialization() throws Exception {
+    BloomFilter filter = BloomFilter.create(100, 0.01);
+    for (int i = 0; i < 100; i++) {
+      byte[] k = key(i);
+      filter.add(k, 0, k.length);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    filter.write(new DataOutputStream(bytes));
+    BloomFilter copy = BloomFilter.read(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(filter.getNumBits(), copy.getNumBits());
+    assertEquals(filter.getNumHashes(), copy.getNumHashes());
+    for (int i = 0; i < 1000; i++) {
+      byte[] k = key(i);
+      assertEquals(filter.mightContain(k, 0, k.length), copy.mightContain(k, 0, k.length));
+    }
+  }
+}
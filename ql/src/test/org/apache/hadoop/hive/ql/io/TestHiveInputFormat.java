@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.io;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * TestHiveInputFormat.
+ *
+ */
+public class TestHiveInputFormat extends TestCase {
+
+  private static ArrayList<FileSplit> splits(long... lengths) {
+    ArrayList<FileSplit> splits = new ArrayList<FileSplit>();
+    for (int i = 0; i < lengths.length; i++) {
+      splits.add(new FileSplit(new Path("/data/" + i), 0, lengths[i], (String[]) null));
+    }
+    return splits;
+  }
+
+  public void testLimitSplits() throws Exception {
+    JobConf job = new JobConf(TestHiveInputFormat.class);
+    ArrayList<FileSplit> splits = splits(100, 100, 100, 100);
+
+    // not set: every split
+    assertSame(splits, HiveInputFormat.limitSplits(splits, job));
+    job.setLong(HiveInputFormat.LIMIT_INPUT_SIZE, -1);
+    assertSame(splits, HiveInputFormat.limitSplits(splits, job));
+
+    // the first splits that hold at least the limit
+    job.setLong(HiveInputFormat.LIMIT_INPUT_SIZE, 150);
+    ArrayList<FileSplit> result = HiveInputFormat.limitSplits(splits, job);
+    assertEquals(splits.subList(0, 2), result);
+    job.setLong(HiveInputFormat.LIMIT_INPUT_SIZE, 200);
+    assertEquals(splits.subList(0, 2), HiveInputFormat.limitSplits(splits, job));
+    job.setLong(HiveInputFormat.LIMIT_INPUT_SIZE, 1);
+    assertEquals(splits.subList(0, 1), HiveInputFormat.limitSplits(splits, job));
+
+    // more than the input holds
+    job.setLong(HiveInputFormat.LIMIT_INPUT_SIZE, 1000);
+    assertEquals(splits, HiveInputFormat.limitSplits(splits, job));
+  }
+}
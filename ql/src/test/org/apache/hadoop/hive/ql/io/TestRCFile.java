@@ -21,7 +21,11 @@ package org.apache.hadoop.hive.ql.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import junit.framework.TestCase;
@@ -36,9 +40,11 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.serde.Constants;
 import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
 import org.apache.hadoop.hive.serde2.columnar.BytesRefArrayWritable;
 import org.apache.hadoop.hive.serde2.columnar.BytesRefWritable;
 import org.apache.hadoop.hive.serde2.columnar.ColumnarSerDe;
+import org.apache.hadoop.hive.serde2.columnar.LazyBinaryColumnarSerDe;
 import org.apache.hadoop.hive.serde2.io.ByteWritable;
 import org.apache.hadoop.hive.serde2.io.DoubleWritable;
 import org.apache.hadoop.hive.serde2.io.ShortWritable;
@@ -46,6 +52,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
@@ -176,6 +184,7 @@ public class TestRCFile extends TestCase {
         new LongWritable(1000), new DoubleWritable(5.3),
         new Text("hive and hadoop"), null, null};
 
+    ColumnProjectionUtils.setFullyReadColumns(conf);
     RCFile.Reader reader = new RCFile.Reader(fs, file, conf);
 
     LongWritable rowID = new LongWritable();
@@ -387,6 +396,83 @@ public class TestRCFile extends TestCase {
     LOG.debug("reading fully costs:" + cost + " milliseconds");
   }
 
+  public void testFileColumnIDs() {
+    ArrayList<Integer> readCols = new ArrayList<Integer>();
+    readCols.add(Integer.valueOf(1));
+    readCols.add(Integer.valueOf(3));
+    readCols.add(Integer.valueOf(4));
+    // the table has 4 columns, of which column 1 takes 3 columns in the file
+    int[] layout = RCFile.Reader.parseColumnLayout("1,3,1,2");
+    Map<Integer, ArrayList<Integer>> nested =
+        new HashMap<Integer, ArrayList<Integer>>();
+    ArrayList<Integer> fileCols = RCFile.Reader.getFileColumnIDs(readCols,
+        nested, layout);
+    assertEquals(Arrays.asList(1, 2, 3, 5, 6), fileCols);
+
+    // only the second field of column 1 and the first of column 3
+    nested.put(1, new ArrayList<Integer>(Arrays.asList(1)));
+    nested.put(3, new ArrayList<Integer>(Arrays.asList(0)));
+    fileCols = RCFile.Reader.getFileColumnIDs(readCols, nested, layout);
+    assertEquals(Arrays.asList(1, 3, 5, 6), fileCols);
+  }
+
+  public void testShreddedReadAndWrite() throws Exception {
+    fs.delete(file, true);
+    String columns = "i,st";
+    String types = "int,struct<x:int,y:string>";
+    Properties shreddedTbl = new Properties();
+    shreddedTbl.setProperty(Constants.LIST_COLUMNS, columns);
+    shreddedTbl.setProperty(Constants.LIST_COLUMN_TYPES, types);
+    shreddedTbl.setProperty(LazyBinaryColumnarSerDe.SHRED_NESTED, "true");
+    LazyBinaryColumnarSerDe shreddedSerDe = new LazyBinaryColumnarSerDe();
+    shreddedSerDe.initialize(conf, shreddedTbl);
+
+    Configuration writeConf = new Configuration(conf);
+    RCFileOutputFormat.setColumnNumber(writeConf, 4);
+    writeConf.set(RCFile.COLUMN_LAYOUT_CONF_STR, "1,3");
+    RCFile.Writer writer = new RCFile.Writer(fs, writeConf, file, null,
+        new DefaultCodec());
+    StructObjectInspector javaOI = (StructObjectInspector) TypeInfoUtils
+        .getStandardJavaObjectInspectorFromTypeInfo(TypeInfoFactory
+        .getStructTypeInfo(Arrays.asList(columns.split(",")), TypeInfoUtils
+        .getTypeInfosFromTypeString(types)));
+    writer.append(shreddedSerDe.serialize(Arrays.asList(1, Arrays.asList(2,
+        "a")), javaOI));
+    writer.append(shreddedSerDe.serialize(Arrays.asList(3, null), javaOI));
+    writer.close();
+
+    // the layout comes from the file, not from the table
+    Configuration readConf = new Configuration(conf);
+    ArrayList<Integer> readCols = new ArrayList<Integer>();
+    readCols.add(Integer.valueOf(1));
+    ColumnProjectionUtils.appendReadColumnIDs(readConf, readCols,
+        new ArrayList<String>(Arrays.asList("1:1")));
+    Properties plainTbl = new Properties();
+    plainTbl.setProperty(Constants.LIST_COLUMNS, columns);
+    plainTbl.setProperty(Constants.LIST_COLUMN_TYPES, types);
+    LazyBinaryColumnarSerDe plainSerDe = new LazyBinaryColumnarSerDe();
+    plainSerDe.initialize(readConf, plainTbl);
+    StructObjectInspector oi = (StructObjectInspector) plainSerDe
+        .getObjectInspector();
+
+    RCFile.Reader reader = new RCFile.Reader(fs, file, readConf);
+    LongWritable rowID = new LongWritable();
+    BytesRefArrayWritable cols = new BytesRefArrayWritable();
+    assertTrue(reader.next(rowID));
+    reader.getCurrentRow(cols);
+    assertTrue(Arrays.equals(new int[] {1, 3}, cols.getColumnLayout()));
+    // the column of st.x is not read
+    assertEquals(0, cols.get(2).getLength());
+    assertEquals("{\"i\":null,\"st\":{\"x\":null,\"y\":\"a\"}}",
+        SerDeUtils.getJSONString(plainSerDe.deserialize(cols), oi));
+    assertTrue(reader.next(rowID));
+    reader.getCurrentRow(cols);
+    assertEquals("{\"i\":null,\"st\":null}", SerDeUtils.getJSONString(
+        plainSerDe.deserialize(cols), oi));
+    assertFalse(reader.next(rowID));
+    reader.close();
+  }
+
   public void testSynAndSplit() throws IOException {
     splitBeforeSync();
     splitRightBeforeSync();
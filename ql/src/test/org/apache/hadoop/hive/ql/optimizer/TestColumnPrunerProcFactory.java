@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.optimizer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.ql.exec.Operator;
+import org.apache.hadoop.hive.ql.exec.OperatorFactory;
+import org.apache.hadoop.hive.ql.parse.TypeCheckProcFactory;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeFieldDesc;
+import org.apache.hadoop.hive.ql.plan.FilterDesc;
+import org.apache.hadoop.hive.ql.plan.LimitDesc;
+import org.apache.hadoop.hive.ql.plan.SelectDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * TestColumnPrunerProcFactory.
+ *
+ */
+public class TestColumnPrunerProcFactory extends TestCase {
+
+  private static final TypeInfo STRUCT_TYPE = TypeInfoUtils
+      .getTypeInfoFromTypeString("struct<a:int,b:string,c:int>");
+
+  private static ExprNodeDesc column(String name) {
+    return new ExprNodeColumnDesc(STRUCT_TYPE, name, "t", false);
+  }
+
+  private static ExprNodeDesc field(String name, String field) {
+    return new ExprNodeFieldDesc(TypeInfoFactory.intTypeInfo, column(name),
+        field, false);
+  }
+
+  private static Operator<? extends Serializable> select(ExprNodeDesc... cols) {
+    return OperatorFactory.get(new SelectDesc(new ArrayList<ExprNodeDesc>(
+        Arrays.asList(cols)), new ArrayList<String>()));
+  }
+
+  private static Set<String> fields(String... names) {
+    return new HashSet<String>(Arrays.asList(names));
+  }
+
+  public void testUsedFields() throws Exception {
+    ExprNodeDesc predicate = TypeCheckProcFactory.DefaultExprProcessor
+        .getFuncExprNodeDesc("=", field("_col0", "C"),
+        new ExprNodeConstantDesc(Integer.valueOf(1)));
+    Operator<? extends Serializable> scan = OperatorFactory.get(
+        new TableScanDesc("t"), OperatorFactory.get(new FilterDesc(predicate,
+        false), select(field("_col0", "a"), column("_col1"))));
+
+    Map<String, Set<String>> usedFields = new HashMap<String, Set<String>>();
+    assertTrue(ColumnPrunerProcFactory.getUsedFields(scan, usedFields));
+    assertEquals(fields("a", "c"), usedFields.get("_col0"));
+    assertTrue(usedFields.containsKey("_col1"));
+    assertNull(usedFields.get("_col1"));
+
+    // a column used whole anywhere is read whole
+    ColumnPrunerProcFactory.addUsedFields(column("_col0"), usedFields);
+    assertNull(usedFields.get("_col0"));
+
+    // operators other than filters and selects are not analyzed
+    scan = OperatorFactory.get(new TableScanDesc("t"), OperatorFactory.get(
+        new LimitDesc(1)));
+    assertFalse(ColumnPrunerProcFactory.getUsedFields(scan,
+        new HashMap<String, Set<String>>()));
+    scan = OperatorFactory.get(new TableScanDesc("t"), OperatorFactory.get(
+        new SelectDesc(true)));
+    assertFalse(ColumnPrunerProcFactory.getUsedFields(scan,
+        new HashMap<String, Set<String>>()));
+  }
+
+  public void testFieldIDs() {
+    assertEquals(Arrays.asList(0, 2), ColumnPrunerProcFactory.getFieldIDs(
+        STRUCT_TYPE, fields("c", "a")));
+    assertEquals(Arrays.asList(1), ColumnPrunerProcFactory.getFieldIDs(
+        TypeInfoFactory.getListTypeInfo(STRUCT_TYPE), fields("b")));
+    assertNull(ColumnPrunerProcFactory.getFieldIDs(STRUCT_TYPE, fields("a",
+        "d")));
+    assertNull(ColumnPrunerProcFactory.getFieldIDs(
+        TypeInfoFactory.intTypeInfo, fields("a")));
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.optimizer.physical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
+import org.apache.hadoop.hive.ql.plan.ConditionalResolverCommonJoin;
+import org.apache.hadoop.hive.ql.stats.StatsSetupConst;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+
+/**
+ * TestMapJoinSizeEstimator.
+ *
+ */
+public class TestMapJoinSizeEstimator extends TestCase {
+
+  private static ColumnStatistics stats(long ndv, long nulls, double avgLength, Number min,
+      Number max) {
+    ColumnStatistics cs = new ColumnStatistics();
+    cs.setNumDistincts(ndv);
+    cs.setNumNulls(nulls);
+    cs.setAvgLength(avgLength);
+    cs.setMaxLength((long) Math.ceil(avgLength) * 2);
+    cs.setMin(min);
+    cs.setMax(max);
+    return cs;
+  }
+
+  private static Map<String, String> partition(long rows, String col, ColumnStatistics cs) {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put(StatsSetupConst.ROW_COUNT, String.valueOf(rows));
+    Map<String, ColumnStatistics> colStats = new HashMap<String, ColumnStatistics>();
+    colStats.put(col, cs);
+    ColumnStatistics.setInParameters(params, colStats);
+    return params;
+  }
+
+  public void testRowCount() {
+    Map<String, String> params = new HashMap<String, String>();
+    assertEquals(-1, MapJoinSizeEstimator.getRowCount(params));
+    params.put(StatsSetupConst.ROW_COUNT, "42");
+    assertEquals(42, MapJoinSizeEstimator.getRowCount(params));
+    params.put(StatsSetupConst.ROW_COUNT, "x");
+    assertEquals(-1, MapJoinSizeEstimator.getRowCount(params));
+  }
+
+  public void testFieldSize() {
+    assertEquals(MapJoinSizeEstimator.FIELD_OVERHEAD + 4,
+        MapJoinSizeEstimator.getFieldSize(TypeInfoFactory.intTypeInfo, null));
+    assertEquals(MapJoinSizeEstimator.FIELD_OVERHEAD + 8,
+        MapJoinSizeEstimator.getFieldSize(TypeInfoFactory.doubleTypeInfo, null));
+    assertEquals(MapJoinSizeEstimator.FIELD_OVERHEAD
+        + MapJoinSizeEstimator.DEFAULT_STRING_LENGTH,
+        MapJoinSizeEstimator.getFieldSize(TypeInfoFactory.stringTypeInfo, null));
+    assertEquals(MapJoinSizeEstimator.FIELD_OVERHEAD + 6, MapJoinSizeEstimator.getFieldSize(
+        TypeInfoFactory.stringTypeInfo, stats(10, 0, 5.5, null, null)));
+    assertEquals(MapJoinSizeEstimator.FIELD_OVERHEAD
+        + MapJoinSizeEstimator.DEFAULT_COMPLEX_LENGTH, MapJoinSizeEstimator.getFieldSize(
+        TypeInfoFactory.getListTypeInfo(TypeInfoFactory.intTypeInfo), null));
+  }
+
+  public void testRangeSelectivity() {
+    ColumnStatistics cs = stats(100, 0, 0, Double.valueOf(0), Double.valueOf(100));
+    assertEquals(0.25, MapJoinSizeEstimator.getRangeSelectivity(cs, 25, true), 1e-9);
+    assertEquals(0.75, MapJoinSizeEstimator.getRangeSelectivity(cs, 25, false), 1e-9);
+    assertEquals(0.0, MapJoinSizeEstimator.getRangeSelectivity(cs, -5, true), 1e-9);
+    assertEquals(1.0, MapJoinSizeEstimator.getRangeSelectivity(cs, 500, true), 1e-9);
+    assertEquals(1.0, MapJoinSizeEstimator.getRangeSelectivity(
+        stats(100, 0, 0, null, null), 25, true), 1e-9);
+  }
+
+  public void testMergeColumnStatistics() {
+    List<Map<String, String>> params = new ArrayList<Map<String, String>>();
+    params.add(partition(100, "key", stats(50, 1, 4, Double.valueOf(0), Double.valueOf(10))));
+    params.add(partition(300, "key", stats(80, 2, 8, Double.valueOf(5), Double.valueOf(20))));
+    Map<String, String> noStats = new HashMap<String, String>();
+    noStats.put(StatsSetupConst.ROW_COUNT, "10");
+
+    Map<String, ColumnStatistics> merged = MapJoinSizeEstimator.mergeColumnStatistics(
+        params, new long[] {100, 300});
+    ColumnStatistics cs = merged.get("key");
+    assertEquals(80, cs.getNumDistincts());
+    assertEquals(3, cs.getNumNulls());
+    assertEquals(7.0, cs.getAvgLength(), 1e-9);
+    assertEquals(0.0, cs.getMin().doubleValue(), 1e-9);
+    assertEquals(20.0, cs.getMax().doubleValue(), 1e-9);
+
+    // bigint bounds go through the partition parameters and the merge exactly
+    long big = (1L << 53) + 1;
+    List<Map<String, String>> bigParams = new ArrayList<Map<String, String>>();
+    bigParams.add(partition(10, "id",
+        stats(10, 0, 0, Long.valueOf(big), Long.valueOf(big + 2))));
+    bigParams.add(partition(10, "id",
+        stats(10, 0, 0, Long.valueOf(big + 4), Long.valueOf(big + 6))));
+    cs = MapJoinSizeEstimator.mergeColumnStatistics(bigParams, new long[] {10, 10}).get("id");
+    assertEquals(Long.valueOf(big), cs.getMin());
+    assertEquals(Long.valueOf(big + 6), cs.getMax());
+
+    // a partition that was not analyzed drops the column
+    params.add(noStats);
+    merged = MapJoinSizeEstimator.mergeColumnStatistics(params, new long[] {100, 300, 10});
+    assertTrue(merged.isEmpty());
+  }
+
+  public void testEstimatedBigTable() {
+    Map<String, Long> sizes = new HashMap<String, Long>();
+    sizes.put("a", Long.valueOf(1000));
+    sizes.put("b", Long.valueOf(10));
+    sizes.put("c", Long.valueOf(MapJoinSizeEstimator.UNKNOWN_SIZE));
+
+    // c has no estimate, so it can only be the big table
+    assertEquals("c", ConditionalResolverCommonJoin.getEstimatedBigTableAlias(sizes,
+        Arrays.asList("a", "b", "c")));
+    assertEquals(1010, ConditionalResolverCommonJoin.getSmallTablesKnownSize(sizes, "c"));
+    assertNull(ConditionalResolverCommonJoin.getEstimatedBigTableAlias(sizes,
+        Arrays.asList("a", "b")));
+
+    sizes.put("c", Long.valueOf(100));
+    assertEquals("a", ConditionalResolverCommonJoin.getEstimatedBigTableAlias(sizes,
+        Arrays.asList("a", "b", "c")));
+    assertEquals(110, ConditionalResolverCommonJoin.getSmallTablesKnownSize(sizes, "a"));
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.parse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * TestColumnStatsSemanticAnalyzer.
+ *
+ */
+public class TestColumnStatsSemanticAnalyzer extends TestCase {
+
+  private static ASTNode parse(String command) throws ParseException {
+    return ParseUtils.findRootNonNullToken(new ParseDriver().parse(command));
+  }
+
+  public void testParse() throws Exception {
+    // the factory picks ColumnStatsSemanticAnalyzer for more than one child
+    ASTNode ast = parse("ANALYZE TABLE t COMPUTE STATISTICS");
+    assertEquals(HiveParser.TOK_ANALYZE, ast.getToken().getType());
+    assertEquals(1, ast.getChildCount());
+
+    ast = parse("ANALYZE TABLE t PARTITION (ds='1') COMPUTE STATISTICS FOR COLUMNS");
+    assertEquals(HiveParser.TOK_ANALYZE, ast.getToken().getType());
+    assertEquals(2, ast.getChildCount());
+
+    ast = parse("ANALYZE TABLE t COMPUTE STATISTICS FOR COLUMNS a, b");
+    assertEquals(3, ast.getChildCount());
+    ASTNode colList = (ASTNode) ast.getChild(2);
+    assertEquals(HiveParser.TOK_TABCOLNAME, colList.getToken().getType());
+    assertEquals(2, colList.getChildCount());
+    assertEquals("b", colList.getChild(1).getText());
+  }
+
+  public void testRewrittenQuery() throws Exception {
+    List<String> cols = Arrays.asList("key", "value");
+    String query = ColumnStatsSemanticAnalyzer.genRewrittenQuery("src", cols,
+        new ArrayList<String>(), new ArrayList<String>(), 10);
+    assertEquals("SELECT compute_stats(`key`, 10), compute_stats(`value`, 10) FROM `src`",
+        query);
+    assertEquals(HiveParser.TOK_QUERY, parse(query).getToken().getType());
+
+    // one row per partition, restricted to the static partition values
+    query = ColumnStatsSemanticAnalyzer.genRewrittenQuery("srcpart", cols,
+        Arrays.asList("ds", "hr"), Arrays.asList("`ds` = '2008-04-08'"), 14);
+    assertEquals("SELECT compute_stats(`key`, 14), compute_stats(`value`, 14), `ds`, `hr`"
+        + " FROM `srcpart` WHERE `ds` = '2008-04-08' GROUP BY `ds`, `hr`", query);
+    assertEquals(HiveParser.TOK_QUERY, parse(query).getToken().getType());
+  }
+}
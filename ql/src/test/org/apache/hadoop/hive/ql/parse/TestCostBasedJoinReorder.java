@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.parse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.ColumnStatistics;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.parse.CostBasedJoinReorder.Conjunct;
+import org.apache.hadoop.hive.ql.parse.CostBasedJoinReorder.Plan;
+import org.apache.hadoop.hive.ql.parse.CostBasedJoinReorder.Source;
+import org.apache.hadoop.hive.ql.stats.StatsSetupConst;
+
+/**
+ * TestCostBasedJoinReorder.
+ *
+ */
+public class TestCostBasedJoinReorder extends TestCase {
+
+  private static Source source(String alias, long rows, String column, long ndv) {
+    Map<String, ColumnStatistics> colStats = new HashMap<String, ColumnStatistics>();
+    if (column != null) {
+      ColumnStatistics cs = new ColumnStatistics();
+      cs.setNumDistincts(ndv);
+      colStats.put(column, cs);
+    }
+    return new Source(alias, null, rows, 100, false, colStats);
+  }
+
+  private static Conjunct equality(int left, String leftColumn, int right, String rightColumn) {
+    return new Conjunct(null, (1 << left) | (1 << right), left, right, leftColumn, rightColumn);
+  }
+
+  public void testEstimateJoinRows() {
+    // unknown distinct counts: a key of the smaller side is looked up
+    assertEquals(1000.0, CostBasedJoinReorder.estimateJoinRows(1000, -1, 10, -1), 1e-9);
+    assertEquals(1000.0, CostBasedJoinReorder.estimateJoinRows(1000, 10, 10, 10), 1e-9);
+    // distinct counts are capped by the row counts
+    assertEquals(100.0, CostBasedJoinReorder.estimateJoinRows(1000, 100, 10, 50), 1e-9);
+  }
+
+  public void testSelectiveJoinFirst() {
+    Source[] sources = new Source[] {
+        source("f", 100000000L, "c", 100000),
+        source("b", 10000000L, null, 0),
+        source("s", 1000L, "c", 1000)};
+    List<Conjunct> conjuncts = new ArrayList<Conjunct>();
+    conjuncts.add(equality(0, "a", 1, "a"));
+    conjuncts.add(equality(0, "c", 2, "c"));
+
+    Plan best = new CostBasedJoinReorder(new HiveConf()).search(sources, conjuncts);
+    assertNotNull(best);
+    // f and s shrink to a million rows before b is joined
+    assertEquals(1, best.source);
+    assertEquals(1000000.0, best.prev.rows, 1e-3);
+    assertEquals(((1 << 0) | (1 << 2)), best.prev.mask);
+  }
+
+  private static void addTable(QB qb, String name, String alias, long rows, long size) {
+    Table tbl = new Table("default", name);
+    tbl.setProperty(StatsSetupConst.ROW_COUNT, String.valueOf(rows));
+    tbl.setProperty(StatsSetupConst.TOTAL_SIZE, String.valueOf(size));
+    qb.getMetaData().setSrcForAlias(alias, tbl);
+  }
+
+  private static void collectAliases(ASTNode node, List<String> aliases) {
+    if (node.getToken().getType() == HiveParser.TOK_TABREF) {
+      aliases.add(node.getChild(node.getChildCount() - 1).getText());
+      return;
+    }
+    if (node.getToken().getType() == HiveParser.TOK_JOIN) {
+      collectAliases((ASTNode) node.getChild(0), aliases);
+      collectAliases((ASTNode) node.getChild(1), aliases);
+    }
+  }
+
+  public void testReorder() throws Exception {
+    // the statistics of join_reorder_costbased.q: the wide rows of b are
+    // joined last
+    ASTNode query = (ASTNode) new ParseDriver().parse(
+        "SELECT * FROM jrc_f f JOIN jrc_b b ON (f.fa = b.ba) JOIN jrc_s s ON (f.fc = s.sc)")
+        .getChild(0);
+    ASTNode joinExpr = (ASTNode) query.getChild(0).getChild(0);
+    QB qb = new QB(null, null, false);
+    addTable(qb, "jrc_f", "f", 100000000L, 10000000000L);
+    addTable(qb, "jrc_b", "b", 10000L, 100000000L);
+    addTable(qb, "jrc_s", "s", 1000L, 10000L);
+
+    Map<ASTNode, String> joinCosts = new HashMap<ASTNode, String>();
+    ASTNode reordered = new CostBasedJoinReorder(new HiveConf()).reorder(qb, joinExpr,
+        joinCosts);
+    assertNotSame(joinExpr, reordered);
+    assertEquals(2, joinCosts.size());
+    List<String> aliases = new ArrayList<String>();
+    collectAliases(reordered, aliases);
+    assertEquals("[f, s, b]", aliases.toString());
+  }
+
+  public void testDisconnected() {
+    Source[] sources = new Source[] {
+        source("a", 10, null, 0), source("b", 10, null, 0), source("c", 10, null, 0)};
+    List<Conjunct> conjuncts = new ArrayList<Conjunct>();
+    conjuncts.add(equality(0, "k", 1, "k"));
+    assertNull(new CostBasedJoinReorder(new HiveConf()).search(sources, conjuncts));
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Checks that the date UDFs give exactly the results of SimpleDateFormat and
+ * Calendar, which they used before FastDateParser.
+ */
+public class TestFastDateParser extends TestCase {
+
+  private static final String[] ZONES = {"UTC", "America/Los_Angeles",
+      "America/Sao_Paulo", "Europe/Berlin", "Asia/Kolkata", "Pacific/Apia",
+      "Australia/Lord_Howe"};
+
+  private static final String[] MALFORMED = {"", "2010", "2010-1-05",
+      "2010-01-5", "2010-02-30", "2010-13-01", "2010-00-10", "20100-01-01",
+      "2010-01-011", "2010-01-01x", " 2010-01-01", "2010/01/01", "0099-01-01",
+      "1582-10-10", "1583-01-01", "2010-01-01 24:00:00", "2010-01-01 10:60:00",
+      "2010-01-01 10:00:61", "2010-01-01 10:00:001", "2010-01-01 1:00:00",
+      "2010-01-01 10:00:00.123", "2010-01-01T10:00:00", "10:20:30",
+      "9999-12-31 23:59:59", "2010-02-29", "2012-02-29"};
+
+  private TimeZone defaultZone;
+
+  @Override
+  protected void setUp() {
+    defaultZone = TimeZone.getDefault();
+  }
+
+  @Override
+  protected void tearDown() {
+    TimeZone.setDefault(defaultZone);
+  }
+
+  /**
+   * Returns date strings for every day of the years around the epoch and
+   * around now, and date and time strings for every half hour of the days
+   * around the daylight saving time transitions of most zones.
+   */
+  private static List<String> getDates() {
+    List<String> dates = new ArrayList<String>();
+    Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd");
+    SimpleDateFormat dateTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    date.setTimeZone(c.getTimeZone());
+    dateTime.setTimeZone(c.getTimeZone());
+    for (int year : new int[] {1583, 1900, 1969, 1970, 2000, 2010, 2011}) {
+      c.clear();
+      c.set(year, 0, 1);
+      for (int i = 0; i < 366; i++) {
+        dates.add(date.format(c.getTime()));
+        c.add(Calendar.DAY_OF_MONTH, 1);
+      }
+    }
+    for (int month : new int[] {2, 3, 9, 10}) {
+      c.clear();
+      c.set(2010, month, 1, 0, 17, 59);
+      for (int i = 0; i < 31 * 48; i++) {
+        dates.add(dateTime.format(c.getTime()));
+        c.add(Calendar.MINUTE, 30);
+      }
+    }
+    // the day that Samoa skipped
+    dates.add("2011-12-30");
+    dates.add("2011-12-30 12:00:00");
+    for (String malformed : MALFORMED) {
+      dates.add(malformed);
+    }
+    return dates;
+  }
+
+  private static Object parse(SimpleDateFormat formatter, Text text) {
+    try {
+      return formatter.parse(text.toString());
+    } catch (ParseException e) {
+      return null;
+    }
+  }
+
+  private static Integer getField(Date date, int field) {
+    if (date == null) {
+      return null;
+    }
+    Calendar calendar = Calendar.getInstance();
+    calendar.setFirstDayOfWeek(Calendar.MONDAY);
+    calendar.setMinimalDaysInFirstWeek(4);
+    calendar.setTime(date);
+    return calendar.get(field);
+  }
+
+  private static Date parseDateTime(Text text) {
+    Date date = (Date) parse(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
+        text);
+    if (date == null) {
+      date = (Date) parse(new SimpleDateFormat("HH:mm:ss"), text);
+    }
+    return date;
+  }
+
+  private static String addDays(Text text, int days) {
+    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+    Date date = (Date) parse(formatter, text);
+    if (date == null) {
+      return null;
+    }
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+    calendar.add(Calendar.DAY_OF_MONTH, days);
+    return formatter.format(calendar.getTime());
+  }
+
+  private static void assertResult(String message, Object expected,
+      IntWritable actual) {
+    assertEquals(message, expected, actual == null ? null : actual.get());
+  }
+
+  private static void assertResult(String message, Object expected,
+      Text actual) {
+    assertEquals(message, expected, actual == null ? null : actual.toString());
+  }
+
+  public void testSameResults() {
+    List<String> dates = getDates();
+    for (String zone : ZONES) {
+      TimeZone.setDefault(TimeZone.getTimeZone(zone));
+      UDFYear year = new UDFYear();
+      UDFMonth month = new UDFMonth();
+      UDFDayOfMonth dayOfMonth = new UDFDayOfMonth();
+      UDFWeekOfYear weekOfYear = new UDFWeekOfYear();
+      UDFHour hour = new UDFHour();
+      UDFMinute minute = new UDFMinute();
+      UDFSecond second = new UDFSecond();
+      UDFDate toDate = new UDFDate();
+      UDFDateAdd dateAdd = new UDFDateAdd();
+      UDFDateSub dateSub = new UDFDateSub();
+      UDFDateDiff dateDiff = new UDFDateDiff();
+      UDFUnixTimeStamp unixTimeStamp = new UDFUnixTimeStamp();
+      UDFFromUnixTime fromUnixTime = new UDFFromUnixTime();
+      SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+      SimpleDateFormat dateTimeFormat = new SimpleDateFormat(
+          "yyyy-MM-dd HH:mm:ss");
+      SimpleDateFormat utcFormat = new SimpleDateFormat("yyyy-MM-dd");
+      utcFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+      Text epoch = new Text("1970-01-01");
+
+      for (String string : dates) {
+        String message = zone + " " + string;
+        Text text = new Text(string);
+        Date date = (Date) parse(dateFormat, text);
+        assertResult(message, getField(date, Calendar.YEAR), year
+            .evaluate(text));
+        assertResult(message, date == null ? null
+            : getField(date, Calendar.MONTH) + 1, month.evaluate(text));
+        assertResult(message, getField(date, Calendar.DAY_OF_MONTH), dayOfMonth
+            .evaluate(text));
+        assertResult(message, getField(date, Calendar.WEEK_OF_YEAR), weekOfYear
+            .evaluate(text));
+        assertResult(message, date == null ? null : dateFormat.format(date),
+            toDate.evaluate(text));
+        for (int days : new int[] {-400, -1, 1, 31, 100000}) {
+          assertResult(message + " " + days, addDays(text, days), dateAdd
+              .evaluate(text, new IntWritable(days)));
+          assertResult(message + " " + days, addDays(text, -days), dateSub
+              .evaluate(text, new IntWritable(days)));
+        }
+        Date utcDate = (Date) parse(utcFormat, text);
+        assertResult(message, utcDate == null ? null
+            : (int) (utcDate.getTime() / 86400000L), dateDiff.evaluate(text,
+            epoch));
+
+        Date dateTime = parseDateTime(text);
+        assertResult(message, getField(dateTime, Calendar.HOUR_OF_DAY), hour
+            .evaluate(text));
+        assertResult(message, getField(dateTime, Calendar.MINUTE), minute
+            .evaluate(text));
+        assertResult(message, getField(dateTime, Calendar.SECOND), second
+            .evaluate(text));
+        dateTime = (Date) parse(dateTimeFormat, text);
+        LongWritable seconds = unixTimeStamp.evaluate(text);
+        assertEquals(message, dateTime == null ? null : dateTime.getTime()
+            / 1000, seconds == null ? null : seconds.get());
+        if (dateTime != null) {
+          assertResult(message, dateTimeFormat.format(dateTime), fromUnixTime
+              .evaluate(seconds));
+          assertResult(message, dateTimeFormat.format(new Date(
+              (dateTime.getTime() / 1000 + 1799) * 1000)), fromUnixTime
+              .evaluate(new LongWritable(dateTime.getTime() / 1000 + 1799)));
+        }
+      }
+    }
+  }
+
+  public void testOtherPatterns() {
+    UDFUnixTimeStamp unixTimeStamp = new UDFUnixTimeStamp();
+    Text text = new Text("2010-03-04 05:06:07");
+    long seconds = unixTimeStamp.evaluate(text).get();
+    assertNull(unixTimeStamp.evaluate(text,
+        new Text("yyyy-MM-dd HH:mm:ss.SSS")));
+    assertEquals(seconds - 5 * 3600 - 6 * 60 - 7, unixTimeStamp.evaluate(
+        text, new Text("yyyy-MM-dd")).get());
+    assertEquals(seconds, unixTimeStamp.evaluate(text,
+        new Text("yyyy-MM-dd HH:mm:ss")).get());
+
+    UDFFromUnixTime fromUnixTime = new UDFFromUnixTime();
+    LongWritable unixTime = new LongWritable(seconds);
+    assertEquals("2010-03-04", fromUnixTime.evaluate(unixTime,
+        new Text("yyyy-MM-dd")).toString());
+    assertEquals("2010-03-04 05:06:07", fromUnixTime.evaluate(unixTime)
+        .toString());
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.ql.udf.generic.JsonPathScanner;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.Text;
+import org.json.JSONObject;
+
+/**
+ * TestUDFJson.
+ *
+ */
+public class TestUDFJson extends TestCase {
+
+  private static final String[] DOCUMENTS = {
+      "{\"store\":{\"fruit\":[{\"weight\":8,\"type\":\"apple\"},"
+          + "{\"weight\":9,\"type\":\"pear\"}],"
+          + "\"bicycle\":{\"price\":19.950,\"color\":\"red\"}},"
+          + "\"email\":\"amy@only_for_json_udf_test.net\","
+          + "\"owner\":\"amy\",\"zip\":\"94025\",\"fb:id\":\"1234\"}",
+      " { \"a\" : [ 1 , [ 2 , 3 ] , { \"b\" : null } ] ,\n\t\"c\" : -0 } ",
+      "{\"s\":\"tab\\there \\\"quoted\\\" \\u00e9\\/\\x41\",\"n\":1e2,"
+          + "\"big\":12345678901,\"t\":TRUE,\"u\":unquoted,\"e\":\"\"}",
+      "{\"w\":\"\u00fcber \u6f22\u5b57\",\"x\":{},\"y\":[],\"z\":[null]}",
+      "{'single':'quotes',\"a\":1}",
+      "{\"b\":{\"a\":1,\"a\":2}}",
+      "{\"a\":[1,,2],\"b\":{\"c\":1,}}",
+      "{/* comment */\"a\":1}",
+      "[1,2,3]",
+      "{\"a\":",
+      "not json",
+      "",
+  };
+
+  private static final String[] PATHS = {
+      "$", "$.store.fruit", "$.store.fruit[0]", "$.store.fruit[1].type",
+      "$.store.fruit[2]", "$.store.fruit[*].weight", "$.store.fruit.type",
+      "$.store.bicycle.price", "$.store.bicycle.price.x", "$.owner",
+      "$.owner[0]", "$.zip", "$.fb:id", "$.a", "$.a[0]", "$.a[1][1]",
+      "$.a[2].b", "$.a[3]", "$.a[0][0]", "$.c", "$.s", "$.n", "$.big",
+      "$.t", "$.u", "$.e", "$.w", "$.x", "$.y", "$.z[0]", "$.missing",
+      "$.", "$..a", "a", "$.a[01]", "$.a[99999999999]", "",
+  };
+
+  public void testSameAsParser() {
+    UDFJson udf = new UDFJson();
+    for (String document : DOCUMENTS) {
+      for (String path : PATHS) {
+        Text expected = udf.evaluate(document, path);
+        String expectedString = expected == null ? null : expected.toString();
+        Text actual = udf.evaluate(new Text(document), new Text(path));
+        assertEquals(document + " " + path, expectedString,
+            actual == null ? null : actual.toString());
+      }
+    }
+  }
+
+  public void testValues() {
+    UDFJson udf = new UDFJson();
+    assertEquals("pear", evaluate(udf, DOCUMENTS[0], "$.store.fruit[1].type"));
+    assertEquals("19.95", evaluate(udf, DOCUMENTS[0], "$.store.bicycle.price"));
+    assertEquals("3", evaluate(udf, DOCUMENTS[1], "$.a[1][1]"));
+    assertEquals("null", evaluate(udf, DOCUMENTS[1], "$.a[2].b"));
+    assertEquals("0", evaluate(udf, DOCUMENTS[1], "$.c"));
+    assertEquals("tab\there \"quoted\" \u00e9/A",
+        evaluate(udf, DOCUMENTS[2], "$.s"));
+    assertEquals("100.0", evaluate(udf, DOCUMENTS[2], "$.n"));
+    assertEquals("true", evaluate(udf, DOCUMENTS[2], "$.t"));
+    assertNull(evaluate(udf, DOCUMENTS[0], "$.store.fruit[2]"));
+    assertNull(evaluate(udf, DOCUMENTS[0], "$.missing"));
+    assertNull(evaluate(udf, DOCUMENTS[5], "$.b"));
+  }
+
+  public void testRejectsLikeParser() {
+    UDFJson udf = new UDFJson();
+    String[] documents = {
+        // a repeated name, after the value or in a member that is skipped
+        "{\"a\":1,\"a\":2}",
+        "{\"b\":{\"a\":1,\"a\":2},\"a\":1}",
+        "{\"a\":1,\"b\":[{\"c\":1,\"c\":1}]}",
+        // a syntax error after the value
+        "{\"a\":1,\"b\":[1,{\"c\":2}] and no more json",
+        "{\"a\":1,\"b\":{\"c\" 2}}",
+        "{\"a\":1,\"b\":\"\\uZZZZ\"}",
+        "{\"a\":1,\"b\":[1:2]}",
+    };
+    for (String document : documents) {
+      assertNull(document, udf.evaluate(document, "$.a"));
+      assertNull(document, evaluate(udf, document, "$.a"));
+    }
+
+    // the same name in different objects is fine
+    assertEquals("1", evaluate(udf, "{\"b\":{\"a\":2},\"a\":1}", "$.a"));
+    assertEquals("2",
+        evaluate(udf, "{\"b\":[{\"a\":1},{\"a\":2}],\"a\":2}", "$.a"));
+
+    JsonPathScanner scanner = new JsonPathScanner(
+        JsonPathScanner.memberPath("a"), JsonPathScanner.memberPath("c"));
+    assertFalse(scanner.scan(new Text("{\"a\":1,\"a\":2,\"c\":3}")));
+    assertFalse(scanner.scan(new Text("{\"a\":1,\"b\": garbage")));
+    // like org.json, nothing after the object is read
+    assertTrue(scanner.scan(new Text("{\"a\":1,\"c\":3} and more")));
+    assertTrue(scanner.isFound(1));
+  }
+
+  public void testResolvesTextMethod() throws Exception {
+    List<TypeInfo> args = new ArrayList<TypeInfo>();
+    args.add(TypeInfoFactory.stringTypeInfo);
+    args.add(TypeInfoFactory.stringTypeInfo);
+    assertEquals(UDFJson.class.getMethod("evaluate", Text.class, Text.class),
+        new UDFJson().getResolver().getEvalMethod(args));
+  }
+
+  public void testMembers() throws Exception {
+    String[] names = {"owner", "zip", "store", "email", "fb:id", "missing",
+        null, "s", "t", "u", "n", "w", "x", "z", "a", "c"};
+    JsonPathScanner.Path[] paths = new JsonPathScanner.Path[names.length];
+    for (int i = 0; i < names.length; i++) {
+      paths[i] = JsonPathScanner.memberPath(names[i]);
+    }
+    JsonPathScanner scanner = new JsonPathScanner(paths);
+    Text value = new Text();
+    for (int d = 0; d < 4; d++) {
+      JSONObject object = new JSONObject(DOCUMENTS[d]);
+      assertTrue(scanner.scan(new Text(DOCUMENTS[d])));
+      for (int i = 0; i < names.length; i++) {
+        assertEquals(DOCUMENTS[d] + " " + names[i], object.isNull(names[i]),
+            scanner.isNull(i));
+        if (!object.isNull(names[i])) {
+          scanner.getValue(i, value);
+          assertEquals(object.getString(names[i]), value.toString());
+        }
+      }
+    }
+  }
+
+  private static String evaluate(UDFJson udf, String json, String path) {
+    Text result = udf.evaluate(new Text(json), new Text(path));
+    return result == null ? null : result.toString();
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Checks the string UDFs that work on the bytes of Text against the String
+ * based versions they replaced.
+ */
+public class TestUDFStringFunctions extends TestCase {
+
+  private static final String[] STRINGS = {"", " ", "   ", "Facebook",
+      "  Hive Query Language  ", "GET /index.html HTTP/1.1",
+      "caf\u00e9 cr\u00e8me br\u00fbl\u00e9e", " \u00c4rger \u00fcber \u00d6l ",
+      "\u4e2d\u6587\u5b57\u7b26 mixed", "\u00df", "emoji \ud83d\ude00 end ",
+      "\ud83d\ude00\ud83d\ude01", "\u039f\u0394\u039f\u03a3 \u03a3\u039f\u03a6\u039f\u03a3",
+      "\u0130stanbul", "\u0131\u023f\u0250", "\u01c5\ufb00", "\ud801\udc00\ud801\udc28"};
+
+  private static final int[] POSITIONS = {-30, -5, -1, 0, 1, 2, 5, 30};
+
+  private static final int[] LENGTHS = {-1, 0, 1, 3, 10, Integer.MAX_VALUE};
+
+  // The String based versions
+  private static final Text result = new Text();
+
+  private static Text upper(Text s) {
+    result.set(s.toString().toUpperCase());
+    return result;
+  }
+
+  private static Text lower(Text s) {
+    result.set(s.toString().toLowerCase());
+    return result;
+  }
+
+  private static Text trim(Text s) {
+    result.set(StringUtils.strip(s.toString(), " "));
+    return result;
+  }
+
+  private static Text ltrim(Text s) {
+    result.set(StringUtils.stripStart(s.toString(), " "));
+    return result;
+  }
+
+  private static Text rtrim(Text s) {
+    result.set(StringUtils.stripEnd(s.toString(), " "));
+    return result;
+  }
+
+  private static Text substr(Text t, int pos, int len) {
+    String s = t.toString();
+    if (len <= 0 || Math.abs(pos) > s.length()) {
+      result.clear();
+      return result;
+    }
+    int start = pos > 0 ? pos - 1 : pos < 0 ? s.length() + pos : 0;
+    int end = s.length() - start < len ? s.length() : start + len;
+    result.set(s.substring(start, end));
+    return result;
+  }
+
+  public void testSameResults() {
+    UDFUpper udfUpper = new UDFUpper();
+    UDFLower udfLower = new UDFLower();
+    UDFTrim udfTrim = new UDFTrim();
+    UDFLTrim udfLTrim = new UDFLTrim();
+    UDFRTrim udfRTrim = new UDFRTrim();
+    UDFSubstr udfSubstr = new UDFSubstr();
+
+    for (String string : STRINGS) {
+      Text s = new Text(string);
+      assertEquals(string, upper(s), udfUpper.evaluate(s));
+      assertEquals(string, lower(s), udfLower.evaluate(s));
+      assertEquals(string, trim(s), udfTrim.evaluate(s));
+      assertEquals(string, ltrim(s), udfLTrim.evaluate(s));
+      assertEquals(string, rtrim(s), udfRTrim.evaluate(s));
+      for (int pos : POSITIONS) {
+        for (int len : LENGTHS) {
+          assertEquals(string + " " + pos + " " + len, substr(s, pos, len),
+              udfSubstr.evaluate(s, new IntWritable(pos),
+              new IntWritable(len)));
+        }
+      }
+    }
+    assertNull(udfUpper.evaluate(null));
+    assertNull(udfLower.evaluate(null));
+    assertNull(udfTrim.evaluate(null));
+    assertNull(udfSubstr.evaluate(null, new IntWritable(1)));
+  }
+
+  public void testChangeCaseOfEveryChar() {
+    UDFUpper udfUpper = new UDFUpper();
+    UDFLower udfLower = new UDFLower();
+    for (int c = 0x80; c <= Character.MAX_CODE_POINT; c++) {
+      if (c >= 0xD800 && c <= 0xDFFF) {
+        continue;
+      }
+      String string = "a" + new String(Character.toChars(c)) + "B";
+      Text s = new Text(string);
+      assertEquals(Integer.toHexString(c), upper(s), udfUpper.evaluate(s));
+      assertEquals(Integer.toHexString(c), lower(s), udfLower.evaluate(s));
+    }
+  }
+
+  public void testChangeCaseOfMalformedText() {
+    UDFUpper udfUpper = new UDFUpper();
+    UDFLower udfLower = new UDFLower();
+    byte[][] rows = {{(byte) 0xc3}, {'a', (byte) 0xc3, 'b'}, {(byte) 0xe4, (byte) 0xb8},
+        {(byte) 0xc0, (byte) 0xaf}, {(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+        {(byte) 0xf8, (byte) 0x80, (byte) 0x80, (byte) 0x80}};
+    for (byte[] row : rows) {
+      Text s = new Text(row);
+      assertEquals(s.toString(), upper(s), udfUpper.evaluate(s));
+      assertEquals(s.toString(), lower(s), udfLower.evaluate(s));
+    }
+  }
+}
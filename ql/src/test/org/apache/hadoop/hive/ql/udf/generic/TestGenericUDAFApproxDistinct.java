@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+
+/**
+ * TestGenericUDAFApproxDistinct.
+ *
+ */
+public class TestGenericUDAFApproxDistinct extends TestCase {
+
+  private static final List<TypeInfo> TYPES = Arrays.asList(
+      (TypeInfo) TypeInfoFactory.stringTypeInfo, TypeInfoFactory.intTypeInfo);
+
+  private static GenericUDAFEvaluator getEvaluator(Object precision)
+      throws Exception {
+    return FunctionRegistry.getGenericUDAFEvaluator("approx_distinct", TYPES,
+        Arrays.asList(null, precision), false, false);
+  }
+
+  private static void assertRejected(Object precision) throws Exception {
+    try {
+      getEvaluator(precision);
+      fail("precision " + precision + " accepted");
+    } catch (UDFArgumentTypeException e) {
+      assertEquals(1, e.getArgumentId());
+    }
+  }
+
+  public void testConstantPrecision() throws Exception {
+    assertNotNull(FunctionRegistry.getGenericUDAFEvaluator("approx_distinct",
+        TYPES.subList(0, 1), false, false));
+    assertNotNull(getEvaluator(Integer.valueOf(HyperLogLog.MIN_PRECISION)));
+    assertNotNull(getEvaluator(Byte.valueOf((byte) 14)));
+    assertNotNull(getEvaluator(Integer.valueOf(HyperLogLog.MAX_PRECISION)));
+
+    // a column, read anew on every row
+    assertRejected(null);
+    assertRejected(Integer.valueOf(HyperLogLog.MIN_PRECISION - 1));
+    assertRejected(Integer.valueOf(HyperLogLog.MAX_PRECISION + 1));
+  }
+}
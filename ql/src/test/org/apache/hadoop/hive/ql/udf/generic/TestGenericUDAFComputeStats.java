@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.LongWritable;
+
+/**
+ * TestGenericUDAFComputeStats.
+ *
+ */
+public class TestGenericUDAFComputeStats extends TestCase {
+
+  private StructObjectInspector resultOI;
+
+  /**
+   * Aggregates each split into a partial result, the way the mappers do,
+   * and merges the partial results into the final one.
+   */
+  private Object computeStats(TypeInfo type, ObjectInspector inputOI, Object[][] splits)
+      throws Exception {
+    GenericUDAFComputeStats resolver = new GenericUDAFComputeStats();
+    List<Object> partials = new ArrayList<Object>();
+    ObjectInspector partialOI = null;
+    for (Object[] split : splits) {
+      GenericUDAFEvaluator eval = resolver.getEvaluator(new TypeInfo[] {type});
+      partialOI = eval.init(Mode.PARTIAL1, new ObjectInspector[] {inputOI});
+      AggregationBuffer agg = eval.getNewAggregationBuffer();
+      for (Object v : split) {
+        eval.iterate(agg, new Object[] {v});
+      }
+      partials.add(ObjectInspectorUtils.copyToStandardObject(
+          eval.terminatePartial(agg), partialOI));
+    }
+    GenericUDAFEvaluator eval = resolver.getEvaluator(new TypeInfo[] {type});
+    resultOI = (StructObjectInspector) eval.init(Mode.FINAL, new ObjectInspector[] {
+        ObjectInspectorUtils.getStandardObjectInspector(partialOI)});
+    AggregationBuffer agg = eval.getNewAggregationBuffer();
+    for (Object partial : partials) {
+      eval.merge(agg, partial);
+    }
+    return eval.terminate(agg);
+  }
+
+  private Object field(Object result, String name) {
+    return resultOI.getStructFieldData(result, resultOI.getStructFieldRef(name));
+  }
+
+  public void testBigint() throws Exception {
+    // beyond 2^53 a double can not tell these apart
+    long big = (1L << 53) + 1;
+    Object result = computeStats(TypeInfoFactory.longTypeInfo,
+        PrimitiveObjectInspectorFactory.javaLongObjectInspector, new Object[][] {
+          {Long.valueOf(big), null, Long.valueOf(big + 2)},
+          {Long.valueOf(big + 4), Long.valueOf(big + 2)},
+        });
+    assertEquals(1, ((LongWritable) field(result, "numnulls")).get());
+    assertEquals(3, ((LongWritable) field(result, "numdistincts")).get());
+    assertEquals(big, ((LongWritable) field(result, "min")).get());
+    assertEquals(big + 4, ((LongWritable) field(result, "max")).get());
+
+    result = computeStats(TypeInfoFactory.intTypeInfo,
+        PrimitiveObjectInspectorFactory.javaIntObjectInspector, new Object[][] {
+          {Integer.valueOf(7)},
+          {Integer.valueOf(-3)},
+          {},
+        });
+    assertEquals(-3, ((LongWritable) field(result, "min")).get());
+    assertEquals(7, ((LongWritable) field(result, "max")).get());
+  }
+
+  public void testDouble() throws Exception {
+    Object result = computeStats(TypeInfoFactory.doubleTypeInfo,
+        PrimitiveObjectInspectorFactory.javaDoubleObjectInspector, new Object[][] {
+          {Double.valueOf(1.5), Double.valueOf(-2.25)},
+          {null, Double.valueOf(1.5)},
+        });
+    assertEquals(1, ((LongWritable) field(result, "numnulls")).get());
+    assertEquals(2, ((LongWritable) field(result, "numdistincts")).get());
+    assertEquals(-2.25, ((DoubleWritable) field(result, "min")).get());
+    assertEquals(1.5, ((DoubleWritable) field(result, "max")).get());
+  }
+
+  public void testString() throws Exception {
+    Object result = computeStats(TypeInfoFactory.stringTypeInfo,
+        PrimitiveObjectInspectorFactory.javaStringObjectInspector, new Object[][] {
+          {"a", "abc", null},
+          {"abcd", "a", null},
+        });
+    assertEquals(2, ((LongWritable) field(result, "numnulls")).get());
+    assertEquals(3, ((LongWritable) field(result, "numdistincts")).get());
+    assertNull(field(result, "min"));
+    assertNull(field(result, "max"));
+    assertEquals(2.25, ((DoubleWritable) field(result, "avglength")).get());
+    assertEquals(4, ((LongWritable) field(result, "maxlength")).get());
+  }
+
+  public void testNoValues() throws Exception {
+    Object result = computeStats(TypeInfoFactory.longTypeInfo,
+        PrimitiveObjectInspectorFactory.javaLongObjectInspector, new Object[][] {
+          {null},
+          {},
+        });
+    assertEquals(1, ((LongWritable) field(result, "numnulls")).get());
+    assertEquals(0, ((LongWritable) field(result, "numdistincts")).get());
+    assertNull(field(result, "min"));
+    assertNull(field(result, "max"));
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.io.IntWritable;
+
+/**
+ * TestHyperLogLog.
+ *
+ */
+public class TestHyperLogLog extends TestCase {
+
+  private static void assertClose(long expected, long actual, double tolerance) {
+    assertTrue("expected about " + expected + " but got " + actual,
+        Math.abs(actual - expected) <= expected * tolerance);
+  }
+
+  public void testEstimate() {
+    HyperLogLog hll = new HyperLogLog();
+    hll.allocate(12);
+    assertEquals(0, hll.estimate());
+    for (int i = 0; i < 100000; i++) {
+      hll.add(i);
+      hll.add(i);
+    }
+    // four standard errors
+    assertClose(100000, hll.estimate(), 0.065);
+
+    hll.allocate(12);
+    for (int i = 0; i < 100; i++) {
+      byte[] b = ("value" + i).getBytes();
+      hll.add(b, 0, b.length);
+    }
+    assertClose(100, hll.estimate(), 0.05);
+  }
+
+  public void testSerializedSize() {
+    HyperLogLog hll = new HyperLogLog();
+    hll.allocate(10);
+    assertEquals(1 + 256, hll.serialize().size());
+    for (int i = 0; i < 10000; i++) {
+      hll.add(i);
+    }
+    assertEquals(1 + 256, hll.serialize().size());
+  }
+
+  public void testMerge() {
+    HyperLogLog a = new HyperLogLog();
+    HyperLogLog b = new HyperLogLog();
+    HyperLogLog all = new HyperLogLog();
+    a.allocate(12);
+    b.allocate(12);
+    all.allocate(12);
+    for (int i = 0; i < 30000; i++) {
+      a.add(i);
+      all.add(i);
+    }
+    for (int i = 20000; i < 50000; i++) {
+      b.add(i);
+      all.add(i);
+    }
+
+    HyperLogLog merged = new HyperLogLog();
+    merged.merge(a.serialize());
+    merged.merge(b.serialize());
+    assertEquals(12, merged.getPrecision());
+    assertEquals(all.estimate(), merged.estimate());
+
+    // merging an empty partial changes nothing
+    merged.merge(new HyperLogLog().serialize());
+    assertEquals(all.estimate(), merged.estimate());
+  }
+
+  public void testMergeDifferentPrecision() {
+    HyperLogLog coarse = new HyperLogLog();
+    HyperLogLog fine = new HyperLogLog();
+    HyperLogLog expected = new HyperLogLog();
+    coarse.allocate(10);
+    fine.allocate(14);
+    expected.allocate(10);
+    for (int i = 0; i < 20000; i++) {
+      coarse.add(i);
+      expected.add(i);
+    }
+    for (int i = 10000; i < 40000; i++) {
+      fine.add(i);
+      expected.add(i);
+    }
+
+    // folding the finer sketch gives the same registers as building the coarse one
+    HyperLogLog merged = new HyperLogLog();
+    merged.merge(fine.serialize());
+    merged.merge(coarse.serialize());
+    assertEquals(10, merged.getPrecision());
+    ArrayList<IntWritable> m = merged.serialize();
+    ArrayList<IntWritable> e = expected.serialize();
+    assertEquals(e, m);
+  }
+
+  public void testInvalidPrecision() {
+    HyperLogLog hll = new HyperLogLog();
+    try {
+      hll.allocate(HyperLogLog.MAX_PRECISION + 1);
+      fail("precision out of range accepted");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
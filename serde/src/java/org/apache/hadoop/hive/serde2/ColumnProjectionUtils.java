@@ -19,6 +19,8 @@
 package org.apache.hadoop.hive.serde2;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.StringUtils;
@@ -31,6 +33,14 @@ public final class ColumnProjectionUtils {
 
   public static final String READ_COLUMN_IDS_CONF_STR = "hive.io.file.readcolumn.ids";
 
+  /**
+   * The fields to read of the struct columns, or of the structs in the array
+   * columns, that are read for some of their fields only. Each is set as the
+   * id of the column and the id of the field separated by a colon, such as
+   * 1:0. A read column without any is read whole.
+   */
+  public static final String READ_NESTED_COLUMN_IDS_CONF_STR = "hive.io.file.readnestedcolumn.ids";
+
   /**
    * Sets read columns' ids(start from zero) for RCFile's Reader. Once a column
    * is included in the list, RCFile's reader will not skip its value.
@@ -39,6 +49,7 @@ public final class ColumnProjectionUtils {
   public static void setReadColumnIDs(Configuration conf, ArrayList<Integer> ids) {
     String id = toReadColumnIDString(ids);
     setReadColumnIDConf(conf, id);
+    conf.set(READ_NESTED_COLUMN_IDS_CONF_STR, "");
   }
 
   /**
@@ -48,6 +59,22 @@ public final class ColumnProjectionUtils {
    */
   public static void appendReadColumnIDs(Configuration conf,
       ArrayList<Integer> ids) {
+    appendReadColumnIDs(conf, ids, null);
+  }
+
+  /**
+   * Sets read columns' ids(start from zero) for RCFile's Reader, and the
+   * fields that are read of some of them, see
+   * {@link #READ_NESTED_COLUMN_IDS_CONF_STR}. A column keeps only the fields
+   * read by every caller that reads it, so it is read whole if one of them
+   * reads it whole.
+   *
+   * @param nestedIDs
+   *          the fields to read of the columns that are not read whole, or
+   *          null if all are read whole
+   */
+  public static void appendReadColumnIDs(Configuration conf,
+      ArrayList<Integer> ids, ArrayList<String> nestedIDs) {
     String id = toReadColumnIDString(ids);
     if (id != null) {
       String old = conf.get(READ_COLUMN_IDS_CONF_STR, null);
@@ -56,7 +83,39 @@ public final class ColumnProjectionUtils {
         newConfStr = newConfStr + StringUtils.COMMA_STR + old;
       }
 
+      Map<Integer, ArrayList<Integer>> oldNested = getReadNestedColumnIDs(conf);
+      Map<Integer, ArrayList<Integer>> newNested = parseNestedColumnIDs(
+          nestedIDs == null ? new String[0] : nestedIDs
+          .toArray(new String[nestedIDs.size()]));
+      ArrayList<Integer> oldIDs = old == null ? new ArrayList<Integer>()
+          : getReadColumnIDs(conf);
+      StringBuilder nested = new StringBuilder();
+      for (Map.Entry<Integer, ArrayList<Integer>> entry : newNested.entrySet()) {
+        // an empty old list reads every column
+        if (old == null || oldNested.containsKey(entry.getKey())
+            || (old.length() > 0 && !oldIDs.contains(entry.getKey()))) {
+          appendNestedColumnIDs(nested, entry.getKey(), entry.getValue());
+        }
+      }
+      for (Map.Entry<Integer, ArrayList<Integer>> entry : oldNested.entrySet()) {
+        if (newNested.containsKey(entry.getKey())
+            || !ids.contains(entry.getKey())) {
+          appendNestedColumnIDs(nested, entry.getKey(), entry.getValue());
+        }
+      }
+
       setReadColumnIDConf(conf, newConfStr);
+      conf.set(READ_NESTED_COLUMN_IDS_CONF_STR, nested.toString());
+    }
+  }
+
+  private static void appendNestedColumnIDs(StringBuilder nested,
+      int column, ArrayList<Integer> fields) {
+    for (int field : fields) {
+      if (nested.length() > 0) {
+        nested.append(StringUtils.COMMA_STR);
+      }
+      nested.append(column).append(':').append(field);
     }
   }
 
@@ -104,11 +163,45 @@ public final class ColumnProjectionUtils {
     return result;
   }
 
+  /**
+   * Returns the fields to read of each column that is not read whole, see
+   * {@link #READ_NESTED_COLUMN_IDS_CONF_STR}.
+   */
+  public static Map<Integer, ArrayList<Integer>> getReadNestedColumnIDs(
+      Configuration conf) {
+    if (conf == null) {
+      return new HashMap<Integer, ArrayList<Integer>>();
+    }
+    return parseNestedColumnIDs(StringUtils.split(conf.get(
+        READ_NESTED_COLUMN_IDS_CONF_STR, "")));
+  }
+
+  private static Map<Integer, ArrayList<Integer>> parseNestedColumnIDs(
+      String[] list) {
+    Map<Integer, ArrayList<Integer>> result =
+        new HashMap<Integer, ArrayList<Integer>>();
+    for (String element : list) {
+      int colon = element.indexOf(':');
+      Integer column = Integer.valueOf(element.substring(0, colon));
+      Integer field = Integer.valueOf(element.substring(colon + 1));
+      ArrayList<Integer> fields = result.get(column);
+      if (fields == null) {
+        fields = new ArrayList<Integer>();
+        result.put(column, fields);
+      }
+      if (!fields.contains(field)) {
+        fields.add(field);
+      }
+    }
+    return result;
+  }
+
   /**
    * Clears the read column ids set in the conf, and will read all columns.
    */
   public static void setFullyReadColumns(Configuration conf) {
     conf.set(READ_COLUMN_IDS_CONF_STR, "");
+    conf.set(READ_NESTED_COLUMN_IDS_CONF_STR, "");
   }
 
   private ColumnProjectionUtils() {
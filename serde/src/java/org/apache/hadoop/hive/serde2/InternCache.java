@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache that hands out one shared instance per key, for the
+ * ObjectInspector and TypeInfo factories.
+ *
+ * <p>
+ * Queries are compiled on many threads at once, so the cache must be safe
+ * for concurrent use: lookups never block and two threads that create a
+ * value for the same key at the same time both end up with the one that got
+ * into the cache first. Once maxSize values are cached, new values are no
+ * longer cached but just returned, so that a stream of distinct schemas
+ * cannot exhaust the heap. The values are only interned to save memory and
+ * time; callers must not rely on them being identical.
+ */
+public class InternCache<K, V> {
+
+  public static final int DEFAULT_MAX_SIZE = 100000;
+
+  private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<K, V>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final int maxSize;
+
+  public InternCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public InternCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the value cached for key, or null.
+   */
+  public V get(K key) {
+    return map.get(key);
+  }
+
+  /**
+   * Caches value for key, unless a value is already cached for it or the
+   * cache is full. The key must not be modified afterwards.
+   *
+   * @return the value cached for key, or value if none is
+   */
+  public V intern(K key, V value) {
+    if (size.get() >= maxSize) {
+      V cached = map.get(key);
+      return cached == null ? value : cached;
+    }
+    V cached = map.putIfAbsent(key, value);
+    if (cached != null) {
+      return cached;
+    }
+    size.incrementAndGet();
+    return value;
+  }
+
+  public int size() {
+    return size.get();
+  }
+}
@@ -45,6 +45,8 @@ public class BytesRefArrayWritable implements Writable,
 
   private int valid = 0;
 
+  private int[] columnLayout = null;
+
   /**
    * Constructs an empty array with the specified capacity.
    * 
@@ -184,6 +186,26 @@ public class BytesRefArrayWritable implements Writable,
     return compareTo((BytesRefArrayWritable) o) == 0;
   }
 
+  /**
+   * Sets the number of elements that each column of the table takes, as
+   * recorded by the file the row was read from. It is not written out.
+   *
+   * @param columnLayout
+   *          the number of elements of each table column, or null if each
+   *          table column takes one element
+   */
+  public void setColumnLayout(int[] columnLayout) {
+    this.columnLayout = columnLayout;
+  }
+
+  /**
+   * Returns the number of elements that each column of the table takes, or
+   * null if each table column takes one element.
+   */
+  public int[] getColumnLayout() {
+    return columnLayout;
+  }
+
   /**
    * Removes all elements.
    */
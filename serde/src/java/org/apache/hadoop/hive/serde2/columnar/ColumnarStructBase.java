@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyObjectBase;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+/**
+ * ColumnarStructBase holds the columns of a row read from RCFile. It takes
+ * care of the projection and of setting each column to its bytes, while the
+ * subclasses decide how a column is encoded: which object deserializes it
+ * and which bytes stand for NULL.
+ *
+ */
+public abstract class ColumnarStructBase {
+
+  int[] prjColIDs = null; // list of projected column IDs
+
+  /**
+   * Construct a ColumnarStructBase object with the TypeInfo. It creates the
+   * first level object at the first place
+   *
+   * @param oi
+   *          the ObjectInspector representing the type of this struct.
+   * @param notSkippedColumnIDs
+   *          the column ids that should not be skipped, or null or empty to
+   *          read all of them
+   */
+  public ColumnarStructBase(ObjectInspector oi,
+      ArrayList<Integer> notSkippedColumnIDs) {
+    List<? extends StructField> fieldRefs = ((StructObjectInspector) oi)
+        .getAllStructFieldRefs();
+    int num = fieldRefs.size();
+
+    fieldInfoList = new FieldInfo[num];
+
+    // if no columns is set to be skipped, add all columns in
+    // 'notSkippedColumnIDs'
+    if (notSkippedColumnIDs == null || notSkippedColumnIDs.size() == 0) {
+      notSkippedColumnIDs = new ArrayList<Integer>(num);
+      for (int i = 0; i < num; i++) {
+        notSkippedColumnIDs.add(i);
+      }
+    }
+
+    for (int i = 0; i < num; i++) {
+      ObjectInspector foi = fieldRefs.get(i).getFieldObjectInspector();
+      fieldInfoList[i] = new FieldInfo(createLazyObjectBase(foi), foi,
+          !notSkippedColumnIDs.contains(i));
+    }
+
+    // maintain a list of non-NULL column IDs
+    int min = notSkippedColumnIDs.size() > num ? num : notSkippedColumnIDs
+        .size();
+    prjColIDs = new int[min];
+    for (int i = 0, index = 0; i < notSkippedColumnIDs.size(); ++i) {
+      int readCol = notSkippedColumnIDs.get(i).intValue();
+      if (readCol < num) {
+        prjColIDs[index] = readCol;
+        index++;
+      }
+    }
+  }
+
+  /**
+   * Create the object that deserializes a column of the given type.
+   */
+  protected abstract LazyObjectBase createLazyObjectBase(
+      ObjectInspector objectInspector);
+
+  /**
+   * Check whether the bytes of a column stand for NULL and find the length
+   * of the value in them.
+   *
+   * @param objectInspector
+   *          the ObjectInspector of the column
+   * @param cachedByteArrayRef
+   *          the bytes of the column
+   * @param start
+   *          the start of the column in the bytes
+   * @param length
+   *          the length of the column in the bytes
+   * @return the length to init the column object with, or -1 if the column
+   *         is NULL
+   */
+  protected abstract int getLength(ObjectInspector objectInspector,
+      ByteArrayRef cachedByteArrayRef, int start, int length);
+
+  /**
+   * Get one field out of the struct.
+   *
+   * If the field is a primitive field, return the actual object. Otherwise
+   * return the LazyObject. This is because PrimitiveObjectInspector does not
+   * have control over the object used by the user - the user simply directly
+   * use the Object instead of going through Object
+   * PrimitiveObjectInspector.get(Object).
+   *
+   * @param fieldID
+   *          The field ID
+   * @return The field as a LazyObject
+   */
+  public Object getField(int fieldID) {
+    return fieldInfoList[fieldID].uncheckedGetField();
+  }
+
+  class FieldInfo {
+    LazyObjectBase field;
+    ObjectInspector objectInspector;
+    /*
+     * use an array instead of only one object in case in future hive does not do
+     * the byte copy.
+     */
+    ByteArrayRef cachedByteArrayRef;
+    BytesRefWritable rawBytesField;
+    boolean inited;
+    boolean fieldSkipped;
+    // the length of the value, or -1 if it is NULL
+    int length;
+
+    public FieldInfo(LazyObjectBase lazyObject, ObjectInspector oi,
+        boolean fieldSkipped) {
+      field = lazyObject;
+      objectInspector = oi;
+      cachedByteArrayRef = new ByteArrayRef();
+      if (fieldSkipped) {
+        this.fieldSkipped = true;
+        inited = true;
+      } else {
+        inited = false;
+      }
+    }
+
+    /*
+     * ============================ [PERF] ===================================
+     * This function is called for every row. Setting up the selected/projected
+     * columns at the first call, and don't do that for the following calls.
+     * Ideally this should be done in the constructor where we don't need to
+     * branch in the function for each row.
+     * =========================================================================
+     */
+    public void init(BytesRefWritable col) {
+        if (col != null) {
+          rawBytesField= col;
+          inited = false;
+        } else {
+          // select columns that actually do not exist in the file.
+          fieldSkipped = true;
+        }
+    }
+
+    /**
+     * Get the field out of the row without checking parsed. This is called by
+     * both getField and getFieldsAsList.
+     *
+     * @return The value of the field
+     */
+    protected Object uncheckedGetField() {
+      if (fieldSkipped) {
+        return null;
+      }
+      if (!inited) {
+        try {
+          cachedByteArrayRef.setData(rawBytesField.getData());
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        inited = true;
+        length = getLength(objectInspector, cachedByteArrayRef, rawBytesField
+            .getStart(), rawBytesField.getLength());
+        if (length >= 0) {
+          field.init(cachedByteArrayRef, rawBytesField.getStart(), length);
+        }
+      }
+
+      return length < 0 ? null : field.getObject();
+    }
+  }
+
+  FieldInfo[] fieldInfoList = null;
+
+
+  /*
+   * ============================ [PERF] ===================================
+   * This function is called for every row. Setting up the selected/projected
+   * columns at the first call, and don't do that for the following calls.
+   * Ideally this should be done in the constructor where we don't need to
+   * branch in the function for each row.
+   * =========================================================================
+   */
+  public void init(BytesRefArrayWritable cols) {
+    for (int i = 0; i < prjColIDs.length; ++i) {
+      int fieldIndex = prjColIDs[i];
+      if (fieldIndex < cols.size()) {
+        fieldInfoList[fieldIndex].init(cols.unCheckedGet(fieldIndex));
+      } else {
+        // select columns that actually do not exist in the file.
+        fieldInfoList[fieldIndex].init(null);
+      }
+    }
+  }
+
+  ArrayList<Object> cachedList;
+
+  /**
+   * Get the values of the fields as an ArrayList.
+   *
+   * @return The values of the fields as an ArrayList.
+   */
+  public ArrayList<Object> getFieldsAsList() {
+    if (cachedList == null) {
+      cachedList = new ArrayList<Object>();
+    } else {
+      cachedList.clear();
+    }
+    for (int i = 0; i < fieldInfoList.length; i++) {
+      cachedList.add(getField(i));
+    }
+    return cachedList;
+  }
+}
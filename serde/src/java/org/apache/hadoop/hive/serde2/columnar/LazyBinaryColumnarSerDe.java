@@ -0,0 +1,522 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.ByteStream;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDe;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinarySerDe;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.MapTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * LazyBinaryColumnarSerDe is a columnar SerDe for RCFile that stores each
+ * column in the LazyBinary encoding instead of the delimited text of
+ * ColumnarSerDe. Numbers are kept as VInts or in their fixed width, so they
+ * are smaller and are decoded without parsing, and complex types need no
+ * separators or escaping.<br>
+ * The column names and types have to be declared. A NULL column is stored as
+ * zero bytes, and an empty string as the single byte
+ * {@link #EMPTY_STRING_BYTE}. A string that is only made of that byte, which
+ * is never valid UTF-8 but can be in a Text, gets one more of it.<br>
+ * If the table property {@link #SHRED_NESTED} is true, structs, maps and
+ * arrays of structs are shredded into several RCFile columns: a struct into
+ * one column for each field, a map into its keys and its values, and an array
+ * of structs into one column for each field with the values of all the
+ * elements. Reading one field of a struct, or looking up a key of a map, then
+ * only reads the columns it needs.<br>
+ * The property only decides how rows are written. RCFile records the number
+ * of columns that each table column takes in the file, see
+ * {@link #getColumnLayout(Properties)}, and each row is read the way the file
+ * it comes from was written. A query that only uses some fields of a struct
+ * column, or of the structs in an array column, only reads the RCFile
+ * columns of those fields from shredded files, see
+ * {@link ColumnProjectionUtils#READ_NESTED_COLUMN_IDS_CONF_STR}.
+ */
+public class LazyBinaryColumnarSerDe implements SerDe {
+
+  public static final Log LOG = LogFactory
+      .getLog(LazyBinaryColumnarSerDe.class.getName());
+
+  /**
+   * The byte that stands for an empty string. It is a UTF-8 continuation
+   * byte, so only a string that is not valid UTF-8 consists of it alone.
+   */
+  public static final byte EMPTY_STRING_BYTE = (byte) 0xBF;
+
+  /**
+   * The table property that turns on the shredding of nested columns.
+   */
+  public static final String SHRED_NESTED = "columnar.shred.nested";
+
+  public LazyBinaryColumnarSerDe() throws SerDeException {
+  }
+
+  List<String> columnNames;
+  List<TypeInfo> columnTypes;
+  boolean shredNested;
+  // the number of RCFile columns each column is written to, or null
+  int[] columnLayout;
+
+  private ObjectInspector cachedObjectInspector;
+
+  // The object for storing row data
+  LazyBinaryColumnarStruct cachedLazyStruct;
+
+  // Serializes the values of the columns
+  LazyBinarySerDe columnSerializer;
+
+  /**
+   * Initialize the SerDe given the parameters.
+   *
+   * @see SerDe#initialize(Configuration, Properties)
+   */
+  public void initialize(Configuration job, Properties tbl)
+      throws SerDeException {
+    String columnNameProperty = tbl.getProperty(Constants.LIST_COLUMNS);
+    String columnTypeProperty = tbl.getProperty(Constants.LIST_COLUMN_TYPES);
+    if (columnNameProperty == null || columnNameProperty.length() == 0) {
+      columnNames = new ArrayList<String>();
+    } else {
+      columnNames = Arrays.asList(columnNameProperty.split(","));
+    }
+    if (columnTypeProperty == null || columnTypeProperty.length() == 0) {
+      columnTypes = new ArrayList<TypeInfo>();
+    } else {
+      columnTypes = TypeInfoUtils
+          .getTypeInfosFromTypeString(columnTypeProperty);
+    }
+    if (columnNames.size() != columnTypes.size()) {
+      throw new SerDeException(getClass().getName() + ": " + columnNames.size()
+          + " columns are specified but " + columnTypes.size()
+          + " types: " + columnNameProperty + " " + columnTypeProperty);
+    }
+    shredNested = Boolean.valueOf(tbl.getProperty(SHRED_NESTED, "false"));
+
+    // the files of the table may be shredded or not, whatever the property
+    List<ObjectInspector> columnObjectInspectors =
+        new ArrayList<ObjectInspector>(columnTypes.size());
+    for (TypeInfo columnType : columnTypes) {
+      columnObjectInspectors.add(isShredded(columnType)
+          ? createShreddedObjectInspector(columnType) : LazyBinaryUtils
+          .getLazyBinaryObjectInspectorFromTypeInfo(columnType));
+    }
+    cachedObjectInspector = ObjectInspectorFactory
+        .getColumnarStructObjectInspector(columnNames, columnObjectInspectors);
+
+    java.util.ArrayList<Integer> notSkipIDs = ColumnProjectionUtils
+        .getReadColumnIDs(job);
+    cachedLazyStruct = new LazyBinaryColumnarStruct(cachedObjectInspector,
+        notSkipIDs, ColumnProjectionUtils.getReadNestedColumnIDs(job));
+
+    columnSerializer = new LazyBinarySerDe();
+
+    int size = 0;
+    columnLayout = null;
+    for (int i = 0; i < columnTypes.size(); i++) {
+      int count = getColumnCount(columnTypes.get(i), shredNested);
+      if (count > 1 && columnLayout == null) {
+        columnLayout = new int[columnTypes.size()];
+        Arrays.fill(columnLayout, 1);
+      }
+      if (columnLayout != null) {
+        columnLayout[i] = count;
+      }
+      size += count;
+    }
+    field = new BytesRefWritable[size];
+    for (int i = 0; i < size; i++) {
+      field[i] = new BytesRefWritable();
+      serializeCache.set(i, field[i]);
+    }
+    serializeCache.setColumnLayout(columnLayout);
+
+    LOG.debug("LazyBinaryColumnarSerDe initialized with: columnNames="
+        + columnNames + " columnTypes=" + columnTypes + " shredNested="
+        + shredNested);
+  }
+
+  /**
+   * Whether a column of the type is shredded if {@link #SHRED_NESTED} is set.
+   * Such a column is read with the ObjectInspector of
+   * {@link #createShreddedObjectInspector(TypeInfo)} either way.
+   */
+  static boolean isShredded(TypeInfo typeInfo) {
+    switch (typeInfo.getCategory()) {
+    case STRUCT:
+    case MAP:
+      return true;
+    case LIST:
+      return ((ListTypeInfo) typeInfo).getListElementTypeInfo().getCategory()
+          == Category.STRUCT;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * The number of RCFile columns that a column of the type takes.
+   */
+  static int getColumnCount(TypeInfo typeInfo, boolean shredNested) {
+    if (!shredNested || !isShredded(typeInfo)) {
+      return 1;
+    }
+    switch (typeInfo.getCategory()) {
+    case STRUCT:
+      return ShreddedStructColumn.getColumnCount(((StructTypeInfo) typeInfo)
+          .getAllStructFieldNames().size());
+    case MAP:
+      return ShreddedMap.COLUMN_COUNT;
+    default:
+      StructTypeInfo elementTypeInfo = (StructTypeInfo) ((ListTypeInfo)
+          typeInfo).getListElementTypeInfo();
+      return ShreddedStructArray.getColumnCount(elementTypeInfo
+          .getAllStructFieldNames().size());
+    }
+  }
+
+  /**
+   * Returns the number of RCFile columns that each column of a table takes,
+   * or null if every column takes one, which is always the case unless the
+   * table is stored by LazyBinaryColumnarSerDe with {@link #SHRED_NESTED}.
+   *
+   * @param tbl
+   *          the properties of the table
+   */
+  public static int[] getColumnLayout(Properties tbl) {
+    if (!LazyBinaryColumnarSerDe.class.getName().equals(
+        tbl.getProperty(Constants.SERIALIZATION_LIB))
+        || !Boolean.valueOf(tbl.getProperty(SHRED_NESTED, "false"))) {
+      return null;
+    }
+    String columnTypeProperty = tbl.getProperty(Constants.LIST_COLUMN_TYPES);
+    if (columnTypeProperty == null || columnTypeProperty.length() == 0) {
+      return null;
+    }
+    List<TypeInfo> types = TypeInfoUtils
+        .getTypeInfosFromTypeString(columnTypeProperty);
+    int[] layout = new int[types.size()];
+    for (int i = 0; i < layout.length; i++) {
+      layout[i] = getColumnCount(types.get(i), true);
+    }
+    return layout;
+  }
+
+  /**
+   * Create the ObjectInspector of a shredded column.
+   */
+  static ObjectInspector createShreddedObjectInspector(TypeInfo typeInfo) {
+    switch (typeInfo.getCategory()) {
+    case STRUCT:
+      return createShreddedStructObjectInspector((StructTypeInfo) typeInfo);
+    case MAP: {
+      MapTypeInfo mapTypeInfo = (MapTypeInfo) typeInfo;
+      return new ShreddedMapObjectInspector(LazyBinaryUtils
+          .getLazyBinaryObjectInspectorFromTypeInfo(mapTypeInfo
+          .getMapKeyTypeInfo()), LazyBinaryUtils
+          .getLazyBinaryObjectInspectorFromTypeInfo(mapTypeInfo
+          .getMapValueTypeInfo()));
+    }
+    default:
+      return new ShreddedListObjectInspector(
+          createShreddedStructObjectInspector((StructTypeInfo) ((ListTypeInfo)
+          typeInfo).getListElementTypeInfo()));
+    }
+  }
+
+  private static ShreddedStructObjectInspector
+      createShreddedStructObjectInspector(StructTypeInfo typeInfo) {
+    List<TypeInfo> fieldTypeInfos = typeInfo.getAllStructFieldTypeInfos();
+    List<ObjectInspector> fieldObjectInspectors =
+        new ArrayList<ObjectInspector>(fieldTypeInfos.size());
+    for (TypeInfo fieldTypeInfo : fieldTypeInfos) {
+      fieldObjectInspectors.add(LazyBinaryUtils
+          .getLazyBinaryObjectInspectorFromTypeInfo(fieldTypeInfo));
+    }
+    return new ShreddedStructObjectInspector(typeInfo
+        .getAllStructFieldNames(), fieldObjectInspectors);
+  }
+
+  /**
+   * Find the length to init the LazyBinaryObject of a column value with.
+   *
+   * @return the length, or -1 if the value is NULL
+   */
+  static int getValueLength(ObjectInspector oi, byte[] data, int start,
+      int length) {
+    if (length == 0) {
+      return -1;
+    }
+    if (data[start] == EMPTY_STRING_BYTE
+        && oi.getCategory() == Category.PRIMITIVE
+        && ((PrimitiveObjectInspector) oi).getPrimitiveCategory()
+            == PrimitiveCategory.STRING
+        && isEmptyStringBytes(data, start, length)) {
+      return length - 1;
+    }
+    return length;
+  }
+
+  /**
+   * Whether all the bytes are {@link #EMPTY_STRING_BYTE}. A string column of
+   * such bytes has one more of them than the string.
+   */
+  static boolean isEmptyStringBytes(byte[] data, int start, int length) {
+    for (int i = start; i < start + length; i++) {
+      if (data[i] != EMPTY_STRING_BYTE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Deserialize a row from the Writable to a LazyBinaryColumnarStruct.
+   */
+  public Object deserialize(Writable blob) throws SerDeException {
+
+    if (!(blob instanceof BytesRefArrayWritable)) {
+      throw new SerDeException(getClass().toString()
+          + ": expects BytesRefArrayWritable!");
+    }
+
+    BytesRefArrayWritable cols = (BytesRefArrayWritable) blob;
+    cachedLazyStruct.init(cols);
+    return cachedLazyStruct;
+  }
+
+  /**
+   * Returns the ObjectInspector for the row.
+   */
+  public ObjectInspector getObjectInspector() throws SerDeException {
+    return cachedObjectInspector;
+  }
+
+  /**
+   * Returns the Writable Class after serialization.
+   *
+   * @see SerDe#getSerializedClass()
+   */
+  public Class<? extends Writable> getSerializedClass() {
+    return BytesRefArrayWritable.class;
+  }
+
+  BytesRefArrayWritable serializeCache = new BytesRefArrayWritable();
+  BytesRefWritable field[];
+  ByteStream.Output serializeStream = new ByteStream.Output();
+
+  /**
+   * Serialize a row of data.
+   *
+   * @param obj
+   *          The row object
+   * @param objInspector
+   *          The ObjectInspector for the row object
+   * @return The serialized Writable object
+   * @see SerDe#serialize(Object, ObjectInspector)
+   */
+  public Writable serialize(Object obj, ObjectInspector objInspector)
+      throws SerDeException {
+
+    if (objInspector.getCategory() != Category.STRUCT) {
+      throw new SerDeException(getClass().toString()
+          + " can only serialize struct types, but we got: "
+          + objInspector.getTypeName());
+    }
+
+    StructObjectInspector soi = (StructObjectInspector) objInspector;
+    List<? extends StructField> fields = soi.getAllStructFieldRefs();
+    List<Object> list = soi.getStructFieldsDataAsList(obj);
+    if (fields.size() != columnNames.size()) {
+      throw new SerDeException("Error: expecting " + columnNames.size()
+          + " but got " + fields.size() + " fields");
+    }
+
+    // used for avoid extra byte copy
+    serializeStream.reset();
+    column = 0;
+    for (int i = 0; i < fields.size(); i++) {
+      ObjectInspector foi = fields.get(i).getFieldObjectInspector();
+      Object f = (list == null ? null : list.get(i));
+
+      if (shredNested && isShredded(columnTypes.get(i))) {
+        serializeShredded(f, foi, columnTypes.get(i));
+      } else {
+        serializeValue(f, foi);
+      }
+    }
+    return serializeCache;
+  }
+
+  // the next column to serialize
+  int column;
+
+  /**
+   * Serialize a value as the next column.
+   */
+  private void serializeValue(Object f, ObjectInspector foi) {
+    int count = serializeStream.getCount();
+    columnSerializer.serializeColumn(serializeStream, f, foi);
+    if (f != null && foi.getCategory() == Category.PRIMITIVE
+        && ((PrimitiveObjectInspector) foi).getPrimitiveCategory()
+            == PrimitiveCategory.STRING
+        && isEmptyStringBytes(serializeStream.getData(), count,
+            serializeStream.getCount() - count)) {
+      serializeStream.write(EMPTY_STRING_BYTE);
+    }
+    endColumn(count);
+  }
+
+  private void endColumn(int count) {
+    field[column++].set(serializeStream.getData(), count, serializeStream
+        .getCount()
+        - count);
+  }
+
+  private void serializeNulls(int columns) {
+    for (int i = 0; i < columns; i++) {
+      endColumn(serializeStream.getCount());
+    }
+  }
+
+  ArrayList<Object> shredKeys = new ArrayList<Object>();
+  ArrayList<Object> shredValues = new ArrayList<Object>();
+
+  /**
+   * Serialize a value into the columns of a shredded column.
+   */
+  private void serializeShredded(Object f, ObjectInspector foi,
+      TypeInfo typeInfo) throws SerDeException {
+    int columns = getColumnCount(typeInfo, true);
+    if (f == null) {
+      serializeNulls(columns);
+      return;
+    }
+    if (foi.getCategory() != typeInfo.getCategory()) {
+      throw new SerDeException("Error: expecting " + typeInfo.getTypeName()
+          + " but got " + foi.getTypeName());
+    }
+    switch (typeInfo.getCategory()) {
+    case STRUCT: {
+      StructObjectInspector soi = (StructObjectInspector) foi;
+      List<? extends StructField> refs = soi.getAllStructFieldRefs();
+      if (refs.size() != columns - 1) {
+        throw new SerDeException("Error: expecting " + (columns - 1)
+            + " fields but got " + refs.size() + " in " + foi.getTypeName());
+      }
+      int count = serializeStream.getCount();
+      serializeStream.write((byte) 1);
+      endColumn(count);
+      for (StructField ref : refs) {
+        serializeValue(soi.getStructFieldData(f, ref), ref
+            .getFieldObjectInspector());
+      }
+      return;
+    }
+    case MAP: {
+      MapObjectInspector moi = (MapObjectInspector) foi;
+      shredKeys.clear();
+      shredValues.clear();
+      for (Map.Entry<?, ?> entry : moi.getMap(f).entrySet()) {
+        shredKeys.add(entry.getKey());
+        shredValues.add(entry.getValue());
+      }
+      serializeValue(shredKeys, ObjectInspectorFactory
+          .getStandardListObjectInspector(moi.getMapKeyObjectInspector()));
+      serializeValue(shredValues, ObjectInspectorFactory
+          .getStandardListObjectInspector(moi.getMapValueObjectInspector()));
+      return;
+    }
+    default: {
+      ListObjectInspector loi = (ListObjectInspector) foi;
+      ObjectInspector eoi = loi.getListElementObjectInspector();
+      if (eoi.getCategory() != Category.STRUCT) {
+        throw new SerDeException("Error: expecting " + typeInfo.getTypeName()
+            + " but got " + foi.getTypeName());
+      }
+      StructObjectInspector esoi = (StructObjectInspector) eoi;
+      List<? extends StructField> refs = esoi.getAllStructFieldRefs();
+      if (refs.size() != columns - 1) {
+        throw new SerDeException("Error: expecting " + (columns - 1)
+            + " fields but got " + refs.size() + " in " + foi.getTypeName());
+      }
+      int size = loi.getListLength(f);
+
+      // the length and a bit for each element that is not null
+      int count = serializeStream.getCount();
+      LazyBinaryUtils.writeVInt(serializeStream, size);
+      byte nullByte = 0;
+      for (int eid = 0; eid < size; eid++) {
+        if (null != loi.getListElement(f, eid)) {
+          nullByte |= 1 << (eid % 8);
+        }
+        if (7 == eid % 8 || eid == size - 1) {
+          serializeStream.write(nullByte);
+          nullByte = 0;
+        }
+      }
+      endColumn(count);
+
+      // the values of each field in all the elements
+      for (StructField ref : refs) {
+        shredValues.clear();
+        for (int eid = 0; eid < size; eid++) {
+          Object element = loi.getListElement(f, eid);
+          shredValues.add(element == null ? null : esoi.getStructFieldData(
+              element, ref));
+        }
+        serializeValue(shredValues, ObjectInspectorFactory
+            .getStandardListObjectInspector(ref.getFieldObjectInspector()));
+      }
+      return;
+    }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().toString() + "[" + columnNames + ":" + columnTypes
+        + "]";
+  }
+}
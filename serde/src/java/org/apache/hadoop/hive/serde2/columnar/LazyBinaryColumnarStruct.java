@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyObjectBase;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryFactory;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * LazyBinaryColumnarStruct is the ColumnarStruct of LazyBinaryColumnarSerDe.
+ * Each column holds a value in the LazyBinary encoding, without the byte size
+ * in front of strings, lists, maps and structs. A column of length 0 is NULL,
+ * and a string column holding only
+ * {@link LazyBinaryColumnarSerDe#EMPTY_STRING_BYTE} has one of them more than
+ * the string, so the single byte is the empty string.
+ * Fields with a ShreddedStructObjectInspector, ShreddedMapObjectInspector or
+ * ShreddedListObjectInspector are stored in several columns in the files that
+ * record so in the column layout of the row, and in one column in the others.
+ *
+ */
+public class LazyBinaryColumnarStruct extends ColumnarStructBase {
+
+  // the layout of the columns that the fields are set up for
+  int[] columnLayout;
+  boolean layoutSet;
+  // the first column of each field
+  int[] firstColumn;
+  // the fields that can be shredded, and null for the others
+  ShreddedColumn[] shredded;
+  // whether each field is shredded in the current file
+  boolean[] fieldShredded;
+  boolean[] shreddedMissing;
+
+  public LazyBinaryColumnarStruct(ObjectInspector oi,
+      ArrayList<Integer> notSkippedColumnIDs) {
+    this(oi, notSkippedColumnIDs, null);
+  }
+
+  /**
+   * @param nestedColumnIDs
+   *          the fields to read of the columns that are not read whole, or
+   *          null to read all the columns whole
+   */
+  public LazyBinaryColumnarStruct(ObjectInspector oi,
+      ArrayList<Integer> notSkippedColumnIDs,
+      Map<Integer, ArrayList<Integer>> nestedColumnIDs) {
+    super(oi, notSkippedColumnIDs);
+    List<? extends StructField> fieldRefs = ((StructObjectInspector) oi)
+        .getAllStructFieldRefs();
+    int num = fieldRefs.size();
+    firstColumn = new int[num];
+    shredded = new ShreddedColumn[num];
+    fieldShredded = new boolean[num];
+    shreddedMissing = new boolean[num];
+    for (int i = 0; i < num; i++) {
+      shredded[i] = createShreddedColumn(fieldRefs.get(i)
+          .getFieldObjectInspector(), nestedColumnIDs == null ? null
+          : nestedColumnIDs.get(i));
+    }
+  }
+
+  static ShreddedColumn createShreddedColumn(ObjectInspector oi,
+      List<Integer> readFieldIDs) {
+    if (oi instanceof ShreddedStructObjectInspector) {
+      return new ShreddedStructColumn((ShreddedStructObjectInspector) oi,
+          readFieldIDs);
+    } else if (oi instanceof ShreddedMapObjectInspector) {
+      return new ShreddedMap((ShreddedMapObjectInspector) oi);
+    } else if (oi instanceof ShreddedListObjectInspector) {
+      return new ShreddedStructArray((ShreddedListObjectInspector) oi,
+          readFieldIDs);
+    }
+    return null;
+  }
+
+  @Override
+  protected LazyObjectBase createLazyObjectBase(
+      ObjectInspector objectInspector) {
+    if (createShreddedColumn(objectInspector, null) != null) {
+      // the value of a file that is not shredded, which the Shredded
+      // ObjectInspectors also inspect
+      objectInspector = LazyBinaryUtils
+          .getLazyBinaryObjectInspectorFromTypeInfo(TypeInfoUtils
+          .getTypeInfoFromObjectInspector(objectInspector));
+    }
+    return LazyBinaryFactory.createLazyBinaryObject(objectInspector);
+  }
+
+  @Override
+  protected int getLength(ObjectInspector objectInspector,
+      ByteArrayRef cachedByteArrayRef, int start, int length) {
+    return LazyBinaryColumnarSerDe.getValueLength(objectInspector,
+        cachedByteArrayRef.getData(), start, length);
+  }
+
+  /**
+   * Set up the fields for the number of columns that each takes, as recorded
+   * by the file.
+   */
+  private void setColumnLayout(int[] layout) {
+    int column = 0;
+    for (int i = 0; i < firstColumn.length; i++) {
+      int count = layout == null || i >= layout.length ? 1 : layout[i];
+      if (count > 1
+          && (shredded[i] == null || shredded[i].getColumnCount() != count)) {
+        throw new RuntimeException("Column " + i + " takes " + count
+            + " columns in the file, which its type can not be shredded into");
+      }
+      firstColumn[i] = column;
+      fieldShredded[i] = count > 1;
+      column += count;
+    }
+    columnLayout = layout;
+    layoutSet = true;
+  }
+
+  @Override
+  public void init(BytesRefArrayWritable cols) {
+    int[] layout = cols.getColumnLayout();
+    if (!layoutSet || layout != columnLayout) {
+      setColumnLayout(layout);
+    }
+    for (int i = 0; i < prjColIDs.length; ++i) {
+      int fieldIndex = prjColIDs[i];
+      int column = firstColumn[fieldIndex];
+      if (fieldShredded[fieldIndex]) {
+        ShreddedColumn s = shredded[fieldIndex];
+        // select columns that actually do not exist in the file.
+        shreddedMissing[fieldIndex] = column + s.getColumnCount() > cols
+            .size();
+        if (!shreddedMissing[fieldIndex]) {
+          s.init(cols, column);
+        }
+      } else if (column < cols.size()) {
+        fieldInfoList[fieldIndex].init(cols.unCheckedGet(column));
+      } else {
+        // select columns that actually do not exist in the file.
+        fieldInfoList[fieldIndex].init(null);
+      }
+    }
+  }
+
+  @Override
+  public Object getField(int fieldID) {
+    if (!fieldShredded[fieldID]) {
+      return super.getField(fieldID);
+    }
+    if (fieldInfoList[fieldID].fieldSkipped || shreddedMissing[fieldID]) {
+      return null;
+    }
+    return shredded[fieldID].getObject();
+  }
+}
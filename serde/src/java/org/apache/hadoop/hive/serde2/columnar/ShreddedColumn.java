@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+
+/**
+ * ShreddedColumn is a nested column of LazyBinaryColumnarSerDe that is
+ * stored in several RCFile columns. Each of the columns is only read, and
+ * so only decompressed by RCFile, when a part of the value that lives in it
+ * is accessed. The columns of the fields that the query does not use are
+ * not read from the file at all, and the fields are NULL.
+ *
+ */
+public abstract class ShreddedColumn {
+
+  /**
+   * The number of columns that this value is stored in.
+   */
+  public abstract int getColumnCount();
+
+  /**
+   * Set the columns of this value for the current row.
+   *
+   * @param cols
+   *          the columns of the row
+   * @param first
+   *          the first of the columns of this value
+   */
+  public abstract void init(BytesRefArrayWritable cols, int first);
+
+  /**
+   * Return this, or null if the value of the current row is NULL.
+   */
+  public abstract Object getObject();
+
+  /**
+   * Init a LazyBinaryObject to the value stored in a column, and return the
+   * object, or null if the column holds NULL.
+   */
+  static Object initValue(LazyBinaryObject value, ObjectInspector oi,
+      ByteArrayRef ref, BytesRefWritable col) {
+    if (col.getLength() == 0) {
+      return null;
+    }
+    try {
+      ref.setData(col.getData());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    int length = LazyBinaryColumnarSerDe.getValueLength(oi, ref.getData(),
+        col.getStart(), col.getLength());
+    if (length < 0) {
+      return null;
+    }
+    value.init(ref, col.getStart(), length);
+    return value.getObject();
+  }
+}
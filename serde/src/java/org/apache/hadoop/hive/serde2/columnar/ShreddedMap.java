@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryArray;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryFactory;
+import org.apache.hadoop.hive.serde2.lazybinary.objectinspector.LazyBinaryListObjectInspector;
+import org.apache.hadoop.hive.serde2.lazybinary.objectinspector.LazyBinaryObjectInspectorFactory;
+
+/**
+ * A map column that is stored as two columns: the keys, as a LazyBinary
+ * array, and the values, as a LazyBinary array of the same length. The keys
+ * column is empty when the map is NULL. Looking up a key only reads the
+ * values column when the key is found.
+ *
+ */
+public class ShreddedMap extends ShreddedColumn {
+
+  /**
+   * The number of columns that a map is stored in.
+   */
+  public static final int COLUMN_COUNT = 2;
+
+  BytesRefArrayWritable cols;
+  int first;
+
+  LazyBinaryListObjectInspector keysOI;
+  LazyBinaryListObjectInspector valuesOI;
+  LazyBinaryArray keys;
+  LazyBinaryArray values;
+  ByteArrayRef keyBytes = new ByteArrayRef();
+  ByteArrayRef valueBytes = new ByteArrayRef();
+  boolean keysInited;
+  boolean valuesInited;
+
+  public ShreddedMap(ShreddedMapObjectInspector oi) {
+    keysOI = LazyBinaryObjectInspectorFactory
+        .getLazyBinaryListObjectInspector(oi.getMapKeyObjectInspector());
+    valuesOI = LazyBinaryObjectInspectorFactory
+        .getLazyBinaryListObjectInspector(oi.getMapValueObjectInspector());
+    keys = (LazyBinaryArray) LazyBinaryFactory.createLazyBinaryObject(keysOI);
+    values = (LazyBinaryArray) LazyBinaryFactory
+        .createLazyBinaryObject(valuesOI);
+  }
+
+  @Override
+  public int getColumnCount() {
+    return COLUMN_COUNT;
+  }
+
+  @Override
+  public void init(BytesRefArrayWritable cols, int first) {
+    this.cols = cols;
+    this.first = first;
+    keysInited = false;
+    valuesInited = false;
+  }
+
+  @Override
+  public Object getObject() {
+    return cols.unCheckedGet(first).getLength() == 0 ? null : this;
+  }
+
+  private LazyBinaryArray getKeys() {
+    if (!keysInited) {
+      keysInited = true;
+      initValue(keys, keysOI, keyBytes, cols.unCheckedGet(first));
+    }
+    return keys;
+  }
+
+  private LazyBinaryArray getValues() {
+    if (!valuesInited) {
+      valuesInited = true;
+      initValue(values, valuesOI, valueBytes, cols.unCheckedGet(first + 1));
+    }
+    return values;
+  }
+
+  /**
+   * Get the value in the map for the key, or null if the key is not found.
+   */
+  public Object getMapValueElement(Object key) {
+    LazyBinaryArray k = getKeys();
+    int size = k.getListLength();
+    for (int i = 0; i < size; i++) {
+      // the elements of a LazyBinaryArray of primitives are writables
+      Object keyI = k.getListElementObject(i);
+      if (keyI != null && keyI.equals(key)) {
+        return getValues().getListElementObject(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the size of the map.
+   */
+  public int getMapSize() {
+    return getKeys().getListLength();
+  }
+
+  LinkedHashMap<Object, Object> cachedMap;
+
+  /**
+   * Return the map object representing this ShreddedMap. Note that the
+   * keyObjects will be Writable primitive objects.
+   */
+  public Map<Object, Object> getMap() {
+    if (cachedMap == null) {
+      cachedMap = new LinkedHashMap<Object, Object>();
+    } else {
+      cachedMap.clear();
+    }
+    LazyBinaryArray k = getKeys();
+    LazyBinaryArray v = getValues();
+    int size = k.getListLength();
+    for (int i = 0; i < size; i++) {
+      Object key = k.getListElementObject(i);
+      // do not overwrite if there are duplicate keys
+      if (key != null && !cachedMap.containsKey(key)) {
+        cachedMap.put(key, v.getListElementObject(i));
+      }
+    }
+    return cachedMap;
+  }
+}
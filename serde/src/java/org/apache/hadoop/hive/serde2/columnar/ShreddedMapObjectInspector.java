@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryMap;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardMapObjectInspector;
+
+/**
+ * ObjectInspector for a ShreddedMap, or for the LazyBinaryMap of a file in
+ * which the map is not shredded. The keys and values have LazyBinary
+ * ObjectInspectors.
+ *
+ * @see ShreddedMap
+ */
+public class ShreddedMapObjectInspector extends StandardMapObjectInspector {
+
+  ShreddedMapObjectInspector(ObjectInspector mapKeyObjectInspector,
+      ObjectInspector mapValueObjectInspector) {
+    super(mapKeyObjectInspector, mapValueObjectInspector);
+  }
+
+  @Override
+  public Map<?, ?> getMap(Object data) {
+    if (data == null) {
+      return null;
+    }
+    if (data instanceof LazyBinaryMap) {
+      return ((LazyBinaryMap) data).getMap();
+    }
+    return ((ShreddedMap) data).getMap();
+  }
+
+  @Override
+  public int getMapSize(Object data) {
+    if (data == null) {
+      return -1;
+    }
+    if (data instanceof LazyBinaryMap) {
+      return ((LazyBinaryMap) data).getMapSize();
+    }
+    return ((ShreddedMap) data).getMapSize();
+  }
+
+  @Override
+  public Object getMapValueElement(Object data, Object key) {
+    if (data == null || key == null) {
+      return null;
+    }
+    if (data instanceof LazyBinaryMap) {
+      return ((LazyBinaryMap) data).getMapValueElement(key);
+    }
+    return ((ShreddedMap) data).getMapValueElement(key);
+  }
+}
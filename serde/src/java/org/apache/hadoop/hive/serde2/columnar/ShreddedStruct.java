@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.List;
+
+/**
+ * A struct whose fields are stored in separate columns. It is the object of
+ * ShreddedStructObjectInspector.
+ *
+ */
+public interface ShreddedStruct {
+
+  /**
+   * Get one field out of the struct.
+   */
+  Object getField(int fieldID);
+
+  /**
+   * Get the values of the fields as a List.
+   */
+  List<Object> getFieldsAsList();
+
+}
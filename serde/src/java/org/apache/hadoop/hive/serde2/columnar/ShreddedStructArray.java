@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryArray;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryFactory;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryUtils;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryUtils.VInt;
+import org.apache.hadoop.hive.serde2.lazybinary.objectinspector.LazyBinaryListObjectInspector;
+import org.apache.hadoop.hive.serde2.lazybinary.objectinspector.LazyBinaryObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+
+/**
+ * An array of structs that is stored as one column with the length of the
+ * array and a bit for each element that is set if the element is not NULL,
+ * followed by one column for each field of the struct. The column of a field
+ * holds the values of the field in all the elements as a LazyBinary array,
+ * which is NULL for an element that is NULL. The first column is empty when
+ * the array is NULL.
+ *
+ */
+public class ShreddedStructArray extends ShreddedColumn {
+
+  BytesRefArrayWritable cols;
+  int first;
+
+  LazyBinaryListObjectInspector[] fieldOIs;
+  LazyBinaryArray[] fields;
+  ByteArrayRef[] fieldBytes;
+  boolean[] fieldInited;
+  boolean[] fieldSkipped;
+
+  boolean parsed;
+  int arraySize;
+  boolean[] elementIsNull = new boolean[0];
+  ArrayList<Element> elements = new ArrayList<Element>();
+
+  /**
+   * @param readFieldIDs
+   *          the fields of the elements that are read, or null if all are;
+   *          the others are NULL
+   */
+  public ShreddedStructArray(ShreddedListObjectInspector oi,
+      List<Integer> readFieldIDs) {
+    List<? extends StructField> fieldRefs = ((ShreddedStructObjectInspector) oi
+        .getListElementObjectInspector()).getAllStructFieldRefs();
+    int num = fieldRefs.size();
+    fieldOIs = new LazyBinaryListObjectInspector[num];
+    fields = new LazyBinaryArray[num];
+    fieldBytes = new ByteArrayRef[num];
+    fieldSkipped = new boolean[num];
+    for (int i = 0; i < num; i++) {
+      fieldSkipped[i] = readFieldIDs != null && !readFieldIDs.contains(i);
+      fieldOIs[i] = LazyBinaryObjectInspectorFactory
+          .getLazyBinaryListObjectInspector(fieldRefs.get(i)
+          .getFieldObjectInspector());
+      fields[i] = (LazyBinaryArray) LazyBinaryFactory
+          .createLazyBinaryObject(fieldOIs[i]);
+      fieldBytes[i] = new ByteArrayRef();
+    }
+    fieldInited = new boolean[num];
+  }
+
+  /**
+   * The number of columns that an array of structs with the given number of
+   * fields is stored in.
+   */
+  public static int getColumnCount(int fieldCount) {
+    return 1 + fieldCount;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return getColumnCount(fields.length);
+  }
+
+  @Override
+  public void init(BytesRefArrayWritable cols, int first) {
+    this.cols = cols;
+    this.first = first;
+    parsed = false;
+    for (int i = 0; i < fieldInited.length; i++) {
+      fieldInited[i] = false;
+    }
+  }
+
+  @Override
+  public Object getObject() {
+    return cols.unCheckedGet(first).getLength() == 0 ? null : this;
+  }
+
+  VInt vInt = new LazyBinaryUtils.VInt();
+
+  /**
+   * Read the length of the array and the null bits of the elements.
+   */
+  private void parse() {
+    parsed = true;
+    BytesRefWritable col = cols.unCheckedGet(first);
+    byte[] bytes;
+    try {
+      bytes = col.getData();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    int start = col.getStart();
+    LazyBinaryUtils.readVInt(bytes, start, vInt);
+    arraySize = vInt.value;
+    int nullByteStart = start + vInt.length;
+    if (elementIsNull.length < arraySize) {
+      elementIsNull = new boolean[arraySize];
+    }
+    for (int i = 0; i < arraySize; i++) {
+      // the bit is set for an element that is not null
+      elementIsNull[i] = (bytes[nullByteStart + i / 8] & (1 << (i % 8))) == 0;
+    }
+    while (elements.size() < arraySize) {
+      elements.add(new Element(elements.size()));
+    }
+  }
+
+  LazyBinaryArray getField(int fieldID) {
+    if (!fieldInited[fieldID]) {
+      fieldInited[fieldID] = true;
+      initValue(fields[fieldID], fieldOIs[fieldID], fieldBytes[fieldID], cols
+          .unCheckedGet(first + 1 + fieldID));
+    }
+    return fields[fieldID];
+  }
+
+  /**
+   * Returns the element at the index, or null if it is NULL or the index is
+   * out of bounds.
+   */
+  public Object getListElementObject(int index) {
+    if (!parsed) {
+      parse();
+    }
+    if (index < 0 || index >= arraySize || elementIsNull[index]) {
+      return null;
+    }
+    return elements.get(index);
+  }
+
+  /**
+   * Returns the array size.
+   */
+  public int getListLength() {
+    if (!parsed) {
+      parse();
+    }
+    return arraySize;
+  }
+
+  ArrayList<Object> cachedList;
+
+  /**
+   * Returns the List of the elements.
+   */
+  public List<Object> getList() {
+    if (!parsed) {
+      parse();
+    }
+    if (cachedList == null) {
+      cachedList = new ArrayList<Object>(arraySize);
+    } else {
+      cachedList.clear();
+    }
+    for (int index = 0; index < arraySize; index++) {
+      cachedList.add(elementIsNull[index] ? null : elements.get(index));
+    }
+    return cachedList;
+  }
+
+  /**
+   * An element of the array. Its fields are read from the columns of the
+   * fields at the index of the element.
+   */
+  class Element implements ShreddedStruct {
+
+    final int index;
+
+    Element(int index) {
+      this.index = index;
+    }
+
+    public Object getField(int fieldID) {
+      if (fieldSkipped[fieldID]) {
+        return null;
+      }
+      return ShreddedStructArray.this.getField(fieldID).getListElementObject(
+          index);
+    }
+
+    ArrayList<Object> cachedFields;
+
+    public List<Object> getFieldsAsList() {
+      if (cachedFields == null) {
+        cachedFields = new ArrayList<Object>(fields.length);
+      } else {
+        cachedFields.clear();
+      }
+      for (int i = 0; i < fields.length; i++) {
+        cachedFields.add(getField(i));
+      }
+      return cachedFields;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryFactory;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+
+/**
+ * A struct column that is stored as one column that is empty when the struct
+ * is NULL, followed by one column for each field. A field is stored like a
+ * column of LazyBinaryColumnarSerDe.
+ *
+ */
+public class ShreddedStructColumn extends ShreddedColumn implements
+    ShreddedStruct {
+
+  BytesRefArrayWritable cols;
+  int first;
+
+  ObjectInspector[] fieldOIs;
+  LazyBinaryObject[] fields;
+  ByteArrayRef[] fieldBytes;
+  boolean[] fieldInited;
+  boolean[] fieldSkipped;
+  Object[] fieldValues;
+
+  /**
+   * @param readFieldIDs
+   *          the fields that are read, or null if all are; the others are
+   *          NULL
+   */
+  public ShreddedStructColumn(ShreddedStructObjectInspector oi,
+      List<Integer> readFieldIDs) {
+    List<? extends StructField> fieldRefs = oi.getAllStructFieldRefs();
+    int num = fieldRefs.size();
+    fieldOIs = new ObjectInspector[num];
+    fields = new LazyBinaryObject[num];
+    fieldBytes = new ByteArrayRef[num];
+    fieldSkipped = new boolean[num];
+    for (int i = 0; i < num; i++) {
+      fieldOIs[i] = fieldRefs.get(i).getFieldObjectInspector();
+      fields[i] = LazyBinaryFactory.createLazyBinaryObject(fieldOIs[i]);
+      fieldBytes[i] = new ByteArrayRef();
+      fieldSkipped[i] = readFieldIDs != null && !readFieldIDs.contains(i);
+    }
+    fieldInited = new boolean[num];
+    fieldValues = new Object[num];
+  }
+
+  /**
+   * The number of columns that a struct with the given number of fields is
+   * stored in.
+   */
+  public static int getColumnCount(int fieldCount) {
+    return 1 + fieldCount;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return getColumnCount(fields.length);
+  }
+
+  @Override
+  public void init(BytesRefArrayWritable cols, int first) {
+    this.cols = cols;
+    this.first = first;
+    for (int i = 0; i < fieldInited.length; i++) {
+      fieldInited[i] = false;
+    }
+  }
+
+  @Override
+  public Object getObject() {
+    return cols.unCheckedGet(first).getLength() == 0 ? null : this;
+  }
+
+  public Object getField(int fieldID) {
+    if (fieldSkipped[fieldID]) {
+      return null;
+    }
+    if (!fieldInited[fieldID]) {
+      fieldInited[fieldID] = true;
+      fieldValues[fieldID] = initValue(fields[fieldID], fieldOIs[fieldID],
+          fieldBytes[fieldID], cols.unCheckedGet(first + 1 + fieldID));
+    }
+    return fieldValues[fieldID];
+  }
+
+  ArrayList<Object> cachedList;
+
+  public List<Object> getFieldsAsList() {
+    if (cachedList == null) {
+      cachedList = new ArrayList<Object>(fields.length);
+    } else {
+      cachedList.clear();
+    }
+    for (int i = 0; i < fields.length; i++) {
+      cachedList.add(getField(i));
+    }
+    return cachedList;
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryStruct;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+
+/**
+ * ObjectInspector for a ShreddedStruct, or for the LazyBinaryStruct of a file
+ * in which the struct is not shredded. The fields have LazyBinary
+ * ObjectInspectors.
+ *
+ * @see ShreddedStruct
+ */
+public class ShreddedStructObjectInspector extends
+    StandardStructObjectInspector {
+
+  ShreddedStructObjectInspector(List<String> structFieldNames,
+      List<ObjectInspector> structFieldObjectInspectors) {
+    super(structFieldNames, structFieldObjectInspectors);
+  }
+
+  @Override
+  public Object getStructFieldData(Object data, StructField fieldRef) {
+    if (data == null) {
+      return null;
+    }
+    MyField f = (MyField) fieldRef;
+
+    int fieldID = f.getFieldID();
+    assert (fieldID >= 0 && fieldID < fields.size());
+
+    if (data instanceof LazyBinaryStruct) {
+      return ((LazyBinaryStruct) data).getField(fieldID);
+    }
+    return ((ShreddedStruct) data).getField(fieldID);
+  }
+
+  @Override
+  public List<Object> getStructFieldsDataAsList(Object data) {
+    if (data == null) {
+      return null;
+    }
+    if (data instanceof LazyBinaryStruct) {
+      return ((LazyBinaryStruct) data).getFieldsAsList();
+    }
+    return ((ShreddedStruct) data).getFieldsAsList();
+  }
+}
@@ -42,8 +42,12 @@ public class LazyDouble extends
 
   @Override
   public void init(ByteArrayRef bytes, int start, int length) {
+    if (length == 0) {
+      isNull = true;
+      return;
+    }
     try {
-      data.set(Double.parseDouble(Text.decode(bytes.getData(), start, length)));
+      data.set(parseDouble(bytes.getData(), start, length));
       isNull = false;
     } catch (NumberFormatException e) {
       isNull = true;
@@ -52,4 +56,97 @@ public class LazyDouble extends
     }
   }
 
+  /**
+   * Powers of ten that are exact doubles.
+   */
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4,
+      1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+      1e18, 1e19, 1e20, 1e21, 1e22};
+
+  /**
+   * The most significant digits that always fit in the 53 bits of the
+   * mantissa of a double.
+   */
+  private static final int MAX_DIGITS = 15;
+
+  /**
+   * Parses the UTF-8 bytes as Double.parseDouble would.
+   *
+   * A plain decimal number of at most 15 significant digits and a power of ten
+   * of at most 22 is parsed straight from the bytes: both the digits and the
+   * power of ten are exact doubles, so a single multiplication or division
+   * rounds correctly. Anything else is decoded to a String first.
+   *
+   * @exception NumberFormatException
+   *              if the bytes are not a number
+   * @exception CharacterCodingException
+   *              if the bytes are not valid UTF-8
+   */
+  public static double parseDouble(byte[] bytes, int start, int length)
+      throws CharacterCodingException {
+    int end = start + length;
+    int i = start;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    long digits = 0;
+    int digitCount = 0;
+    boolean anyDigit = false;
+    boolean point = false;
+    int scale = 0;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        anyDigit = true;
+        if (digits != 0 || b != '0') {
+          if (++digitCount > MAX_DIGITS) {
+            break;
+          }
+        }
+        digits = digits * 10 + (b - '0');
+        if (point) {
+          scale--;
+        }
+      } else if (b == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+    if (anyDigit && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+      i++;
+      boolean negativeExponent = false;
+      if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+        negativeExponent = bytes[i] == '-';
+        i++;
+      }
+      int exponent = 0;
+      int exponentStart = i;
+      for (; i < end && i - exponentStart < 4; i++) {
+        byte b = bytes[i];
+        if (b < '0' || b > '9') {
+          break;
+        }
+        exponent = exponent * 10 + (b - '0');
+      }
+      scale += negativeExponent ? -exponent : exponent;
+      if (i == exponentStart) {
+        // no digits after the e
+        anyDigit = false;
+      }
+    }
+    if (i != end || !anyDigit || Math.abs(scale) >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(Text.decode(bytes, start, length));
+    }
+    double value = digits;
+    if (scale < 0) {
+      value /= POWERS_OF_TEN[-scale];
+    } else if (scale > 0) {
+      value *= POWERS_OF_TEN[scale];
+    }
+    return negative ? -value : value;
+  }
+
 }
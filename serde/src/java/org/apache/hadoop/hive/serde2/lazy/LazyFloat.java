@@ -42,8 +42,12 @@ public class LazyFloat extends
 
   @Override
   public void init(ByteArrayRef bytes, int start, int length) {
+    if (length == 0) {
+      isNull = true;
+      return;
+    }
     try {
-      data.set(Float.parseFloat(Text.decode(bytes.getData(), start, length)));
+      data.set(parseFloat(bytes.getData(), start, length));
       isNull = false;
     } catch (NumberFormatException e) {
       isNull = true;
@@ -52,4 +56,69 @@ public class LazyFloat extends
     }
   }
 
+  /**
+   * Powers of ten that are exact floats.
+   */
+  private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f,
+      1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+  /**
+   * The most significant digits that always fit in the 24 bits of the
+   * mantissa of a float.
+   */
+  private static final int MAX_DIGITS = 7;
+
+  /**
+   * Parses the UTF-8 bytes as Float.parseFloat would.
+   *
+   * A plain decimal number of at most 7 significant digits and no exponent
+   * is parsed straight from the bytes when its power of ten is at most 10, as
+   * in {@link LazyDouble#parseDouble(byte[], int, int)}. Anything else is
+   * decoded to a String first.
+   *
+   * @exception NumberFormatException
+   *              if the bytes are not a number
+   * @exception CharacterCodingException
+   *              if the bytes are not valid UTF-8
+   */
+  public static float parseFloat(byte[] bytes, int start, int length)
+      throws CharacterCodingException {
+    int end = start + length;
+    int i = start;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    int digits = 0;
+    int digitCount = 0;
+    boolean anyDigit = false;
+    boolean point = false;
+    int scale = 0;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        anyDigit = true;
+        if (digits != 0 || b != '0') {
+          if (++digitCount > MAX_DIGITS) {
+            break;
+          }
+        }
+        digits = digits * 10 + (b - '0');
+        if (point) {
+          scale++;
+        }
+      } else if (b == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+    if (i != end || !anyDigit || scale >= POWERS_OF_TEN.length) {
+      return Float.parseFloat(Text.decode(bytes, start, length));
+    }
+    float value = digits / POWERS_OF_TEN[scale];
+    return negative ? -value : value;
+  }
+
 }
@@ -51,6 +51,10 @@ public class LazyInteger extends
 
   @Override
   public void init(ByteArrayRef bytes, int start, int length) {
+    if (length == 0) {
+      isNull = true;
+      return;
+    }
     try {
       data.set(parseInt(bytes.getData(), start, length, 10));
       isNull = false;
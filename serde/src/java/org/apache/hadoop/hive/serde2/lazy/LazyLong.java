@@ -51,6 +51,10 @@ public class LazyLong extends
 
   @Override
   public void init(ByteArrayRef bytes, int start, int length) {
+    if (length == 0) {
+      isNull = true;
+      return;
+    }
     try {
       data.set(parseLong(bytes.getData(), start, length, 10));
       isNull = false;
@@ -25,7 +25,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
  * A LazyObject can represent any primitive object or hierarchical object like
  * array, map or struct.
  */
-public abstract class LazyObject<OI extends ObjectInspector> {
+public abstract class LazyObject<OI extends ObjectInspector> implements
+    LazyObjectBase {
 
   OI oi;
 
@@ -115,6 +115,12 @@ public class LazyStruct extends
 
     // Go through all bytes in the byte[]
     while (fieldByteEnd <= structByteEnd) {
+      if (!isEscaped) {
+        // Without escaping, only the separators need to be looked at.
+        fieldByteEnd = (lastColumnTakesRest && fieldId == fields.length - 1)
+            ? structByteEnd
+            : LazyUtils.indexOf(bytes, fieldByteEnd, structByteEnd, separator);
+      }
       if (fieldByteEnd == structByteEnd || bytes[fieldByteEnd] == separator) {
         // Reached the end of a field?
         if (lastColumnTakesRest && fieldId == fields.length - 1) {
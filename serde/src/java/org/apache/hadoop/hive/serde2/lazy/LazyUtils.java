@@ -63,6 +63,18 @@ public final class LazyUtils {
     return r;
   }
 
+  /**
+   * Returns the position of the first occurrence of the byte b in
+   * bytes[start..end), or end if there is none.
+   */
+  public static int indexOf(byte[] bytes, int start, int end, byte b) {
+    int i = start;
+    while (i < end && bytes[i] != b) {
+      i++;
+    }
+    return i;
+  }
+
   /**
    * Returns -1 if the first byte sequence is lexicographically less than the
    * second; returns +1 if the second byte sequence is lexicographically less
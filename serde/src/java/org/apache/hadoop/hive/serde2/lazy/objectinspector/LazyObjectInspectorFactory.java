@@ -19,9 +19,9 @@
 package org.apache.hadoop.hive.serde2.lazy.objectinspector;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.io.Text;
 
@@ -38,8 +38,8 @@ import org.apache.hadoop.io.Text;
  */
 public final class LazyObjectInspectorFactory {
 
-  static HashMap<ArrayList<Object>, LazySimpleStructObjectInspector> cachedLazySimpleStructObjectInspector =
-      new HashMap<ArrayList<Object>, LazySimpleStructObjectInspector>();
+  static InternCache<ArrayList<Object>, LazySimpleStructObjectInspector> cachedLazySimpleStructObjectInspector =
+      new InternCache<ArrayList<Object>, LazySimpleStructObjectInspector>();
 
   public static LazySimpleStructObjectInspector getLazySimpleStructObjectInspector(
       List<String> structFieldNames,
@@ -60,12 +60,12 @@ public final class LazyObjectInspectorFactory {
       result = new LazySimpleStructObjectInspector(structFieldNames,
           structFieldObjectInspectors, separator, nullSequence,
           lastColumnTakesRest, escaped, escapeChar);
-      cachedLazySimpleStructObjectInspector.put(signature, result);
+      result = cachedLazySimpleStructObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<Object>, LazyListObjectInspector> cachedLazySimpleListObjectInspector = new HashMap<ArrayList<Object>, LazyListObjectInspector>();
+  static InternCache<ArrayList<Object>, LazyListObjectInspector> cachedLazySimpleListObjectInspector = new InternCache<ArrayList<Object>, LazyListObjectInspector>();
 
   public static LazyListObjectInspector getLazySimpleListObjectInspector(
       ObjectInspector listElementObjectInspector, byte separator,
@@ -81,12 +81,12 @@ public final class LazyObjectInspectorFactory {
     if (result == null) {
       result = new LazyListObjectInspector(listElementObjectInspector,
           separator, nullSequence, escaped, escapeChar);
-      cachedLazySimpleListObjectInspector.put(signature, result);
+      result = cachedLazySimpleListObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<Object>, LazyMapObjectInspector> cachedLazySimpleMapObjectInspector = new HashMap<ArrayList<Object>, LazyMapObjectInspector>();
+  static InternCache<ArrayList<Object>, LazyMapObjectInspector> cachedLazySimpleMapObjectInspector = new InternCache<ArrayList<Object>, LazyMapObjectInspector>();
 
   public static LazyMapObjectInspector getLazySimpleMapObjectInspector(
       ObjectInspector mapKeyObjectInspector,
@@ -107,14 +107,14 @@ public final class LazyObjectInspectorFactory {
       result = new LazyMapObjectInspector(mapKeyObjectInspector,
           mapValueObjectInspector, itemSeparator, keyValueSeparator,
           nullSequence, escaped, escapeChar);
-      cachedLazySimpleMapObjectInspector.put(signature, result);
+      result = cachedLazySimpleMapObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<List<Object>, LazyUnionObjectInspector>
+  static InternCache<List<Object>, LazyUnionObjectInspector>
     cachedLazyUnionObjectInspector =
-      new HashMap<List<Object>, LazyUnionObjectInspector>();
+      new InternCache<List<Object>, LazyUnionObjectInspector>();
 
   public static LazyUnionObjectInspector getLazyUnionObjectInspector(
       List<ObjectInspector> ois, byte separator, Text nullSequence,
@@ -130,7 +130,7 @@ public final class LazyObjectInspectorFactory {
     if (result == null) {
       result = new LazyUnionObjectInspector(ois, separator,
           nullSequence, escaped, escapeChar);
-      cachedLazyUnionObjectInspector.put(signature, result);
+      result = cachedLazyUnionObjectInspector.intern(signature, result);
     }
     return result;
   }
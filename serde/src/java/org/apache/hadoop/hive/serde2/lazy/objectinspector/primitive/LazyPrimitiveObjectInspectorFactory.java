@@ -19,8 +19,8 @@
 package org.apache.hadoop.hive.serde2.lazy.objectinspector.primitive;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 
 /**
@@ -54,8 +54,8 @@ public final class LazyPrimitiveObjectInspectorFactory {
   public static final LazyVoidObjectInspector LAZY_VOID_OBJECT_INSPECTOR =
       new LazyVoidObjectInspector();
 
-  static HashMap<ArrayList<Object>, LazyStringObjectInspector> cachedLazyStringObjectInspector =
-      new HashMap<ArrayList<Object>, LazyStringObjectInspector>();
+  static InternCache<ArrayList<Object>, LazyStringObjectInspector> cachedLazyStringObjectInspector =
+      new InternCache<ArrayList<Object>, LazyStringObjectInspector>();
 
   public static LazyStringObjectInspector getLazyStringObjectInspector(
       boolean escaped, byte escapeChar) {
@@ -66,7 +66,7 @@ public final class LazyPrimitiveObjectInspectorFactory {
         .get(signature);
     if (result == null) {
       result = new LazyStringObjectInspector(escaped, escapeChar);
-      cachedLazyStringObjectInspector.put(signature, result);
+      result = cachedLazyStringObjectInspector.intern(signature, result);
     }
     return result;
   }
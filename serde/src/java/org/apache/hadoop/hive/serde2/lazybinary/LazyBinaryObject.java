@@ -18,6 +18,7 @@
 package org.apache.hadoop.hive.serde2.lazybinary;
 
 import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyObjectBase;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 
 /**
@@ -27,7 +28,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
  * A LazyBinaryObject can represent any primitive object or hierarchical object
  * like string, list, map or struct.
  */
-public abstract class LazyBinaryObject<OI extends ObjectInspector> {
+public abstract class LazyBinaryObject<OI extends ObjectInspector> implements
+    LazyObjectBase {
 
   OI oi;
 
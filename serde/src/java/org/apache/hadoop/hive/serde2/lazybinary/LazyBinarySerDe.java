@@ -225,9 +225,9 @@ public class LazyBinarySerDe implements SerDe {
       // if this is the last element and serialize the
       // corresponding 8 struct fields at the same time
       if (7 == i % 8 || i == size - 1) {
-        serializeByteStream.write(nullByte);
+        byteStream.write(nullByte);
         for (int j = lasti; j <= i; j++) {
-          serialize(serializeByteStream, soi.getStructFieldData(obj, fields
+          serialize(byteStream, soi.getStructFieldData(obj, fields
               .get(j)), fields.get(j).getFieldObjectInspector());
         }
         lasti = i + 1;
@@ -236,6 +236,30 @@ public class LazyBinarySerDe implements SerDe {
     }
   }
 
+  /**
+   * Serialize one column of a row without the byte size that is written in
+   * front of strings, lists, maps and structs. The caller keeps the length of
+   * the column, so the serialized bytes are exactly the bytes that the
+   * LazyBinaryObject of the column is inited with. Nothing is written for a
+   * null object.
+   * 
+   * @param byteStream
+   *          the byte stream storing the serialization data
+   * @param obj
+   *          the object to serialize
+   * @param objInspector
+   *          the object inspector
+   */
+  public void serializeColumn(Output byteStream, Object obj,
+      ObjectInspector objInspector) {
+    serialize(byteStream, obj, objInspector, true);
+  }
+
+  private void serialize(Output byteStream, Object obj,
+      ObjectInspector objInspector) {
+    serialize(byteStream, obj, objInspector, false);
+  }
+
   /**
    * A recursive function that serialize an object to a byte buffer based on its
    * object inspector.
@@ -246,9 +270,12 @@ public class LazyBinarySerDe implements SerDe {
    *          the object to serialize
    * @param objInspector
    *          the object inspector
+   * @param skipLengthPrefix
+   *          whether to leave out the byte size of a string, list, map or
+   *          struct. The elements are always written with their sizes.
    */
   private void serialize(Output byteStream, Object obj,
-      ObjectInspector objInspector) {
+      ObjectInspector objInspector, boolean skipLengthPrefix) {
 
     // do nothing for null object
     if (null == obj) {
@@ -319,7 +346,9 @@ public class LazyBinarySerDe implements SerDe {
         Text t = soi.getPrimitiveWritableObject(obj);
         /* write byte size of the string which is a vint */
         int length = t.getLength();
-        LazyBinaryUtils.writeVInt(byteStream, length);
+        if (!skipLengthPrefix) {
+          LazyBinaryUtils.writeVInt(byteStream, length);
+        }
         /* write string itself */
         byte[] data = t.getBytes();
         byteStream.write(data, 0, length);
@@ -337,11 +366,14 @@ public class LazyBinarySerDe implements SerDe {
 
       // 1/ reserve spaces for the byte size of the list
       // which is a integer and takes four bytes
-      int byteSizeStart = byteStream.getCount();
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
+      int byteSizeStart = 0;
+      if (!skipLengthPrefix) {
+        byteSizeStart = byteStream.getCount();
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+      }
       int listStart = byteStream.getCount();
 
       // 2/ write the size of the list as a VInt
@@ -369,13 +401,15 @@ public class LazyBinarySerDe implements SerDe {
       }
 
       // 5/ update the list byte size
-      int listEnd = byteStream.getCount();
-      int listSize = listEnd - listStart;
-      byte[] bytes = byteStream.getData();
-      bytes[byteSizeStart] = (byte) (listSize >> 24);
-      bytes[byteSizeStart + 1] = (byte) (listSize >> 16);
-      bytes[byteSizeStart + 2] = (byte) (listSize >> 8);
-      bytes[byteSizeStart + 3] = (byte) (listSize);
+      if (!skipLengthPrefix) {
+        int listEnd = byteStream.getCount();
+        int listSize = listEnd - listStart;
+        byte[] bytes = byteStream.getData();
+        bytes[byteSizeStart] = (byte) (listSize >> 24);
+        bytes[byteSizeStart + 1] = (byte) (listSize >> 16);
+        bytes[byteSizeStart + 2] = (byte) (listSize >> 8);
+        bytes[byteSizeStart + 3] = (byte) (listSize);
+      }
 
       return;
     }
@@ -387,11 +421,14 @@ public class LazyBinarySerDe implements SerDe {
 
       // 1/ reserve spaces for the byte size of the map
       // which is a integer and takes four bytes
-      int byteSizeStart = byteStream.getCount();
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
+      int byteSizeStart = 0;
+      if (!skipLengthPrefix) {
+        byteSizeStart = byteStream.getCount();
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+      }
       int mapStart = byteStream.getCount();
 
       // 2/ write the size of the map which is a VInt
@@ -430,37 +467,44 @@ public class LazyBinarySerDe implements SerDe {
       }
 
       // 5/ update the byte size of the map
-      int mapEnd = byteStream.getCount();
-      int mapSize = mapEnd - mapStart;
-      byte[] bytes = byteStream.getData();
-      bytes[byteSizeStart] = (byte) (mapSize >> 24);
-      bytes[byteSizeStart + 1] = (byte) (mapSize >> 16);
-      bytes[byteSizeStart + 2] = (byte) (mapSize >> 8);
-      bytes[byteSizeStart + 3] = (byte) (mapSize);
+      if (!skipLengthPrefix) {
+        int mapEnd = byteStream.getCount();
+        int mapSize = mapEnd - mapStart;
+        byte[] bytes = byteStream.getData();
+        bytes[byteSizeStart] = (byte) (mapSize >> 24);
+        bytes[byteSizeStart + 1] = (byte) (mapSize >> 16);
+        bytes[byteSizeStart + 2] = (byte) (mapSize >> 8);
+        bytes[byteSizeStart + 3] = (byte) (mapSize);
+      }
 
       return;
     }
     case STRUCT: {
       // 1/ reserve spaces for the byte size of the struct
       // which is a integer and takes four bytes
-      int byteSizeStart = byteStream.getCount();
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
-      byteStream.write((byte) 0);
+      int byteSizeStart = 0;
+      if (!skipLengthPrefix) {
+        byteSizeStart = byteStream.getCount();
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+        byteStream.write((byte) 0);
+      }
       int structStart = byteStream.getCount();
 
       // 2/ serialize the struct
       serializeStruct(byteStream, obj, (StructObjectInspector) objInspector);
 
       // 3/ update the byte size of the struct
-      int structEnd = byteStream.getCount();
-      int structSize = structEnd - structStart;
-      byte[] bytes = byteStream.getData();
-      bytes[byteSizeStart] = (byte) (structSize >> 24);
-      bytes[byteSizeStart + 1] = (byte) (structSize >> 16);
-      bytes[byteSizeStart + 2] = (byte) (structSize >> 8);
-      bytes[byteSizeStart + 3] = (byte) (structSize);
+      if (!skipLengthPrefix) {
+        int structEnd = byteStream.getCount();
+        int structSize = structEnd - structStart;
+        byte[] bytes = byteStream.getData();
+        bytes[byteSizeStart] = (byte) (structSize >> 24);
+        bytes[byteSizeStart + 1] = (byte) (structSize >> 16);
+        bytes[byteSizeStart + 2] = (byte) (structSize >> 8);
+        bytes[byteSizeStart + 3] = (byte) (structSize);
+      }
 
       return;
     }
@@ -18,12 +18,12 @@
 package org.apache.hadoop.hive.serde2.lazybinary;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hive.serde2.ByteStream.Output;
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.lazybinary.objectinspector.LazyBinaryObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
@@ -331,7 +331,7 @@ public final class LazyBinaryUtils {
     }
   }
 
-  static HashMap<TypeInfo, ObjectInspector> cachedLazyBinaryObjectInspector = new HashMap<TypeInfo, ObjectInspector>();
+  static InternCache<TypeInfo, ObjectInspector> cachedLazyBinaryObjectInspector = new InternCache<TypeInfo, ObjectInspector>();
 
   /**
    * Returns the lazy binary object inspector that can be used to inspect an
@@ -389,7 +389,9 @@ public final class LazyBinaryUtils {
         result = null;
       }
       }
-      cachedLazyBinaryObjectInspector.put(typeInfo, result);
+      if (result != null) {
+        result = cachedLazyBinaryObjectInspector.intern(typeInfo, result);
+      }
     }
     return result;
   }
@@ -1,9 +1,9 @@
 package org.apache.hadoop.hive.serde2.lazybinary.objectinspector;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 
 /**
@@ -20,7 +20,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 
 public final class LazyBinaryObjectInspectorFactory {
 
-  static HashMap<ArrayList<Object>, LazyBinaryStructObjectInspector> cachedLazyBinaryStructObjectInspector = new HashMap<ArrayList<Object>, LazyBinaryStructObjectInspector>();
+  static InternCache<ArrayList<Object>, LazyBinaryStructObjectInspector> cachedLazyBinaryStructObjectInspector = new InternCache<ArrayList<Object>, LazyBinaryStructObjectInspector>();
 
   public static LazyBinaryStructObjectInspector getLazyBinaryStructObjectInspector(
       List<String> structFieldNames,
@@ -33,12 +33,12 @@ public final class LazyBinaryObjectInspectorFactory {
     if (result == null) {
       result = new LazyBinaryStructObjectInspector(structFieldNames,
           structFieldObjectInspectors);
-      cachedLazyBinaryStructObjectInspector.put(signature, result);
+      result = cachedLazyBinaryStructObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<Object>, LazyBinaryListObjectInspector> cachedLazyBinaryListObjectInspector = new HashMap<ArrayList<Object>, LazyBinaryListObjectInspector>();
+  static InternCache<ArrayList<Object>, LazyBinaryListObjectInspector> cachedLazyBinaryListObjectInspector = new InternCache<ArrayList<Object>, LazyBinaryListObjectInspector>();
 
   public static LazyBinaryListObjectInspector getLazyBinaryListObjectInspector(
       ObjectInspector listElementObjectInspector) {
@@ -48,12 +48,12 @@ public final class LazyBinaryObjectInspectorFactory {
         .get(signature);
     if (result == null) {
       result = new LazyBinaryListObjectInspector(listElementObjectInspector);
-      cachedLazyBinaryListObjectInspector.put(signature, result);
+      result = cachedLazyBinaryListObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<Object>, LazyBinaryMapObjectInspector> cachedLazyBinaryMapObjectInspector = new HashMap<ArrayList<Object>, LazyBinaryMapObjectInspector>();
+  static InternCache<ArrayList<Object>, LazyBinaryMapObjectInspector> cachedLazyBinaryMapObjectInspector = new InternCache<ArrayList<Object>, LazyBinaryMapObjectInspector>();
 
   public static LazyBinaryMapObjectInspector getLazyBinaryMapObjectInspector(
       ObjectInspector mapKeyObjectInspector,
@@ -66,7 +66,7 @@ public final class LazyBinaryObjectInspectorFactory {
     if (result == null) {
       result = new LazyBinaryMapObjectInspector(mapKeyObjectInspector,
           mapValueObjectInspector);
-      cachedLazyBinaryMapObjectInspector.put(signature, result);
+      result = cachedLazyBinaryMapObjectInspector.intern(signature, result);
     }
     return result;
   }
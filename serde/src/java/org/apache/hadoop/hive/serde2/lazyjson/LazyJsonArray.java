@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyNonPrimitive;
+import org.apache.hadoop.hive.serde2.lazy.LazyObject;
+import org.apache.hadoop.hive.serde2.lazy.LazyPrimitive;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonListObjectInspector;
+
+/**
+ * LazyObject for storing an array read from a JSON array. The elements are
+ * only decoded when they are used.
+ *
+ * LazyJsonArray does not deal with the case of a NULL array. That is handled
+ * by the parent LazyObject.
+ */
+public class LazyJsonArray extends
+    LazyNonPrimitive<LazyJsonListObjectInspector> {
+
+  /**
+   * Whether the data is already parsed or not.
+   */
+  boolean parsed = false;
+
+  /**
+   * The length of the array. Only valid when the data is parsed.
+   */
+  int arrayLength = 0;
+
+  /**
+   * The start and end positions of the elements. Only valid when the data is
+   * parsed.
+   */
+  int[] elementStart;
+  int[] elementEnd;
+
+  /**
+   * Whether init() has been called on the element or not.
+   */
+  boolean[] elementInited;
+
+  /**
+   * The elements of the array. Note that we do arrayElements[i]. init(bytes,
+   * begin, length) only when that element is accessed.
+   */
+  LazyObject[] arrayElements;
+
+  /**
+   * Holds the unescaped strings.
+   */
+  ByteArrayRef scratch = new ByteArrayRef();
+
+  /**
+   * Construct a LazyJsonArray object with the ObjectInspector.
+   */
+  protected LazyJsonArray(LazyJsonListObjectInspector oi) {
+    super(oi);
+  }
+
+  /**
+   * Set the row data for this LazyJsonArray.
+   *
+   * @see LazyObject#init(ByteArrayRef, int, int)
+   */
+  @Override
+  public void init(ByteArrayRef bytes, int start, int length) {
+    super.init(bytes, start, length);
+    parsed = false;
+  }
+
+  /**
+   * Enlarge the size of arrays storing information for the elements inside the
+   * array.
+   */
+  private void enlargeArrays() {
+    if (elementStart == null) {
+      int initialSize = 2;
+      elementStart = new int[initialSize];
+      elementEnd = new int[initialSize];
+      arrayElements = new LazyObject[initialSize];
+      elementInited = new boolean[initialSize];
+    } else {
+      elementStart = Arrays.copyOf(elementStart, elementStart.length * 2);
+      elementEnd = Arrays.copyOf(elementEnd, elementEnd.length * 2);
+      arrayElements = Arrays.copyOf(arrayElements, arrayElements.length * 2);
+      elementInited = Arrays.copyOf(elementInited, elementInited.length * 2);
+    }
+  }
+
+  /**
+   * Parse the bytes and fill arrayLength, elementStart and elementEnd. A
+   * malformed array ends at the last complete element.
+   */
+  private void parse() {
+    parsed = true;
+    arrayLength = 0;
+
+    byte[] bytes = this.bytes.getData();
+    int end = start + length;
+    // the parent has checked the opening bracket
+    int pos = LazyJsonUtils.skipWhitespace(bytes, start + 1, end);
+    if (pos < end && bytes[pos] == ']') {
+      return;
+    }
+    while (pos < end) {
+      int valueEnd = LazyJsonUtils.skipValue(bytes, pos, end);
+      if (valueEnd < 0) {
+        break;
+      }
+      if (elementStart == null || arrayLength == elementStart.length) {
+        enlargeArrays();
+      }
+      elementStart[arrayLength] = pos;
+      elementEnd[arrayLength] = valueEnd;
+      elementInited[arrayLength] = false;
+      arrayLength++;
+
+      pos = LazyJsonUtils.skipWhitespace(bytes, valueEnd, end);
+      if (pos == end || bytes[pos] != ',') {
+        break;
+      }
+      pos = LazyJsonUtils.skipWhitespace(bytes, pos + 1, end);
+    }
+  }
+
+  /**
+   * Returns the actual primitive object at the index position inside the array
+   * represented by this LazyObject.
+   */
+  public Object getListElementObject(int index) {
+    if (!parsed) {
+      parse();
+    }
+    if (index < 0 || index >= arrayLength) {
+      return null;
+    }
+    return uncheckedGetElement(index);
+  }
+
+  /**
+   * Get the element without checking out-of-bound index.
+   */
+  private Object uncheckedGetElement(int index) {
+    int start = elementStart[index];
+    int end = elementEnd[index];
+    if (arrayElements[index] == null) {
+      arrayElements[index] = LazyJsonFactory.createLazyJsonObject(getInspector()
+          .getListElementObjectInspector());
+    }
+    LazyObject element = arrayElements[index];
+    if (element instanceof LazyPrimitive) {
+      if (!elementInited[index]) {
+        elementInited[index] = true;
+        return LazyJsonUtils.initPrimitive((LazyPrimitive<?, ?>) element,
+            bytes, start, end, scratch);
+      }
+      return LazyJsonUtils.isNull(bytes.getData(), start, end) ? null
+          : element.getObject();
+    }
+    if (!LazyJsonFactory.isContainerOf(element, bytes.getData()[start])) {
+      return null;
+    }
+    if (!elementInited[index]) {
+      elementInited[index] = true;
+      element.init(bytes, start, end - start);
+    }
+    return element.getObject();
+  }
+
+  /**
+   * Returns the length of the array.
+   */
+  public int getListLength() {
+    if (!parsed) {
+      parse();
+    }
+    return arrayLength;
+  }
+
+  /**
+   * cachedList is reused every time getList is called. Different
+   * LazyJsonArray instances cannot share the same cachedList.
+   */
+  ArrayList<Object> cachedList;
+
+  /**
+   * Returns the List of actual primitive objects.
+   */
+  public List<Object> getList() {
+    if (!parsed) {
+      parse();
+    }
+    if (cachedList == null) {
+      cachedList = new ArrayList<Object>(arrayLength);
+    } else {
+      cachedList.clear();
+    }
+    for (int index = 0; index < arrayLength; index++) {
+      cachedList.add(uncheckedGetElement(index));
+    }
+    return cachedList;
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.lazy.LazyFactory;
+import org.apache.hadoop.hive.serde2.lazy.LazyObject;
+import org.apache.hadoop.hive.serde2.lazy.objectinspector.primitive.LazyPrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonListObjectInspector;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonMapObjectInspector;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.MapTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+
+/**
+ * LazyJsonFactory.
+ *
+ * Primitive values are read by the LazyPrimitives of LazySimpleSerDe, without
+ * escaping, from the contents of a JSON string or from the text of any other
+ * JSON value.
+ */
+public final class LazyJsonFactory {
+
+  /**
+   * Create a hierarchical LazyObject based on the given ObjectInspector.
+   */
+  public static LazyObject createLazyJsonObject(ObjectInspector oi) {
+    ObjectInspector.Category c = oi.getCategory();
+    switch (c) {
+    case PRIMITIVE:
+      return LazyFactory
+          .createLazyPrimitiveClass((PrimitiveObjectInspector) oi);
+    case MAP:
+      return new LazyJsonMap((LazyJsonMapObjectInspector) oi);
+    case LIST:
+      return new LazyJsonArray((LazyJsonListObjectInspector) oi);
+    case STRUCT:
+      return new LazyJsonStruct((LazyJsonStructObjectInspector) oi);
+    default:
+      throw new RuntimeException("Hive LazyJsonSerDe Internal error.");
+    }
+  }
+
+  /**
+   * Whether the JSON value that starts with the given byte can be read by the
+   * non-primitive LazyObject: an object for a map or a struct, an array for
+   * an array.
+   */
+  static boolean isContainerOf(LazyObject object, byte first) {
+    return first == (object instanceof LazyJsonArray ? '[' : '{');
+  }
+
+  /**
+   * Create a hierarchical ObjectInspector for LazyJsonObjects with the given
+   * typeInfo.
+   *
+   * @throws SerDeException
+   *           if the type has a union, which JSON has no way to tell apart
+   */
+  public static ObjectInspector createLazyJsonObjectInspector(TypeInfo typeInfo)
+      throws SerDeException {
+    switch (typeInfo.getCategory()) {
+    case PRIMITIVE:
+      return LazyPrimitiveObjectInspectorFactory.getLazyObjectInspector(
+          ((PrimitiveTypeInfo) typeInfo).getPrimitiveCategory(), false,
+          (byte) 0);
+    case MAP:
+      MapTypeInfo mapTypeInfo = (MapTypeInfo) typeInfo;
+      return LazyJsonObjectInspectorFactory.getLazyJsonMapObjectInspector(
+          createLazyJsonObjectInspector(mapTypeInfo.getMapKeyTypeInfo()),
+          createLazyJsonObjectInspector(mapTypeInfo.getMapValueTypeInfo()));
+    case LIST:
+      return LazyJsonObjectInspectorFactory.getLazyJsonListObjectInspector(
+          createLazyJsonObjectInspector(((ListTypeInfo) typeInfo)
+          .getListElementTypeInfo()));
+    case STRUCT:
+      StructTypeInfo structTypeInfo = (StructTypeInfo) typeInfo;
+      List<TypeInfo> fieldTypeInfos = structTypeInfo
+          .getAllStructFieldTypeInfos();
+      List<ObjectInspector> fieldObjectInspectors = new ArrayList<ObjectInspector>(
+          fieldTypeInfos.size());
+      for (TypeInfo fieldTypeInfo : fieldTypeInfos) {
+        fieldObjectInspectors.add(createLazyJsonObjectInspector(fieldTypeInfo));
+      }
+      return LazyJsonObjectInspectorFactory.getLazyJsonStructObjectInspector(
+          structTypeInfo.getAllStructFieldNames(), fieldObjectInspectors);
+    default:
+      throw new SerDeException("LazyJsonSerDe does not support "
+          + typeInfo.getTypeName());
+    }
+  }
+
+  private LazyJsonFactory() {
+    // prevent instantiation
+  }
+}
@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyFactory;
+import org.apache.hadoop.hive.serde2.lazy.LazyNonPrimitive;
+import org.apache.hadoop.hive.serde2.lazy.LazyObject;
+import org.apache.hadoop.hive.serde2.lazy.LazyPrimitive;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonMapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+
+/**
+ * LazyObject for storing a map read from a JSON object. The names of the
+ * members are the keys, read as the primitive type of the keys, and the
+ * values are only decoded when they are used.
+ *
+ * LazyJsonMap does not deal with the case of a NULL map. That is handled by
+ * the parent LazyObject.
+ */
+public class LazyJsonMap extends LazyNonPrimitive<LazyJsonMapObjectInspector> {
+
+  /**
+   * Whether the data is already parsed or not.
+   */
+  boolean parsed = false;
+
+  /**
+   * The size of the map. Only valid when the data is parsed.
+   */
+  int mapSize = 0;
+
+  /**
+   * The start and end positions of key[i] and value[i]. Only valid when the
+   * data is parsed.
+   */
+  int[] keyStart;
+  int[] keyEnd;
+  int[] valueStart;
+  int[] valueEnd;
+
+  /**
+   * The keys are stored in an array of LazyPrimitives.
+   */
+  LazyPrimitive<?, ?>[] keyObjects;
+  /**
+   * Whether init() is called on keyObjects[i].
+   */
+  boolean[] keyInited;
+  /**
+   * The values are stored in an array of LazyObjects.
+   */
+  LazyObject[] valueObjects;
+  /**
+   * Whether init() is called on valueObjects[i].
+   */
+  boolean[] valueInited;
+
+  /**
+   * Holds the unescaped strings.
+   */
+  ByteArrayRef scratch = new ByteArrayRef();
+
+  /**
+   * Construct a LazyJsonMap object with the ObjectInspector.
+   */
+  protected LazyJsonMap(LazyJsonMapObjectInspector oi) {
+    super(oi);
+  }
+
+  /**
+   * Set the row data for this LazyJsonMap.
+   *
+   * @see LazyObject#init(ByteArrayRef, int, int)
+   */
+  @Override
+  public void init(ByteArrayRef bytes, int start, int length) {
+    super.init(bytes, start, length);
+    parsed = false;
+  }
+
+  /**
+   * Enlarge the size of arrays storing information for the elements inside the
+   * map.
+   */
+  protected void enlargeArrays() {
+    if (keyStart == null) {
+      int initialSize = 2;
+      keyStart = new int[initialSize];
+      keyEnd = new int[initialSize];
+      valueStart = new int[initialSize];
+      valueEnd = new int[initialSize];
+      keyObjects = new LazyPrimitive<?, ?>[initialSize];
+      valueObjects = new LazyObject[initialSize];
+      keyInited = new boolean[initialSize];
+      valueInited = new boolean[initialSize];
+    } else {
+      keyStart = Arrays.copyOf(keyStart, keyStart.length * 2);
+      keyEnd = Arrays.copyOf(keyEnd, keyEnd.length * 2);
+      valueStart = Arrays.copyOf(valueStart, valueStart.length * 2);
+      valueEnd = Arrays.copyOf(valueEnd, valueEnd.length * 2);
+      keyObjects = Arrays.copyOf(keyObjects, keyObjects.length * 2);
+      valueObjects = Arrays.copyOf(valueObjects, valueObjects.length * 2);
+      keyInited = Arrays.copyOf(keyInited, keyInited.length * 2);
+      valueInited = Arrays.copyOf(valueInited, valueInited.length * 2);
+    }
+  }
+
+  /**
+   * Parse the byte[] and fill the positions of the keys and values. A
+   * malformed object ends at the last complete member.
+   */
+  private void parse() {
+    parsed = true;
+    mapSize = 0;
+
+    byte[] bytes = this.bytes.getData();
+    int end = start + length;
+    // the parent has checked the opening brace
+    int pos = LazyJsonUtils.skipWhitespace(bytes, start + 1, end);
+    if (pos < end && bytes[pos] == '}') {
+      return;
+    }
+    while (pos < end) {
+      int nameEnd = LazyJsonUtils.skipValue(bytes, pos, end);
+      if (nameEnd < 0) {
+        break;
+      }
+      int colon = LazyJsonUtils.skipWhitespace(bytes, nameEnd, end);
+      if (colon == end || bytes[colon] != ':') {
+        break;
+      }
+      int begin = LazyJsonUtils.skipWhitespace(bytes, colon + 1, end);
+      int finish = LazyJsonUtils.skipValue(bytes, begin, end);
+      if (finish < 0) {
+        break;
+      }
+      if (keyStart == null || mapSize == keyStart.length) {
+        enlargeArrays();
+      }
+      keyStart[mapSize] = pos;
+      keyEnd[mapSize] = nameEnd;
+      valueStart[mapSize] = begin;
+      valueEnd[mapSize] = finish;
+      keyInited[mapSize] = false;
+      valueInited[mapSize] = false;
+      mapSize++;
+
+      pos = LazyJsonUtils.skipWhitespace(bytes, finish, end);
+      if (pos == end || bytes[pos] != ',') {
+        break;
+      }
+      pos = LazyJsonUtils.skipWhitespace(bytes, pos + 1, end);
+    }
+  }
+
+  /**
+   * Get the value in the map for the key.
+   *
+   * If there are multiple matches, only the first one is returned. The search
+   * is linear, as in LazyMap.
+   *
+   * @param key
+   *          The key object that we are looking for.
+   * @return The corresponding value object, or NULL if not found
+   */
+  public Object getMapValueElement(Object key) {
+    if (!parsed) {
+      parse();
+    }
+    for (int i = 0; i < mapSize; i++) {
+      Object keyI = uncheckedGetKey(i);
+      if (keyI == null) {
+        continue;
+      }
+      // getWritableObject() will convert LazyPrimitive to actual primitive
+      // writable objects.
+      keyI = ((LazyPrimitive<?, ?>) keyI).getWritableObject();
+      if (keyI != null && keyI.equals(key)) {
+        return uncheckedGetValue(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the value object with the index without checking parsed.
+   */
+  private Object uncheckedGetValue(int index) {
+    int start = valueStart[index];
+    int end = valueEnd[index];
+    if (valueObjects[index] == null) {
+      valueObjects[index] = LazyJsonFactory.createLazyJsonObject(
+          getInspector().getMapValueObjectInspector());
+    }
+    LazyObject value = valueObjects[index];
+    if (value instanceof LazyPrimitive) {
+      if (!valueInited[index]) {
+        valueInited[index] = true;
+        return LazyJsonUtils.initPrimitive((LazyPrimitive<?, ?>) value, bytes,
+            start, end, scratch);
+      }
+      return LazyJsonUtils.isNull(bytes.getData(), start, end) ? null : value
+          .getObject();
+    }
+    if (!LazyJsonFactory.isContainerOf(value, bytes.getData()[start])) {
+      return null;
+    }
+    if (!valueInited[index]) {
+      valueInited[index] = true;
+      value.init(bytes, start, end - start);
+    }
+    return value.getObject();
+  }
+
+  /**
+   * Get the key object with the index without checking parsed.
+   *
+   * @return the key, or null if it cannot be read as the type of the keys
+   */
+  private Object uncheckedGetKey(int index) {
+    if (keyObjects[index] == null) {
+      // Keys are always primitive
+      keyObjects[index] = LazyFactory
+          .createLazyPrimitiveClass((PrimitiveObjectInspector) getInspector()
+          .getMapKeyObjectInspector());
+    }
+    if (!keyInited[index]) {
+      keyInited[index] = true;
+      return LazyJsonUtils.initPrimitive(keyObjects[index], bytes,
+          keyStart[index], keyEnd[index], scratch);
+    }
+    return LazyJsonUtils.isNull(bytes.getData(), keyStart[index],
+        keyEnd[index]) ? null : keyObjects[index].getObject();
+  }
+
+  /**
+   * cachedMap is reused for different calls to getMap(). But each LazyJsonMap
+   * has a separate cachedMap so we won't overwrite the data by accident.
+   */
+  protected LinkedHashMap<Object, Object> cachedMap;
+
+  /**
+   * Return the map object representing this LazyJsonMap. Note that the
+   * keyObjects will be Writable primitive objects.
+   *
+   * @return the map object
+   */
+  public Map<Object, Object> getMap() {
+    if (!parsed) {
+      parse();
+    }
+    if (cachedMap == null) {
+      // Use LinkedHashMap to provide deterministic order
+      cachedMap = new LinkedHashMap<Object, Object>();
+    } else {
+      cachedMap.clear();
+    }
+
+    for (int i = 0; i < mapSize; i++) {
+      Object key = uncheckedGetKey(i);
+      // do not overwrite if there are duplicate keys
+      if (key != null && !cachedMap.containsKey(key)) {
+        cachedMap.put(key, uncheckedGetValue(i));
+      }
+    }
+    return cachedMap;
+  }
+
+  /**
+   * Get the size of the map represented by this LazyJsonMap.
+   *
+   * @return The size of the map.
+   */
+  public int getMapSize() {
+    if (!parsed) {
+      parse();
+    }
+    return mapSize;
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDe;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * LazyJsonSerDe reads and writes rows that are JSON objects, one per line,
+ * whose members are the columns of the table.
+ *
+ * Like LazySimpleSerDe, it finds the values of the columns in one scan of the
+ * row and decodes a value only when the column is used. The columns that
+ * ColumnProjectionUtils does not list are not read at all, and the scan stops
+ * once the listed ones have been found. Nested objects and arrays are read
+ * lazily the same way.
+ *
+ * Members are matched to columns by name, ignoring case, and a column without
+ * a member is NULL. A JSON string is read as the primitive type of its column
+ * from its contents, and any other value from its text, so that a string
+ * column can hold the JSON of an object or an array.
+ */
+public class LazyJsonSerDe implements SerDe {
+
+  public static final Log LOG = LogFactory.getLog(LazyJsonSerDe.class
+      .getName());
+
+  public LazyJsonSerDe() throws SerDeException {
+  }
+
+  List<String> columnNames;
+  List<TypeInfo> columnTypes;
+
+  ObjectInspector cachedObjectInspector;
+
+  // The object for storing row data
+  LazyJsonStruct cachedLazyJsonStruct;
+
+  /**
+   * Initialize the SerDe with configuration and table information.
+   */
+  @Override
+  public void initialize(Configuration conf, Properties tbl)
+      throws SerDeException {
+    // Get column names and types
+    String columnNameProperty = tbl.getProperty(Constants.LIST_COLUMNS);
+    String columnTypeProperty = tbl.getProperty(Constants.LIST_COLUMN_TYPES);
+    if (columnNameProperty.length() == 0) {
+      columnNames = new ArrayList<String>();
+    } else {
+      columnNames = Arrays.asList(columnNameProperty.split(","));
+    }
+    if (columnTypeProperty.length() == 0) {
+      columnTypes = new ArrayList<TypeInfo>();
+    } else {
+      columnTypes = TypeInfoUtils
+          .getTypeInfosFromTypeString(columnTypeProperty);
+    }
+    assert (columnNames.size() == columnTypes.size());
+
+    TypeInfo rowTypeInfo = TypeInfoFactory.getStructTypeInfo(columnNames,
+        columnTypes);
+    cachedObjectInspector = LazyJsonFactory
+        .createLazyJsonObjectInspector(rowTypeInfo);
+    cachedLazyJsonStruct = new LazyJsonStruct(
+        (LazyJsonStructObjectInspector) cachedObjectInspector,
+        ColumnProjectionUtils.getReadColumnIDs(conf));
+
+    LOG.debug("LazyJsonSerDe initialized with: columnNames=" + columnNames
+        + " columnTypes=" + columnTypes);
+  }
+
+  /**
+   * Returns the ObjectInspector for the row.
+   */
+  @Override
+  public ObjectInspector getObjectInspector() throws SerDeException {
+    return cachedObjectInspector;
+  }
+
+  /**
+   * Returns the Writable Class after serialization.
+   */
+  @Override
+  public Class<? extends Writable> getSerializedClass() {
+    return Text.class;
+  }
+
+  // The wrapper for byte array
+  ByteArrayRef byteArrayRef;
+
+  /**
+   * Deserialize a row from the Writable to a LazyJsonStruct.
+   */
+  @Override
+  public Object deserialize(Writable field) throws SerDeException {
+    if (byteArrayRef == null) {
+      byteArrayRef = new ByteArrayRef();
+    }
+    if (field instanceof BytesWritable) {
+      BytesWritable b = (BytesWritable) field;
+      // For backward-compatibility with hadoop 0.17
+      byteArrayRef.setData(b.get());
+      cachedLazyJsonStruct.init(byteArrayRef, 0, b.getSize());
+    } else if (field instanceof Text) {
+      Text t = (Text) field;
+      byteArrayRef.setData(t.getBytes());
+      cachedLazyJsonStruct.init(byteArrayRef, 0, t.getLength());
+    } else {
+      throw new SerDeException(getClass().toString()
+          + ": expects either BytesWritable or Text object!");
+    }
+    return cachedLazyJsonStruct;
+  }
+
+  Text serializeCache = new Text();
+  StringBuilder serializeBuilder = new StringBuilder();
+
+  /**
+   * Serialize a row as a JSON object whose members are the columns of the
+   * table. The values are written by SerDeUtils.getJSONString, which leaves
+   * map keys that are not strings unquoted. LazyJsonSerDe reads those back.
+   */
+  @Override
+  public Writable serialize(Object obj, ObjectInspector objInspector)
+      throws SerDeException {
+    if (objInspector.getCategory() != Category.STRUCT) {
+      throw new SerDeException(getClass().toString()
+          + " can only serialize struct types, but we got: "
+          + objInspector.getTypeName());
+    }
+    StructObjectInspector soi = (StructObjectInspector) objInspector;
+    List<? extends StructField> fields = soi.getAllStructFieldRefs();
+    List<Object> list = soi.getStructFieldsDataAsList(obj);
+    if (fields.size() != columnNames.size()) {
+      throw new SerDeException("Error: expecting " + columnNames.size()
+          + " but got " + fields.size() + " fields");
+    }
+
+    serializeBuilder.setLength(0);
+    serializeBuilder.append('{');
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        serializeBuilder.append(',');
+      }
+      serializeBuilder.append('"');
+      serializeBuilder.append(SerDeUtils.escapeString(columnNames.get(i)));
+      serializeBuilder.append("\":");
+      serializeBuilder.append(SerDeUtils.getJSONString(list == null ? null
+          : list.get(i), fields.get(i).getFieldObjectInspector()));
+    }
+    serializeBuilder.append('}');
+    serializeCache.set(serializeBuilder.toString());
+    return serializeCache;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().toString() + "[" + columnNames + ":" + columnTypes
+        + "]";
+  }
+}
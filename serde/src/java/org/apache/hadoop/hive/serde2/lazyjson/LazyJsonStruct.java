@@ -0,0 +1,369 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyNonPrimitive;
+import org.apache.hadoop.hive.serde2.lazy.LazyObject;
+import org.apache.hadoop.hive.serde2.lazy.LazyPrimitive;
+import org.apache.hadoop.hive.serde2.lazyjson.objectinspector.LazyJsonStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.io.Text;
+
+/**
+ * LazyObject for storing a struct read from a JSON object. The members are
+ * matched to the fields by their unescaped name, ignoring case, and a field
+ * without a member is NULL.
+ *
+ * One scan over the object records where the value of each field is, and a
+ * value is only decoded when its field is used. Fields that are not read
+ * can be left out, and the scan stops once the others have been found.
+ */
+public class LazyJsonStruct extends
+    LazyNonPrimitive<LazyJsonStructObjectInspector> {
+
+  private static Log LOG = LogFactory.getLog(LazyJsonStruct.class.getName());
+
+  /**
+   * Whether the data is already parsed or not.
+   */
+  boolean parsed;
+
+  /**
+   * The names of the fields in lower case, as given by foldCase.
+   */
+  byte[][] fieldNames;
+
+  /**
+   * Whether the field is left out, so that it is always NULL.
+   */
+  boolean[] fieldSkipped;
+
+  /**
+   * The number of fields that are not left out.
+   */
+  int readFieldCount;
+
+  /**
+   * The start and end positions of the values of the fields. Only valid when
+   * the data is parsed. The start is -1 for a field without a member.
+   */
+  int[] valueStart;
+  int[] valueEnd;
+
+  /**
+   * The fields of the struct.
+   */
+  LazyObject[] fields;
+
+  /**
+   * Whether init() has been called on the field or not.
+   */
+  boolean[] fieldInited;
+
+  /**
+   * Holds the unescaped strings.
+   */
+  ByteArrayRef scratch = new ByteArrayRef();
+
+  /**
+   * Holds the member names that are escaped or not ASCII, in lower case.
+   */
+  Text foldedName = new Text();
+
+  /**
+   * Construct a LazyJsonStruct object with the ObjectInspector.
+   */
+  public LazyJsonStruct(LazyJsonStructObjectInspector oi) {
+    this(oi, null);
+  }
+
+  /**
+   * Construct a LazyJsonStruct object that reads only some of the fields.
+   *
+   * @param readFieldIDs
+   *          the ids of the fields to read, or null or empty to read all of
+   *          them, as given by ColumnProjectionUtils.getReadColumnIDs
+   */
+  public LazyJsonStruct(LazyJsonStructObjectInspector oi,
+      List<Integer> readFieldIDs) {
+    super(oi);
+    List<? extends StructField> fieldRefs = oi.getAllStructFieldRefs();
+    int num = fieldRefs.size();
+    fieldNames = new byte[num][];
+    fields = new LazyObject[num];
+    fieldSkipped = new boolean[num];
+    for (int i = 0; i < num; i++) {
+      Text name = new Text(foldCase(fieldRefs.get(i).getFieldName()));
+      fieldNames[i] = Arrays.copyOf(name.getBytes(), name.getLength());
+      fields[i] = LazyJsonFactory.createLazyJsonObject(fieldRefs.get(i)
+          .getFieldObjectInspector());
+      fieldSkipped[i] = readFieldIDs != null && !readFieldIDs.isEmpty()
+          && !readFieldIDs.contains(i);
+      if (!fieldSkipped[i]) {
+        readFieldCount++;
+      }
+    }
+    fieldInited = new boolean[num];
+    valueStart = new int[num];
+    valueEnd = new int[num];
+  }
+
+  /**
+   * Set the row data for this LazyJsonStruct.
+   *
+   * @see LazyObject#init(ByteArrayRef, int, int)
+   */
+  @Override
+  public void init(ByteArrayRef bytes, int start, int length) {
+    super.init(bytes, start, length);
+    parsed = false;
+  }
+
+  boolean malformedWarned = false;
+
+  /**
+   * Find the values of the fields in the byte[].
+   */
+  private void parse() {
+    parsed = true;
+    Arrays.fill(valueStart, -1);
+    Arrays.fill(fieldInited, false);
+
+    byte[] bytes = this.bytes.getData();
+    int end = start + length;
+    int pos = LazyJsonUtils.skipWhitespace(bytes, start, end);
+    if (pos == end || bytes[pos] != '{') {
+      malformed(pos);
+      return;
+    }
+    pos = LazyJsonUtils.skipWhitespace(bytes, pos + 1, end);
+    if (pos < end && bytes[pos] == '}') {
+      return;
+    }
+
+    int found = 0;
+    int nextField = 0;
+    while (pos < end) {
+      // the name, which may be left unquoted
+      int nameStart = pos;
+      int nameEnd = LazyJsonUtils.skipValue(bytes, pos, end);
+      if (nameEnd < 0) {
+        break;
+      }
+      pos = LazyJsonUtils.skipWhitespace(bytes, nameEnd, end);
+      if (pos == end || bytes[pos] != ':') {
+        break;
+      }
+      if (bytes[nameStart] == '"') {
+        nameStart++;
+        nameEnd--;
+      }
+
+      int begin = LazyJsonUtils.skipWhitespace(bytes, pos + 1, end);
+      int finish = LazyJsonUtils.skipValue(bytes, begin, end);
+      if (finish < 0) {
+        break;
+      }
+
+      // members usually come in the order of the fields
+      int field = findField(bytes, nameStart, nameEnd, nextField);
+      if (field >= 0) {
+        nextField = field + 1;
+        // the first member of a name wins, as in LazyMap
+        if (!fieldSkipped[field] && valueStart[field] < 0) {
+          valueStart[field] = begin;
+          valueEnd[field] = finish;
+          if (++found == readFieldCount) {
+            return;
+          }
+        }
+      }
+
+      pos = LazyJsonUtils.skipWhitespace(bytes, finish, end);
+      if (pos < end && bytes[pos] == '}') {
+        return;
+      }
+      if (pos == end || bytes[pos] != ',') {
+        break;
+      }
+      pos = LazyJsonUtils.skipWhitespace(bytes, pos + 1, end);
+    }
+    malformed(pos);
+  }
+
+  /**
+   * Warns once about a row that is not a JSON object. The fields that were
+   * not found before pos are NULL.
+   */
+  private void malformed(int pos) {
+    if (!malformedWarned
+        && !LazyJsonUtils.isNull(bytes.getData(), start, start + length)) {
+      malformedWarned = true;
+      LOG.warn("Malformed JSON object at byte " + (pos - start)
+          + "! Ignoring similar problems.");
+    }
+  }
+
+  /**
+   * Lower cases a name one character at a time, without regard to the
+   * locale, so that the field names and the member names compare the same
+   * way.
+   */
+  static String foldCase(String name) {
+    StringBuilder folded = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); ) {
+      int c = name.codePointAt(i);
+      folded.appendCodePoint(Character.toLowerCase(c));
+      i += Character.charCount(c);
+    }
+    return folded.toString();
+  }
+
+  private int findField(byte[] bytes, int nameStart, int nameEnd,
+      int nextField) {
+    boolean ascii = true;
+    boolean escaped = false;
+    for (int i = nameStart; i < nameEnd; i++) {
+      ascii &= bytes[i] >= 0;
+      escaped |= bytes[i] == '\\';
+    }
+    if (!ascii || escaped) {
+      // the name is unescaped and folded in full, and then compared as is
+      if (escaped) {
+        int length = LazyJsonUtils.unescape(bytes, nameStart, nameEnd, scratch);
+        foldedName.set(scratch.getData(), 0, length);
+      } else {
+        foldedName.set(bytes, nameStart, nameEnd - nameStart);
+      }
+      foldedName.set(foldCase(foldedName.toString()));
+      bytes = foldedName.getBytes();
+      nameStart = 0;
+      nameEnd = foldedName.getLength();
+    }
+    if (nextField < fieldNames.length
+        && nameEquals(fieldNames[nextField], bytes, nameStart, nameEnd)) {
+      return nextField;
+    }
+    for (int i = 0; i < fieldNames.length; i++) {
+      if (nameEquals(fieldNames[i], bytes, nameStart, nameEnd)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean nameEquals(byte[] fieldName, byte[] bytes,
+      int nameStart, int nameEnd) {
+    if (fieldName.length != nameEnd - nameStart) {
+      return false;
+    }
+    for (int i = 0; i < fieldName.length; i++) {
+      byte b = bytes[nameStart + i];
+      if (b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      if (b != fieldName[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get one field out of the struct.
+   *
+   * If the field is a primitive field, return the actual object. Otherwise
+   * return the LazyObject.
+   *
+   * @param fieldID
+   *          The field ID
+   * @return The field as a LazyObject
+   */
+  public Object getField(int fieldID) {
+    if (!parsed) {
+      parse();
+    }
+    return uncheckedGetField(fieldID);
+  }
+
+  /**
+   * Get the field out of the row without checking parsed. This is called by
+   * both getField and getFieldsAsList.
+   */
+  private Object uncheckedGetField(int fieldID) {
+    int start = valueStart[fieldID];
+    if (start < 0) {
+      return null;
+    }
+    int end = valueEnd[fieldID];
+    LazyObject field = fields[fieldID];
+    if (field instanceof LazyPrimitive) {
+      if (!fieldInited[fieldID]) {
+        fieldInited[fieldID] = true;
+        return LazyJsonUtils.initPrimitive((LazyPrimitive<?, ?>) field, bytes,
+            start, end, scratch);
+      }
+      return LazyJsonUtils.isNull(bytes.getData(), start, end) ? null : field
+          .getObject();
+    }
+    if (!LazyJsonFactory.isContainerOf(field, bytes.getData()[start])) {
+      // null, or a value that does not have the type of the field
+      return null;
+    }
+    if (!fieldInited[fieldID]) {
+      fieldInited[fieldID] = true;
+      field.init(bytes, start, end - start);
+    }
+    return field.getObject();
+  }
+
+  ArrayList<Object> cachedList;
+
+  /**
+   * Get the values of the fields as an ArrayList.
+   *
+   * @return The values of the fields as an ArrayList.
+   */
+  public ArrayList<Object> getFieldsAsList() {
+    if (!parsed) {
+      parse();
+    }
+    if (cachedList == null) {
+      cachedList = new ArrayList<Object>();
+    } else {
+      cachedList.clear();
+    }
+    for (int i = 0; i < fields.length; i++) {
+      cachedList.add(uncheckedGetField(i));
+    }
+    return cachedList;
+  }
+
+  @Override
+  public Object getObject() {
+    return this;
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
+import org.apache.hadoop.hive.serde2.lazy.LazyPrimitive;
+
+/**
+ * LazyJsonUtils scans JSON text. Values are found by matching up quotes and
+ * brackets only, so that a value is not decoded until it is used.
+ */
+public final class LazyJsonUtils {
+
+  /**
+   * Returns the position of the first byte from pos on that is not white
+   * space, or end.
+   */
+  public static int skipWhitespace(byte[] bytes, int pos, int end) {
+    while (pos < end && bytes[pos] >= 0 && bytes[pos] <= ' ') {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Returns the position after the value that starts at pos: a string, an
+   * object, an array, or an unquoted token such as a number, true, false or
+   * null.
+   *
+   * @return the end of the value, or -1 if it is not complete
+   */
+  public static int skipValue(byte[] bytes, int pos, int end) {
+    if (pos >= end) {
+      return -1;
+    }
+    byte b = bytes[pos];
+    if (b == '"') {
+      return skipString(bytes, pos, end);
+    }
+    if (b == '{' || b == '[') {
+      int depth = 0;
+      while (pos < end) {
+        b = bytes[pos];
+        if (b == '"') {
+          pos = skipString(bytes, pos, end);
+          if (pos < 0) {
+            return -1;
+          }
+          continue;
+        }
+        if (b == '{' || b == '[') {
+          depth++;
+        } else if ((b == '}' || b == ']') && --depth == 0) {
+          return pos + 1;
+        }
+        pos++;
+      }
+      return -1;
+    }
+    int start = pos;
+    while (pos < end && !isTokenEnd(bytes[pos])) {
+      pos++;
+    }
+    return pos == start ? -1 : pos;
+  }
+
+  /**
+   * Returns the position after the string whose opening quote is at pos.
+   *
+   * @return the end of the string, or -1 if it is not closed
+   */
+  public static int skipString(byte[] bytes, int pos, int end) {
+    pos++;
+    while (pos < end) {
+      byte b = bytes[pos];
+      if (b == '"') {
+        return pos + 1;
+      }
+      pos += b == '\\' ? 2 : 1;
+    }
+    return -1;
+  }
+
+  private static boolean isTokenEnd(byte b) {
+    return (b >= 0 && b <= ' ') || b == ',' || b == ':' || b == '}'
+        || b == ']' || b == '{' || b == '[' || b == '"';
+  }
+
+  /**
+   * Whether the value between start and end is null.
+   */
+  public static boolean isNull(byte[] bytes, int start, int end) {
+    return end - start == 4 && bytes[start] == 'n' && bytes[start + 1] == 'u'
+        && bytes[start + 2] == 'l' && bytes[start + 3] == 'l';
+  }
+
+  /**
+   * Initializes a primitive with the value between start and end. A string
+   * gives its unescaped contents, which are put in scratch if they have
+   * escapes, and any other value gives its text, so an object or an array
+   * read as a string keeps its JSON.
+   *
+   * @return the object of the primitive, or null if the value is null or
+   *         cannot be read as the primitive
+   */
+  public static Object initPrimitive(LazyPrimitive<?, ?> primitive,
+      ByteArrayRef bytes, int start, int end, ByteArrayRef scratch) {
+    byte[] data = bytes.getData();
+    if (data[start] == '"' && end - start >= 2) {
+      start++;
+      end--;
+      for (int i = start; i < end; i++) {
+        if (data[i] == '\\') {
+          primitive.init(scratch, 0, unescape(data, start, end, scratch));
+          return primitive.getObject();
+        }
+      }
+    } else if (isNull(data, start, end)) {
+      return null;
+    }
+    primitive.init(bytes, start, end - start);
+    return primitive.getObject();
+  }
+
+  /**
+   * Resolves the escapes of the string contents between start and end into
+   * buffer, whose data is replaced if it is too small.
+   *
+   * @return the length of the unescaped string
+   */
+  public static int unescape(byte[] bytes, int start, int end,
+      ByteArrayRef buffer) {
+    // the unescaped string is never longer than the escaped one
+    byte[] out = buffer.getData();
+    if (out == null || out.length < end - start) {
+      out = new byte[end - start];
+      buffer.setData(out);
+    }
+    int length = 0;
+    int pos = start;
+    while (pos < end) {
+      byte b = bytes[pos++];
+      if (b != '\\' || pos == end) {
+        out[length++] = b;
+        continue;
+      }
+      b = bytes[pos++];
+      switch (b) {
+      case 'b':
+        out[length++] = '\b';
+        break;
+      case 'f':
+        out[length++] = '\f';
+        break;
+      case 'n':
+        out[length++] = '\n';
+        break;
+      case 'r':
+        out[length++] = '\r';
+        break;
+      case 't':
+        out[length++] = '\t';
+        break;
+      case 'u':
+        int c = parseHex(bytes, pos, end);
+        if (c < 0) {
+          // not an escape after all
+          out[length++] = '\\';
+          out[length++] = 'u';
+          break;
+        }
+        pos += 4;
+        if (c >= 0xD800 && c <= 0xDBFF && pos + 6 <= end
+            && bytes[pos] == '\\' && bytes[pos + 1] == 'u') {
+          int low = parseHex(bytes, pos + 2, end);
+          if (low >= 0xDC00 && low <= 0xDFFF) {
+            pos += 6;
+            length = putCodePoint(out, length,
+                0x10000 + ((c - 0xD800) << 10) + (low - 0xDC00));
+            break;
+          }
+        }
+        if (c >= 0xD800 && c <= 0xDFFF) {
+          // an unpaired surrogate
+          c = 0xFFFD;
+        }
+        length = putCodePoint(out, length, c);
+        break;
+      default:
+        // \" \\ \/ and anything else stand for the character itself
+        out[length++] = b;
+        break;
+      }
+    }
+    return length;
+  }
+
+  private static int parseHex(byte[] bytes, int pos, int end) {
+    if (pos + 4 > end) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = pos; i < pos + 4; i++) {
+      int digit = Character.digit(bytes[i], 16);
+      if (digit < 0) {
+        return -1;
+      }
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  private static int putCodePoint(byte[] out, int length, int c) {
+    if (c < 0x80) {
+      out[length++] = (byte) c;
+    } else if (c < 0x800) {
+      out[length++] = (byte) (0xC0 | (c >> 6));
+      out[length++] = (byte) (0x80 | (c & 0x3F));
+    } else if (c < 0x10000) {
+      out[length++] = (byte) (0xE0 | (c >> 12));
+      out[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      out[length++] = (byte) (0x80 | (c & 0x3F));
+    } else {
+      out[length++] = (byte) (0xF0 | (c >> 18));
+      out[length++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+      out[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      out[length++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return length;
+  }
+
+  private LazyJsonUtils() {
+    // prevent instantiation
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson.objectinspector;
+
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.lazyjson.LazyJsonMap;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardMapObjectInspector;
+
+/**
+ * ObjectInspector for LazyJsonMap.
+ *
+ * @see LazyJsonMap
+ */
+public class LazyJsonMapObjectInspector extends StandardMapObjectInspector {
+
+  protected LazyJsonMapObjectInspector(ObjectInspector mapKeyObjectInspector,
+      ObjectInspector mapValueObjectInspector) {
+    super(mapKeyObjectInspector, mapValueObjectInspector);
+  }
+
+  @Override
+  public Map<?, ?> getMap(Object data) {
+    if (data == null) {
+      return null;
+    }
+    return ((LazyJsonMap) data).getMap();
+  }
+
+  @Override
+  public int getMapSize(Object data) {
+    if (data == null) {
+      return -1;
+    }
+    return ((LazyJsonMap) data).getMapSize();
+  }
+
+  @Override
+  public Object getMapValueElement(Object data, Object key) {
+    if (data == null) {
+      return null;
+    }
+    return ((LazyJsonMap) data).getMapValueElement(key);
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.lazyjson.objectinspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.InternCache;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+
+/**
+ * ObjectInspectorFactory is the primary way to create new ObjectInspector
+ * instances.
+ *
+ * SerDe classes should call the static functions in this library to create an
+ * ObjectInspector to return to the caller of SerDe2.getObjectInspector().
+ *
+ * The reason of having caches here is that ObjectInspectors do not have an
+ * internal state - so ObjectInspectors with the same construction parameters
+ * should result in exactly the same ObjectInspector.
+ */
+public final class LazyJsonObjectInspectorFactory {
+
+  static InternCache<ArrayList<Object>, LazyJsonStructObjectInspector> cachedLazyJsonStructObjectInspector = new InternCache<ArrayList<Object>, LazyJsonStructObjectInspector>();
+
+  public static LazyJsonStructObjectInspector getLazyJsonStructObjectInspector(
+      List<String> structFieldNames,
+      List<ObjectInspector> structFieldObjectInspectors) {
+    ArrayList<Object> signature = new ArrayList<Object>();
+    signature.add(structFieldNames);
+    signature.add(structFieldObjectInspectors);
+    LazyJsonStructObjectInspector result = cachedLazyJsonStructObjectInspector
+        .get(signature);
+    if (result == null) {
+      result = new LazyJsonStructObjectInspector(structFieldNames,
+          structFieldObjectInspectors);
+      result = cachedLazyJsonStructObjectInspector.intern(signature, result);
+    }
+    return result;
+  }
+
+  static InternCache<ArrayList<Object>, LazyJsonListObjectInspector> cachedLazyJsonListObjectInspector = new InternCache<ArrayList<Object>, LazyJsonListObjectInspector>();
+
+  public static LazyJsonListObjectInspector getLazyJsonListObjectInspector(
+      ObjectInspector listElementObjectInspector) {
+    ArrayList<Object> signature = new ArrayList<Object>();
+    signature.add(listElementObjectInspector);
+    LazyJsonListObjectInspector result = cachedLazyJsonListObjectInspector
+        .get(signature);
+    if (result == null) {
+      result = new LazyJsonListObjectInspector(listElementObjectInspector);
+      result = cachedLazyJsonListObjectInspector.intern(signature, result);
+    }
+    return result;
+  }
+
+  static InternCache<ArrayList<Object>, LazyJsonMapObjectInspector> cachedLazyJsonMapObjectInspector = new InternCache<ArrayList<Object>, LazyJsonMapObjectInspector>();
+
+  public static LazyJsonMapObjectInspector getLazyJsonMapObjectInspector(
+      ObjectInspector mapKeyObjectInspector,
+      ObjectInspector mapValueObjectInspector) {
+    ArrayList<Object> signature = new ArrayList<Object>();
+    signature.add(mapKeyObjectInspector);
+    signature.add(mapValueObjectInspector);
+    LazyJsonMapObjectInspector result = cachedLazyJsonMapObjectInspector
+        .get(signature);
+    if (result == null) {
+      result = new LazyJsonMapObjectInspector(mapKeyObjectInspector,
+          mapValueObjectInspector);
+      result = cachedLazyJsonMapObjectInspector.intern(signature, result);
+    }
+    return result;
+  }
+
+  private LazyJsonObjectInspectorFactory() {
+    // prevent instantiation
+  }
+}
@@ -23,12 +23,12 @@ import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.hadoop.hive.serde2.columnar.ColumnarStruct;
+import org.apache.hadoop.hive.serde2.columnar.ColumnarStructBase;
 import org.apache.hadoop.io.Text;
 
 /**
  * ColumnarStructObjectInspector works on struct data that is stored in
- * ColumnarStruct.
+ * ColumnarStruct or LazyBinaryColumnarStruct.
  *
  * The names of the struct fields and the internal structure of the struct
  * fields are specified in the ctor of the ColumnarStructObjectInspector.
@@ -138,7 +138,7 @@ class ColumnarStructObjectInspector extends StructObjectInspector {
     if (data == null) {
       return null;
     }
-    ColumnarStruct struct = (ColumnarStruct) data;
+    ColumnarStructBase struct = (ColumnarStructBase) data;
     MyField f = (MyField) fieldRef;
 
     int fieldID = f.getFieldID();
@@ -152,7 +152,7 @@ class ColumnarStructObjectInspector extends StructObjectInspector {
     if (data == null) {
       return null;
     }
-    ColumnarStruct struct = (ColumnarStruct) data;
+    ColumnarStructBase struct = (ColumnarStructBase) data;
     return struct.getFieldsAsList();
   }
 }
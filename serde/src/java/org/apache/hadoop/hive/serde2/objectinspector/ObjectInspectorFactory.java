@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 import org.apache.hadoop.io.Text;
@@ -52,7 +53,7 @@ public final class ObjectInspectorFactory {
    * __isset fields, PROTOCOL_BUFFERS filters out has*.
    * New ObjectInspectorOptions can be added here when available.
    *
-   * We choose to use a single HashMap objectInspectorCache to cache all
+   * We choose to use a single objectInspectorCache to cache all
    * situations for efficiency and code simplicity. And we don't expect a case
    * that a user need to create 2 or more different types of ObjectInspectors
    * for the same Java type.
@@ -61,14 +62,23 @@ public final class ObjectInspectorFactory {
     JAVA, THRIFT, PROTOCOL_BUFFERS
   };
 
-  private static HashMap<Type, ObjectInspector> objectInspectorCache = new HashMap<Type, ObjectInspector>();
+  private static InternCache<Type, ObjectInspector> objectInspectorCache = new InternCache<Type, ObjectInspector>();
+
+  /**
+   * The ObjectInspectors that are being created by reflection. Struct
+   * ObjectInspectors are put here before they are initialized so that
+   * recursive types can be resolved, and are only moved to
+   * objectInspectorCache when the outermost type is complete, so that other
+   * threads never see one that is half initialized. Guarded by itself.
+   */
+  private static final HashMap<Type, ObjectInspector> reflectionInProgress = new HashMap<Type, ObjectInspector>();
+  private static int reflectionDepth = 0;
 
   public static ObjectInspector getReflectionObjectInspector(Type t,
       ObjectInspectorOptions options) {
     ObjectInspector oi = objectInspectorCache.get(t);
     if (oi == null) {
-      oi = getReflectionObjectInspectorNoCache(t, options);
-      objectInspectorCache.put(t, oi);
+      oi = getReflectionObjectInspectorSynchronized(t, options);
     }
     verifyObjectInspector(options, oi, ObjectInspectorOptions.JAVA, new Class[]{ThriftStructObjectInspector.class,
       ProtocolBuffersStructObjectInspector.class});
@@ -101,6 +111,37 @@ public final class ObjectInspectorFactory {
     }
   }
 
+  private static ObjectInspector getReflectionObjectInspectorSynchronized(
+      Type t, ObjectInspectorOptions options) {
+    synchronized (reflectionInProgress) {
+      ObjectInspector oi = objectInspectorCache.get(t);
+      if (oi == null) {
+        oi = reflectionInProgress.get(t);
+      }
+      if (oi != null) {
+        return oi;
+      }
+      boolean success = false;
+      reflectionDepth++;
+      try {
+        oi = getReflectionObjectInspectorNoCache(t, options);
+        reflectionInProgress.put(t, oi);
+        success = true;
+      } finally {
+        if (--reflectionDepth == 0) {
+          if (success) {
+            for (Map.Entry<Type, ObjectInspector> entry : reflectionInProgress
+                .entrySet()) {
+              objectInspectorCache.intern(entry.getKey(), entry.getValue());
+            }
+          }
+          reflectionInProgress.clear();
+        }
+      }
+      return oi;
+    }
+  }
+
   private static ObjectInspector getReflectionObjectInspectorNoCache(Type t,
       ObjectInspectorOptions options) {
     if (t instanceof GenericArrayType) {
@@ -178,7 +219,7 @@ public final class ObjectInspectorFactory {
     }
     // put it into the cache BEFORE it is initialized to make sure we can catch
     // recursive types.
-    objectInspectorCache.put(t, oi);
+    reflectionInProgress.put(t, oi);
     Field[] fields = ObjectInspectorUtils.getDeclaredNonStaticFields(c);
     ArrayList<ObjectInspector> structFieldObjectInspectors = new ArrayList<ObjectInspector>(
         fields.length);
@@ -192,7 +233,7 @@ public final class ObjectInspectorFactory {
     return oi;
   }
 
-  static HashMap<ObjectInspector, StandardListObjectInspector> cachedStandardListObjectInspector = new HashMap<ObjectInspector, StandardListObjectInspector>();
+  static InternCache<ObjectInspector, StandardListObjectInspector> cachedStandardListObjectInspector = new InternCache<ObjectInspector, StandardListObjectInspector>();
 
   public static StandardListObjectInspector getStandardListObjectInspector(
       ObjectInspector listElementObjectInspector) {
@@ -200,12 +241,12 @@ public final class ObjectInspectorFactory {
         .get(listElementObjectInspector);
     if (result == null) {
       result = new StandardListObjectInspector(listElementObjectInspector);
-      cachedStandardListObjectInspector.put(listElementObjectInspector, result);
+      result = cachedStandardListObjectInspector.intern(listElementObjectInspector, result);
     }
     return result;
   }
 
-  static HashMap<List<ObjectInspector>, StandardMapObjectInspector> cachedStandardMapObjectInspector = new HashMap<List<ObjectInspector>, StandardMapObjectInspector>();
+  static InternCache<List<ObjectInspector>, StandardMapObjectInspector> cachedStandardMapObjectInspector = new InternCache<List<ObjectInspector>, StandardMapObjectInspector>();
 
   public static StandardMapObjectInspector getStandardMapObjectInspector(
       ObjectInspector mapKeyObjectInspector,
@@ -218,14 +259,14 @@ public final class ObjectInspectorFactory {
     if (result == null) {
       result = new StandardMapObjectInspector(mapKeyObjectInspector,
           mapValueObjectInspector);
-      cachedStandardMapObjectInspector.put(signature, result);
+      result = cachedStandardMapObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<List<ObjectInspector>, StandardUnionObjectInspector>
+  static InternCache<List<ObjectInspector>, StandardUnionObjectInspector>
     cachedStandardUnionObjectInspector =
-      new HashMap<List<ObjectInspector>, StandardUnionObjectInspector>();
+      new InternCache<List<ObjectInspector>, StandardUnionObjectInspector>();
 
   public static StandardUnionObjectInspector getStandardUnionObjectInspector(
       List<ObjectInspector> unionObjectInspectors) {
@@ -233,12 +274,12 @@ public final class ObjectInspectorFactory {
         .get(unionObjectInspectors);
     if (result == null) {
       result = new StandardUnionObjectInspector(unionObjectInspectors);
-      cachedStandardUnionObjectInspector.put(unionObjectInspectors, result);
+      result = cachedStandardUnionObjectInspector.intern(unionObjectInspectors, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<List<?>>, StandardStructObjectInspector> cachedStandardStructObjectInspector = new HashMap<ArrayList<List<?>>, StandardStructObjectInspector>();
+  static InternCache<ArrayList<List<?>>, StandardStructObjectInspector> cachedStandardStructObjectInspector = new InternCache<ArrayList<List<?>>, StandardStructObjectInspector>();
 
   public static StandardStructObjectInspector getStandardStructObjectInspector(
       List<String> structFieldNames,
@@ -251,12 +292,12 @@ public final class ObjectInspectorFactory {
     if (result == null) {
       result = new StandardStructObjectInspector(structFieldNames,
           structFieldObjectInspectors);
-      cachedStandardStructObjectInspector.put(signature, result);
+      result = cachedStandardStructObjectInspector.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<List<StructObjectInspector>, UnionStructObjectInspector> cachedUnionStructObjectInspector = new HashMap<List<StructObjectInspector>, UnionStructObjectInspector>();
+  static InternCache<List<StructObjectInspector>, UnionStructObjectInspector> cachedUnionStructObjectInspector = new InternCache<List<StructObjectInspector>, UnionStructObjectInspector>();
 
   public static UnionStructObjectInspector getUnionStructObjectInspector(
       List<StructObjectInspector> structObjectInspectors) {
@@ -264,12 +305,12 @@ public final class ObjectInspectorFactory {
         .get(structObjectInspectors);
     if (result == null) {
       result = new UnionStructObjectInspector(structObjectInspectors);
-      cachedUnionStructObjectInspector.put(structObjectInspectors, result);
+      result = cachedUnionStructObjectInspector.intern(structObjectInspectors, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<Object>, ColumnarStructObjectInspector> cachedColumnarStructObjectInspector = new HashMap<ArrayList<Object>, ColumnarStructObjectInspector>();
+  static InternCache<ArrayList<Object>, ColumnarStructObjectInspector> cachedColumnarStructObjectInspector = new InternCache<ArrayList<Object>, ColumnarStructObjectInspector>();
 
   public static ColumnarStructObjectInspector getColumnarStructObjectInspector(
       List<String> structFieldNames,
@@ -277,17 +318,28 @@ public final class ObjectInspectorFactory {
     ArrayList<Object> signature = new ArrayList<Object>();
     signature.add(structFieldNames);
     signature.add(structFieldObjectInspectors);
-    signature.add(nullSequence.toString());
+    signature.add(nullSequence == null ? null : nullSequence.toString());
     ColumnarStructObjectInspector result = cachedColumnarStructObjectInspector
         .get(signature);
     if (result == null) {
       result = new ColumnarStructObjectInspector(structFieldNames,
           structFieldObjectInspectors, nullSequence);
-      cachedColumnarStructObjectInspector.put(signature, result);
+      result = cachedColumnarStructObjectInspector.intern(signature, result);
     }
     return result;
   }
 
+  /**
+   * Get a ColumnarStructObjectInspector for columns that do not use a null
+   * sequence, such as the binary columns of LazyBinaryColumnarSerDe.
+   */
+  public static ColumnarStructObjectInspector getColumnarStructObjectInspector(
+      List<String> structFieldNames,
+      List<ObjectInspector> structFieldObjectInspectors) {
+    return getColumnarStructObjectInspector(structFieldNames,
+        structFieldObjectInspectors, null);
+  }
+
   private ObjectInspectorFactory() {
     // prevent instantiation
   }
@@ -19,10 +19,10 @@
 package org.apache.hadoop.hive.serde2.typeinfo;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 
 /**
@@ -34,7 +34,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
  */
 public final class TypeInfoFactory {
 
-  static HashMap<String, TypeInfo> cachedPrimitiveTypeInfo = new HashMap<String, TypeInfo>();
+  static InternCache<String, TypeInfo> cachedPrimitiveTypeInfo = new InternCache<String, TypeInfo>();
 
   private TypeInfoFactory() {
     // prevent instantiation
@@ -48,7 +48,7 @@ public final class TypeInfoFactory {
     TypeInfo result = cachedPrimitiveTypeInfo.get(typeName);
     if (result == null) {
       result = new PrimitiveTypeInfo(typeName);
-      cachedPrimitiveTypeInfo.put(typeName, result);
+      result = cachedPrimitiveTypeInfo.intern(typeName, result);
     }
     return result;
   }
@@ -81,8 +81,8 @@ public final class TypeInfoFactory {
         .getTypeNameFromPrimitiveJava(clazz));
   }
 
-  static HashMap<ArrayList<List<?>>, TypeInfo> cachedStructTypeInfo =
-    new HashMap<ArrayList<List<?>>, TypeInfo>();
+  static InternCache<ArrayList<List<?>>, TypeInfo> cachedStructTypeInfo =
+    new InternCache<ArrayList<List<?>>, TypeInfo>();
 
   public static TypeInfo getStructTypeInfo(List<String> names,
       List<TypeInfo> typeInfos) {
@@ -92,36 +92,36 @@ public final class TypeInfoFactory {
     TypeInfo result = cachedStructTypeInfo.get(signature);
     if (result == null) {
       result = new StructTypeInfo(names, typeInfos);
-      cachedStructTypeInfo.put(signature, result);
+      result = cachedStructTypeInfo.intern(signature, result);
     }
     return result;
   }
 
-  static HashMap<List<?>, TypeInfo> cachedUnionTypeInfo =
-    new HashMap<List<?>, TypeInfo>();
+  static InternCache<List<?>, TypeInfo> cachedUnionTypeInfo =
+    new InternCache<List<?>, TypeInfo>();
 
   public static TypeInfo getUnionTypeInfo(List<TypeInfo> typeInfos) {
     TypeInfo result = cachedUnionTypeInfo.get(typeInfos);
     if (result == null) {
       result = new UnionTypeInfo(typeInfos);
-      cachedUnionTypeInfo.put(typeInfos, result);
+      result = cachedUnionTypeInfo.intern(typeInfos, result);
     }
     return result;
   }
 
-  static HashMap<TypeInfo, TypeInfo> cachedListTypeInfo = new HashMap<TypeInfo, TypeInfo>();
+  static InternCache<TypeInfo, TypeInfo> cachedListTypeInfo = new InternCache<TypeInfo, TypeInfo>();
 
   public static TypeInfo getListTypeInfo(TypeInfo elementTypeInfo) {
     TypeInfo result = cachedListTypeInfo.get(elementTypeInfo);
     if (result == null) {
       result = new ListTypeInfo(elementTypeInfo);
-      cachedListTypeInfo.put(elementTypeInfo, result);
+      result = cachedListTypeInfo.intern(elementTypeInfo, result);
     }
     return result;
   }
 
-  static HashMap<ArrayList<TypeInfo>, TypeInfo> cachedMapTypeInfo =
-    new HashMap<ArrayList<TypeInfo>, TypeInfo>();
+  static InternCache<ArrayList<TypeInfo>, TypeInfo> cachedMapTypeInfo =
+    new InternCache<ArrayList<TypeInfo>, TypeInfo>();
 
   public static TypeInfo getMapTypeInfo(TypeInfo keyTypeInfo,
       TypeInfo valueTypeInfo) {
@@ -131,7 +131,7 @@ public final class TypeInfoFactory {
     TypeInfo result = cachedMapTypeInfo.get(signature);
     if (result == null) {
       result = new MapTypeInfo(keyTypeInfo, valueTypeInfo);
-      cachedMapTypeInfo.put(signature, result);
+      result = cachedMapTypeInfo.intern(signature, result);
     }
     return result;
   };
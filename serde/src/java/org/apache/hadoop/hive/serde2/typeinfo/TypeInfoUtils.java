@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.InternCache;
 import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
@@ -383,8 +384,8 @@ public final class TypeInfoUtils {
 
   }
 
-  static HashMap<TypeInfo, ObjectInspector> cachedStandardObjectInspector =
-      new HashMap<TypeInfo, ObjectInspector>();
+  static InternCache<TypeInfo, ObjectInspector> cachedStandardObjectInspector =
+      new InternCache<TypeInfo, ObjectInspector>();
 
   /**
    * Returns the standard object inspector that can be used to translate an
@@ -455,13 +456,15 @@ public final class TypeInfoUtils {
         result = null;
       }
       }
-      cachedStandardObjectInspector.put(typeInfo, result);
+      if (result != null) {
+        result = cachedStandardObjectInspector.intern(typeInfo, result);
+      }
     }
     return result;
   }
 
-  static HashMap<TypeInfo, ObjectInspector> cachedStandardJavaObjectInspector =
-      new HashMap<TypeInfo, ObjectInspector>();
+  static InternCache<TypeInfo, ObjectInspector> cachedStandardJavaObjectInspector =
+      new InternCache<TypeInfo, ObjectInspector>();
 
   /**
    * Returns the standard object inspector that can be used to translate an
@@ -533,7 +536,9 @@ public final class TypeInfoUtils {
         result = null;
       }
       }
-      cachedStandardJavaObjectInspector.put(typeInfo, result);
+      if (result != null) {
+        result = cachedStandardJavaObjectInspector.intern(typeInfo, result);
+      }
     }
     return result;
   }
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.serde2.objectinspector.MyStruct;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * TestInternCache.
+ *
+ */
+public class TestInternCache extends TestCase {
+
+  private static final int NUM_TYPES = 200;
+
+  private static String typeString(int i) {
+    return "struct<a" + i + ":int,b" + i + ":array<string>,c" + i
+        + ":map<string,struct<d:bigint,e:double>>>";
+  }
+
+  /**
+   * Parses the test types and builds their ObjectInspectors, the way query
+   * compilation does, and returns the ObjectInspectors.
+   */
+  private static ObjectInspector[] compileTypes() {
+    ObjectInspector[] result = new ObjectInspector[NUM_TYPES];
+    for (int i = 0; i < NUM_TYPES; i++) {
+      TypeInfo typeInfo = TypeInfoUtils.getTypeInfoFromTypeString(typeString(i));
+      result[i] = TypeInfoUtils
+          .getStandardWritableObjectInspectorFromTypeInfo(typeInfo);
+    }
+    return result;
+  }
+
+  /**
+   * Runs the task on the given number of threads at once and rethrows the
+   * first error.
+   */
+  private static void runConcurrently(int numThreads, final Runnable task)
+      throws Throwable {
+    final Throwable[] error = new Throwable[1];
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < numThreads; i++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            task.run();
+          } catch (Throwable e) {
+            synchronized (error) {
+              error[0] = e;
+            }
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    if (error[0] != null) {
+      throw error[0];
+    }
+  }
+
+  public void testIntern() {
+    InternCache<String, Object> cache = new InternCache<String, Object>(2);
+    Object a = new Object();
+    Object b = new Object();
+    assertNull(cache.get("a"));
+    assertSame(a, cache.intern("a", a));
+    assertSame(a, cache.intern("a", new Object()));
+    assertSame(a, cache.get("a"));
+    assertSame(b, cache.intern("b", b));
+    assertEquals(2, cache.size());
+
+    // the cache is full: new values are returned but not cached
+    Object c = new Object();
+    assertSame(c, cache.intern("c", c));
+    assertNull(cache.get("c"));
+    assertSame(b, cache.intern("b", new Object()));
+    assertEquals(2, cache.size());
+  }
+
+  public void testConcurrentCompile() throws Throwable {
+    final ObjectInspector[][] results = new ObjectInspector[8][];
+    final int[] next = new int[1];
+    runConcurrently(results.length, new Runnable() {
+      public void run() {
+        int id;
+        synchronized (next) {
+          id = next[0]++;
+        }
+        results[id] = compileTypes();
+      }
+    });
+    // every thread must have got the same instances
+    for (int i = 1; i < results.length; i++) {
+      for (int j = 0; j < NUM_TYPES; j++) {
+        assertSame(results[0][j], results[i][j]);
+      }
+    }
+  }
+
+  public void testConcurrentReflection() throws Throwable {
+    final StructObjectInspector[] results = new StructObjectInspector[8];
+    final int[] next = new int[1];
+    runConcurrently(results.length, new Runnable() {
+      public void run() {
+        int id;
+        synchronized (next) {
+          id = next[0]++;
+        }
+        results[id] = (StructObjectInspector) ObjectInspectorFactory
+            .getReflectionObjectInspector(MyStruct.class,
+            ObjectInspectorFactory.ObjectInspectorOptions.JAVA);
+      }
+    });
+    for (int i = 0; i < results.length; i++) {
+      assertSame(results[0], results[i]);
+      // the recursive field must see the fully initialized struct
+      assertSame(results[i], results[i].getStructFieldRef("myStruct")
+          .getFieldObjectInspector());
+      assertEquals(6, results[i].getAllStructFieldRefs().size());
+    }
+  }
+}
@@ -0,0 +1,431 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.Text;
+
+/**
+ * TestLazyBinaryColumnarSerDe.
+ *
+ */
+public class TestLazyBinaryColumnarSerDe extends TestCase {
+
+  private static final String COLUMNS = "b,i,l,d,s,a,m,st";
+  private static final String TYPES = "boolean,int,bigint,double,string,"
+      + "array<string>,map<string,int>,struct<x:int,y:string>";
+
+  private static final String SHREDDED_COLUMNS = "i,st,m,as";
+  private static final String SHREDDED_TYPES = "int,struct<x:int,y:string>,"
+      + "map<string,int>,array<struct<p:string,q:array<int>>>";
+
+  private static Properties tableProperties(String columns, String types,
+      boolean shred) {
+    Properties tbl = new Properties();
+    tbl.setProperty(Constants.SERIALIZATION_LIB, LazyBinaryColumnarSerDe.class
+        .getName());
+    tbl.setProperty(Constants.LIST_COLUMNS, columns);
+    tbl.setProperty(Constants.LIST_COLUMN_TYPES, types);
+    tbl.setProperty(LazyBinaryColumnarSerDe.SHRED_NESTED, String
+        .valueOf(shred));
+    return tbl;
+  }
+
+  private static LazyBinaryColumnarSerDe createSerDe(Configuration conf)
+      throws SerDeException {
+    LazyBinaryColumnarSerDe serDe = new LazyBinaryColumnarSerDe();
+    serDe.initialize(conf, tableProperties(COLUMNS, TYPES, false));
+    return serDe;
+  }
+
+  private static LazyBinaryColumnarSerDe createShreddedSerDe(
+      Configuration conf) throws SerDeException {
+    LazyBinaryColumnarSerDe serDe = new LazyBinaryColumnarSerDe();
+    serDe.initialize(conf, tableProperties(SHREDDED_COLUMNS, SHREDDED_TYPES,
+        true));
+    return serDe;
+  }
+
+  private static StructObjectInspector javaRowInspector(String columns,
+      String types) {
+    return (StructObjectInspector) TypeInfoUtils
+        .getStandardJavaObjectInspectorFromTypeInfo(TypeInfoFactory
+        .getStructTypeInfo(Arrays.asList(columns.split(",")), TypeInfoUtils
+        .getTypeInfosFromTypeString(types)));
+  }
+
+  private static StructObjectInspector javaRowInspector() {
+    return javaRowInspector(COLUMNS, TYPES);
+  }
+
+  private static List<Object> row(Object... fields) {
+    return new ArrayList<Object>(Arrays.asList(fields));
+  }
+
+  private static BytesRefArrayWritable copy(BytesRefArrayWritable cols)
+      throws Exception {
+    BytesRefArrayWritable copy = new BytesRefArrayWritable(cols.size());
+    for (int i = 0; i < cols.size(); i++) {
+      BytesRefWritable col = cols.get(i);
+      byte[] bytes = Arrays.copyOfRange(col.getData(), col.getStart(), col
+          .getStart()
+          + col.getLength());
+      copy.set(i, new BytesRefWritable(bytes));
+    }
+    copy.setColumnLayout(cols.getColumnLayout());
+    return copy;
+  }
+
+  private static void assertRow(List<Object> expected, Object actual,
+      StructObjectInspector oi, StructObjectInspector javaOI) {
+    assertEquals(SerDeUtils.getJSONString(expected, javaOI), SerDeUtils
+        .getJSONString(actual, oi));
+  }
+
+  /**
+   * Test that rows read back as they were written.
+   */
+  public void testRoundTrip() throws Throwable {
+    LazyBinaryColumnarSerDe serDe = createSerDe(new Configuration());
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+    StructObjectInspector javaOI = javaRowInspector();
+    assertEquals(BytesRefArrayWritable.class, serDe.getSerializedClass());
+
+    Map<String, Integer> map = new HashMap<String, Integer>();
+    map.put("k", 1);
+    map.put("", null);
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    rows.add(row(true, 1, 1234567890123L, 1.5, "hive",
+        Arrays.asList("a", "", null), map, row(7, "y")));
+    rows.add(row(false, -1, -2L, -0.25, "", new ArrayList<String>(),
+        new HashMap<String, Integer>(), row(null, "")));
+    rows.add(row(null, null, null, null, null, null, null, null));
+    rows.add(row(null, Integer.MAX_VALUE, Long.MIN_VALUE, Double.NaN,
+        "\u00bf", null, null, row(null, null)));
+
+    for (List<Object> r : rows) {
+      BytesRefArrayWritable cols = copy((BytesRefArrayWritable) serDe
+          .serialize(r, javaOI));
+      assertEquals(8, cols.size());
+      assertRow(r, serDe.deserialize(cols), oi, javaOI);
+    }
+
+    // NULL takes no bytes, and the empty string one
+    BytesRefArrayWritable cols = (BytesRefArrayWritable) serDe.serialize(
+        rows.get(2), javaOI);
+    for (int i = 0; i < cols.size(); i++) {
+      assertEquals(0, cols.get(i).getLength());
+    }
+    cols = (BytesRefArrayWritable) serDe.serialize(rows.get(1), javaOI);
+    assertEquals(1, cols.get(4).getLength());
+    assertEquals(1, cols.get(1).getLength());
+  }
+
+  /**
+   * Test that strings of the byte that stands for the empty string, which are
+   * not UTF-8 but can be in a Text, are not read as the empty string.
+   */
+  public void testEmptyStringBytes() throws Throwable {
+    LazyBinaryColumnarSerDe serDe = new LazyBinaryColumnarSerDe();
+    serDe.initialize(new Configuration(), tableProperties("s", "string",
+        false));
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+    StructField field = oi.getStructFieldRef("s");
+    StringObjectInspector foi = (StringObjectInspector) field
+        .getFieldObjectInspector();
+    StructObjectInspector textOI = ObjectInspectorFactory
+        .getStandardStructObjectInspector(Arrays.asList("s"),
+        Arrays.<ObjectInspector> asList(PrimitiveObjectInspectorFactory
+        .writableStringObjectInspector));
+
+    byte b = LazyBinaryColumnarSerDe.EMPTY_STRING_BYTE;
+    byte[][] strings = {{}, {b}, {b, b}, {b, 'x'}, {'x', b}};
+    for (byte[] string : strings) {
+      Text text = new Text();
+      text.set(string);
+      BytesRefArrayWritable cols = (BytesRefArrayWritable) serDe.serialize(
+          row(text), textOI);
+      Text read = foi.getPrimitiveWritableObject(oi.getStructFieldData(serDe
+          .deserialize(copy(cols)), field));
+      assertEquals(text, read);
+    }
+  }
+
+  /**
+   * Test that unprojected columns and columns missing from the file are NULL.
+   */
+  public void testPartialRead() throws Throwable {
+    LazyBinaryColumnarSerDe serDe = createSerDe(new Configuration());
+    StructObjectInspector javaOI = javaRowInspector();
+    BytesRefArrayWritable cols = copy((BytesRefArrayWritable) serDe.serialize(
+        row(true, 5, 6L, 7.0, "s", null, null, row(8, "z")), javaOI));
+
+    Configuration conf = new Configuration();
+    ArrayList<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    ids.add(7);
+    ColumnProjectionUtils.setReadColumnIDs(conf, ids);
+    LazyBinaryColumnarSerDe projected = createSerDe(conf);
+    StructObjectInspector oi = (StructObjectInspector) projected
+        .getObjectInspector();
+    Object row = projected.deserialize(cols);
+    assertEquals("{\"b\":null,\"i\":5,\"l\":null,\"d\":null,\"s\":null,"
+        + "\"a\":null,\"m\":null,\"st\":{\"x\":8,\"y\":\"z\"}}", SerDeUtils
+        .getJSONString(row, oi));
+
+    // a file written before the last column was added
+    BytesRefArrayWritable shorter = new BytesRefArrayWritable(2);
+    shorter.set(0, cols.get(0));
+    shorter.set(1, cols.get(1));
+    serDe = createSerDe(new Configuration());
+    oi = (StructObjectInspector) serDe.getObjectInspector();
+    row = serDe.deserialize(shorter);
+    assertEquals("{\"b\":true,\"i\":5,\"l\":null,\"d\":null,\"s\":null,"
+        + "\"a\":null,\"m\":null,\"st\":null}", SerDeUtils.getJSONString(row,
+        oi));
+  }
+
+  /**
+   * Test that shredded structs, maps and arrays of structs read back as they
+   * were written.
+   */
+  public void testShreddedRoundTrip() throws Throwable {
+    LazyBinaryColumnarSerDe serDe = createShreddedSerDe(new Configuration());
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+    StructObjectInspector javaOI = javaRowInspector(SHREDDED_COLUMNS,
+        SHREDDED_TYPES);
+
+    assertTrue(Arrays.equals(new int[] {1, 3, 2, 3}, LazyBinaryColumnarSerDe
+        .getColumnLayout(tableProperties(SHREDDED_COLUMNS, SHREDDED_TYPES,
+        true))));
+    assertNull(LazyBinaryColumnarSerDe.getColumnLayout(tableProperties(
+        SHREDDED_COLUMNS, SHREDDED_TYPES, false)));
+
+    Map<String, Integer> map = new HashMap<String, Integer>();
+    map.put("k", 1);
+    map.put("", null);
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    rows.add(row(1, row(7, "y"), map, Arrays.asList(row("a", Arrays.asList(
+        1, null)), null, row(null, null), row("", new ArrayList<Integer>()))));
+    rows.add(row(2, row(null, ""), new HashMap<String, Integer>(),
+        new ArrayList<Object>()));
+    rows.add(row(null, null, null, null));
+    rows.add(row(3, row(null, null), null, Arrays.asList((Object) null)));
+
+    for (List<Object> r : rows) {
+      BytesRefArrayWritable cols = copy((BytesRefArrayWritable) serDe
+          .serialize(r, javaOI));
+      assertEquals(9, cols.size());
+      assertRow(r, serDe.deserialize(cols), oi, javaOI);
+    }
+  }
+
+  /**
+   * Test that a shredded column only reads the columns it needs.
+   */
+  public void testShreddedPartialRead() throws Throwable {
+    LazyBinaryColumnarSerDe serDe = createShreddedSerDe(new Configuration());
+    StructObjectInspector javaOI = javaRowInspector(SHREDDED_COLUMNS,
+        SHREDDED_TYPES);
+    Map<String, Integer> map = new HashMap<String, Integer>();
+    map.put("k", 1);
+    BytesRefArrayWritable cols = copy((BytesRefArrayWritable) serDe.serialize(
+        row(1, row(7, "y"), map, Arrays.asList(row("a", null))), javaOI));
+
+    // corrupt the columns that must not be read
+    BytesRefArrayWritable broken = new BytesRefArrayWritable(cols.size());
+    for (int i = 0; i < cols.size(); i++) {
+      broken.set(i, cols.get(i));
+    }
+    broken.setColumnLayout(cols.getColumnLayout());
+    byte[] garbage = new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+    broken.set(3, new BytesRefWritable(garbage));
+    broken.set(8, new BytesRefWritable(garbage));
+
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+    Object row = serDe.deserialize(broken);
+    List<Object> fields = oi.getStructFieldsDataAsList(row);
+
+    ShreddedStructObjectInspector soi = (ShreddedStructObjectInspector) oi
+        .getAllStructFieldRefs().get(1).getFieldObjectInspector();
+    assertEquals("7", soi.getStructFieldData(fields.get(1), soi
+        .getStructFieldRef("x")).toString());
+
+    ShreddedMapObjectInspector moi = (ShreddedMapObjectInspector) oi
+        .getAllStructFieldRefs().get(2).getFieldObjectInspector();
+    assertEquals("1", moi.getMapValueElement(fields.get(2),
+        new Text("k")).toString());
+    // a missing key does not read the values column
+    broken.set(5, new BytesRefWritable(garbage));
+    row = serDe.deserialize(broken);
+    fields = oi.getStructFieldsDataAsList(row);
+    assertNull(moi.getMapValueElement(fields.get(2),
+        new Text("x")));
+
+    ShreddedListObjectInspector loi = (ShreddedListObjectInspector) oi
+        .getAllStructFieldRefs().get(3).getFieldObjectInspector();
+    ShreddedStructObjectInspector eoi = (ShreddedStructObjectInspector) loi
+        .getListElementObjectInspector();
+    assertEquals(1, loi.getListLength(fields.get(3)));
+    assertEquals("a", eoi.getStructFieldData(loi.getListElement(fields.get(3),
+        0), eoi.getStructFieldRef("p")).toString());
+  }
+
+  /**
+   * Test that rows are read as the file they come from was written, whether
+   * the table is shredded or not.
+   */
+  public void testFileLayout() throws Throwable {
+    LazyBinaryColumnarSerDe shredded = createShreddedSerDe(
+        new Configuration());
+    LazyBinaryColumnarSerDe plain = new LazyBinaryColumnarSerDe();
+    plain.initialize(new Configuration(), tableProperties(SHREDDED_COLUMNS,
+        SHREDDED_TYPES, false));
+    StructObjectInspector javaOI = javaRowInspector(SHREDDED_COLUMNS,
+        SHREDDED_TYPES);
+    Map<String, Integer> map = new HashMap<String, Integer>();
+    map.put("k", 1);
+    List<Object> r = row(1, row(7, "y"), map, Arrays.asList(row("a", Arrays
+        .asList(1, null)), null));
+
+    BytesRefArrayWritable shreddedCols = copy((BytesRefArrayWritable) shredded
+        .serialize(r, javaOI));
+    BytesRefArrayWritable plainCols = copy((BytesRefArrayWritable) plain
+        .serialize(r, javaOI));
+    assertTrue(Arrays.equals(new int[] {1, 3, 2, 3}, shreddedCols
+        .getColumnLayout()));
+    assertNull(plainCols.getColumnLayout());
+    assertEquals(4, plainCols.size());
+
+    for (LazyBinaryColumnarSerDe serDe : Arrays.asList(shredded, plain)) {
+      StructObjectInspector oi = (StructObjectInspector) serDe
+          .getObjectInspector();
+      assertRow(r, serDe.deserialize(shreddedCols), oi, javaOI);
+      assertRow(r, serDe.deserialize(plainCols), oi, javaOI);
+      assertRow(r, serDe.deserialize(shreddedCols), oi, javaOI);
+    }
+
+    // a layout that does not fit the types
+    plainCols.setColumnLayout(new int[] {2, 1, 1, 1});
+    try {
+      plain.deserialize(plainCols);
+      fail("the layout does not fit the types");
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test that the fields of shredded columns that are not read are NULL.
+   */
+  public void testNestedPartialRead() throws Throwable {
+    LazyBinaryColumnarSerDe serDe = createShreddedSerDe(new Configuration());
+    StructObjectInspector javaOI = javaRowInspector(SHREDDED_COLUMNS,
+        SHREDDED_TYPES);
+    BytesRefArrayWritable cols = copy((BytesRefArrayWritable) serDe.serialize(
+        row(1, row(7, "y"), null, Arrays.asList(row("a", Arrays.asList(2)))),
+        javaOI));
+    // the columns of st.y and as.p are not read from the file
+    byte[] garbage = new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+    cols.set(3, new BytesRefWritable(garbage));
+    cols.set(7, new BytesRefWritable(garbage));
+
+    Configuration conf = new Configuration();
+    ArrayList<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    ids.add(3);
+    ColumnProjectionUtils.appendReadColumnIDs(conf, ids, new ArrayList<String>(
+        Arrays.asList("1:0", "3:1")));
+    LazyBinaryColumnarSerDe projected = createShreddedSerDe(conf);
+    StructObjectInspector oi = (StructObjectInspector) projected
+        .getObjectInspector();
+    assertEquals("{\"i\":null,\"st\":{\"x\":7,\"y\":null},\"m\":null,"
+        + "\"as\":[{\"p\":null,\"q\":[2]}]}", SerDeUtils.getJSONString(
+        projected.deserialize(cols), oi));
+  }
+
+  /**
+   * Test that a column keeps the fields read by every caller that reads it.
+   */
+  public void testAppendNestedColumnIDs() {
+    Configuration conf = new Configuration();
+    ArrayList<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    ids.add(3);
+    ColumnProjectionUtils.appendReadColumnIDs(conf, ids, new ArrayList<String>(
+        Arrays.asList("1:0", "3:1")));
+    ArrayList<Integer> more = new ArrayList<Integer>();
+    more.add(1);
+    more.add(2);
+    ColumnProjectionUtils.appendReadColumnIDs(conf, more,
+        new ArrayList<String>(Arrays.asList("1:2", "2:0")));
+    Map<Integer, ArrayList<Integer>> nested = ColumnProjectionUtils
+        .getReadNestedColumnIDs(conf);
+    assertEquals(3, nested.size());
+    assertEquals(Arrays.asList(0, 2), sorted(nested.get(1)));
+    assertEquals(Arrays.asList(0), nested.get(2));
+    assertEquals(Arrays.asList(1), nested.get(3));
+
+    // read whole by another caller
+    more.remove(1);
+    ColumnProjectionUtils.appendReadColumnIDs(conf, more);
+    nested = ColumnProjectionUtils.getReadNestedColumnIDs(conf);
+    assertEquals(2, nested.size());
+    assertNull(nested.get(1));
+
+    // a column first read whole stays whole
+    ColumnProjectionUtils.appendReadColumnIDs(conf, more,
+        new ArrayList<String>(Arrays.asList("1:1")));
+    assertNull(ColumnProjectionUtils.getReadNestedColumnIDs(conf).get(1));
+
+    ColumnProjectionUtils.setFullyReadColumns(conf);
+    assertTrue(ColumnProjectionUtils.getReadNestedColumnIDs(conf).isEmpty());
+  }
+
+  private static List<Integer> sorted(List<Integer> list) {
+    List<Integer> copy = new ArrayList<Integer>(list);
+    Collections.sort(copy);
+    return copy;
+  }
+}
@@ -17,6 +17,8 @@
  */
 package org.apache.hadoop.hive.serde2.lazy;
 
+import java.util.Random;
+
 import junit.framework.TestCase;
 
 import org.apache.hadoop.hive.serde2.ByteStream;
@@ -353,6 +355,67 @@ public class TestLazyPrimitive extends TestCase {
     }
   }
 
+  /**
+   * Test that parsing doubles and floats from bytes agrees with
+   * Double.parseDouble and Float.parseFloat.
+   */
+  public void testParseDoubleAndFloat() throws Exception {
+    String[] tests = {"0", "-0", "+0", "1", "-1", "0.1", "0.3", "-3.768",
+        "123456789012345", "1234567890123456", "12345678901234567890",
+        "0.000000000000000000001", "9007199254740993",
+        "1.7976931348623157E308",
+        "4.9e-324", "1e22", "1e23", "1e-22", "1e-23", "2.5E+3", "16777217",
+        "3.4028235e38", "1.4e-45", "0.1234567", "0.12345678", ".5", "5.",
+        "1e", "e1", ".", "-", "+", "1.2.3", "1x", " 1", "1 ", "NaN",
+        "Infinity", "-Infinity", "0x1p3", "1d", "1f", "1e99999"};
+    for (String test : tests) {
+      checkParse(test);
+    }
+    Random r = new Random(1);
+    for (int i = 0; i < 10000; i++) {
+      StringBuilder sb = new StringBuilder();
+      if (r.nextBoolean()) {
+        sb.append('-');
+      }
+      sb.append(r.nextInt(1000000));
+      if (r.nextBoolean()) {
+        sb.append('.').append(Math.abs(r.nextLong()) % 100000000000L);
+      }
+      if (r.nextInt(4) == 0) {
+        sb.append('e').append(r.nextInt(60) - 30);
+      }
+      checkParse(sb.toString());
+    }
+  }
+
+  private static void checkParse(String s) throws Exception {
+    byte[] bytes = ("x" + s + "x").getBytes("UTF-8");
+    Double expectedDouble;
+    try {
+      expectedDouble = Double.parseDouble(s);
+    } catch (NumberFormatException e) {
+      expectedDouble = null;
+    }
+    try {
+      assertEquals(s, expectedDouble, LazyDouble.parseDouble(bytes, 1,
+          bytes.length - 2));
+    } catch (NumberFormatException e) {
+      assertNull(s, expectedDouble);
+    }
+    Float expectedFloat;
+    try {
+      expectedFloat = Float.parseFloat(s);
+    } catch (NumberFormatException e) {
+      expectedFloat = null;
+    }
+    try {
+      assertEquals(s, expectedFloat, LazyFloat.parseFloat(bytes, 1,
+          bytes.length - 2));
+    } catch (NumberFormatException e) {
+      assertNull(s, expectedFloat);
+    }
+  }
+
   /**
    * Test the LazyString class.
    */
@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.lazyjson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde.Constants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.lazy.LazyPrimitive;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * TestLazyJsonSerDe.
+ *
+ */
+public class TestLazyJsonSerDe extends TestCase {
+
+  private static final String COLUMNS = "id,name,score,ok,tags,props,inner";
+  private static final String TYPES = "bigint:string:double:boolean"
+      + ":array<int>:map<string,int>:struct<a:int,b:string>";
+
+  private LazyJsonSerDe createSerDe(Configuration conf) throws SerDeException {
+    LazyJsonSerDe serDe = new LazyJsonSerDe();
+    Properties tbl = new Properties();
+    tbl.setProperty(Constants.LIST_COLUMNS, COLUMNS);
+    tbl.setProperty(Constants.LIST_COLUMN_TYPES, TYPES);
+    serDe.initialize(conf, tbl);
+    return serDe;
+  }
+
+  private static Object writable(Object o) {
+    return o == null ? null : ((LazyPrimitive) o).getWritableObject();
+  }
+
+  private static Object field(StructObjectInspector oi, Object row,
+      String name) {
+    return oi.getStructFieldData(row, oi.getStructFieldRef(name));
+  }
+
+  /**
+   * Test primitive and nested columns.
+   */
+  public void testDeserialize() throws Throwable {
+    LazyJsonSerDe serDe = createSerDe(new Configuration());
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+    assertEquals(7, oi.getAllStructFieldRefs().size());
+
+    Object row = serDe.deserialize(new Text("{\"id\": 12, \"name\": \"a\\tb"
+        + "\\u00e9\\ud83d\\ude00\", \"score\": 1.5, \"ok\": true,"
+        + " \"tags\": [1, 2, null], \"props\": {\"x\": 1, \"y\": null},"
+        + " \"inner\": {\"b\": \"c\", \"a\": 3}, \"extra\": [{}]}"));
+    assertEquals(new LongWritable(12), writable(field(oi, row, "id")));
+    assertEquals(new Text("a\tb\u00e9\ud83d\ude00"),
+        writable(field(oi, row, "name")));
+    assertEquals(new DoubleWritable(1.5), writable(field(oi, row, "score")));
+    assertEquals(new BooleanWritable(true), writable(field(oi, row, "ok")));
+
+    StructField tagsRef = oi.getStructFieldRef("tags");
+    ListObjectInspector loi = (ListObjectInspector) tagsRef
+        .getFieldObjectInspector();
+    Object tags = oi.getStructFieldData(row, tagsRef);
+    assertEquals(3, loi.getListLength(tags));
+    assertEquals(new IntWritable(2), writable(loi.getListElement(tags, 1)));
+    assertNull(loi.getListElement(tags, 2));
+
+    StructField propsRef = oi.getStructFieldRef("props");
+    MapObjectInspector moi = (MapObjectInspector) propsRef
+        .getFieldObjectInspector();
+    Object props = oi.getStructFieldData(row, propsRef);
+    assertEquals(2, moi.getMapSize(props));
+    assertEquals(new IntWritable(1), writable(moi.getMapValueElement(props,
+        new Text("x"))));
+    assertNull(moi.getMapValueElement(props, new Text("y")));
+    Map<?, ?> map = moi.getMap(props);
+    assertEquals(2, map.size());
+
+    StructField innerRef = oi.getStructFieldRef("inner");
+    StructObjectInspector ioi = (StructObjectInspector) innerRef
+        .getFieldObjectInspector();
+    Object inner = oi.getStructFieldData(row, innerRef);
+    assertEquals(new IntWritable(3), writable(field(ioi, inner, "a")));
+    assertEquals(new Text("c"), writable(field(ioi, inner, "b")));
+  }
+
+  /**
+   * Test missing members, nulls, member name case and malformed rows.
+   */
+  public void testMissingAndNull() throws Throwable {
+    LazyJsonSerDe serDe = createSerDe(new Configuration());
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+
+    Object row = serDe.deserialize(new Text(" {\"NAME\":\"x\", \"Id\": 7,"
+        + " \"id\": 8, \"tags\": null, \"inner\": \"notastruct\"} "));
+    assertEquals(new LongWritable(7), writable(field(oi, row, "id")));
+    assertEquals(new Text("x"), writable(field(oi, row, "name")));
+    assertNull(field(oi, row, "score"));
+    assertNull(field(oi, row, "tags"));
+    assertNull(field(oi, row, "props"));
+    assertNull(field(oi, row, "inner"));
+
+    // names are unescaped before they are compared
+    row = serDe.deserialize(new Text("{\"\\u0069d\": 5, \"n\\u0041me\": \"e\","
+        + " \"sc\\\"ore\": 1.0}"));
+    assertEquals(new LongWritable(5), writable(field(oi, row, "id")));
+    assertEquals(new Text("e"), writable(field(oi, row, "name")));
+    assertNull(field(oi, row, "score"));
+
+    // a value of the wrong type is NULL, as with the other lazy SerDes
+    row = serDe.deserialize(new Text("{\"id\":\"abc\",\"score\":[1]}"));
+    assertNull(field(oi, row, "id"));
+    assertNull(field(oi, row, "score"));
+
+    for (String s : new String[] {"null", "", "[1,2]", "{\"id\" 1}"}) {
+      row = serDe.deserialize(new Text(s));
+      List<Object> fields = oi.getStructFieldsDataAsList(row);
+      for (Object f : fields) {
+        assertNull(s, f);
+      }
+    }
+
+    // the members before the point where the row breaks off are kept
+    row = serDe.deserialize(new Text("{\"id\":1,\"name\":"));
+    assertEquals(new LongWritable(1), writable(field(oi, row, "id")));
+    assertNull(field(oi, row, "name"));
+  }
+
+  /**
+   * Test that non-ASCII names are matched ignoring case.
+   */
+  public void testNonAsciiNames() throws Throwable {
+    LazyJsonSerDe serDe = new LazyJsonSerDe();
+    Properties tbl = new Properties();
+    tbl.setProperty(Constants.LIST_COLUMNS, "\u00e9t\u00e9,\u03c3\u03bf\u03c6\u03cc\u03c2");
+    tbl.setProperty(Constants.LIST_COLUMN_TYPES, "int:int");
+    serDe.initialize(new Configuration(), tbl);
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+
+    Object row = serDe.deserialize(new Text("{\"\u00c9T\u00c9\": 1,"
+        + " \"\\u03a3\u039f\u03a6\u038c\u03c2\": 2}"));
+    List<Object> fields = oi.getStructFieldsDataAsList(row);
+    assertEquals(new IntWritable(1), writable(fields.get(0)));
+    assertEquals(new IntWritable(2), writable(fields.get(1)));
+  }
+
+  /**
+   * Test that only the projected columns are materialized.
+   */
+  public void testProjection() throws Throwable {
+    Configuration conf = new Configuration();
+    ArrayList<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    ColumnProjectionUtils.setReadColumnIDs(conf, ids);
+    LazyJsonSerDe serDe = createSerDe(conf);
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+
+    // the scan stops after "name", so the broken tail is never looked at
+    Object row = serDe.deserialize(new Text("{\"id\":1,\"name\":\"n\","
+        + "\"tags\":[1,"));
+    assertNull(field(oi, row, "id"));
+    assertEquals(new Text("n"), writable(field(oi, row, "name")));
+    assertNull(field(oi, row, "tags"));
+  }
+
+  /**
+   * Test that a serialized row reads back to the same values.
+   */
+  public void testSerialize() throws Throwable {
+    LazyJsonSerDe serDe = createSerDe(new Configuration());
+    StructObjectInspector oi = (StructObjectInspector) serDe
+        .getObjectInspector();
+    assertEquals(Text.class, serDe.getSerializedClass());
+
+    Object row = serDe.deserialize(new Text("{\"id\":-3,\"name\":\"q\\\"u"
+        + "\\\\o\\nte\",\"tags\":[5],\"props\":{\"k\":9},"
+        + "\"inner\":{\"a\":1,\"b\":null}}"));
+    Text serialized = new Text((Text) serDe.serialize(row, oi));
+    assertEquals("{\"id\":-3,\"name\":\"q\\\"u\\\\o\\nte\",\"score\":null,"
+        + "\"ok\":null,\"tags\":[5],\"props\":{\"k\":9},"
+        + "\"inner\":{\"a\":1,\"b\":null}}", serialized.toString());
+
+    Object again = serDe.deserialize(serialized);
+    assertEquals(SerDeUtils.getJSONString(row, oi), SerDeUtils.getJSONString(
+        again, oi));
+  }
+}